@@ -0,0 +1,63 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.common.ignite.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+
+/**
+ * Instances of this class provide selective, reflective binary serialisation logic for Java objects, additionally {@link LZBlockCodec
+ * compressing} the values of fields of type {@link String} if their encoded length exceeds a configurable threshold. Such fields are
+ * always written as byte arrays - regardless of whether the individual value has been compressed - so that the binary type metadata of a
+ * class remains consistent.
+ *
+ * @author Axel Faust
+ */
+public class CompressingSelectivelyReflectiveBinarySerializer extends SelectivelyReflectiveBinarySerializer
+{
+
+    protected final CompressionStatistics compressionStatistics = new CompressionStatistics();
+
+    protected int compressionThreshold = 1024;
+
+    /**
+     * @param compressionThreshold
+     *            the compressionThreshold to set
+     */
+    public void setCompressionThreshold(final int compressionThreshold)
+    {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return the statistics about the compression of field values handled by this instance
+     */
+    public CompressionStatistics getCompressionStatistics()
+    {
+        return this.compressionStatistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeStringField(final BinaryWriter writer, final String fieldName, final String value) throws BinaryObjectException
+    {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writer.writeByteArray(fieldName, LZBlockCodec.encodeBlock(bytes, this.compressionThreshold, this.compressionStatistics));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String readStringField(final BinaryReader reader, final String fieldName) throws BinaryObjectException
+    {
+        final byte[] block = reader.readByteArray(fieldName);
+        return block != null ? new String(LZBlockCodec.decodeBlock(block), StandardCharsets.UTF_8) : null;
+    }
+}
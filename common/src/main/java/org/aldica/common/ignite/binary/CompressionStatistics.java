@@ -0,0 +1,107 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.common.ignite.binary;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instances of this class record the effectiveness of the {@link LZBlockCodec block compression} applied by a specific serializer.
+ *
+ * @author Axel Faust
+ */
+public class CompressionStatistics
+{
+
+    protected final LongAdder blocks = new LongAdder();
+
+    protected final LongAdder compressedBlocks = new LongAdder();
+
+    protected final LongAdder originalBytes = new LongAdder();
+
+    protected final LongAdder encodedBytes = new LongAdder();
+
+    /**
+     * Records the result of encoding a single block.
+     *
+     * @param originalLength
+     *            the length of the original data
+     * @param encodedLength
+     *            the length of the encoded block
+     * @param compressed
+     *            {@code true} if the data has been compressed, {@code false} otherwise
+     */
+    public void record(final int originalLength, final int encodedLength, final boolean compressed)
+    {
+        this.blocks.increment();
+        if (compressed)
+        {
+            this.compressedBlocks.increment();
+        }
+        this.originalBytes.add(originalLength);
+        this.encodedBytes.add(encodedLength);
+    }
+
+    /**
+     * @return the number of encoded blocks
+     */
+    public long getBlocks()
+    {
+        return this.blocks.sum();
+    }
+
+    /**
+     * @return the number of encoded blocks which have been compressed
+     */
+    public long getCompressedBlocks()
+    {
+        return this.compressedBlocks.sum();
+    }
+
+    /**
+     * @return the total length of the original data of all encoded blocks
+     */
+    public long getOriginalBytes()
+    {
+        return this.originalBytes.sum();
+    }
+
+    /**
+     * @return the total length of all encoded blocks
+     */
+    public long getEncodedBytes()
+    {
+        return this.encodedBytes.sum();
+    }
+
+    /**
+     * @return the ratio of the total length of original data to the total length of encoded blocks, or {@code 1} if no block has been
+     *         encoded
+     */
+    public double getCompressionRatio()
+    {
+        final long encodedBytes = this.encodedBytes.sum();
+        return encodedBytes > 0 ? this.originalBytes.sum() / (double) encodedBytes : 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("CompressionStatistics [blocks=");
+        builder.append(this.getBlocks());
+        builder.append(", compressedBlocks=");
+        builder.append(this.getCompressedBlocks());
+        builder.append(", originalBytes=");
+        builder.append(this.getOriginalBytes());
+        builder.append(", encodedBytes=");
+        builder.append(this.getEncodedBytes());
+        builder.append(", compressionRatio=");
+        builder.append(this.getCompressionRatio());
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,305 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.common.ignite.binary;
+
+import java.util.Arrays;
+
+import org.apache.ignite.binary.BinaryObjectException;
+
+/**
+ * This class provides a fast, pure-Java block compression codec of the LZ77 family, using a byte-oriented sequence format similar to the
+ * LZ4 block format. Each sequence consists of a token with the lengths of literals and a back-reference match, extended lengths if
+ * required, the literal bytes, and the two-byte offset of the match. Matches are found via a single-entry hash table of four-byte
+ * sequences, trading compression ratio for speed, which makes this codec suitable for compressing serial forms of cache values on every
+ * write without noticeable overhead.
+ *
+ * Compressed blocks do not store the length of the original data - {@link #encodeBlock(byte[], int, CompressionStatistics) encoded blocks}
+ * add a header which flags whether a block has been compressed at all and the length of the original data.
+ *
+ * @author Axel Faust
+ */
+public final class LZBlockCodec
+{
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int MAX_OFFSET = 0xffff;
+
+    private static final int HASH_BITS = 12;
+
+    private static final int RUN_MASK = 0x0f;
+
+    private static final byte BLOCK_UNCOMPRESSED = 0;
+
+    private static final byte BLOCK_COMPRESSED = 1;
+
+    private LZBlockCodec()
+    {
+        // NO-OP
+    }
+
+    /**
+     * Encodes data as a block, compressing the data if it is at least as long as a specific threshold and compression actually reduces its
+     * size.
+     *
+     * @param data
+     *            the data to encode
+     * @param threshold
+     *            the minimum length of data to attempt compression
+     * @param statistics
+     *            the statistics in which to record the result of the encoding - may be {@code null}
+     * @return the encoded block
+     */
+    public static byte[] encodeBlock(final byte[] data, final int threshold, final CompressionStatistics statistics)
+    {
+        byte[] block = null;
+        if (data.length >= threshold)
+        {
+            final byte[] compressed = compress(data);
+            if (compressed.length + 4 < data.length)
+            {
+                block = new byte[compressed.length + 5];
+                block[0] = BLOCK_COMPRESSED;
+                writeInt(block, 1, data.length);
+                System.arraycopy(compressed, 0, block, 5, compressed.length);
+            }
+        }
+
+        if (block == null)
+        {
+            block = new byte[data.length + 1];
+            block[0] = BLOCK_UNCOMPRESSED;
+            System.arraycopy(data, 0, block, 1, data.length);
+        }
+
+        if (statistics != null)
+        {
+            statistics.record(data.length, block.length, block[0] == BLOCK_COMPRESSED);
+        }
+        return block;
+    }
+
+    /**
+     * Decodes a block written by {@link #encodeBlock(byte[], int, CompressionStatistics) encodeBlock}.
+     *
+     * @param block
+     *            the block to decode
+     * @return the decoded data
+     * @throws BinaryObjectException
+     *             if the block is malformed
+     */
+    public static byte[] decodeBlock(final byte[] block) throws BinaryObjectException
+    {
+        if (block.length == 0)
+        {
+            throw new BinaryObjectException("Encoded block must contain a header");
+        }
+
+        final byte[] data;
+        switch (block[0])
+        {
+            case BLOCK_UNCOMPRESSED:
+                data = Arrays.copyOfRange(block, 1, block.length);
+                break;
+            case BLOCK_COMPRESSED:
+                if (block.length < 5)
+                {
+                    throw new BinaryObjectException("Compressed block must contain the original length");
+                }
+                final int originalLength = ((block[1] & 0xff) << 24) | ((block[2] & 0xff) << 16) | ((block[3] & 0xff) << 8)
+                        | (block[4] & 0xff);
+                data = decompress(block, 5, originalLength);
+                break;
+            default:
+                throw new BinaryObjectException("Unsupported block type " + block[0]);
+        }
+        return data;
+    }
+
+    /**
+     * Compresses data.
+     *
+     * @param data
+     *            the data to compress
+     * @return the compressed data
+     */
+    public static byte[] compress(final byte[] data)
+    {
+        final int length = data.length;
+        final byte[] out = new byte[length + length / 255 + 16];
+        final int[] table = new int[1 << HASH_BITS];
+        Arrays.fill(table, -1);
+
+        int outPos = 0;
+        int anchor = 0;
+        int pos = 0;
+        while (pos + MIN_MATCH <= length)
+        {
+            final int sequence = readInt(data, pos);
+            final int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            final int ref = table[hash];
+            table[hash] = pos;
+
+            if (ref >= 0 && pos - ref <= MAX_OFFSET && readInt(data, ref) == sequence)
+            {
+                int matchLength = MIN_MATCH;
+                while (pos + matchLength < length && data[ref + matchLength] == data[pos + matchLength])
+                {
+                    matchLength++;
+                }
+
+                outPos = writeSequence(data, anchor, pos - anchor, pos - ref, matchLength, out, outPos);
+                pos += matchLength;
+                anchor = pos;
+            }
+            else
+            {
+                pos++;
+            }
+        }
+
+        // trailing literals without match
+        outPos = writeSequence(data, anchor, length - anchor, 0, 0, out, outPos);
+        return Arrays.copyOf(out, outPos);
+    }
+
+    /**
+     * Decompresses data.
+     *
+     * @param compressed
+     *            the compressed data
+     * @param offset
+     *            the offset at which the compressed data starts
+     * @param originalLength
+     *            the length of the original data
+     * @return the decompressed data
+     * @throws BinaryObjectException
+     *             if the compressed data is malformed
+     */
+    public static byte[] decompress(final byte[] compressed, final int offset, final int originalLength) throws BinaryObjectException
+    {
+        if (originalLength < 0)
+        {
+            throw new BinaryObjectException("Invalid original length " + originalLength);
+        }
+
+        final byte[] data = new byte[originalLength];
+        try
+        {
+            int inPos = offset;
+            int outPos = 0;
+            while (true)
+            {
+                final int token = compressed[inPos++] & 0xff;
+
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK)
+                {
+                    int b;
+                    do
+                    {
+                        b = compressed[inPos++] & 0xff;
+                        literalLength += b;
+                    }
+                    while (b == 0xff);
+                }
+                System.arraycopy(compressed, inPos, data, outPos, literalLength);
+                inPos += literalLength;
+                outPos += literalLength;
+
+                if (outPos == originalLength)
+                {
+                    break;
+                }
+
+                final int matchOffset = (compressed[inPos++] & 0xff) | ((compressed[inPos++] & 0xff) << 8);
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK)
+                {
+                    int b;
+                    do
+                    {
+                        b = compressed[inPos++] & 0xff;
+                        matchLength += b;
+                    }
+                    while (b == 0xff);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = outPos - matchOffset;
+                if (matchOffset == 0 || ref < 0 || outPos + matchLength > originalLength)
+                {
+                    throw new BinaryObjectException("Compressed data contains invalid match");
+                }
+                // byte-wise copy as match may overlap with the bytes it produces
+                for (int idx = 0; idx < matchLength; idx++)
+                {
+                    data[outPos++] = data[ref++];
+                }
+            }
+        }
+        catch (final IndexOutOfBoundsException ioobe)
+        {
+            throw new BinaryObjectException("Compressed data is truncated or malformed", ioobe);
+        }
+        return data;
+    }
+
+    private static int writeSequence(final byte[] data, final int literalOffset, final int literalLength, final int matchOffset,
+            final int matchLength, final byte[] out, final int outPos)
+    {
+        int pos = outPos;
+        final int tokenPos = pos++;
+
+        int token = Math.min(literalLength, RUN_MASK) << 4;
+        if (literalLength >= RUN_MASK)
+        {
+            pos = writeLength(literalLength - RUN_MASK, out, pos);
+        }
+        System.arraycopy(data, literalOffset, out, pos, literalLength);
+        pos += literalLength;
+
+        if (matchLength > 0)
+        {
+            out[pos++] = (byte) matchOffset;
+            out[pos++] = (byte) (matchOffset >>> 8);
+
+            final int encodedMatchLength = matchLength - MIN_MATCH;
+            token |= Math.min(encodedMatchLength, RUN_MASK);
+            if (encodedMatchLength >= RUN_MASK)
+            {
+                pos = writeLength(encodedMatchLength - RUN_MASK, out, pos);
+            }
+        }
+
+        out[tokenPos] = (byte) token;
+        return pos;
+    }
+
+    private static int writeLength(final int length, final byte[] out, final int outPos)
+    {
+        int pos = outPos;
+        int remaining = length;
+        while (remaining >= 0xff)
+        {
+            out[pos++] = (byte) 0xff;
+            remaining -= 0xff;
+        }
+        out[pos++] = (byte) remaining;
+        return pos;
+    }
+
+    private static int readInt(final byte[] data, final int pos)
+    {
+        return (data[pos] & 0xff) | ((data[pos + 1] & 0xff) << 8) | ((data[pos + 2] & 0xff) << 16) | ((data[pos + 3] & 0xff) << 24);
+    }
+
+    private static void writeInt(final byte[] data, final int pos, final int value)
+    {
+        data[pos] = (byte) (value >>> 24);
+        data[pos + 1] = (byte) (value >>> 16);
+        data[pos + 2] = (byte) (value >>> 8);
+        data[pos + 3] = (byte) value;
+    }
+}
@@ -206,7 +206,7 @@ public class SelectivelyReflectiveBinarySerializer implements BinarySerializer,
                     }
                     else if (String.class.equals(type))
                     {
-                        writer.writeString(field.getName(), (String) fieldValue);
+                        this.writeStringField(writer, field.getName(), (String) fieldValue);
                     }
                     else if (UUID.class.equals(type))
                     {
@@ -380,7 +380,7 @@ public class SelectivelyReflectiveBinarySerializer implements BinarySerializer,
                 }
                 else if (String.class.equals(type))
                 {
-                    fieldValue = reader.readString(field.getName());
+                    fieldValue = this.readStringField(reader, field.getName());
                 }
                 else if (UUID.class.equals(type))
                 {
@@ -418,6 +418,39 @@ public class SelectivelyReflectiveBinarySerializer implements BinarySerializer,
         LOGGER.debug("Deserialized {}", obj);
     }
 
+    /**
+     * Writes the value of a field of type {@link String}.
+     *
+     * @param writer
+     *            the writer to use
+     * @param fieldName
+     *            the name of the field
+     * @param value
+     *            the value of the field
+     * @throws BinaryObjectException
+     *             if the value cannot be written
+     */
+    protected void writeStringField(final BinaryWriter writer, final String fieldName, final String value) throws BinaryObjectException
+    {
+        writer.writeString(fieldName, value);
+    }
+
+    /**
+     * Reads the value of a field of type {@link String}.
+     *
+     * @param reader
+     *            the reader to use
+     * @param fieldName
+     *            the name of the field
+     * @return the value of the field
+     * @throws BinaryObjectException
+     *             if the value cannot be read
+     */
+    protected String readStringField(final BinaryReader reader, final String fieldName) throws BinaryObjectException
+    {
+        return reader.readString(fieldName);
+    }
+
     protected Collection<Field> calculateFieldsForClass(final Class<?> cls)
     {
         LOGGER.debug("Calculating fields to serialize for class {}", cls);
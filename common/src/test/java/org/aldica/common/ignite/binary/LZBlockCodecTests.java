@@ -0,0 +1,140 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.common.ignite.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class LZBlockCodecTests
+{
+
+    protected static byte[] createCompressibleData(final int length)
+    {
+        final StringBuilder builder = new StringBuilder(length + 64);
+        int line = 0;
+        while (builder.length() < length)
+        {
+            builder.append("Line ").append(line++).append(" of some repetitive text with a few variations\n");
+        }
+        return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+
+    @Test
+    public void roundTripCompressibleData()
+    {
+        for (final int length : new int[] { 0, 1, 3, 4, 5, 15, 16, 19, 270, 4096, 100000 })
+        {
+            final byte[] data = createCompressibleData(length);
+            final byte[] compressed = LZBlockCodec.compress(data);
+            Assert.assertArrayEquals(data, LZBlockCodec.decompress(compressed, 0, data.length));
+
+            if (length >= 4096)
+            {
+                Assert.assertTrue("Repetitive data should be compressed to less than half its size", compressed.length < length / 2);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripRandomData()
+    {
+        final Random random = new Random(42);
+        for (final int length : new int[] { 1, 17, 255, 256, 1024, 65536, 200000 })
+        {
+            final byte[] data = new byte[length];
+            random.nextBytes(data);
+            final byte[] compressed = LZBlockCodec.compress(data);
+            Assert.assertArrayEquals(data, LZBlockCodec.decompress(compressed, 0, data.length));
+        }
+    }
+
+    @Test
+    public void roundTripLongRuns()
+    {
+        // runs longer than the offset of the match, requiring overlapping copies and extended match lengths
+        final byte[] data = new byte[10000];
+        Arrays.fill(data, 0, 5000, (byte) 'a');
+        for (int idx = 5000; idx < data.length; idx++)
+        {
+            data[idx] = (byte) (idx % 3);
+        }
+
+        final byte[] compressed = LZBlockCodec.compress(data);
+        Assert.assertTrue(compressed.length < 100);
+        Assert.assertArrayEquals(data, LZBlockCodec.decompress(compressed, 0, data.length));
+    }
+
+    @Test
+    public void encodeBlockThreshold()
+    {
+        final CompressionStatistics statistics = new CompressionStatistics();
+        final byte[] data = createCompressibleData(2048);
+
+        final byte[] belowThreshold = LZBlockCodec.encodeBlock(data, 4096, statistics);
+        Assert.assertEquals(data.length + 1, belowThreshold.length);
+        Assert.assertArrayEquals(data, LZBlockCodec.decodeBlock(belowThreshold));
+
+        final byte[] aboveThreshold = LZBlockCodec.encodeBlock(data, 1024, statistics);
+        Assert.assertTrue(aboveThreshold.length < data.length);
+        Assert.assertArrayEquals(data, LZBlockCodec.decodeBlock(aboveThreshold));
+
+        Assert.assertEquals(2, statistics.getBlocks());
+        Assert.assertEquals(1, statistics.getCompressedBlocks());
+        Assert.assertEquals(2 * data.length, statistics.getOriginalBytes());
+        Assert.assertEquals(belowThreshold.length + aboveThreshold.length, statistics.getEncodedBytes());
+        Assert.assertTrue(statistics.getCompressionRatio() > 1);
+    }
+
+    @Test
+    public void encodeBlockIncompressibleData()
+    {
+        final CompressionStatistics statistics = new CompressionStatistics();
+        final byte[] data = new byte[2048];
+        new Random(42).nextBytes(data);
+
+        final byte[] block = LZBlockCodec.encodeBlock(data, 0, statistics);
+        Assert.assertEquals(data.length + 1, block.length);
+        Assert.assertArrayEquals(data, LZBlockCodec.decodeBlock(block));
+        Assert.assertEquals(0, statistics.getCompressedBlocks());
+    }
+
+    @Test
+    public void decodeMalformedBlock()
+    {
+        final byte[] block = LZBlockCodec.encodeBlock(createCompressibleData(4096), 0, null);
+
+        for (final byte[] malformed : new byte[][] { new byte[0], new byte[] { 7 }, new byte[] { 1, 0, 0 },
+                Arrays.copyOf(block, block.length / 2) })
+        {
+            try
+            {
+                LZBlockCodec.decodeBlock(malformed);
+                Assert.fail("Malformed block should not be decoded");
+            }
+            catch (final BinaryObjectException expected)
+            {
+                // NO-OP
+            }
+        }
+
+        // invalid match offset beyond the start of the data
+        try
+        {
+            LZBlockCodec.decompress(new byte[] { 0x10, 'a', 0x05, 0x00 }, 0, 5);
+            Assert.fail("Compressed data with invalid match should not be decompressed");
+        }
+        catch (final BinaryObjectException expected)
+        {
+            // NO-OP
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.affinity.AffinityKeyMapper;
+
+/**
+ * Instances of this class provide the companion app counterpart to the node affinity key mapper of the Repository module. In order to
+ * succeed in Ignite's configuration checks within a distributed grid, the same mapper class needs to be configured for the same cache.
+ * Since the companion app cannot deserialise any Alfresco key classes, this implementation only maps keys in their binary form.
+ * Node-centric keys expose the ID of their node as a top-level field irrespective of the use of the raw serial form, so that the mapping
+ * is identical to that of the Repository module.
+ *
+ * @author Axel Faust
+ */
+public class NodeAffinityKeyMapper implements AffinityKeyMapper
+{
+
+    private static final long serialVersionUID = 3954281853622367307L;
+
+    private static final String NODE_ID = "nodeId";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object affinityKey(final Object key)
+    {
+        Object affinityKey = key;
+        if (key instanceof BinaryObject)
+        {
+            final BinaryObject binaryKey = (BinaryObject) key;
+            if (binaryKey.hasField(NODE_ID))
+            {
+                affinityKey = binaryKey.field(NODE_ID);
+            }
+        }
+        return affinityKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        // NO-OP - stateless
+    }
+}
@@ -44,10 +44,13 @@ public enum CacheRegion
     PROPERTY("Property"),
     CUSTOM(null);
 
+    // cached as values() creates a new copy of the array on every call
+    private static final CacheRegion[] LITERALS = CacheRegion.values();
+
     private static final Map<String, CacheRegion> LOOKUP = new HashMap<>();
     static
     {
-        for (final CacheRegion value : CacheRegion.values())
+        for (final CacheRegion value : LITERALS)
         {
             final String name = value.getCacheRegionName();
             if (name != null)
@@ -85,4 +88,22 @@ public enum CacheRegion
         final CacheRegion literal = LOOKUP.getOrDefault(cacheRegion, CUSTOM);
         return literal;
     }
+
+    /**
+     * Retrieves the enumeration literal with a specific ordinal.
+     *
+     * @param ordinal
+     *            the ordinal of the literal to retrieve
+     * @return the literal with the ordinal
+     * @throws IllegalArgumentException
+     *             if no literal exists with the ordinal
+     */
+    public static CacheRegion getLiteral(final int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= LITERALS.length)
+        {
+            throw new IllegalArgumentException("No literal exists with ordinal " + ordinal);
+        }
+        return LITERALS[ordinal];
+    }
 }
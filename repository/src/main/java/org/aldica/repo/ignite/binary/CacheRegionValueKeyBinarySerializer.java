@@ -134,7 +134,7 @@ public class CacheRegionValueKeyBinarySerializer implements BinarySerializer
             final BinaryRawReader rawReader = reader.rawReader();
 
             final byte literalOrdinal = rawReader.readByte();
-            literal = CacheRegion.values()[literalOrdinal];
+            literal = CacheRegion.getLiteral(literalOrdinal);
             if (literal == CacheRegion.CUSTOM)
             {
                 cacheRegion = rawReader.readString();
@@ -144,7 +144,7 @@ public class CacheRegionValueKeyBinarySerializer implements BinarySerializer
         else
         {
             final byte literalOrdinal = reader.readByte(CACHE_REGION_TYPE);
-            literal = CacheRegion.values()[literalOrdinal];
+            literal = CacheRegion.getLiteral(literalOrdinal);
             if (literal == CacheRegion.CUSTOM)
             {
                 cacheRegion = reader.readString(CACHE_REGION);
@@ -159,8 +159,8 @@ public class CacheRegionValueKeyBinarySerializer implements BinarySerializer
             CACHE_REGION_FIELD.set(obj, cacheRegion);
             CACHE_VALUE_KEY_FIELD.set(obj, cacheValueKey);
             // reconstruct the hash code
-            HASH_CODE_FIELD.set(obj, Integer
-                    .valueOf((cacheRegion != null ? cacheRegion.hashCode() : 0) + (cacheValueKey != null ? cacheValueKey.hashCode() : 0)));
+            HASH_CODE_FIELD.setInt(obj,
+                    (cacheRegion != null ? cacheRegion.hashCode() : 0) + (cacheValueKey != null ? cacheValueKey.hashCode() : 0));
         }
         catch (final IllegalAccessException iae)
         {
@@ -27,7 +27,8 @@ import org.springframework.context.ApplicationContextAware;
  *
  * This implementation is capable of replacing {@link ContentData#getMimetype() mimetype}, {@link ContentData#getEncoding() encoding} and
  * {@link ContentData#getLocale() locale} with their corresponding IDs for a more efficient serial form. It can be reasonably expected that
- * these IDs can be efficiently resolved using fully replicated caches, especially given their extremely low numbers / variety.
+ * these IDs can be efficiently resolved using fully replicated caches, especially given their extremely low numbers / variety. In the raw
+ * serial form, all IDs and the size of the content are written in {@link VarIntCodec variable-length encoding}.
  *
  *
  * @author Axel Faust
@@ -176,11 +177,11 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
     {
         if (contentData instanceof ContentDataWithId)
         {
-            rawWriter.writeLong(((ContentDataWithId) contentData).getId());
+            VarIntCodec.writeUnsignedLong(rawWriter, ((ContentDataWithId) contentData).getId());
         }
 
         rawWriter.writeString(contentData.getContentUrl());
-        rawWriter.writeLong(contentData.getSize());
+        VarIntCodec.writeUnsignedLong(rawWriter, contentData.getSize());
 
         final String mimetype = contentData.getMimetype();
         Long mimetypeId = null;
@@ -235,7 +236,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if (mimetypeId != null)
         {
-            rawWriter.writeLong(mimetypeId);
+            VarIntCodec.writeUnsignedLong(rawWriter, mimetypeId);
         }
         else if (mimetype != null)
         {
@@ -244,7 +245,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if (encodingId != null)
         {
-            rawWriter.writeLong(encodingId);
+            VarIntCodec.writeUnsignedLong(rawWriter, encodingId);
         }
         else if (encoding != null)
         {
@@ -253,7 +254,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if (localeId != null)
         {
-            rawWriter.writeLong(localeId);
+            VarIntCodec.writeUnsignedLong(rawWriter, localeId);
         }
         else if (locale != null)
         {
@@ -367,7 +368,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
     {
         if (contentData instanceof ContentDataWithId)
         {
-            final long id = rawReader.readLong();
+            final long id = VarIntCodec.readUnsignedLong(rawReader);
             try
             {
                 ID_FIELD.set(contentData, id);
@@ -379,7 +380,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
         }
 
         final String contentUrl = rawReader.readString();
-        final long size = rawReader.readLong();
+        final long size = VarIntCodec.readUnsignedLong(rawReader);
 
         String mimetype = null;
         String encoding = null;
@@ -393,7 +394,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if ((flags & FLAG_MIMETYPE_ID) == FLAG_MIMETYPE_ID)
         {
-            final long mimetypeId = rawReader.readLong();
+            final long mimetypeId = VarIntCodec.readUnsignedLong(rawReader);
             final Pair<Long, String> mimetypePair = this.mimetypeDAO.getMimetype(mimetypeId);
             if (mimetypePair != null)
             {
@@ -411,7 +412,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if ((flags & FLAG_ENCODING_ID) == FLAG_ENCODING_ID)
         {
-            final long encodingId = rawReader.readLong();
+            final long encodingId = VarIntCodec.readUnsignedLong(rawReader);
             final Pair<Long, String> encodingPair = this.encodingDAO.getEncoding(encodingId);
             if (encodingPair != null)
             {
@@ -429,7 +430,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
 
         if ((flags & FLAG_LOCALE_ID) == FLAG_LOCALE_ID)
         {
-            final long localeId = rawReader.readLong();
+            final long localeId = VarIntCodec.readUnsignedLong(rawReader);
             final Pair<Long, Locale> localePair = this.localeDAO.getLocalePair(localeId);
             if (localePair != null)
             {
@@ -449,7 +450,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
         {
             CONTENT_URL_FIELD.set(contentData, contentUrl);
             MIMETYPE_FIELD.set(contentData, mimetype);
-            SIZE_FIELD.set(contentData, size);
+            SIZE_FIELD.setLong(contentData, size);
             ENCODING_FIELD.set(contentData, encoding);
             LOCALE_FIELD.set(contentData, locale);
         }
@@ -536,7 +537,7 @@ public class ContentDataBinarySerializer implements BinarySerializer, Applicatio
         {
             CONTENT_URL_FIELD.set(contentData, contentUrl);
             MIMETYPE_FIELD.set(contentData, mimetype);
-            SIZE_FIELD.set(contentData, size);
+            SIZE_FIELD.setLong(contentData, size);
             ENCODING_FIELD.set(contentData, encoding);
             LOCALE_FIELD.set(contentData, locale);
         }
@@ -9,6 +9,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.aldica.common.ignite.binary.CompressionStatistics;
+import org.aldica.common.ignite.binary.LZBlockCodec;
 import org.alfresco.repo.domain.locale.LocaleDAO;
 import org.alfresco.service.cmr.repository.MLText;
 import org.alfresco.util.Pair;
@@ -30,12 +32,21 @@ import org.springframework.context.ApplicationContextAware;
  * already faster than regular JVM serialisation, it does not necessarily result in the smallest serial form, and we are able to apply
  * optional optimisations during marshalling via this class.
  *
+ * If compression is enabled, the raw serial form of an instance is written as a self-contained byte array, which is {@link LZBlockCodec
+ * compressed} when its length exceeds a configurable threshold. This is primarily useful for instances with large text values, e.g. for
+ * descriptions in many languages.
  *
  * @author Axel Faust
  */
 public class MLTextBinarySerializer implements BinarySerializer, ApplicationContextAware
 {
 
+    private static final byte LOCALE_COMPONENTS = 0;
+
+    private static final byte LOCALE_ID = 1;
+
+    private static final byte LOCALE_LANGUAGE_TAG = 2;
+
     protected ApplicationContext applicationContext;
 
     protected LocaleDAO localeDAO;
@@ -44,6 +55,12 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
 
     protected boolean useRawSerialForm = false;
 
+    protected boolean useCompression = false;
+
+    protected int compressionThreshold = 1024;
+
+    protected final CompressionStatistics compressionStatistics = new CompressionStatistics();
+
     /**
      * {@inheritDoc}
      */
@@ -71,6 +88,32 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
         this.useRawSerialForm = useRawSerialForm;
     }
 
+    /**
+     * @param useCompression
+     *            the useCompression to set
+     */
+    public void setUseCompression(final boolean useCompression)
+    {
+        this.useCompression = useCompression;
+    }
+
+    /**
+     * @param compressionThreshold
+     *            the compressionThreshold to set
+     */
+    public void setCompressionThreshold(final int compressionThreshold)
+    {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return the statistics about the compression of serial forms written by this instance
+     */
+    public CompressionStatistics getCompressionStatistics()
+    {
+        return this.compressionStatistics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -90,10 +133,14 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
 
         final MLText mlText = (MLText) obj;
 
-        if (this.useRawSerialForm)
+        if (this.useRawSerialForm && this.useCompression)
+        {
+            this.writeCompressedSerialForm(mlText, writer.rawWriter());
+        }
+        else if (this.useRawSerialForm)
         {
             final BinaryRawWriter rawWriter = writer.rawWriter();
-            rawWriter.writeInt(mlText.size());
+            VarIntCodec.writeUnsignedInt(rawWriter, mlText.size());
 
             for (final Entry<Locale, String> entry : mlText.entrySet())
             {
@@ -105,7 +152,7 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
                     rawWriter.writeBoolean(localePair != null);
                     if (localePair != null)
                     {
-                        rawWriter.writeLong(localePair.getFirst());
+                        VarIntCodec.writeUnsignedLong(rawWriter, localePair.getFirst());
                     }
                     else
                     {
@@ -158,10 +205,14 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
 
         final MLText mlText = (MLText) obj;
 
-        if (this.useRawSerialForm)
+        if (this.useRawSerialForm && this.useCompression)
+        {
+            this.readCompressedSerialForm(mlText, reader.rawReader());
+        }
+        else if (this.useRawSerialForm)
         {
             final BinaryRawReader rawReader = reader.rawReader();
-            final int size = rawReader.readInt();
+            final int size = VarIntCodec.readUnsignedInt(rawReader);
 
             for (int idx = 0; idx < size; idx++)
             {
@@ -171,7 +222,7 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
                     final boolean isId = rawReader.readBoolean();
                     if (isId)
                     {
-                        final long id = rawReader.readLong();
+                        final long id = VarIntCodec.readUnsignedLong(rawReader);
                         final Pair<Long, Locale> localePair = this.localeDAO.getLocalePair(id);
                         if (localePair == null)
                         {
@@ -222,6 +273,80 @@ public class MLTextBinarySerializer implements BinarySerializer, ApplicationCont
         }
     }
 
+    protected void writeCompressedSerialForm(final MLText mlText, final BinaryRawWriter rawWriter)
+    {
+        final RawByteOutput output = new RawByteOutput();
+        output.writeUnsignedLong(mlText.size());
+
+        for (final Entry<Locale, String> entry : mlText.entrySet())
+        {
+            final Locale key = entry.getKey();
+            final String value = entry.getValue();
+
+            final Pair<Long, Locale> localePair = this.useIdsWhenReasonable ? this.localeDAO.getLocalePair(key) : null;
+            if (localePair != null)
+            {
+                output.writeByte(LOCALE_ID);
+                output.writeUnsignedLong(localePair.getFirst());
+            }
+            else if (key.getScript().isEmpty() && !key.hasExtensions())
+            {
+                output.writeByte(LOCALE_COMPONENTS);
+                output.writeString(key.getLanguage());
+                output.writeString(key.getCountry());
+                output.writeString(key.getVariant());
+            }
+            else
+            {
+                output.writeByte(LOCALE_LANGUAGE_TAG);
+                output.writeString(key.toLanguageTag());
+            }
+
+            output.writeByte(value != null ? 1 : 0);
+            if (value != null)
+            {
+                output.writeString(value);
+            }
+        }
+
+        rawWriter.writeByteArray(LZBlockCodec.encodeBlock(output.toByteArray(), this.compressionThreshold, this.compressionStatistics));
+    }
+
+    protected void readCompressedSerialForm(final MLText mlText, final BinaryRawReader rawReader) throws BinaryObjectException
+    {
+        final RawByteInput input = new RawByteInput(LZBlockCodec.decodeBlock(rawReader.readByteArray()), 0);
+        final int size = input.readUnsignedInt();
+
+        for (int idx = 0; idx < size; idx++)
+        {
+            Locale key;
+            final byte localeType = input.readByte();
+            switch (localeType)
+            {
+                case LOCALE_ID:
+                    final long id = input.readUnsignedLong();
+                    final Pair<Long, Locale> localePair = this.localeDAO.getLocalePair(id);
+                    if (localePair == null)
+                    {
+                        throw new BinaryObjectException("Cannot resolve Locale for ID " + id);
+                    }
+                    key = localePair.getSecond();
+                    break;
+                case LOCALE_COMPONENTS:
+                    key = new Locale(input.readString(), input.readString(), input.readString());
+                    break;
+                case LOCALE_LANGUAGE_TAG:
+                    key = Locale.forLanguageTag(input.readString());
+                    break;
+                default:
+                    throw new BinaryObjectException("Unsupported locale type " + localeType);
+            }
+
+            final String value = input.readByte() != 0 ? input.readString() : null;
+            mlText.addValue(key, value);
+        }
+    }
+
     protected void ensureLocaleDAOAvailable() throws BinaryObjectException
     {
         if (this.localeDAO == null)
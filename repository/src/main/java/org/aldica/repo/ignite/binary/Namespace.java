@@ -76,10 +76,13 @@ public enum Namespace
     SOLR_FACET_CUSTOM_PROPERTY(SolrFacetModel.SOLR_FACET_CUSTOM_PROPERTY_URL),
     CUSTOM(null);
 
+    // cached as values() creates a new copy of the array on every call
+    private static final Namespace[] LITERALS = Namespace.values();
+
     private static final Map<String, Namespace> LOOKUP = new HashMap<>();
     static
     {
-        for (final Namespace value : Namespace.values())
+        for (final Namespace value : LITERALS)
         {
             final String name = value.getUri();
             if (name != null)
@@ -117,4 +120,22 @@ public enum Namespace
         final Namespace literal = LOOKUP.getOrDefault(uri, CUSTOM);
         return literal;
     }
+
+    /**
+     * Retrieves the enumeration literal with a specific ordinal.
+     *
+     * @param ordinal
+     *            the ordinal of the literal to retrieve
+     * @return the literal with the ordinal
+     * @throws IllegalArgumentException
+     *             if no literal exists with the ordinal
+     */
+    public static Namespace getLiteral(final int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= LITERALS.length)
+        {
+            throw new IllegalArgumentException("No literal exists with ordinal " + ordinal);
+        }
+        return LITERALS[ordinal];
+    }
 }
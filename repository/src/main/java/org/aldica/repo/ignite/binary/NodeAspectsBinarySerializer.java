@@ -3,15 +3,20 @@
  * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
 package org.aldica.repo.ignite.binary;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.aldica.repo.ignite.cache.NodeAspectsCacheSet;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.service.namespace.NamespacePrefixResolver;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
 import org.apache.ignite.binary.BinaryObjectException;
@@ -28,7 +33,14 @@ import org.springframework.context.ApplicationContextAware;
  * Instances of this class handle (de-)serialisations of {@link NodeAspectsCacheSet} instances. By using that sub-class of
  * {@link HashSet} to persist cached aspects and this serializer implementation we are able to apply optimisations during
  * marshalling, resulting in generally smaller binary representations. This implementation is capable of replacing {@link QName aspects
- * names} with their corresponding IDs for a more efficient serial form.
+ * names} with their corresponding IDs for a more efficient serial form. In the raw serial form, these IDs are written as a sorted set in
+ * {@link VarIntCodec variable-length, difference-encoded} form.
+ *
+ * Optionally, a configured list of up to 64 commonly used aspects can be written as a bitmap in the raw serial form, so that the aspects of
+ * a typical node only require one or two bytes in total, with only the remaining, less common aspects written as IDs or qualified names. As
+ * the position of an aspect in that list determines its bit, the list must be identical on all grid members.
+ *
+ * Deserialised instances are {@link NodeAspectsCacheSet#setCompactAspects(QName[]) backed by a compact array} of the aspects.
  *
  * @author Axel Faust
  */
@@ -37,6 +49,8 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
 
     private static final String VALUES = "values";
 
+    private static final int MAX_COMMON_ASPECTS = Long.SIZE;
+
     protected ApplicationContext applicationContext;
 
     protected QNameDAO qnameDAO;
@@ -45,6 +59,14 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
 
     protected boolean useRawSerialForm = false;
 
+    protected boolean useCommonAspectsBitmap = false;
+
+    protected List<String> commonAspectNames = Collections.emptyList();
+
+    protected volatile QName[] commonAspects;
+
+    protected volatile Map<QName, Integer> commonAspectIndices;
+
     /**
      * {@inheritDoc}
      */
@@ -72,6 +94,45 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
         this.useRawSerialForm = useRawSerialForm;
     }
 
+    /**
+     * @param useCommonAspectsBitmap
+     *            the useCommonAspectsBitmap to set
+     */
+    public void setUseCommonAspectsBitmap(final boolean useCommonAspectsBitmap)
+    {
+        this.useCommonAspectsBitmap = useCommonAspectsBitmap;
+    }
+
+    /**
+     * Sets the commonly used aspects to be written as a bitmap, ordered from most to least commonly used.
+     *
+     * @param commonAspects
+     *            the comma-separated list of aspects in prefixed or fully qualified form
+     */
+    public void setCommonAspects(final String commonAspects)
+    {
+        final List<String> commonAspectNames = new ArrayList<>();
+        if (commonAspects != null && !commonAspects.trim().isEmpty())
+        {
+            final String[] fragments = commonAspects.trim().split("\\s*,\\s*");
+            for (final String aspectName : fragments)
+            {
+                if (!aspectName.isEmpty())
+                {
+                    commonAspectNames.add(aspectName);
+                }
+            }
+        }
+
+        if (commonAspectNames.size() > MAX_COMMON_ASPECTS)
+        {
+            throw new IllegalArgumentException("No more than " + MAX_COMMON_ASPECTS + " common aspects are supported");
+        }
+        this.commonAspectNames = commonAspectNames;
+        this.commonAspects = null;
+        this.commonAspectIndices = null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -91,7 +152,31 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
         if (this.useRawSerialForm)
         {
             final BinaryRawWriter rawWriter = writer.rawWriter();
-            this.writeAspectsRawSerialForm(aspects, rawWriter);
+            if (this.useCommonAspectsBitmap)
+            {
+                final Map<QName, Integer> commonAspectIndices = this.commonAspectIndices;
+                final List<QName> remainingAspects = new ArrayList<>(aspects.size());
+                long bitmap = 0;
+                for (final QName aspectQName : aspects)
+                {
+                    final Integer index = commonAspectIndices.get(aspectQName);
+                    if (index != null)
+                    {
+                        bitmap |= 1L << index.intValue();
+                    }
+                    else
+                    {
+                        remainingAspects.add(aspectQName);
+                    }
+                }
+
+                VarIntCodec.writeUnsignedLong(rawWriter, bitmap);
+                this.writeAspectsRawSerialForm(remainingAspects, rawWriter);
+            }
+            else
+            {
+                this.writeAspectsRawSerialForm(aspects, rawWriter);
+            }
         }
         else
         {
@@ -118,22 +203,45 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
         if (this.useRawSerialForm)
         {
             final BinaryRawReader rawReader = reader.rawReader();
-            this.readAspectsRawSerialForm(aspects, rawReader);
+            if (this.useCommonAspectsBitmap)
+            {
+                final QName[] commonAspects = this.commonAspects;
+                long bitmap = VarIntCodec.readUnsignedLong(rawReader);
+                // common aspects occupy the leading elements of the array holding all aspects
+                final QName[] allAspects = this.readAspectsRawSerialForm(Long.bitCount(bitmap), rawReader);
+                int idx = 0;
+                while (bitmap != 0)
+                {
+                    final int index = Long.numberOfTrailingZeros(bitmap);
+                    if (index >= commonAspects.length)
+                    {
+                        throw new BinaryObjectException("Bitmap of common aspects references undefined aspect " + index);
+                    }
+                    allAspects[idx++] = commonAspects[index];
+                    bitmap &= bitmap - 1;
+                }
+                aspects.setCompactAspects(allAspects);
+            }
+            else
+            {
+                aspects.setCompactAspects(this.readAspectsRawSerialForm(0, rawReader));
+            }
         }
         else
         {
-            this.readAspectsRegularSerialForm(aspects, reader);
+            final List<QName> aspectsList = new ArrayList<>();
+            this.readAspectsRegularSerialForm(aspectsList, reader);
+            aspects.setCompactAspects(aspectsList.toArray(new QName[0]));
         }
     }
 
-    protected void writeAspectsRawSerialForm(final NodeAspectsCacheSet aspects, final BinaryRawWriter rawWriter)
+    protected void writeAspectsRawSerialForm(final Collection<QName> aspects, final BinaryRawWriter rawWriter)
     {
-        final int size = aspects.size();
-        rawWriter.writeInt(size);
-
-        for (final QName aspectQName : aspects)
+        if (this.useIdsWhenReasonable)
         {
-            if (this.useIdsWhenReasonable)
+            final long[] ids = new long[aspects.size()];
+            int idx = 0;
+            for (final QName aspectQName : aspects)
             {
                 // technically may be null, but practically guaranteed to always be valid
                 final Pair<Long, QName> qnamePair = this.qnameDAO.getQName(aspectQName);
@@ -141,38 +249,59 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
                 {
                     throw new AlfrescoRuntimeException("Cannot resolve " + aspectQName + " to DB ID");
                 }
-                rawWriter.writeLong(qnamePair.getFirst());
+                ids[idx++] = qnamePair.getFirst();
             }
-            else
+            VarIntCodec.writeSortedLongs(rawWriter, ids);
+        }
+        else
+        {
+            VarIntCodec.writeUnsignedInt(rawWriter, aspects.size());
+            for (final QName aspectQName : aspects)
             {
                 rawWriter.writeObject(aspectQName);
             }
         }
     }
 
-    protected void readAspectsRawSerialForm(final NodeAspectsCacheSet aspects, final BinaryRawReader rawReader) throws BinaryObjectException
+    /**
+     * Reads aspects in raw serial form into a newly allocated array, sized to hold the aspects read as well as a number of leading elements
+     * which the caller intends to fill with other aspects.
+     *
+     * @param leadingElements
+     *            the number of leading elements to reserve in the array
+     * @param rawReader
+     *            the raw reader from which to read the aspects
+     * @return the array of aspects with the aspects read starting at the index specified by {@code leadingElements}
+     * @throws BinaryObjectException
+     *             if an aspect cannot be read or resolved
+     */
+    protected QName[] readAspectsRawSerialForm(final int leadingElements, final BinaryRawReader rawReader) throws BinaryObjectException
     {
-        final int size = rawReader.readInt();
-
-        for (int idx = 0; idx < size; idx++)
+        final int size = VarIntCodec.readUnsignedInt(rawReader);
+        final QName[] aspects = new QName[leadingElements + size];
+        if (this.useIdsWhenReasonable)
         {
-            QName aspectQName;
-            if (this.useIdsWhenReasonable)
+            // inlined equivalent of VarIntCodec.readSortedLongs to avoid allocating an intermediary array
+            long id = 0;
+            for (int idx = leadingElements; idx < aspects.length; idx++)
             {
-                final long id = rawReader.readLong();
+                id += VarIntCodec.readUnsignedLong(rawReader);
                 final Pair<Long, QName> qnamePair = this.qnameDAO.getQName(id);
                 if (qnamePair == null)
                 {
                     throw new BinaryObjectException("Cannot resolve QName for ID " + id);
                 }
-                aspectQName = qnamePair.getSecond();
+                aspects[idx] = qnamePair.getSecond();
             }
-            else
+        }
+        else
+        {
+            for (int idx = leadingElements; idx < aspects.length; idx++)
             {
-                aspectQName = rawReader.readObject();
+                aspects[idx] = rawReader.readObject();
             }
-            aspects.add(aspectQName);
         }
+        return aspects;
     }
 
     protected void writeAspectsRegularSerialForm(final NodeAspectsCacheSet aspects, final BinaryWriter writer)
@@ -199,7 +328,7 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
         }
     }
 
-    protected void readAspectsRegularSerialForm(final NodeAspectsCacheSet aspects, final BinaryReader reader)
+    protected void readAspectsRegularSerialForm(final List<QName> aspects, final BinaryReader reader)
     {
         final Collection<?> values = reader.readCollection(VALUES);
         values.forEach(value -> {
@@ -227,6 +356,11 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
 
     protected void ensureDAOsAvailable() throws BinaryObjectException
     {
+        if (this.useRawSerialForm && this.useCommonAspectsBitmap && this.commonAspects == null)
+        {
+            this.resolveCommonAspects();
+        }
+
         if (this.useIdsWhenReasonable && this.qnameDAO == null)
         {
             try
@@ -240,4 +374,46 @@ public class NodeAspectsBinarySerializer implements BinarySerializer, Applicatio
             }
         }
     }
+
+    protected synchronized void resolveCommonAspects() throws BinaryObjectException
+    {
+        if (this.commonAspects == null)
+        {
+            NamespacePrefixResolver namespacePrefixResolver = null;
+            final QName[] commonAspects = new QName[this.commonAspectNames.size()];
+            final Map<QName, Integer> commonAspectIndices = new HashMap<>();
+            for (int idx = 0; idx < commonAspects.length; idx++)
+            {
+                final String aspectName = this.commonAspectNames.get(idx);
+                if (aspectName.startsWith(String.valueOf(QName.NAMESPACE_BEGIN)))
+                {
+                    commonAspects[idx] = QName.createQName(aspectName);
+                }
+                else
+                {
+                    if (namespacePrefixResolver == null)
+                    {
+                        try
+                        {
+                            namespacePrefixResolver = this.applicationContext.getBean("namespaceService", NamespacePrefixResolver.class);
+                        }
+                        catch (final BeansException be)
+                        {
+                            throw new BinaryObjectException(
+                                    "Cannot (de-)serialise node aspects in current configuration without access to NamespaceService", be);
+                        }
+                    }
+                    commonAspects[idx] = QName.resolveToQName(namespacePrefixResolver, aspectName);
+                }
+
+                if (commonAspectIndices.putIfAbsent(commonAspects[idx], Integer.valueOf(idx)) != null)
+                {
+                    throw new BinaryObjectException("Common aspect " + aspectName + " has been listed more than once");
+                }
+            }
+
+            this.commonAspectIndices = commonAspectIndices;
+            this.commonAspects = commonAspects;
+        }
+    }
 }
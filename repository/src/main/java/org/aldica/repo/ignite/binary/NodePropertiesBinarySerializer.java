@@ -5,21 +5,25 @@ package org.aldica.repo.ignite.binary;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Function;
 
+import org.aldica.common.ignite.binary.CompressionStatistics;
+import org.aldica.common.ignite.binary.LZBlockCodec;
 import org.aldica.repo.ignite.cache.NodePropertiesCacheMap;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.domain.contentdata.ContentDataDAO;
 import org.alfresco.repo.domain.node.ContentDataWithId;
 import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
 import org.apache.ignite.binary.BinaryObjectException;
@@ -42,7 +46,15 @@ import org.springframework.context.ApplicationContextAware;
  * different levels of impact on performance. It can be reasonably expected that QName instances can be efficiently resolved using fully
  * replicated caches, due to reasonably low numbers of class/feature qualified names from dictionary models (in the hundreds to low
  * thousands range). But ContentDataWithId instances can well be in the millions or billions for larger systems, and their resolution miss
- * partitioned caches and/or require network calls to retrieve values from different grid members.
+ * partitioned caches and/or require network calls to retrieve values from different grid members. In the raw serial form, all IDs, sizes
+ * and integral property values are written in {@link VarIntCodec variable-length encoding}. Optionally, textual property values contained
+ * in the grid-wide {@link PropertyValueDictionary dictionary of frequent values} are written as their integer code in the raw serial form.
+ *
+ * If lazy decoding is enabled, all entries with keys and values of commonly used types are written into a self-contained byte array as part
+ * of the raw serial form, which backs the deserialised instance as {@link RawNodeProperties lazily decoded entries}, so that any lookup of
+ * individual properties only needs to decode and resolve the values actually accessed. If compression is enabled, that self-contained byte
+ * array is {@link LZBlockCodec compressed} when its length exceeds a configurable threshold - this implies the use of the self-contained
+ * byte array even if lazy decoding is not enabled.
  *
  * @author Axel Faust
  */
@@ -83,6 +95,15 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
 
     private static final byte TYPE_DATE = 9;
 
+    private static final byte TYPE_DICTIONARY_STRING = 10;
+
+    // only used in serial form of lazily decoded entries
+    private static final byte TYPE_NODE_REF = 11;
+
+    private static final byte TYPE_LOCALE = 12;
+
+    private static final byte TYPE_CONTENT_DATA_ID = 13;
+
     protected ApplicationContext applicationContext;
 
     protected QNameDAO qnameDAO;
@@ -95,6 +116,18 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
 
     protected boolean useRawSerialForm = false;
 
+    protected boolean useValueDictionary = false;
+
+    protected PropertyValueDictionary valueDictionary;
+
+    protected boolean useLazyDecoding = false;
+
+    protected boolean useCompression = false;
+
+    protected int compressionThreshold = 1024;
+
+    protected final CompressionStatistics compressionStatistics = new CompressionStatistics();
+
     /**
      * {@inheritDoc}
      */
@@ -131,6 +164,59 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         this.useRawSerialForm = useRawSerialForm;
     }
 
+    /**
+     * @param useValueDictionary
+     *            the useValueDictionary to set
+     */
+    public void setUseValueDictionary(final boolean useValueDictionary)
+    {
+        this.useValueDictionary = useValueDictionary;
+    }
+
+    /**
+     * @param valueDictionary
+     *            the valueDictionary to set
+     */
+    public void setValueDictionary(final PropertyValueDictionary valueDictionary)
+    {
+        this.valueDictionary = valueDictionary;
+    }
+
+    /**
+     * @param useLazyDecoding
+     *            the useLazyDecoding to set
+     */
+    public void setUseLazyDecoding(final boolean useLazyDecoding)
+    {
+        this.useLazyDecoding = useLazyDecoding;
+    }
+
+    /**
+     * @param useCompression
+     *            the useCompression to set
+     */
+    public void setUseCompression(final boolean useCompression)
+    {
+        this.useCompression = useCompression;
+    }
+
+    /**
+     * @param compressionThreshold
+     *            the compressionThreshold to set
+     */
+    public void setCompressionThreshold(final int compressionThreshold)
+    {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return the statistics about the compression of serial forms written by this instance
+     */
+    public CompressionStatistics getCompressionStatistics()
+    {
+        return this.compressionStatistics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -150,7 +236,14 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         if (this.useRawSerialForm)
         {
             final BinaryRawWriter rawWriter = writer.rawWriter();
-            this.writePropertiesRawSerialForm(properties, rawWriter);
+            if (this.useLazyDecoding || this.useCompression)
+            {
+                this.writePropertiesLazySerialForm(properties, rawWriter);
+            }
+            else
+            {
+                this.writePropertiesRawSerialForm(properties, rawWriter);
+            }
         }
         else
         {
@@ -177,7 +270,14 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         if (this.useRawSerialForm)
         {
             final BinaryRawReader rawReader = reader.rawReader();
-            this.readPropertiesRawSerialForm(properties, rawReader);
+            if (this.useLazyDecoding || this.useCompression)
+            {
+                this.readPropertiesLazySerialForm(properties, rawReader);
+            }
+            else
+            {
+                this.readPropertiesRawSerialForm(properties, rawReader);
+            }
         }
         else
         {
@@ -185,17 +285,16 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         }
     }
 
-    protected void writePropertiesRawSerialForm(final NodePropertiesCacheMap properties, final BinaryRawWriter rawWriter)
+    protected void writePropertiesRawSerialForm(final Map<QName, Serializable> properties, final BinaryRawWriter rawWriter)
     {
-        final int size = properties.size();
-        rawWriter.writeInt(size);
+        VarIntCodec.writeUnsignedInt(rawWriter, properties.size());
 
         for (final Entry<QName, Serializable> entry : properties.entrySet())
         {
             final QName key = entry.getKey();
             Long keyId = null;
             final Serializable value = entry.getValue();
-            long[] valueIds = null;
+            boolean contentDataValueIds = false;
 
             byte flags = 0;
 
@@ -220,32 +319,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
 
                 if (this.useIdsWhenPossible)
                 {
-                    if (value instanceof ContentDataWithId)
-                    {
-                        valueIds = new long[] { ((ContentDataWithId) value).getId() };
-                    }
-                    else if (value instanceof List<?>)
-                    {
-                        final long[] ids = new long[((List<?>) value).size()];
-                        int idx = 0;
-                        boolean allIds = !((List<?>) value).isEmpty();
-                        for (final Object element : (List<?>) value)
-                        {
-                            if (element instanceof ContentDataWithId)
-                            {
-                                ids[idx++] = ((ContentDataWithId) element).getId();
-                            }
-                            else
-                            {
-                                allIds = false;
-                            }
-                        }
-
-                        if (allIds)
-                        {
-                            valueIds = ids;
-                        }
-                    }
+                    contentDataValueIds = isContentDataWithIdValue(value);
                 }
             }
 
@@ -253,7 +327,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
             {
                 flags |= FLAG_QNAME_ID;
             }
-            if (valueIds != null)
+            if (contentDataValueIds)
             {
                 flags |= FLAG_CONTENT_DATA_VALUE_ID;
             }
@@ -261,22 +335,29 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
             rawWriter.writeByte(flags);
             if (keyId != null)
             {
-                rawWriter.writeLong(keyId);
+                VarIntCodec.writeUnsignedLong(rawWriter, keyId);
             }
             else
             {
                 rawWriter.writeObject(key);
             }
 
-            if (valueIds != null)
+            if (contentDataValueIds)
             {
                 if ((flags & FLAG_MULTI_VALUED) == FLAG_MULTI_VALUED)
                 {
-                    rawWriter.writeLongArray(valueIds);
+                    // order of multi-valued properties must be retained, so no difference encoding
+                    final List<?> values = (List<?>) value;
+                    VarIntCodec.writeUnsignedInt(rawWriter, values.size());
+                    // indexed access (instead of iterator) as multi-valued properties are practically always ArrayList instances
+                    for (int idx = 0, size = values.size(); idx < size; idx++)
+                    {
+                        VarIntCodec.writeUnsignedLong(rawWriter, ((ContentDataWithId) values.get(idx)).getId());
+                    }
                 }
                 else
                 {
-                    rawWriter.writeLong(valueIds[0]);
+                    VarIntCodec.writeUnsignedLong(rawWriter, ((ContentDataWithId) value).getId());
                 }
             }
             else if (value != null)
@@ -286,6 +367,37 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         }
     }
 
+    /**
+     * Checks whether a property value consists only of {@link ContentDataWithId content data with IDs}, so that it can be written as the
+     * IDs of the content data instead of the full values.
+     *
+     * @param value
+     *            the value to check
+     * @return {@code true} if the value is a content data with ID or a non-empty list of such content data, {@code false} otherwise
+     */
+    protected static boolean isContentDataWithIdValue(final Serializable value)
+    {
+        boolean allIds;
+        if (value instanceof ContentDataWithId)
+        {
+            allIds = true;
+        }
+        else if (value instanceof List<?>)
+        {
+            final List<?> values = (List<?>) value;
+            allIds = !values.isEmpty();
+            for (int idx = 0, size = values.size(); idx < size && allIds; idx++)
+            {
+                allIds = values.get(idx) instanceof ContentDataWithId;
+            }
+        }
+        else
+        {
+            allIds = false;
+        }
+        return allIds;
+    }
+
     /**
      * Writes out property values in raw serial form. This operation tries to optimise any type of value that Alfresco supports in the out
      * of the box dictionary model, apart from generic or complex types, which should be handled by serializers for their specific types if
@@ -302,7 +414,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         {
             rawWriter.writeByte(TYPE_LIST);
             final List<?> list = (List<?>) value;
-            rawWriter.writeInt(list.size());
+            VarIntCodec.writeUnsignedInt(rawWriter, list.size());
             for (final Object element : list)
             {
                 this.writeValueRawSerialForm(element, rawWriter);
@@ -316,12 +428,12 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         else if (value instanceof Integer)
         {
             rawWriter.writeByte(TYPE_INTEGER);
-            rawWriter.writeInt((Integer) value);
+            VarIntCodec.writeSignedLong(rawWriter, (Integer) value);
         }
         else if (value instanceof Long)
         {
             rawWriter.writeByte(TYPE_LONG);
-            rawWriter.writeLong((Long) value);
+            VarIntCodec.writeSignedLong(rawWriter, (Long) value);
         }
         else if (value instanceof Float)
         {
@@ -335,8 +447,21 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         }
         else if (value instanceof String)
         {
-            rawWriter.writeByte(TYPE_STRING);
-            rawWriter.writeString((String) value);
+            final int code = this.useValueDictionary ? this.valueDictionary.getCode((String) value) : -1;
+            if (code >= 0)
+            {
+                rawWriter.writeByte(TYPE_DICTIONARY_STRING);
+                VarIntCodec.writeUnsignedInt(rawWriter, code);
+            }
+            else
+            {
+                if (this.useValueDictionary)
+                {
+                    this.valueDictionary.sample((String) value);
+                }
+                rawWriter.writeByte(TYPE_STRING);
+                rawWriter.writeString((String) value);
+            }
         }
         else if (value instanceof Date)
         {
@@ -355,10 +480,354 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         }
     }
 
+    protected void writePropertiesLazySerialForm(final NodePropertiesCacheMap properties, final BinaryRawWriter rawWriter)
+    {
+        final RawByteOutput output = new RawByteOutput();
+        final Map<QName, Serializable> eagerProperties = new HashMap<>();
+        int lazyCount = 0;
+
+        for (final Entry<QName, Serializable> entry : properties.entrySet())
+        {
+            final int mark = output.position();
+            this.writeKeyLazySerialForm(entry.getKey(), output);
+            if (this.writeValueLazySerialForm(entry.getValue(), output))
+            {
+                lazyCount++;
+            }
+            else
+            {
+                // entry with complex value is written and read eagerly in regular raw serial form
+                output.reset(mark);
+                eagerProperties.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        final byte[] bytes = output.toByteArray();
+        VarIntCodec.writeUnsignedInt(rawWriter, lazyCount);
+        rawWriter.writeByteArray(
+                this.useCompression ? LZBlockCodec.encodeBlock(bytes, this.compressionThreshold, this.compressionStatistics) : bytes);
+        this.writePropertiesRawSerialForm(eagerProperties, rawWriter);
+    }
+
+    protected void writeKeyLazySerialForm(final QName key, final RawByteOutput output)
+    {
+        if (this.useIdsWhenReasonable)
+        {
+            final Pair<Long, QName> qnamePair = this.qnameDAO.getQName(key);
+            // technically may be null, but practically guaranteed to always be valid
+            if (qnamePair == null)
+            {
+                throw new AlfrescoRuntimeException("Cannot resolve " + key + " to DB ID");
+            }
+            output.writeByte(FLAG_QNAME_ID);
+            output.writeUnsignedLong(qnamePair.getFirst());
+        }
+        else
+        {
+            output.writeByte(0);
+            output.writeString(key.getNamespaceURI());
+            output.writeString(key.getLocalName());
+        }
+    }
+
+    /**
+     * Writes out a property value into the self-contained serial form of lazily decoded entries if it is of a supported type.
+     *
+     * @param value
+     *            the value to write
+     * @param output
+     *            the output to write to
+     * @return {@code true} if the value has been written, {@code false} if the value (or an element of a multi-valued property) is of an
+     *         unsupported type - in this case, the output may contain an incomplete value
+     */
+    protected boolean writeValueLazySerialForm(final Object value, final RawByteOutput output)
+    {
+        boolean written = true;
+        if (value == null)
+        {
+            output.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof List<?>)
+        {
+            output.writeByte(TYPE_LIST);
+            final List<?> list = (List<?>) value;
+            output.writeUnsignedLong(list.size());
+            for (final Object element : list)
+            {
+                if (!this.writeValueLazySerialForm(element, output))
+                {
+                    written = false;
+                    break;
+                }
+            }
+        }
+        else if (value instanceof Boolean)
+        {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeByte(Boolean.TRUE.equals(value) ? 1 : 0);
+        }
+        else if (value instanceof Integer)
+        {
+            output.writeByte(TYPE_INTEGER);
+            output.writeSignedLong((Integer) value);
+        }
+        else if (value instanceof Long)
+        {
+            output.writeByte(TYPE_LONG);
+            output.writeSignedLong((Long) value);
+        }
+        else if (value instanceof Float)
+        {
+            output.writeByte(TYPE_FLOAT);
+            output.writeLong(Float.floatToIntBits((Float) value));
+        }
+        else if (value instanceof Double)
+        {
+            output.writeByte(TYPE_DOUBLE);
+            output.writeLong(Double.doubleToLongBits((Double) value));
+        }
+        else if (value instanceof String)
+        {
+            final int code = this.useValueDictionary ? this.valueDictionary.getCode((String) value) : -1;
+            if (code >= 0)
+            {
+                output.writeByte(TYPE_DICTIONARY_STRING);
+                output.writeUnsignedLong(code);
+            }
+            else
+            {
+                if (this.useValueDictionary)
+                {
+                    this.valueDictionary.sample((String) value);
+                }
+                output.writeByte(TYPE_STRING);
+                output.writeString((String) value);
+            }
+        }
+        else if (value instanceof Date)
+        {
+            output.writeByte(TYPE_DATE);
+            output.writeLong(((Date) value).getTime());
+        }
+        else if (value instanceof NodeRef)
+        {
+            final NodeRef nodeRef = (NodeRef) value;
+            output.writeByte(TYPE_NODE_REF);
+            output.writeString(nodeRef.getStoreRef().getProtocol());
+            output.writeString(nodeRef.getStoreRef().getIdentifier());
+            output.writeString(nodeRef.getId());
+        }
+        else if (value instanceof Locale && ((Locale) value).getScript().isEmpty() && !((Locale) value).hasExtensions())
+        {
+            final Locale locale = (Locale) value;
+            output.writeByte(TYPE_LOCALE);
+            output.writeString(locale.getLanguage());
+            output.writeString(locale.getCountry());
+            output.writeString(locale.getVariant());
+        }
+        else if (value instanceof ContentDataWithId && this.useIdsWhenPossible)
+        {
+            output.writeByte(TYPE_CONTENT_DATA_ID);
+            output.writeUnsignedLong(((ContentDataWithId) value).getId());
+        }
+        else
+        {
+            written = false;
+        }
+        return written;
+    }
+
+    protected void readPropertiesLazySerialForm(final NodePropertiesCacheMap properties, final BinaryRawReader rawReader)
+            throws BinaryObjectException
+    {
+        final int lazyCount = VarIntCodec.readUnsignedInt(rawReader);
+        final byte[] block = rawReader.readByteArray();
+        this.readPropertiesRawSerialForm(properties, rawReader);
+
+        if (lazyCount > 0)
+        {
+            final byte[] bytes = this.useCompression ? LZBlockCodec.decodeBlock(block) : block;
+            final RawNodeProperties lazyEntries = new RawNodeProperties(this, bytes, lazyCount);
+            if (this.useLazyDecoding)
+            {
+                properties.setLazyEntries(lazyEntries);
+            }
+            else
+            {
+                lazyEntries.materialise(properties::put);
+            }
+        }
+    }
+
+    /**
+     * Reads the key of an entry from the self-contained serial form of lazily decoded entries.
+     *
+     * @param input
+     *            the input to read from
+     * @return the ID of the key, or {@code -1} if the key has been written as a qualified name, which has yet to be read
+     * @throws BinaryObjectException
+     *             if the serial form is malformed or this serializer is not configured to use IDs for keys
+     */
+    protected long readKeyLazySerialForm(final RawByteInput input) throws BinaryObjectException
+    {
+        final byte flags = input.readByte();
+        long keyId = -1;
+        if ((flags & FLAG_QNAME_ID) == FLAG_QNAME_ID)
+        {
+            if (!this.useIdsWhenReasonable)
+            {
+                throw new BinaryObjectException("Serializer is not configured to use IDs in place of QName keys");
+            }
+            keyId = input.readUnsignedLong();
+        }
+        return keyId;
+    }
+
+    protected Serializable readValueLazySerialForm(final RawByteInput input) throws BinaryObjectException
+    {
+        Serializable result;
+
+        final byte type = input.readByte();
+        switch (type)
+        {
+            case TYPE_NULL:
+                result = null;
+                break;
+            case TYPE_LIST:
+                final int size = input.readUnsignedInt();
+                final ArrayList<Serializable> list = new ArrayList<>(size);
+                for (int idx = 0; idx < size; idx++)
+                {
+                    list.add(this.readValueLazySerialForm(input));
+                }
+                result = list;
+                break;
+            case TYPE_BOOLEAN:
+                result = input.readByte() != 0;
+                break;
+            case TYPE_INTEGER:
+                result = (int) input.readSignedLong();
+                break;
+            case TYPE_LONG:
+                result = input.readSignedLong();
+                break;
+            case TYPE_FLOAT:
+                result = Float.intBitsToFloat((int) input.readLong());
+                break;
+            case TYPE_DOUBLE:
+                result = Double.longBitsToDouble(input.readLong());
+                break;
+            case TYPE_STRING:
+                result = input.readString();
+                break;
+            case TYPE_DICTIONARY_STRING:
+                result = this.resolveDictionaryValue(input.readUnsignedInt());
+                break;
+            case TYPE_DATE:
+                result = new Date(input.readLong());
+                break;
+            case TYPE_NODE_REF:
+                result = new NodeRef(new StoreRef(input.readString(), input.readString()), input.readString());
+                break;
+            case TYPE_LOCALE:
+                result = new Locale(input.readString(), input.readString(), input.readString());
+                break;
+            case TYPE_CONTENT_DATA_ID:
+                if (!this.useIdsWhenPossible)
+                {
+                    throw new BinaryObjectException("Serializer is not configured to use IDs in place of ContentData values");
+                }
+                final long id = input.readUnsignedLong();
+                final Pair<Long, ContentData> contentDataPair = this.contentDataDAO.getContentData(id);
+                if (contentDataPair == null)
+                {
+                    throw new BinaryObjectException("Cannot resolve ContentData for ID " + id);
+                }
+                result = contentDataPair.getSecond();
+                break;
+            default:
+                throw new BinaryObjectException("Read unsupported type flag value " + type);
+        }
+
+        return result;
+    }
+
+    protected void skipValueLazySerialForm(final RawByteInput input) throws BinaryObjectException
+    {
+        final byte type = input.readByte();
+        switch (type)
+        {
+            case TYPE_NULL:
+                break;
+            case TYPE_LIST:
+                final int size = input.readUnsignedInt();
+                for (int idx = 0; idx < size; idx++)
+                {
+                    this.skipValueLazySerialForm(input);
+                }
+                break;
+            case TYPE_BOOLEAN:
+                input.skip(1);
+                break;
+            case TYPE_INTEGER:
+            case TYPE_LONG:
+            case TYPE_DICTIONARY_STRING:
+            case TYPE_CONTENT_DATA_ID:
+                input.readUnsignedLong();
+                break;
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+            case TYPE_DATE:
+                input.skip(8);
+                break;
+            case TYPE_STRING:
+                input.skipString();
+                break;
+            case TYPE_NODE_REF:
+            case TYPE_LOCALE:
+                input.skipString();
+                input.skipString();
+                input.skipString();
+                break;
+            default:
+                throw new BinaryObjectException("Read unsupported type flag value " + type);
+        }
+    }
+
+    protected QName resolveQName(final long id) throws BinaryObjectException
+    {
+        final Pair<Long, QName> qnamePair = this.qnameDAO.getQName(id);
+        if (qnamePair == null)
+        {
+            throw new BinaryObjectException("Cannot resolve QName for ID " + id);
+        }
+        return qnamePair.getSecond();
+    }
+
+    protected long resolveQNameId(final QName qname)
+    {
+        final Pair<Long, QName> qnamePair = this.useIdsWhenReasonable ? this.qnameDAO.getQName(qname) : null;
+        return qnamePair != null ? qnamePair.getFirst() : -1;
+    }
+
+    protected String resolveDictionaryValue(final int code) throws BinaryObjectException
+    {
+        if (!this.useValueDictionary)
+        {
+            throw new BinaryObjectException("Serializer is not configured to use dictionary codes in place of text values");
+        }
+        final String value = this.valueDictionary.getValue(code);
+        if (value == null)
+        {
+            throw new BinaryObjectException("Cannot resolve dictionary value for code " + code);
+        }
+        return value;
+    }
+
     protected void readPropertiesRawSerialForm(final NodePropertiesCacheMap properties, final BinaryRawReader rawReader)
             throws BinaryObjectException
     {
-        final int size = rawReader.readInt();
+        final int size = VarIntCodec.readUnsignedInt(rawReader);
 
         for (int idx = 0; idx < size; idx++)
         {
@@ -376,7 +845,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
             final QName key;
             if ((flags & FLAG_QNAME_ID) == FLAG_QNAME_ID)
             {
-                final long id = rawReader.readLong();
+                final long id = VarIntCodec.readUnsignedLong(rawReader);
                 final Pair<Long, QName> qnamePair = this.qnameDAO.getQName(id);
                 if (qnamePair == null)
                 {
@@ -396,29 +865,19 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
                 {
                     if ((flags & FLAG_CONTENT_DATA_VALUE_ID) == FLAG_CONTENT_DATA_VALUE_ID)
                     {
-                        final long[] ids = rawReader.readLongArray();
-                        if (ids != null)
+                        final int valueCount = VarIntCodec.readUnsignedInt(rawReader);
+                        final ArrayList<ContentData> cds = new ArrayList<>(valueCount);
+                        for (int valueIdx = 0; valueIdx < valueCount; valueIdx++)
                         {
-                            final ContentData[] cds = new ContentData[ids.length];
-                            idx = 0;
-
-                            for (final long id : ids)
+                            final long id = VarIntCodec.readUnsignedLong(rawReader);
+                            final Pair<Long, ContentData> contentDataPair = this.contentDataDAO.getContentData(id);
+                            if (contentDataPair == null)
                             {
-                                final Pair<Long, ContentData> contentDataPair = this.contentDataDAO.getContentData(id);
-                                if (contentDataPair == null)
-                                {
-                                    throw new BinaryObjectException("Cannot resolve ContentData for ID " + id);
-                                }
-                                cds[idx++] = contentDataPair.getSecond();
+                                throw new BinaryObjectException("Cannot resolve ContentData for ID " + id);
                             }
-
-                            value = new ArrayList<>(Arrays.asList(cds));
-                        }
-                        // else should never occur, but technically can
-                        else
-                        {
-                            value = new ArrayList<>();
+                            cds.add(contentDataPair.getSecond());
                         }
+                        value = cds;
                     }
                     else
                     {
@@ -429,7 +888,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
                 {
                     if ((flags & FLAG_CONTENT_DATA_VALUE_ID) == FLAG_CONTENT_DATA_VALUE_ID)
                     {
-                        final long id = rawReader.readLong();
+                        final long id = VarIntCodec.readUnsignedLong(rawReader);
                         final Pair<Long, ContentData> contentDataPair = this.contentDataDAO.getContentData(id);
                         if (contentDataPair == null)
                         {
@@ -461,7 +920,7 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
         switch (type)
         {
             case TYPE_LIST:
-                final int size = rawReader.readInt();
+                final int size = VarIntCodec.readUnsignedInt(rawReader);
                 final ArrayList<Serializable> list = new ArrayList<>(size);
                 for (int idx = 0; idx < size; idx++)
                 {
@@ -473,10 +932,10 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
                 result = rawReader.readBoolean();
                 break;
             case TYPE_INTEGER:
-                result = rawReader.readInt();
+                result = (int) VarIntCodec.readSignedLong(rawReader);
                 break;
             case TYPE_LONG:
-                result = rawReader.readLong();
+                result = VarIntCodec.readSignedLong(rawReader);
                 break;
             case TYPE_FLOAT:
                 result = rawReader.readFloat();
@@ -487,6 +946,9 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
             case TYPE_STRING:
                 result = rawReader.readString();
                 break;
+            case TYPE_DICTIONARY_STRING:
+                result = this.resolveDictionaryValue(VarIntCodec.readUnsignedInt(rawReader));
+                break;
             case TYPE_DATE:
                 result = rawReader.readDate();
                 break;
@@ -517,31 +979,15 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
                 {
                     contentProperties.put(qnamePair != null ? qnamePair.getFirst() : qn, ((ContentDataWithId) v).getId());
                 }
-                else if (v instanceof List<?>)
+                else if (v instanceof List<?> && isContentDataWithIdValue(v))
                 {
-                    final Long[] ids = new Long[((List<?>) v).size()];
-                    int idx = 0;
-                    boolean allContent = true;
-                    for (final Object element : (List<?>) v)
-                    {
-                        if (element instanceof ContentDataWithId)
-                        {
-                            ids[idx++] = ((ContentDataWithId) element).getId();
-                        }
-                        else
-                        {
-                            allContent = false;
-                        }
-                    }
-
-                    if (allContent)
+                    final List<?> values = (List<?>) v;
+                    final Long[] ids = new Long[values.size()];
+                    for (int idx = 0; idx < ids.length; idx++)
                     {
-                        contentProperties.put(qnamePair != null ? qnamePair.getFirst() : qn, ids);
-                    }
-                    else
-                    {
-                        regularProperties.put(qnamePair != null ? qnamePair.getFirst() : qn, v);
+                        ids[idx] = ((ContentDataWithId) values.get(idx)).getId();
                     }
+                    contentProperties.put(qnamePair != null ? qnamePair.getFirst() : qn, ids);
                 }
                 else
                 {
@@ -622,8 +1068,9 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
                 }
                 else if (value instanceof Long[])
                 {
-                    final ArrayList<ContentData> cds = new ArrayList<>();
-                    for (final Long id : (Long[]) value)
+                    final Long[] ids = (Long[]) value;
+                    final ArrayList<ContentData> cds = new ArrayList<>(ids.length);
+                    for (final Long id : ids)
                     {
                         final Pair<Long, ContentData> contentDataPair = this.contentDataDAO.getContentData(id);
                         if (contentDataPair == null)
@@ -652,6 +1099,11 @@ public class NodePropertiesBinarySerializer implements BinarySerializer, Applica
 
     protected void ensureDAOsAvailable() throws BinaryObjectException
     {
+        if (this.useValueDictionary && this.valueDictionary == null)
+        {
+            throw new BinaryObjectException("Cannot (de-)serialise node properties in current configuration without a value dictionary");
+        }
+
         if (this.useIdsWhenReasonable || this.useIdsWhenPossible)
         {
             if (this.qnameDAO == null)
@@ -20,7 +20,9 @@ import org.apache.ignite.binary.BinaryWriter;
 /**
  * Instances of this class handle (de-)serialisations of {@link NodeRef} instances in order to optimise their serial form. This
  * implementation primarily aims to optimise handling of well-known {@link StoreRef stores} as part of the node reference, and flatten the
- * serial form - instead of writing the store as a nested, complex object - in case a custom store needs to be handled.
+ * serial form - instead of writing the store as a nested, complex object - in case a custom store needs to be handled. Node IDs in the
+ * canonical, lower-case form of a UUID - as generated by Alfresco for practically all nodes - are written as two long values instead of a
+ * string of 36 characters, with any other node ID being written as a string.
  *
  * @author Axel Faust
  */
@@ -47,6 +49,10 @@ public class NodeRefBinarySerializer implements BinarySerializer
 
     private static final String ID = "id";
 
+    private static final String ID_MOST_SIG_BITS = "idMostSigBits";
+
+    private static final String ID_LEAST_SIG_BITS = "idLeastSigBits";
+
     private static final String PROTOCOL_USER = "user";
 
     private static final String PROTOCOL_SYSTEM = "system";
@@ -60,6 +66,13 @@ public class NodeRefBinarySerializer implements BinarySerializer
 
     private static final byte KNOWN_PROTOCOL = (byte) (CUSTOM_STORE + 1);
 
+    // flag on store type to mark a node ID written in the form of a UUID
+    private static final byte UUID_ID = 0x40;
+
+    private static final int UUID_LENGTH = 36;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     private static Map<StoreRef, Byte> KNOWN_STORES;
 
     private static Map<String, Byte> KNOWN_PROTOCOLS;
@@ -144,10 +157,13 @@ public class NodeRefBinarySerializer implements BinarySerializer
             }
         }
 
+        final boolean uuidId = isCanonicalUuid(id);
+        final byte flags = uuidId ? (byte) (storeType | UUID_ID) : storeType;
+
         if (this.useRawSerialForm)
         {
             final BinaryRawWriter rawWriter = writer.rawWriter();
-            rawWriter.writeByte(storeType);
+            rawWriter.writeByte(flags);
             if (storeType == CUSTOM_STORE)
             {
                 rawWriter.writeString(storeRef.getProtocol());
@@ -156,11 +172,19 @@ public class NodeRefBinarySerializer implements BinarySerializer
             {
                 rawWriter.writeString(storeRef.getIdentifier());
             }
-            rawWriter.writeString(id);
+            if (uuidId)
+            {
+                rawWriter.writeLong(parseUuidBits(id, 0, 18));
+                rawWriter.writeLong(parseUuidBits(id, 19, UUID_LENGTH));
+            }
+            else
+            {
+                rawWriter.writeString(id);
+            }
         }
         else
         {
-            writer.writeByte(STORE_TYPE, storeType);
+            writer.writeByte(STORE_TYPE, flags);
             if (storeType == CUSTOM_STORE)
             {
                 writer.writeString(STORE_PROTOCOL, storeRef.getProtocol());
@@ -169,7 +193,15 @@ public class NodeRefBinarySerializer implements BinarySerializer
             {
                 writer.writeString(STORE_ID, storeRef.getIdentifier());
             }
-            writer.writeString(ID, id);
+            if (uuidId)
+            {
+                writer.writeLong(ID_MOST_SIG_BITS, parseUuidBits(id, 0, 18));
+                writer.writeLong(ID_LEAST_SIG_BITS, parseUuidBits(id, 19, UUID_LENGTH));
+            }
+            else
+            {
+                writer.writeString(ID, id);
+            }
         }
     }
 
@@ -189,13 +221,15 @@ public class NodeRefBinarySerializer implements BinarySerializer
         // need two separate branches as rawReader() sets internal flag
         // otherwise would have used ternary read, e.g. this.useRawSerialForm ? rawReader.readByte() : reader.readByte(STORE_TYPE);
 
+        final byte flags;
         final byte storeType;
         StoreRef storeRef = null;
         String id;
         if (this.useRawSerialForm)
         {
             final BinaryRawReader rawReader = reader.rawReader();
-            storeType = rawReader.readByte();
+            flags = rawReader.readByte();
+            storeType = (byte) (flags & ~UUID_ID);
 
             if (storeType == CUSTOM_STORE)
             {
@@ -214,11 +248,21 @@ public class NodeRefBinarySerializer implements BinarySerializer
                 final String identifier = rawReader.readString();
                 storeRef = new StoreRef(protocol, identifier);
             }
-            id = rawReader.readString();
+            if ((flags & UUID_ID) == UUID_ID)
+            {
+                final long mostSigBits = rawReader.readLong();
+                final long leastSigBits = rawReader.readLong();
+                id = toUuidString(mostSigBits, leastSigBits);
+            }
+            else
+            {
+                id = rawReader.readString();
+            }
         }
         else
         {
-            storeType = reader.readByte(STORE_TYPE);
+            flags = reader.readByte(STORE_TYPE);
+            storeType = (byte) (flags & ~UUID_ID);
 
             if (storeType == CUSTOM_STORE)
             {
@@ -237,7 +281,14 @@ public class NodeRefBinarySerializer implements BinarySerializer
                 final String identifier = reader.readString(STORE_ID);
                 storeRef = new StoreRef(protocol, identifier);
             }
-            id = reader.readString(ID);
+            if ((flags & UUID_ID) == UUID_ID)
+            {
+                id = toUuidString(reader.readLong(ID_MOST_SIG_BITS), reader.readLong(ID_LEAST_SIG_BITS));
+            }
+            else
+            {
+                id = reader.readString(ID);
+            }
         }
 
         if (storeType < 0)
@@ -260,4 +311,87 @@ public class NodeRefBinarySerializer implements BinarySerializer
         }
     }
 
+    /**
+     * Checks whether a node ID is a UUID in its canonical, lower-case string form, which can be exactly reconstructed from the two long
+     * values of the UUID.
+     *
+     * @param id
+     *            the node ID to check
+     * @return {@code true} if the node ID is a canonical UUID, {@code false} otherwise
+     */
+    protected static boolean isCanonicalUuid(final String id)
+    {
+        boolean canonical = id.length() == UUID_LENGTH;
+        for (int idx = 0; canonical && idx < UUID_LENGTH; idx++)
+        {
+            final char c = id.charAt(idx);
+            if (idx == 8 || idx == 13 || idx == 18 || idx == 23)
+            {
+                canonical = c == '-';
+            }
+            else
+            {
+                canonical = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * Parses the hexadecimal digits in a section of a canonical UUID into a long value, skipping any separators.
+     *
+     * @param id
+     *            the canonical UUID
+     * @param fromIndex
+     *            the index of the first character of the section
+     * @param toIndex
+     *            the index after the last character of the section
+     * @return the parsed bits
+     */
+    protected static long parseUuidBits(final String id, final int fromIndex, final int toIndex)
+    {
+        long bits = 0;
+        for (int idx = fromIndex; idx < toIndex; idx++)
+        {
+            final char c = id.charAt(idx);
+            if (c != '-')
+            {
+                bits = (bits << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Reconstructs the canonical, lower-case string form of a UUID - equivalent to {@link java.util.UUID#toString()} without requiring an
+     * intermediary UUID instance.
+     *
+     * @param mostSigBits
+     *            the most significant bits of the UUID
+     * @param leastSigBits
+     *            the least significant bits of the UUID
+     * @return the canonical string form
+     */
+    protected static String toUuidString(final long mostSigBits, final long leastSigBits)
+    {
+        final char[] chars = new char[UUID_LENGTH];
+        writeHexDigits(chars, 0, mostSigBits >>> 32, 8);
+        chars[8] = '-';
+        writeHexDigits(chars, 9, mostSigBits >>> 16, 4);
+        chars[13] = '-';
+        writeHexDigits(chars, 14, mostSigBits, 4);
+        chars[18] = '-';
+        writeHexDigits(chars, 19, leastSigBits >>> 48, 4);
+        chars[23] = '-';
+        writeHexDigits(chars, 24, leastSigBits, 12);
+        return new String(chars);
+    }
+
+    private static void writeHexDigits(final char[] chars, final int offset, final long bits, final int digits)
+    {
+        for (int digit = digits - 1; digit >= 0; digit--)
+        {
+            chars[offset + digit] = HEX_DIGITS[(int) (bits >>> ((digits - 1 - digit) * 4)) & 0xf];
+        }
+    }
 }
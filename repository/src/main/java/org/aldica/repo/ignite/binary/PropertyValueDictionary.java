@@ -0,0 +1,499 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.Cache;
+
+import org.aldica.common.ignite.lifecycle.IgniteInstanceLifecycleAware;
+import org.alfresco.repo.dictionary.constraint.ListOfValuesConstraint;
+import org.alfresco.service.cmr.dictionary.Constraint;
+import org.alfresco.service.cmr.dictionary.ConstraintDefinition;
+import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.dictionary.PropertyDefinition;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.EqualsHelper;
+import org.alfresco.util.PropertyCheck;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteAtomicSequence;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheAtomicityMode;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.cache.CachePeekMode;
+import org.apache.ignite.cache.CacheRebalanceMode;
+import org.apache.ignite.cache.CacheWriteSynchronizationMode;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+/**
+ * Instances of this class maintain a grid-wide, append-only dictionary of frequently used textual property values, allowing
+ * {@link NodePropertiesBinarySerializer} to write such values as small integer codes instead of their full text in the raw serial form, and
+ * to return canonical string instances when reading, so that identical values in cached property maps share a single instance on-heap.
+ *
+ * The dictionary is backed by a fully replicated, fully synchronous Ignite cache mapping codes to values, with codes being assigned from an
+ * atomic sequence. A code is only ever used for writing values after its cache entry has been written to all grid members, so any member
+ * can decode any serialised value. Codes are never assigned as part of a serialisation - values are seeded from the list-of-values
+ * constraints of textual properties in the data dictionary, and a small, random sample of values not yet contained in the dictionary is
+ * tracked during serialisations so that the most frequent values can be added periodically, up to a maximum dictionary size. Codes assigned
+ * by other grid members are picked up for writing as part of the same periodic task, and resolved on-demand when reading. In the rare case
+ * that multiple grid members concurrently add the same value, that value may end up with more than one code, which can still be decoded
+ * without issue.
+ *
+ * @author Axel Faust
+ */
+public class PropertyValueDictionary implements InitializingBean, ApplicationContextAware, IgniteInstanceLifecycleAware
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyValueDictionary.class);
+
+    protected ApplicationContext applicationContext;
+
+    protected String instanceName;
+
+    protected boolean enabled;
+
+    protected String cacheName = "propertyValueDictionary";
+
+    protected int maxSize = 4096;
+
+    protected int maxValueLength = 64;
+
+    protected int sampleRate = 16;
+
+    protected int maxCandidates = 8192;
+
+    protected int promotionThreshold = 8;
+
+    protected long promotionInterval = 60000;
+
+    protected boolean seedFromConstraints = true;
+
+    protected final ConcurrentMap<String, Integer> codesByValue = new ConcurrentHashMap<>();
+
+    protected final ConcurrentMap<Integer, String> valuesByCode = new ConcurrentHashMap<>();
+
+    protected final ConcurrentMap<String, LongAdder> candidates = new ConcurrentHashMap<>();
+
+    protected volatile IgniteCache<Integer, String> cache;
+
+    protected IgniteAtomicSequence codeSequence;
+
+    protected ScheduledExecutorService promotionScheduler;
+
+    protected boolean seeded;
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        PropertyCheck.mandatory(this, "instanceName", this.instanceName);
+        PropertyCheck.mandatory(this, "cacheName", this.cacheName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setApplicationContext(final ApplicationContext applicationContext) throws BeansException
+    {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * @param instanceName
+     *            the name of the Ignite instance in which to maintain the dictionary
+     */
+    public void setInstanceName(final String instanceName)
+    {
+        this.instanceName = instanceName;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param cacheName
+     *            the name of the replicated cache holding the dictionary
+     */
+    public void setCacheName(final String cacheName)
+    {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * @param maxSize
+     *            the maximum number of values to hold in the dictionary
+     */
+    public void setMaxSize(final int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param maxValueLength
+     *            the maximum length of values to consider for inclusion in the dictionary
+     */
+    public void setMaxValueLength(final int maxValueLength)
+    {
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * @param sampleRate
+     *            the rate of serialised values not contained in the dictionary of which one is sampled as a candidate for inclusion
+     */
+    public void setSampleRate(final int sampleRate)
+    {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @param maxCandidates
+     *            the maximum number of distinct candidate values to track between two promotion runs
+     */
+    public void setMaxCandidates(final int maxCandidates)
+    {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @param promotionThreshold
+     *            the number of samples of a candidate value between two promotion runs required for inclusion in the dictionary
+     */
+    public void setPromotionThreshold(final int promotionThreshold)
+    {
+        this.promotionThreshold = promotionThreshold;
+    }
+
+    /**
+     * @param promotionInterval
+     *            the interval in milliseconds between two promotion runs
+     */
+    public void setPromotionInterval(final long promotionInterval)
+    {
+        this.promotionInterval = promotionInterval;
+    }
+
+    /**
+     * @param seedFromConstraints
+     *            {@code true} if the allowed values of list-of-values constraints in the data dictionary should be included in the
+     *            dictionary
+     */
+    public void setSeedFromConstraints(final boolean seedFromConstraints)
+    {
+        this.seedFromConstraints = seedFromConstraints;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeInstanceStartup(final String instanceName)
+    {
+        // NO-OP
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterInstanceStartup(final String instanceName)
+    {
+        if (this.enabled && EqualsHelper.nullSafeEquals(this.instanceName, instanceName))
+        {
+            LOGGER.debug("Initialising property value dictionary for grid {}", instanceName);
+            final Ignite grid = Ignition.ignite(instanceName);
+
+            final CacheConfiguration<Integer, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName(this.cacheName);
+            cacheConfig.setCacheMode(CacheMode.REPLICATED);
+            cacheConfig.setAtomicityMode(CacheAtomicityMode.ATOMIC);
+            // codes may only be used after all members are able to decode them
+            cacheConfig.setWriteSynchronizationMode(CacheWriteSynchronizationMode.FULL_SYNC);
+            cacheConfig.setRebalanceMode(CacheRebalanceMode.SYNC);
+
+            this.codeSequence = grid.atomicSequence(this.cacheName + "-codes", 0, true);
+            this.cache = grid.getOrCreateCache(cacheConfig);
+            this.synchroniseLocalDictionary();
+
+            this.promotionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "aldica-value-dictionary-" + instanceName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.promotionScheduler.scheduleWithFixedDelay(this::runPromotion, this.promotionInterval, this.promotionInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeInstanceShutdown(final String instanceName)
+    {
+        if (EqualsHelper.nullSafeEquals(this.instanceName, instanceName) && this.cache != null)
+        {
+            this.promotionScheduler.shutdownNow();
+            this.promotionScheduler = null;
+            this.cache = null;
+            this.codeSequence = null;
+
+            // codes are only valid for the lifetime of the grid
+            this.codesByValue.clear();
+            this.valuesByCode.clear();
+            this.candidates.clear();
+            this.seeded = false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterInstanceShutdown(final String instanceName)
+    {
+        // NO-OP
+    }
+
+    /**
+     * Retrieves the code of a value for use in a serial form.
+     *
+     * @param value
+     *            the value for which to retrieve the code
+     * @return the code of the value, or {@code -1} if the value is not contained in the dictionary
+     */
+    public int getCode(final String value)
+    {
+        final Integer code = this.cache != null ? this.codesByValue.get(value) : null;
+        return code != null ? code.intValue() : -1;
+    }
+
+    /**
+     * Retrieves the canonical instance of a value from its code.
+     *
+     * @param code
+     *            the code of the value
+     * @return the value, or {@code null} if no value exists for the code
+     */
+    public String getValue(final int code)
+    {
+        final Integer key = Integer.valueOf(code);
+        String value = this.valuesByCode.get(key);
+        if (value == null)
+        {
+            final IgniteCache<Integer, String> cache = this.cache;
+            if (cache != null)
+            {
+                // assigned by another grid member since the last synchronisation
+                value = cache.get(key);
+                if (value != null)
+                {
+                    value = this.registerCode(code, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Records a serialised value not contained in the dictionary as a candidate for inclusion. Only a small sample of values is actually
+     * tracked to keep the overhead for serialisations negligible.
+     *
+     * @param value
+     *            the value to record
+     */
+    public void sample(final String value)
+    {
+        if (this.cache != null && value.length() <= this.maxValueLength && ThreadLocalRandom.current().nextInt(this.sampleRate) == 0)
+        {
+            LongAdder counter = this.candidates.get(value);
+            if (counter == null && this.candidates.size() < this.maxCandidates)
+            {
+                counter = this.candidates.computeIfAbsent(value, v -> new LongAdder());
+            }
+
+            if (counter != null)
+            {
+                counter.increment();
+            }
+        }
+    }
+
+    protected void runPromotion()
+    {
+        try
+        {
+            this.synchroniseLocalDictionary();
+
+            if (this.seedFromConstraints && !this.seeded)
+            {
+                this.seedFromConstraints();
+            }
+
+            this.promoteCandidates();
+        }
+        catch (final RuntimeException ex)
+        {
+            LOGGER.warn("Failed to update property value dictionary", ex);
+        }
+    }
+
+    protected void synchroniseLocalDictionary()
+    {
+        final IgniteCache<Integer, String> cache = this.cache;
+        if (cache != null && cache.localSize(CachePeekMode.PRIMARY, CachePeekMode.BACKUP) != this.valuesByCode.size())
+        {
+            for (final Cache.Entry<Integer, String> entry : cache.localEntries(CachePeekMode.PRIMARY, CachePeekMode.BACKUP))
+            {
+                this.registerCode(entry.getKey().intValue(), entry.getValue());
+            }
+            LOGGER.debug("Synchronised local property value dictionary to {} codes", this.valuesByCode.size());
+        }
+    }
+
+    protected void seedFromConstraints()
+    {
+        final DictionaryService dictionaryService;
+        try
+        {
+            dictionaryService = this.applicationContext.getBean("dictionaryService", DictionaryService.class);
+        }
+        catch (final BeansException be)
+        {
+            LOGGER.debug("Dictionary service is not available yet to seed property value dictionary", be);
+            return;
+        }
+
+        int seededValues = 0;
+        for (final QName model : dictionaryService.getAllModels())
+        {
+            for (final QName property : dictionaryService.getProperties(model))
+            {
+                final PropertyDefinition propertyDefinition = dictionaryService.getProperty(property);
+                if (propertyDefinition != null && DataTypeDefinition.TEXT.equals(propertyDefinition.getDataType().getName()))
+                {
+                    for (final ConstraintDefinition constraintDefinition : propertyDefinition.getConstraints())
+                    {
+                        final Constraint constraint = constraintDefinition.getConstraint();
+                        if (constraint instanceof ListOfValuesConstraint)
+                        {
+                            seededValues += this.promoteValues(((ListOfValuesConstraint) constraint).getAllowedValues());
+                        }
+                    }
+                }
+            }
+        }
+        this.seeded = true;
+
+        LOGGER.debug("Seeded property value dictionary with {} values from list-of-values constraints", seededValues);
+    }
+
+    protected void promoteCandidates()
+    {
+        final List<Entry<String, Long>> frequentCandidates = new ArrayList<>();
+        this.candidates.forEach((value, counter) -> {
+            final long count = counter.sum();
+            if (count >= this.promotionThreshold)
+            {
+                frequentCandidates.add(new SimpleImmutableEntry<>(value, count));
+            }
+        });
+        // candidates are only relevant for a single promotion interval
+        this.candidates.clear();
+
+        if (!frequentCandidates.isEmpty())
+        {
+            frequentCandidates.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            final List<String> values = new ArrayList<>(frequentCandidates.size());
+            frequentCandidates.forEach(candidate -> values.add(candidate.getKey()));
+            final int promotedValues = this.promoteValues(values);
+
+            LOGGER.debug("Promoted {} of {} frequent candidate values to property value dictionary", promotedValues,
+                    frequentCandidates.size());
+        }
+    }
+
+    protected int promoteValues(final Collection<String> values)
+    {
+        int promotedValues = 0;
+        final IgniteCache<Integer, String> cache = this.cache;
+        final IgniteAtomicSequence codeSequence = this.codeSequence;
+        if (cache != null && codeSequence != null)
+        {
+            for (final String value : values)
+            {
+                // cache is fully replicated, so its local size covers codes added by all grid members
+                if (cache.localSize(CachePeekMode.PRIMARY, CachePeekMode.BACKUP) >= this.maxSize)
+                {
+                    LOGGER.debug("Property value dictionary has reached its maximum size of {}", this.maxSize);
+                    break;
+                }
+
+                if (value != null && value.length() <= this.maxValueLength && !this.codesByValue.containsKey(value))
+                {
+                    boolean added = false;
+                    while (!added)
+                    {
+                        final long code = codeSequence.incrementAndGet();
+                        if (code > Integer.MAX_VALUE)
+                        {
+                            LOGGER.warn("Property value dictionary has exhausted its range of codes");
+                            return promotedValues;
+                        }
+
+                        // must be visible grid-wide before code may be used in any serial form
+                        // never overwrite an existing code, as its value may already be used in serial forms
+                        added = cache.putIfAbsent(Integer.valueOf((int) code), value);
+                        if (added)
+                        {
+                            this.registerCode((int) code, value);
+                            promotedValues++;
+                        }
+                        else
+                        {
+                            LOGGER.debug("Code {} is already assigned in property value dictionary - retrying with next code", code);
+                        }
+                    }
+                }
+            }
+        }
+        return promotedValues;
+    }
+
+    protected String registerCode(final int code, final String value)
+    {
+        this.codesByValue.putIfAbsent(value, Integer.valueOf(code));
+        final String existingValue = this.valuesByCode.putIfAbsent(Integer.valueOf(code), value);
+        return existingValue != null ? existingValue : value;
+    }
+}
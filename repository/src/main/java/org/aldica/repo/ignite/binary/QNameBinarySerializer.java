@@ -121,7 +121,7 @@ public class QNameBinarySerializer implements BinarySerializer
         {
             final BinaryRawReader rawReader = reader.rawReader();
             final byte namespaceType = rawReader.readByte();
-            final Namespace namespace = Namespace.values()[namespaceType];
+            final Namespace namespace = Namespace.getLiteral(namespaceType);
             if (namespace == Namespace.CUSTOM)
             {
                 namespaceUri = rawReader.readString();
@@ -135,7 +135,7 @@ public class QNameBinarySerializer implements BinarySerializer
         else
         {
             final byte namespaceType = reader.readByte(NAMESPACE_TYPE);
-            final Namespace namespace = Namespace.values()[namespaceType];
+            final Namespace namespace = Namespace.getLiteral(namespaceType);
             if (namespace == Namespace.CUSTOM)
             {
                 namespaceUri = reader.readString(NAMESPACE_URI);
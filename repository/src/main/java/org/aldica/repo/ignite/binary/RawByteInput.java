@@ -0,0 +1,180 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.ignite.binary.BinaryObjectException;
+
+/**
+ * Instances of this class read values from self-contained serial forms written via {@link RawByteOutput}.
+ *
+ * @author Axel Faust
+ */
+public class RawByteInput
+{
+
+    protected final byte[] bytes;
+
+    protected int position;
+
+    /**
+     * Creates a new instance to read from a specific position.
+     *
+     * @param bytes
+     *            the bytes to read
+     * @param position
+     *            the position from which to read
+     */
+    public RawByteInput(final byte[] bytes, final int position)
+    {
+        this.bytes = bytes;
+        this.position = position;
+    }
+
+    /**
+     * @return the current position of this instance
+     */
+    public int position()
+    {
+        return this.position;
+    }
+
+    /**
+     * Moves this instance to a different position, allowing the instance to be reused for reading multiple values from the same bytes.
+     *
+     * @param position
+     *            the position from which to read next
+     * @throws BinaryObjectException
+     *             if the position lies outside of the bytes
+     */
+    public void position(final int position) throws BinaryObjectException
+    {
+        if (position < 0 || position > this.bytes.length)
+        {
+            throw new BinaryObjectException("Cannot move to position " + position + " outside of serialised bytes");
+        }
+        this.position = position;
+    }
+
+    /**
+     * Skips a number of bytes.
+     *
+     * @param count
+     *            the number of bytes to skip
+     * @throws BinaryObjectException
+     *             if the bytes do not contain enough remaining bytes
+     */
+    public void skip(final int count) throws BinaryObjectException
+    {
+        if (count < 0 || this.position + count > this.bytes.length)
+        {
+            throw new BinaryObjectException("Cannot skip " + count + " bytes beyond end of serialised bytes");
+        }
+        this.position += count;
+    }
+
+    /**
+     * @return the value read
+     * @throws BinaryObjectException
+     *             if the bytes do not contain any remaining bytes
+     */
+    public byte readByte() throws BinaryObjectException
+    {
+        if (this.position >= this.bytes.length)
+        {
+            throw new BinaryObjectException("Cannot read beyond end of serialised bytes");
+        }
+        return this.bytes[this.position++];
+    }
+
+    /**
+     * @return the value read from eight bytes
+     * @throws BinaryObjectException
+     *             if the bytes do not contain enough remaining bytes
+     */
+    public long readLong() throws BinaryObjectException
+    {
+        long value = 0;
+        for (int idx = 0; idx < 8; idx++)
+        {
+            value = (value << 8) | (this.readByte() & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value read in unsigned variable-length encoding
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public long readUnsignedLong() throws BinaryObjectException
+    {
+        long value = 0;
+        byte b;
+        int bytes = 0;
+        do
+        {
+            if (bytes == 10)
+            {
+                throw new BinaryObjectException("Read malformed variable-length integer value");
+            }
+            b = this.readByte();
+            value |= (long) (b & 0x7f) << (7 * bytes++);
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @return the non-negative int value read in unsigned variable-length encoding
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed or not a non-negative int value
+     */
+    public int readUnsignedInt() throws BinaryObjectException
+    {
+        final long value = this.readUnsignedLong();
+        if (value < 0 || value > Integer.MAX_VALUE)
+        {
+            throw new BinaryObjectException(
+                    "Read variable-length integer value " + value + " exceeding range of non-negative int values");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return the value read in zigzag-encoded, variable-length encoding
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public long readSignedLong() throws BinaryObjectException
+    {
+        final long value = this.readUnsignedLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the string read
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public String readString() throws BinaryObjectException
+    {
+        final int length = this.readUnsignedInt();
+        final int start = this.position;
+        this.skip(length);
+        return new String(this.bytes, start, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips a string.
+     *
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public void skipString() throws BinaryObjectException
+    {
+        this.skip(this.readUnsignedInt());
+    }
+}
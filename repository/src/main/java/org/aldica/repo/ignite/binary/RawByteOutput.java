@@ -0,0 +1,123 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Instances of this class provide a growable byte buffer to write self-contained serial forms of values which are not written via Ignite's
+ * binary writers, e.g. to allow for partial decoding or compression of these serial forms.
+ *
+ * @author Axel Faust
+ */
+public class RawByteOutput
+{
+
+    protected byte[] bytes = new byte[256];
+
+    protected int position = 0;
+
+    /**
+     * @return the current position of this buffer
+     */
+    public int position()
+    {
+        return this.position;
+    }
+
+    /**
+     * Resets this buffer to a previous position, discarding any bytes written after it.
+     *
+     * @param position
+     *            the position to reset to
+     */
+    public void reset(final int position)
+    {
+        this.position = position;
+    }
+
+    /**
+     * @return the bytes written to this buffer
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.bytes, this.position);
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value
+     *            the value to write
+     */
+    public void writeByte(final int value)
+    {
+        if (this.position == this.bytes.length)
+        {
+            this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+        }
+        this.bytes[this.position++] = (byte) value;
+    }
+
+    /**
+     * Writes a value in eight bytes.
+     *
+     * @param value
+     *            the value to write
+     */
+    public void writeLong(final long value)
+    {
+        for (int shift = 56; shift >= 0; shift -= 8)
+        {
+            this.writeByte((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * Writes a value in unsigned variable-length encoding as defined by {@link VarIntCodec}.
+     *
+     * @param value
+     *            the value to write
+     */
+    public void writeUnsignedLong(final long value)
+    {
+        long remaining = value;
+        while ((remaining & ~0x7fL) != 0)
+        {
+            this.writeByte((int) ((remaining & 0x7f) | 0x80));
+            remaining >>>= 7;
+        }
+        this.writeByte((int) remaining);
+    }
+
+    /**
+     * Writes a value in zigzag-encoded, variable-length encoding as defined by {@link VarIntCodec}.
+     *
+     * @param value
+     *            the value to write
+     */
+    public void writeSignedLong(final long value)
+    {
+        this.writeUnsignedLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoded bytes.
+     *
+     * @param value
+     *            the value to write
+     */
+    public void writeString(final String value)
+    {
+        final byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+        this.writeUnsignedLong(stringBytes.length);
+        if (this.position + stringBytes.length > this.bytes.length)
+        {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.position + stringBytes.length));
+        }
+        System.arraycopy(stringBytes, 0, this.bytes, this.position, stringBytes.length);
+        this.position += stringBytes.length;
+    }
+}
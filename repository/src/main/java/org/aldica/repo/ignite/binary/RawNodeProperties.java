@@ -0,0 +1,172 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+import org.aldica.repo.ignite.cache.NodePropertiesCacheMap;
+import org.aldica.repo.ignite.cache.NodePropertiesCacheMap.LazyEntries;
+import org.alfresco.service.namespace.QName;
+import org.apache.ignite.binary.BinaryObjectException;
+
+/**
+ * Instances of this class provide the {@link LazyEntries lazily decoded entries} of a deserialised {@link NodePropertiesCacheMap}, backed
+ * by the serialised bytes of these entries and an index of the offset of the value of each entry. A value is only decoded - including the
+ * resolution of any IDs via DAOs - when it is accessed for the first time. The key of an entry serialised as an ID is only resolved when
+ * the entry is accessed via a key object that resolves to the same ID, or when all entries are materialised.
+ *
+ * Instances of this class are not thread-safe - {@link NodePropertiesCacheMap} guards all access to its lazy entries.
+ *
+ * @author Axel Faust
+ */
+public class RawNodeProperties implements LazyEntries
+{
+
+    protected final NodePropertiesBinarySerializer serializer;
+
+    protected final byte[] bytes;
+
+    protected final int size;
+
+    protected final long[] keyIds;
+
+    protected final QName[] keys;
+
+    protected final int[] valueOffsets;
+
+    protected final Serializable[] values;
+
+    protected final boolean[] decoded;
+
+    // reused for decoding values - safe as access to instances is guarded externally
+    protected final RawByteInput valueInput;
+
+    /**
+     * Creates a new instance for serialised entries of node properties, building the index of the keys and value offsets of all entries.
+     *
+     * @param serializer
+     *            the serializer to use for decoding keys and values
+     * @param bytes
+     *            the serialised entries
+     * @param size
+     *            the number of serialised entries
+     * @throws BinaryObjectException
+     *             if the serialised entries are malformed
+     */
+    public RawNodeProperties(final NodePropertiesBinarySerializer serializer, final byte[] bytes, final int size)
+            throws BinaryObjectException
+    {
+        this.serializer = serializer;
+        this.bytes = bytes;
+        this.size = size;
+        this.keyIds = new long[size];
+        this.keys = new QName[size];
+        this.valueOffsets = new int[size];
+        this.values = new Serializable[size];
+        this.decoded = new boolean[size];
+
+        final RawByteInput input = new RawByteInput(bytes, 0);
+        this.valueInput = input;
+        for (int idx = 0; idx < size; idx++)
+        {
+            this.keyIds[idx] = serializer.readKeyLazySerialForm(input);
+            if (this.keyIds[idx] == -1)
+            {
+                this.keys[idx] = QName.createQName(input.readString(), input.readString());
+            }
+            this.valueOffsets[idx] = input.position();
+            serializer.skipValueLazySerialForm(input);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return this.indexOf(key) != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable get(final Object key)
+    {
+        final int idx = this.indexOf(key);
+        return idx != -1 ? this.getValue(idx) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void materialise(final BiConsumer<QName, Serializable> consumer)
+    {
+        for (int idx = 0; idx < this.size; idx++)
+        {
+            if (this.keys[idx] == null)
+            {
+                this.keys[idx] = this.serializer.resolveQName(this.keyIds[idx]);
+            }
+            consumer.accept(this.keys[idx], this.getValue(idx));
+        }
+    }
+
+    protected Serializable getValue(final int idx)
+    {
+        if (!this.decoded[idx])
+        {
+            this.valueInput.position(this.valueOffsets[idx]);
+            this.values[idx] = this.serializer.readValueLazySerialForm(this.valueInput);
+            this.decoded[idx] = true;
+        }
+        return this.values[idx];
+    }
+
+    protected int indexOf(final Object key)
+    {
+        int idx = -1;
+        if (key instanceof QName)
+        {
+            long keyId = -2;
+            for (int candidateIdx = 0; candidateIdx < this.size && idx == -1; candidateIdx++)
+            {
+                if (this.keys[candidateIdx] != null)
+                {
+                    if (this.keys[candidateIdx].equals(key))
+                    {
+                        idx = candidateIdx;
+                    }
+                }
+                else
+                {
+                    if (keyId == -2)
+                    {
+                        // resolve only once and only if the key is needed in ID form
+                        keyId = this.serializer.resolveQNameId((QName) key);
+                    }
+
+                    if (keyId == this.keyIds[candidateIdx])
+                    {
+                        this.keys[candidateIdx] = (QName) key;
+                        idx = candidateIdx;
+                    }
+                }
+            }
+        }
+        return idx;
+    }
+}
@@ -5,6 +5,7 @@ package org.aldica.repo.ignite.binary;
 
 import java.lang.reflect.Field;
 
+import org.aldica.repo.ignite.cache.NodeAffinityKeyMapper;
 import org.alfresco.repo.cache.TransactionalCache;
 import org.alfresco.repo.cache.TransactionalCache.CacheRegionKey;
 import org.apache.ignite.binary.BinaryObjectException;
@@ -18,7 +19,8 @@ import org.apache.ignite.internal.binary.BinaryMarshaller;
 /**
  * Instances of this class handle (de-)serialisations of {@link TransactionalCache transactional cache} {@link CacheRegionKey region key}
  * instances into more efficient binary representations as would be possible by using the default {@link BinaryMarshaller} by optimising
- * away the hash code instance.
+ * away the hash code instance. Keys relating to a node additionally expose the node ID as a top-level field for use by the
+ * {@link NodeAffinityKeyMapper node affinity key mapper}, even if the raw serial form is used.
  *
  * @author Axel Faust
  */
@@ -86,6 +88,13 @@ public class TransactionalCacheRegionKeyBinarySerializer implements BinarySerial
 
             final CacheRegion literal = CacheRegion.getLiteral(cacheRegion);
 
+            // node ID is exposed as a top-level field irrespective of the serial form so affinity can be mapped without deserialisation
+            final Long nodeId = NodeAffinityKeyMapper.resolveNodeId(cacheKey);
+            if (nodeId != null)
+            {
+                writer.writeLong(NodeAffinityKeyMapper.NODE_ID, nodeId.longValue());
+            }
+
             if (this.useRawSerialForm)
             {
                 final BinaryRawWriter rawWriter = writer.rawWriter();
@@ -134,7 +143,7 @@ public class TransactionalCacheRegionKeyBinarySerializer implements BinarySerial
             final BinaryRawReader rawReader = reader.rawReader();
 
             final byte literalOrdinal = rawReader.readByte();
-            literal = CacheRegion.values()[literalOrdinal];
+            literal = CacheRegion.getLiteral(literalOrdinal);
             if (literal == CacheRegion.CUSTOM)
             {
                 cacheRegion = rawReader.readString();
@@ -144,7 +153,7 @@ public class TransactionalCacheRegionKeyBinarySerializer implements BinarySerial
         else
         {
             final byte literalOrdinal = reader.readByte(CACHE_REGION_TYPE);
-            literal = CacheRegion.values()[literalOrdinal];
+            literal = CacheRegion.getLiteral(literalOrdinal);
             if (literal == CacheRegion.CUSTOM)
             {
                 cacheRegion = reader.readString(CACHE_REGION);
@@ -159,8 +168,8 @@ public class TransactionalCacheRegionKeyBinarySerializer implements BinarySerial
             CACHE_REGION_FIELD.set(obj, cacheRegion);
             CACHE_KEY_FIELD.set(obj, cacheKey);
             // reconstruct the hash code
-            HASH_CODE_FIELD.set(obj,
-                    Integer.valueOf((cacheRegion != null ? cacheRegion.hashCode() : 0) + (cacheKey != null ? cacheKey.hashCode() : 0)));
+            HASH_CODE_FIELD.setInt(obj,
+                    (cacheRegion != null ? cacheRegion.hashCode() : 0) + (cacheKey != null ? cacheKey.hashCode() : 0));
         }
         catch (final IllegalAccessException iae)
         {
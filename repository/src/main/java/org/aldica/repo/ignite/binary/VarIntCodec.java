@@ -0,0 +1,188 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.util.Arrays;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryRawReader;
+import org.apache.ignite.binary.BinaryRawWriter;
+
+/**
+ * This class provides operations to write and read integer values in a variable-length encoding as part of raw serial forms. Values are
+ * written as unsigned LEB128 - seven bits per byte with the highest bit flagging that more bytes follow - so that the database IDs of
+ * entities, sizes of collections and other small values require only one to three bytes instead of the fixed four or eight bytes of
+ * {@link BinaryRawWriter#writeInt(int) int} and {@link BinaryRawWriter#writeLong(long) long} values. Signed values are zigzag-encoded to
+ * keep values of small magnitude short irrespective of their sign, and sorted sets of IDs are written as the differences between
+ * consecutive IDs.
+ *
+ * @author Axel Faust
+ */
+public final class VarIntCodec
+{
+
+    private static final int MAX_BYTES = 10;
+
+    private VarIntCodec()
+    {
+        // NO-OP
+    }
+
+    /**
+     * Writes a value in unsigned variable-length encoding. Negative values are supported but always require the maximum of ten bytes.
+     *
+     * @param rawWriter
+     *            the raw binary writer to use
+     * @param value
+     *            the value to write
+     */
+    public static void writeUnsignedLong(final BinaryRawWriter rawWriter, final long value)
+    {
+        long remaining = value;
+        while ((remaining & ~0x7fL) != 0)
+        {
+            rawWriter.writeByte((byte) ((remaining & 0x7f) | 0x80));
+            remaining >>>= 7;
+        }
+        rawWriter.writeByte((byte) remaining);
+    }
+
+    /**
+     * Reads a value in unsigned variable-length encoding.
+     *
+     * @param rawReader
+     *            the raw binary reader to use
+     * @return the value read
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public static long readUnsignedLong(final BinaryRawReader rawReader) throws BinaryObjectException
+    {
+        long value = 0;
+        byte b;
+        int bytes = 0;
+        do
+        {
+            if (bytes == MAX_BYTES)
+            {
+                throw new BinaryObjectException("Read malformed variable-length integer value");
+            }
+            b = rawReader.readByte();
+            value |= (long) (b & 0x7f) << (7 * bytes++);
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Writes a non-negative value, e.g. the size of a collection, in unsigned variable-length encoding.
+     *
+     * @param rawWriter
+     *            the raw binary writer to use
+     * @param value
+     *            the value to write
+     */
+    public static void writeUnsignedInt(final BinaryRawWriter rawWriter, final int value)
+    {
+        if (value < 0)
+        {
+            throw new BinaryObjectException("Value " + value + " must not be negative");
+        }
+        writeUnsignedLong(rawWriter, value);
+    }
+
+    /**
+     * Reads a non-negative value, e.g. the size of a collection, in unsigned variable-length encoding.
+     *
+     * @param rawReader
+     *            the raw binary reader to use
+     * @return the value read
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed or not a non-negative int value
+     */
+    public static int readUnsignedInt(final BinaryRawReader rawReader) throws BinaryObjectException
+    {
+        final long value = readUnsignedLong(rawReader);
+        if (value < 0 || value > Integer.MAX_VALUE)
+        {
+            throw new BinaryObjectException("Read variable-length integer value " + value + " exceeding range of non-negative int values");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes a value in zigzag-encoded, variable-length encoding.
+     *
+     * @param rawWriter
+     *            the raw binary writer to use
+     * @param value
+     *            the value to write
+     */
+    public static void writeSignedLong(final BinaryRawWriter rawWriter, final long value)
+    {
+        writeUnsignedLong(rawWriter, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads a value in zigzag-encoded, variable-length encoding.
+     *
+     * @param rawReader
+     *            the raw binary reader to use
+     * @return the value read
+     * @throws BinaryObjectException
+     *             if the encoded value is malformed
+     */
+    public static long readSignedLong(final BinaryRawReader rawReader) throws BinaryObjectException
+    {
+        final long value = readUnsignedLong(rawReader);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a set of non-negative values, e.g. database IDs, in ascending order with each value encoded as the difference to its
+     * predecessor. The order of the values is not retained.
+     *
+     * @param rawWriter
+     *            the raw binary writer to use
+     * @param values
+     *            the values to write - this array will be sorted in-place
+     */
+    public static void writeSortedLongs(final BinaryRawWriter rawWriter, final long[] values)
+    {
+        Arrays.sort(values);
+        writeUnsignedInt(rawWriter, values.length);
+        long previous = 0;
+        for (final long value : values)
+        {
+            if (value < 0)
+            {
+                throw new BinaryObjectException("Value " + value + " must not be negative");
+            }
+            writeUnsignedLong(rawWriter, value - previous);
+            previous = value;
+        }
+    }
+
+    /**
+     * Reads a set of non-negative values written in ascending, difference-encoded order.
+     *
+     * @param rawReader
+     *            the raw binary reader to use
+     * @return the values read in ascending order
+     * @throws BinaryObjectException
+     *             if the encoded values are malformed
+     */
+    public static long[] readSortedLongs(final BinaryRawReader rawReader) throws BinaryObjectException
+    {
+        final int size = readUnsignedInt(rawReader);
+        final long[] values = new long[size];
+        long previous = 0;
+        for (int idx = 0; idx < size; idx++)
+        {
+            previous += readUnsignedLong(rawReader);
+            values[idx] = previous;
+        }
+        return values;
+    }
+}
@@ -4,11 +4,12 @@
 package org.aldica.repo.ignite.cache;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.cache.configuration.Factory;
@@ -19,7 +20,6 @@ import javax.cache.expiry.ModifiedExpiryPolicy;
 
 import org.aldica.common.ignite.cache.CombinedExpiryPolicy;
 import org.aldica.common.ignite.lifecycle.IgniteInstanceLifecycleAware;
-import org.aldica.common.ignite.lifecycle.SpringIgniteLifecycleBean;
 import org.alfresco.repo.cache.AbstractCacheFactory;
 import org.alfresco.repo.cache.DefaultSimpleCache;
 import org.alfresco.repo.cache.SimpleCache;
@@ -65,10 +65,16 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
 
     private static final String CACHE_TYPE_INVALIDATING_DEFAULT_SIMPLE = "invalidatingDefaultSimple";
 
+    private static final String CACHE_TYPE_LOCAL_TINY_LFU = "localTinyLfu";
+
+    private static final String CACHE_TYPE_INVALIDATING_TINY_LFU = "invalidatingTinyLfu";
+
     private static final String CACHE_TYPE_PARTITIONED = "partitioned";
 
     private static final String CACHE_TYPE_REPLICATED = "replicated";
 
+    private static final String CACHE_TYPE_NEAR_LOCAL = "nearLocal";
+
     /**
      * Alias for {@link #CACHE_TYPE_PARTITIONED} - the Alfresco terminology of fully-distributed refers to the Ignite terminology of a
      * partitioned cache
@@ -105,6 +111,24 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
 
     protected boolean disableAllStatistics;
 
+    protected boolean enableInvalidationDispatcher = false;
+
+    protected long invalidationDispatchDelay = 10;
+
+    protected int invalidationDispatchMaxPendingKeys = 10000;
+
+    protected InvalidationMessageDispatcher invalidationDispatcher;
+
+    protected long keyPresenceFilterPublishInterval = 10000;
+
+    protected ScheduledExecutorService keyPresenceFilterScheduler;
+
+    protected long nearCacheSelfTuningInterval = 0;
+
+    protected ScheduledExecutorService nearCacheSelfTuningScheduler;
+
+    protected NearCacheSizeController nearCacheSizeController;
+
     /**
      *
      * {@inheritDoc}
@@ -181,6 +205,31 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
     {
         if (EqualsHelper.nullSafeEquals(this.instanceName, instanceName))
         {
+            if (this.enableRemoteSupport && this.enableInvalidationDispatcher && this.invalidationDispatcher == null)
+            {
+                LOGGER.debug("Initialising invalidation dispatcher for grid {}", instanceName);
+                this.invalidationDispatcher = new InvalidationMessageDispatcher(Ignition.ignite(instanceName),
+                        this.invalidationDispatchDelay, this.invalidationDispatchMaxPendingKeys);
+            }
+            if (this.enableRemoteSupport && this.keyPresenceFilterScheduler == null)
+            {
+                this.keyPresenceFilterScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "aldica-key-filter-publisher-" + instanceName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            if (this.enableRemoteSupport && this.nearCacheSelfTuningInterval > 0 && this.nearCacheSizeController == null)
+            {
+                LOGGER.debug("Initialising near cache size controller for grid {}", instanceName);
+                this.nearCacheSelfTuningScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "aldica-near-cache-tuner-" + instanceName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                this.nearCacheSizeController = new NearCacheSizeController(Ignition.ignite(instanceName),
+                        this.nearCacheSelfTuningScheduler, this.nearCacheSelfTuningInterval);
+            }
             this.instanceStarted = true;
         }
     }
@@ -194,6 +243,28 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         if (EqualsHelper.nullSafeEquals(this.instanceName, instanceName))
         {
             this.instanceStarted = false;
+
+            if (this.invalidationDispatcher != null)
+            {
+                this.invalidationDispatcher.shutdown();
+                this.invalidationDispatcher = null;
+            }
+
+            if (this.keyPresenceFilterScheduler != null)
+            {
+                this.keyPresenceFilterScheduler.shutdownNow();
+                this.keyPresenceFilterScheduler = null;
+            }
+
+            if (this.nearCacheSelfTuningScheduler != null)
+            {
+                this.nearCacheSelfTuningScheduler.shutdownNow();
+                this.nearCacheSelfTuningScheduler = null;
+                this.nearCacheSizeController = null;
+                NearCacheSizeController.unregisterEvictionPolicies(instanceName);
+            }
+
+            CacheLatencies.unregister(instanceName);
         }
     }
 
@@ -251,6 +322,51 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         this.disableAllStatistics = disableAllStatistics;
     }
 
+    /**
+     * @param enableInvalidationDispatcher
+     *            the enableInvalidationDispatcher to set
+     */
+    public void setEnableInvalidationDispatcher(final boolean enableInvalidationDispatcher)
+    {
+        this.enableInvalidationDispatcher = enableInvalidationDispatcher;
+    }
+
+    /**
+     * @param invalidationDispatchDelay
+     *            the invalidationDispatchDelay to set
+     */
+    public void setInvalidationDispatchDelay(final long invalidationDispatchDelay)
+    {
+        this.invalidationDispatchDelay = invalidationDispatchDelay;
+    }
+
+    /**
+     * @param invalidationDispatchMaxPendingKeys
+     *            the invalidationDispatchMaxPendingKeys to set
+     */
+    public void setInvalidationDispatchMaxPendingKeys(final int invalidationDispatchMaxPendingKeys)
+    {
+        this.invalidationDispatchMaxPendingKeys = invalidationDispatchMaxPendingKeys;
+    }
+
+    /**
+     * @param keyPresenceFilterPublishInterval
+     *            the keyPresenceFilterPublishInterval to set
+     */
+    public void setKeyPresenceFilterPublishInterval(final long keyPresenceFilterPublishInterval)
+    {
+        this.keyPresenceFilterPublishInterval = keyPresenceFilterPublishInterval;
+    }
+
+    /**
+     * @param nearCacheSelfTuningInterval
+     *            the nearCacheSelfTuningInterval to set
+     */
+    public void setNearCacheSelfTuningInterval(final long nearCacheSelfTuningInterval)
+    {
+        this.nearCacheSelfTuningInterval = nearCacheSelfTuningInterval;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -277,6 +393,7 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                 requiresRemoteSupport = false;
                 break;
             case CACHE_TYPE_LOCAL_DEFAULT_SIMPLE:
+            case CACHE_TYPE_LOCAL_TINY_LFU:
                 requiresRemoteSupport = false;
                 requiresIgnite = false;
                 break;
@@ -295,6 +412,14 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                     cacheType = CACHE_TYPE_LOCAL_DEFAULT_SIMPLE;
                 }
                 break;
+            case CACHE_TYPE_INVALIDATING_TINY_LFU:
+                if (!this.enableRemoteSupport)
+                {
+                    requiresRemoteSupport = false;
+                    requiresIgnite = false;
+                    cacheType = CACHE_TYPE_LOCAL_TINY_LFU;
+                }
+                break;
             case CACHE_TYPE_ALFRESCO_FULLY_DISTRIBUTED:
             case CACHE_TYPE_PARTITIONED:
                 if (!this.enableRemoteSupport)
@@ -304,6 +429,7 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                 }
                 break;
             case CACHE_TYPE_REPLICATED:
+            case CACHE_TYPE_NEAR_LOCAL:
                 if (!this.enableRemoteSupport)
                 {
                     requiresRemoteSupport = false;
@@ -329,6 +455,8 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                     .parseBoolean(this.getProperty(cacheName, "ignite.forceInvalidateOnPut", "forceInvalidateOnPut", "true"));
             final boolean allowValueSentinels = Boolean
                     .parseBoolean(this.getProperty(cacheName, "ignite.allowValueSentinels", "allowValueSentinels", "true"));
+            final boolean orderedInvalidation = Boolean
+                    .parseBoolean(this.getProperty(cacheName, "ignite.orderedInvalidation", "orderedInvalidation", "false"));
 
             switch (cacheType)
             {
@@ -338,12 +466,28 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                 case CACHE_TYPE_LOCAL_DEFAULT_SIMPLE:
                     cache = this.createLocalDefaultSimpleCache(cacheName);
                     break;
+                case CACHE_TYPE_LOCAL_TINY_LFU:
+                    cache = this.createTinyLfuLocalCache(cacheName);
+                    break;
                 case CACHE_TYPE_INVALIDATING:
                     cache = this.createLocalCache(grid, cacheName, true, alwaysInvalidateOnPut);
                     break;
                 case CACHE_TYPE_INVALIDATING_DEFAULT_SIMPLE:
-                    cache = this.createLocalDefaultSimpleCache(cacheName);
-                    cache = new InvalidatingCacheFacade<>(cacheName, cache, grid, alwaysInvalidateOnPut, allowValueSentinels);
+                case CACHE_TYPE_INVALIDATING_TINY_LFU:
+                    final boolean versionedInvalidation = Boolean
+                            .parseBoolean(this.getProperty(cacheName, "ignite.versionedInvalidation", "versionedInvalidation", "false"));
+                    cache = CACHE_TYPE_INVALIDATING_TINY_LFU.equals(cacheType) ? this.createTinyLfuLocalCache(cacheName)
+                            : this.createConcurrentLocalCache(cacheName);
+                    final InvalidatingCacheFacade<K, V> facade = new InvalidatingCacheFacade<>(cacheName, cache, grid,
+                            alwaysInvalidateOnPut, allowValueSentinels, this.invalidationDispatcher, versionedInvalidation,
+                            orderedInvalidation);
+                    if (this.isTargetedInvalidation(cacheName))
+                    {
+                        facade.setKeyPresenceFilterTracker(new KeyPresenceFilterTracker(grid, cacheName, facade::getKeys,
+                                this.keyPresenceFilterScheduler, this.keyPresenceFilterPublishInterval));
+                    }
+                    facade.setNegativeLookupStore(this.createNegativeLookupStore(cacheName, alwaysInvalidateOnPut));
+                    cache = facade;
                     break;
                 case CACHE_TYPE_ALFRESCO_FULLY_DISTRIBUTED:
                 case CACHE_TYPE_PARTITIONED:
@@ -352,20 +496,25 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
                 case CACHE_TYPE_REPLICATED:
                     cache = this.createReplicatedCache(grid, cacheName);
                     break;
+                case CACHE_TYPE_NEAR_LOCAL:
+                    cache = this.createNearLocalCache(grid, cacheName);
+                    break;
                 default:
                     throw new UnsupportedOperationException("Cache type " + cacheType + " is not supported");
             }
         }
         else
         {
-            cache = this.createLocalDefaultSimpleCache(cacheName);
+            // temporary cache until grid has started, unless cache type does not require Ignite at all
+            cache = CACHE_TYPE_LOCAL_TINY_LFU.equals(cacheType) ? this.createTinyLfuLocalCache(cacheName)
+                    : this.createLocalDefaultSimpleCache(cacheName);
         }
 
         if (withProxy)
         {
             if (!this.instanceStarted && requiresIgnite)
             {
-                cache = this.createLazySwapProxy(cacheName, cache);
+                cache = this.createLazySwapCache(cacheName, cache);
             }
         }
 
@@ -401,16 +550,19 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         return igniteValue;
     }
 
-    protected SimpleCache<K, V> createLazySwapProxy(final String cacheName, final SimpleCache<K, V> temporaryCache)
+    protected SimpleCache<K, V> createLazySwapCache(final String cacheName, final SimpleCache<K, V> temporaryCache)
     {
-        LOGGER.debug("Creating enhanced cache proxy to lazily swap temporary cache {} with real instance when grid has started", cacheName);
+        LOGGER.debug("Creating cache delegate to lazily swap temporary cache {} with real instance when grid has started", cacheName);
 
-        @SuppressWarnings("unchecked")
-        final SimpleCache<K, V> proxyInstance = (SimpleCache<K, V>) Proxy.newProxyInstance(CacheFactoryImpl.class.getClassLoader(),
-                new Class<?>[] { SimpleCache.class, IgniteInstanceLifecycleAware.class, CacheWithMetrics.class },
-
-                new SimpleLazySwapCacheInvoker(temporaryCache, cacheName));
-        return proxyInstance;
+        final LazySwapSimpleCache<K, V> swappableCache = new LazySwapSimpleCache<>(this.instanceName, cacheName, temporaryCache, () -> {
+            // cannot rely on lifecycle call ordering based on some inherent Spring order, so forward to factory itself
+            if (!this.instanceStarted)
+            {
+                this.afterInstanceStartup(this.instanceName);
+            }
+            return this.createCache(cacheName, false);
+        });
+        return swappableCache;
     }
 
     protected SimpleCache<K, V> createLocalDefaultSimpleCache(final String cacheName)
@@ -427,6 +579,35 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         return cache;
     }
 
+    protected SimpleCache<K, V> createConcurrentLocalCache(final String cacheName)
+    {
+        LOGGER.debug("Creating concurrent local cache {}", cacheName);
+
+        final int maxItems = Integer.parseInt(this.getProperty(cacheName, "ignite.heap.maxItems", "heap.maxItems", "maxItems", "0"));
+        final boolean useMaxItems = !EVICTION_POLICY_NONE.equals(this.getProperty(cacheName, "ignite.heap.eviction-policy",
+                "heap.eviction-policy", "eviction-policy", EVICTION_POLICY_NONE));
+        final int ttlSeconds = Integer.parseInt(this.getProperty(cacheName, "ignite.timeToLiveSeconds", "timeToLiveSeconds", "0"));
+        final int maxIdleSeconds = Integer.parseInt(this.getProperty(cacheName, "ignite.maxIdleSeconds", "maxIdleSeconds", "0"));
+
+        final ConcurrentLocalCache<K, V> cache = new ConcurrentLocalCache<>(cacheName, useMaxItems ? maxItems : 0, ttlSeconds,
+                maxIdleSeconds);
+        return cache;
+    }
+
+    protected SimpleCache<K, V> createTinyLfuLocalCache(final String cacheName)
+    {
+        LOGGER.debug("Creating TinyLFU local cache {}", cacheName);
+
+        final int maxItems = Integer.parseInt(this.getProperty(cacheName, "ignite.heap.maxItems", "heap.maxItems", "maxItems", "0"));
+        final boolean useMaxItems = !EVICTION_POLICY_NONE.equals(this.getProperty(cacheName, "ignite.heap.eviction-policy",
+                "heap.eviction-policy", "eviction-policy", EVICTION_POLICY_NONE));
+        final int ttlSeconds = Integer.parseInt(this.getProperty(cacheName, "ignite.timeToLiveSeconds", "timeToLiveSeconds", "0"));
+        final int maxIdleSeconds = Integer.parseInt(this.getProperty(cacheName, "ignite.maxIdleSeconds", "maxIdleSeconds", "0"));
+
+        final TinyLfuLocalCache<K, V> cache = new TinyLfuLocalCache<>(cacheName, useMaxItems ? maxItems : 0, ttlSeconds, maxIdleSeconds);
+        return cache;
+    }
+
     protected SimpleCache<K, V> createLocalCache(final Ignite grid, final String cacheName, final boolean invalidate,
             final boolean alwaysInvalidateOnPut)
     {
@@ -444,10 +625,21 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
 
         final boolean allowValueSentinels = Boolean
                 .parseBoolean(this.getProperty(cacheName, "ignite.allowValueSentinels", "allowValueSentinels", "true"));
+        final boolean orderedInvalidation = Boolean
+                .parseBoolean(this.getProperty(cacheName, "ignite.orderedInvalidation", "orderedInvalidation", "false"));
 
         final IgniteCache<K, V> backingCache = grid.getOrCreateCache(cacheConfig);
-        final SimpleIgniteBackedCache<K, V> localCache = new SimpleIgniteBackedCache<>(grid,
-                SimpleIgniteBackedCache.Mode.getLocalCacheMode(invalidate, alwaysInvalidateOnPut), backingCache, allowValueSentinels);
+        final SimpleIgniteBackedCache.Mode cacheMode = SimpleIgniteBackedCache.Mode.getLocalCacheMode(invalidate, alwaysInvalidateOnPut);
+        final SimpleIgniteBackedCache<K, V> localCache = new SimpleIgniteBackedCache<>(grid, cacheMode, backingCache, allowValueSentinels,
+                this.invalidationDispatcher, orderedInvalidation);
+        if (invalidate && this.isTargetedInvalidation(cacheName))
+        {
+            localCache.setKeyPresenceFilterTracker(new KeyPresenceFilterTracker(grid, cacheName, localCache::getKeys,
+                    this.keyPresenceFilterScheduler, this.keyPresenceFilterPublishInterval));
+        }
+        this.processValueMemo(cacheName, localCache);
+        localCache.setNegativeLookupStore(
+                this.createNegativeLookupStore(cacheName, SimpleIgniteBackedCache.isNegativeLookupStoreSupported(cacheMode)));
         return localCache;
     }
 
@@ -455,6 +647,49 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
     {
         LOGGER.debug("Creating partitioned cache {} in grid {}", cacheName, grid.name());
 
+        final CacheConfiguration<K, V> cacheConfig = this.createPartitionedCacheConfiguration(cacheName);
+        this.processNearCache(cacheName, cacheConfig);
+
+        final boolean allowValueSentinels = Boolean
+                .parseBoolean(this.getProperty(cacheName, "ignite.allowValueSentinels", "allowValueSentinels", "true"));
+
+        final IgniteCache<K, V> backingCache = grid.getOrCreateCache(cacheConfig);
+        final SimpleIgniteBackedCache<K, V> localCache = new SimpleIgniteBackedCache<>(grid, SimpleIgniteBackedCache.Mode.PARTITIONED,
+                backingCache, allowValueSentinels);
+        this.processNearCacheSelfTuning(cacheName, cacheConfig, localCache);
+        this.processKeyScanPageSize(cacheName, localCache);
+        this.processValueMemo(cacheName, localCache);
+        this.checkNegativeLookupStoreUnsupported(cacheName);
+        return localCache;
+    }
+
+    protected SimpleCache<K, V> createNearLocalCache(final Ignite grid, final String cacheName)
+    {
+        LOGGER.debug("Creating partitioned cache {} with on-heap tier of deserialised values in grid {}", cacheName, grid.name());
+
+        final CacheConfiguration<K, V> cacheConfig = this.createPartitionedCacheConfiguration(cacheName);
+        // on-heap tier replaces local backup reads, and reading from primary guarantees visibility of any update we are notified of
+        cacheConfig.setReadFromBackup(false);
+
+        final boolean allowValueSentinels = Boolean
+                .parseBoolean(this.getProperty(cacheName, "ignite.allowValueSentinels", "allowValueSentinels", "true"));
+
+        final int cacheMaxItems = Integer.parseInt(
+                this.ignoreDefaultEvictionConfiguration ? this.getProperty(cacheName, "ignite.heap.maxItems", "heap.maxItems", "0")
+                        : this.getProperty(cacheName, "ignite.heap.maxItems", "heap.maxItems", "maxItems", "0"));
+        final int localMaxItems = Integer.parseInt(this.getProperty(cacheName, "ignite.nearLocal.maxItems", "nearLocal.maxItems",
+                cacheMaxItems > 0 ? String.valueOf(Math.max(cacheMaxItems / 4, 1)) : "10000"));
+
+        final IgniteCache<K, V> backingCache = grid.getOrCreateCache(cacheConfig);
+        final NearLocalIgniteBackedCache<K, V> localCache = new NearLocalIgniteBackedCache<>(grid, backingCache, allowValueSentinels,
+                localMaxItems);
+        this.processKeyScanPageSize(cacheName, localCache);
+        this.checkNegativeLookupStoreUnsupported(cacheName);
+        return localCache;
+    }
+
+    protected CacheConfiguration<K, V> createPartitionedCacheConfiguration(final String cacheName)
+    {
         final CacheConfiguration<K, V> cacheConfig = new CacheConfiguration<>();
 
         cacheConfig.setName(cacheName.startsWith("cache.") ? cacheName.substring(6) : cacheName);
@@ -473,17 +708,18 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         final RendezvousAffinityFunction affinityFunction = new RendezvousAffinityFunction(false, this.partitionsCount);
         cacheConfig.setAffinity(affinityFunction);
 
+        // entries of all caches with this flag are colocated per node if the caches use the same affinity function
+        final boolean colocateByNode = Boolean
+                .parseBoolean(this.getProperty(cacheName, "ignite.affinity.colocateByNode", "affinity.colocateByNode", "false"));
+        if (colocateByNode)
+        {
+            cacheConfig.setAffinityMapper(new NodeAffinityKeyMapper());
+        }
+
         this.processMemoryConfig(cacheName, cacheConfig);
         this.processExpiryPolicy(cacheName, cacheConfig);
-        this.processNearCache(cacheName, cacheConfig);
-
-        final boolean allowValueSentinels = Boolean
-                .parseBoolean(this.getProperty(cacheName, "ignite.allowValueSentinels", "allowValueSentinels", "true"));
 
-        final IgniteCache<K, V> backingCache = grid.getOrCreateCache(cacheConfig);
-        final SimpleIgniteBackedCache<K, V> localCache = new SimpleIgniteBackedCache<>(grid, SimpleIgniteBackedCache.Mode.PARTITIONED,
-                backingCache, allowValueSentinels);
-        return localCache;
+        return cacheConfig;
     }
 
     protected SimpleCache<K, V> createReplicatedCache(final Ignite grid, final String cacheName)
@@ -512,9 +748,69 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
         final IgniteCache<K, V> backingCache = grid.getOrCreateCache(cacheConfig);
         final SimpleIgniteBackedCache<K, V> localCache = new SimpleIgniteBackedCache<>(grid, SimpleIgniteBackedCache.Mode.REPLICATED,
                 backingCache, allowValueSentinels);
+        this.processValueMemo(cacheName, localCache);
+        this.checkNegativeLookupStoreUnsupported(cacheName);
         return localCache;
     }
 
+    protected void processKeyScanPageSize(final String cacheName, final SimpleIgniteBackedCache<K, V> cache)
+    {
+        final int keyScanPageSize = Integer.parseInt(this.getProperty(cacheName, "ignite.keyScanPageSize", "keyScanPageSize", "1024"));
+        cache.setKeyScanPageSize(keyScanPageSize);
+    }
+
+    protected void processValueMemo(final String cacheName, final SimpleIgniteBackedCache<K, V> cache)
+    {
+        final int valueMemoMaxItems = Integer.parseInt(this.getProperty(cacheName, "ignite.valueMemo.maxItems", "valueMemo.maxItems", "0"));
+        if (valueMemoMaxItems > 0)
+        {
+            final String referenceType = this.getProperty(cacheName, "ignite.valueMemo.referenceType", "valueMemo.referenceType", "soft");
+            cache.setValueMemo(new DeserialisedValueMemo<>(cacheName, valueMemoMaxItems,
+                    DeserialisedValueMemo.ReferenceType.valueOf(referenceType.trim().toUpperCase(Locale.ENGLISH))));
+        }
+    }
+
+    protected NegativeLookupStore<K> createNegativeLookupStore(final String cacheName, final boolean supported)
+    {
+        final int negativeLookupMaxItems = Integer
+                .parseInt(this.getProperty(cacheName, "ignite.negativeLookup.maxItems", "negativeLookup.maxItems", "0"));
+
+        NegativeLookupStore<K> negativeLookupStore = null;
+        if (negativeLookupMaxItems > 0)
+        {
+            if (supported)
+            {
+                final int negativeLookupTtlSeconds = Integer
+                        .parseInt(this.getProperty(cacheName, "ignite.negativeLookup.ttlSeconds", "negativeLookup.ttlSeconds", "0"));
+                negativeLookupStore = new NegativeLookupStore<>(cacheName, negativeLookupMaxItems, negativeLookupTtlSeconds);
+            }
+            else
+            {
+                this.checkNegativeLookupStoreUnsupported(cacheName);
+            }
+        }
+        return negativeLookupStore;
+    }
+
+    protected void checkNegativeLookupStoreUnsupported(final String cacheName)
+    {
+        final int negativeLookupMaxItems = Integer
+                .parseInt(this.getProperty(cacheName, "ignite.negativeLookup.maxItems", "negativeLookup.maxItems", "0"));
+        if (negativeLookupMaxItems > 0)
+        {
+            // negative lookups recorded per server would not be dropped when values are put / removed via other servers
+            LOGGER.warn("Cache {} cannot store negative lookups locally as other servers do not invalidate them on every put / remove",
+                    cacheName);
+        }
+    }
+
+    protected boolean isTargetedInvalidation(final String cacheName)
+    {
+        final boolean targetedInvalidation = Boolean
+                .parseBoolean(this.getProperty(cacheName, "ignite.targetedInvalidation", "targetedInvalidation", "false"));
+        return targetedInvalidation && this.keyPresenceFilterScheduler != null;
+    }
+
     protected void processMemoryConfig(final String cacheName, final CacheConfiguration<K, V> cacheConfig)
     {
         final String dataRegionName = this.getProperty(cacheName, "ignite.dataRegionName", "dataRegionName", null);
@@ -656,76 +952,34 @@ public class CacheFactoryImpl<K extends Serializable, V extends Serializable> ex
             final int nearBatchEvictionPercentage = Integer.parseInt(this.getProperty(cacheName, "ignite.near.eviction-percentage",
                     "near.eviction-percentage", cacheBatchEvictionPercentage > 0 ? String.valueOf(cacheBatchEvictionPercentage) : "0"));
 
-            final AbstractEvictionPolicyFactory<? extends EvictionPolicy<K, V>> evictionPolicyFactory = this.createEvictionPolicy(
-                    nearMaxMemory, nearMaxItems, nearEvictionPolicy, nearBatchEvictionItems, nearBatchEvictionPercentage);
+            AbstractEvictionPolicyFactory<? extends EvictionPolicy<K, V>> evictionPolicyFactory = this.createEvictionPolicy(nearMaxMemory,
+                    nearMaxItems, nearEvictionPolicy, nearBatchEvictionItems, nearBatchEvictionPercentage);
+            if (this.isNearCacheSelfTuning(cacheName) && evictionPolicyFactory.getMaxSize() > 0)
+            {
+                evictionPolicyFactory = new TunableEvictionPolicyFactory<>(this.instanceName, cacheConfig.getName(), evictionPolicyFactory);
+            }
             nearCacheCfg.setNearEvictionPolicyFactory(evictionPolicyFactory);
         }
     }
 
-    /**
-     * Instances of this AOP invocation handler handle grid starts after initial cache(s) have been created since the
-     * {@link SpringIgniteLifecycleBean grid startup}, specifically discovery may rely on Alfresco services which in turn require caches.
-     * This would cause a circular dependency graph without the ability to lazily swap temporary caches with the eventual final instances.
-     *
-     * @author Axel Faust
-     */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    public class SimpleLazySwapCacheInvoker extends SimpleCacheInvoker
+    protected void processNearCacheSelfTuning(final String cacheName, final CacheConfiguration<K, V> cacheConfig,
+            final SimpleIgniteBackedCache<K, V> cache)
     {
-
-        private final String cacheName;
-
-        private boolean swapped = false;
-
-        protected SimpleLazySwapCacheInvoker(final SimpleCache backingCache, final String cacheName)
+        final NearCacheConfiguration<K, V> nearCacheCfg = cacheConfig.getNearConfiguration();
+        if (nearCacheCfg != null && nearCacheCfg.getNearEvictionPolicyFactory() instanceof TunableEvictionPolicyFactory<?, ?>)
         {
-            super(backingCache);
-            this.cacheName = cacheName;
+            final int minItems = Integer
+                    .parseInt(this.getProperty(cacheName, "ignite.near.selfTuning.minItems", "near.selfTuning.minItems", "0"));
+            final int maxItems = Integer
+                    .parseInt(this.getProperty(cacheName, "ignite.near.selfTuning.maxItems", "near.selfTuning.maxItems", "0"));
+            // near cache misses are counted by the cache itself, independent of statistics being enabled
+            this.nearCacheSizeController.register(cacheConfig.getName(), cache::getNearCacheMisses, minItems, maxItems);
         }
+    }
 
-        /**
-         *
-         * {@inheritDoc}
-         */
-        @Override
-        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
-        {
-            Object result = null;
-            final String methodName = method.getName();
-            if (IgniteInstanceLifecycleAware.class.isAssignableFrom(method.getDeclaringClass())
-                    && (methodName.startsWith("beforeInstance") || methodName.startsWith("afterInstance")))
-            {
-                if ("afterInstanceStartup".equals(methodName) && args.length == 1
-                        && EqualsHelper.nullSafeEquals(CacheFactoryImpl.this.instanceName, args[0]))
-                {
-                    // cannot rely on lifecycle call ordering based on some inherent Spring order, so forward to factory itself
-                    if (!CacheFactoryImpl.this.instanceStarted)
-                    {
-                        CacheFactoryImpl.this.afterInstanceStartup(CacheFactoryImpl.this.instanceName);
-                    }
-
-                    if (!this.swapped)
-                    {
-                        final SimpleCache newCache = CacheFactoryImpl.this.createCache(this.cacheName, false);
-
-                        // transfer
-                        this.backingCache.getKeys().forEach(key -> {
-                            newCache.put((Serializable) key, this.backingCache.get((Serializable) key));
-                        });
-
-                        this.backingCache = newCache;
-                        this.swapped = true;
-
-                        LOGGER.debug("Lazily swapped temporary cache {} with real instance", this.cacheName);
-                    }
-                }
-                result = null;
-            }
-            else
-            {
-                result = super.invoke(proxy, method, args);
-            }
-            return result;
-        }
+    protected boolean isNearCacheSelfTuning(final String cacheName)
+    {
+        return this.nearCacheSizeController != null
+                && Boolean.parseBoolean(this.getProperty(cacheName, "ignite.near.selfTuning", "near.selfTuning", "false"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instances of this class hold the {@link LatencyHistogram latency histograms} for the operations of a single cache instance. Latencies are
+ * recorded relative to a start timestamp obtained via {@link System#nanoTime()} at the beginning of an operation.
+ *
+ * Instances can be registered for a cache on the local server, so that the {@link LatencyHistogram#getWindowSnapshot() recent latency
+ * percentiles} can be looked up by name in the admin console, alongside the metrics provided by Ignite.
+ *
+ * @author Axel Faust
+ */
+public class CacheLatencies
+{
+
+    // caches are looked up by name in the admin console without access to the cache factory or cache instances
+    private static final Map<String, CacheLatencies> REGISTERED_LATENCIES = new ConcurrentHashMap<>();
+
+    protected final LatencyHistogram getLatencies = new LatencyHistogram();
+
+    protected final LatencyHistogram putLatencies = new LatencyHistogram();
+
+    protected final LatencyHistogram removeLatencies = new LatencyHistogram();
+
+    protected final LatencyHistogram invalidationLatencies = new LatencyHistogram();
+
+    /**
+     * Registers the latencies of a cache on the local server, so that they can be looked up by name.
+     *
+     * @param instanceName
+     *            the name of the grid of the cache
+     * @param cacheName
+     *            the name of the cache
+     * @param latencies
+     *            the latencies of the cache
+     */
+    public static void register(final String instanceName, final String cacheName, final CacheLatencies latencies)
+    {
+        REGISTERED_LATENCIES.put(instanceName + "/" + cacheName, latencies);
+    }
+
+    /**
+     * Retrieves the registered latencies of a cache on the local server.
+     *
+     * @param instanceName
+     *            the name of the grid of the cache
+     * @param cacheName
+     *            the name of the cache
+     * @return the latencies of the cache, or {@code null} if no latencies have been registered for the cache
+     */
+    public static CacheLatencies getRegistered(final String instanceName, final String cacheName)
+    {
+        return REGISTERED_LATENCIES.get(instanceName + "/" + cacheName);
+    }
+
+    /**
+     * Unregisters the latencies of all caches of a specific grid.
+     *
+     * @param instanceName
+     *            the name of the grid
+     */
+    public static void unregister(final String instanceName)
+    {
+        REGISTERED_LATENCIES.keySet().removeIf(key -> key.startsWith(instanceName + "/"));
+    }
+
+    /**
+     * Records the latency of a single or bulk read operation.
+     *
+     * @param startNanos
+     *            the start timestamp of the operation
+     */
+    public void recordGet(final long startNanos)
+    {
+        final long now = System.nanoTime();
+        this.getLatencies.record(now - startNanos, now);
+    }
+
+    /**
+     * Records the latency of a single or bulk write operation.
+     *
+     * @param startNanos
+     *            the start timestamp of the operation
+     */
+    public void recordPut(final long startNanos)
+    {
+        final long now = System.nanoTime();
+        this.putLatencies.record(now - startNanos, now);
+    }
+
+    /**
+     * Records the latency of a single or bulk removal operation.
+     *
+     * @param startNanos
+     *            the start timestamp of the operation
+     */
+    public void recordRemove(final long startNanos)
+    {
+        final long now = System.nanoTime();
+        this.removeLatencies.record(now - startNanos, now);
+    }
+
+    /**
+     * Records the latency of sending or enqueueing an invalidation message for one or more keys to other grid nodes.
+     *
+     * @param startNanos
+     *            the start timestamp of the operation
+     */
+    public void recordInvalidation(final long startNanos)
+    {
+        final long now = System.nanoTime();
+        this.invalidationLatencies.record(now - startNanos, now);
+    }
+
+    /**
+     * @return the histogram of the latencies of read operations
+     */
+    public LatencyHistogram getGetLatencies()
+    {
+        return this.getLatencies;
+    }
+
+    /**
+     * @return the histogram of the latencies of write operations
+     */
+    public LatencyHistogram getPutLatencies()
+    {
+        return this.putLatencies;
+    }
+
+    /**
+     * @return the histogram of the latencies of removal operations
+     */
+    public LatencyHistogram getRemoveLatencies()
+    {
+        return this.removeLatencies;
+    }
+
+    /**
+     * @return the histogram of the latencies of sending invalidation messages
+     */
+    public LatencyHistogram getInvalidationLatencies()
+    {
+        return this.invalidationLatencies;
+    }
+}
@@ -5,7 +5,7 @@ package org.aldica.repo.ignite.cache;
 
 /**
  * Instances of this interface provide data for a particular cache instance regarding absolute and relative access metrics, hits vs misses,
- * as well as evictions.
+ * as well as evictions, and the distribution of latencies of the various cache operations.
  *
  * @author Axel Faust
  */
@@ -54,5 +54,31 @@ public interface CacheMetrics
      */
     long getCacheEvictions();
 
-    // TODO Add additional stats (e.g. puts + timing) when supported enough by Alfresco or 3rd party caches for inclusion in view
+    /**
+     * Retrieves the distribution of latencies of single and bulk read accesses to this cache.
+     *
+     * @return the histogram of read latencies
+     */
+    LatencyHistogram getCacheGetLatencies();
+
+    /**
+     * Retrieves the distribution of latencies of single and bulk write accesses to this cache.
+     *
+     * @return the histogram of write latencies
+     */
+    LatencyHistogram getCachePutLatencies();
+
+    /**
+     * Retrieves the distribution of latencies of single and bulk removals from this cache.
+     *
+     * @return the histogram of removal latencies
+     */
+    LatencyHistogram getCacheRemoveLatencies();
+
+    /**
+     * Retrieves the distribution of latencies of sending or enqueueing invalidation messages for entries of this cache to other servers.
+     *
+     * @return the histogram of invalidation latencies
+     */
+    LatencyHistogram getCacheInvalidationLatencies();
 }
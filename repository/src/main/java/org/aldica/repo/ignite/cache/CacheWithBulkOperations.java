@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Instances of this interface are caches that are capable of retrieving and modifying multiple entries in bulk, e.g. in a single network
+ * round-trip per server of the data grid instead of one per entry.
+ *
+ * @param <K>
+ *            the type of the keys of the cache
+ * @param <V>
+ *            the type of the values of the cache
+ *
+ * @author Axel Faust
+ */
+public interface CacheWithBulkOperations<K extends Serializable, V>
+{
+
+    /**
+     * Retrieves the values for multiple keys.
+     *
+     * @param keys
+     *            the keys for which to retrieve values
+     * @return the values for the keys, not containing any entries for keys without a value in the cache
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
+    /**
+     * Puts multiple entries into the cache. Entries with a {@code null} value are treated as removals.
+     *
+     * @param entries
+     *            the entries to put
+     */
+    void putAll(Map<? extends K, ? extends V> entries);
+
+    /**
+     * Removes multiple entries from the cache.
+     *
+     * @param keys
+     *            the keys of the entries to remove
+     */
+    void removeAll(Collection<? extends K> keys);
+
+    /**
+     * Asynchronously loads the values for multiple keys into the tier of the cache local to the current server, so that subsequent
+     * retrievals of these keys do not require network round-trips. This operation is a no-op for caches which only hold local data.
+     *
+     * @param keys
+     *            the keys for which to prefetch values
+     */
+    void prefetch(Collection<? extends K> keys);
+}
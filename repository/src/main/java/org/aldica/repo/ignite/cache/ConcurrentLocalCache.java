@@ -0,0 +1,358 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.ParameterCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class provide a local, on-heap cache with the same configuration options as the Alfresco {@link DefaultSimpleCache},
+ * i.e. limits on the number of entries, their time-to-live and maximum idle time. In addition to the {@link SimpleCache} operations,
+ * instances of this class support atomic {@link #getAndPut(Serializable, Object) replacement} and
+ * {@link #removeIf(Serializable, Predicate) conditional removal} of entries, each performed as a single operation on the underlying map.
+ *
+ * When the limit on the number of entries is exceeded, entries are evicted in a batch using the CLOCK approximation of a least recently
+ * used policy: a single thread sweeps the entries in a circular manner, sparing any entry that has been accessed since the last sweep once,
+ * and evicting entries that have not. This requires no ordering of entries and only constant amortised effort per evicted entry.
+ *
+ * @author Axel Faust
+ */
+public class ConcurrentLocalCache<K extends Serializable, V> implements SimpleCache<K, V>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentLocalCache.class);
+
+    protected final String cacheName;
+
+    protected final int maxItems;
+
+    protected final long timeToLiveMillis;
+
+    protected final long maxIdleMillis;
+
+    protected final ConcurrentMap<K, CacheEntry<V>> entries = new ConcurrentHashMap<>();
+
+    protected final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    // position of the CLOCK sweep - only accessed by the single thread performing an eviction
+    protected Iterator<Map.Entry<K, CacheEntry<V>>> evictionHand;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param cacheName
+     *            the name of the cache
+     * @param maxItems
+     *            the maximum number of entries to hold, or {@code 0} for an unbounded cache
+     * @param timeToLiveSeconds
+     *            the time in seconds after which an entry expires after it has been put, or {@code 0} if entries should not expire
+     * @param maxIdleSeconds
+     *            the time in seconds after which an entry expires after it has last been accessed, or {@code 0} if entries should not
+     *            expire
+     */
+    public ConcurrentLocalCache(final String cacheName, final int maxItems, final int timeToLiveSeconds, final int maxIdleSeconds)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        if (maxItems < 0)
+        {
+            throw new IllegalArgumentException("maxItems must not be negative");
+        }
+
+        this.cacheName = cacheName;
+        this.maxItems = maxItems;
+        this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+        this.maxIdleMillis = maxIdleSeconds * 1000L;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final K key)
+    {
+        final CacheEntry<V> entry = this.entries.get(key);
+        return entry != null && !this.isExpired(entry, System.currentTimeMillis());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<K> getKeys()
+    {
+        final long now = System.currentTimeMillis();
+        final Collection<K> keys = new LinkedHashSet<>();
+        this.entries.forEach((key, entry) -> {
+            if (!this.isExpired(entry, now))
+            {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(final K key)
+    {
+        V value = null;
+        final CacheEntry<V> entry = this.entries.get(key);
+        if (entry != null)
+        {
+            final long now = System.currentTimeMillis();
+            if (this.isExpired(entry, now))
+            {
+                if (this.entries.remove(key, entry))
+                {
+                    this.afterRemoval(key, entry);
+                }
+            }
+            else
+            {
+                entry.lastAccess = now;
+                entry.referenced = true;
+                value = entry.value;
+                this.afterRead(entry);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final K key, final V value)
+    {
+        this.getAndPut(key, value);
+    }
+
+    /**
+     * Atomically puts a value into this cache and retrieves the value it replaced.
+     *
+     * @param key
+     *            the key of the entry
+     * @param value
+     *            the value to put
+     * @return the previous value, or {@code null} if no entry existed or the existing entry had expired
+     */
+    public V getAndPut(final K key, final V value)
+    {
+        final long now = System.currentTimeMillis();
+        final CacheEntry<V> newEntry = this.newEntry(key, value, now);
+        final CacheEntry<V> oldEntry = this.entries.put(key, newEntry);
+
+        this.afterWrite(key, newEntry, oldEntry);
+
+        return oldEntry != null && !this.isExpired(oldEntry, now) ? oldEntry.value : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final K key)
+    {
+        this.getAndRemove(key);
+    }
+
+    /**
+     * Atomically removes an entry from this cache and retrieves its value.
+     *
+     * @param key
+     *            the key of the entry
+     * @return the removed value, or {@code null} if no entry existed or the existing entry had expired
+     */
+    public V getAndRemove(final K key)
+    {
+        final CacheEntry<V> oldEntry = this.entries.remove(key);
+        if (oldEntry != null)
+        {
+            this.afterRemoval(key, oldEntry);
+        }
+        return oldEntry != null && !this.isExpired(oldEntry, System.currentTimeMillis()) ? oldEntry.value : null;
+    }
+
+    /**
+     * Atomically removes an entry from this cache if its current value matches a condition.
+     *
+     * @param key
+     *            the key of the entry
+     * @param condition
+     *            the condition to check against the current value
+     * @return {@code true} if an entry has been removed, {@code false} otherwise
+     */
+    public boolean removeIf(final K key, final Predicate<? super V> condition)
+    {
+        @SuppressWarnings("unchecked")
+        final CacheEntry<V>[] removed = new CacheEntry[1];
+        this.entries.computeIfPresent(key, (k, entry) -> {
+            removed[0] = condition.test(entry.value) ? entry : null;
+            return removed[0] != null ? null : entry;
+        });
+
+        if (removed[0] != null)
+        {
+            this.afterRemoval(key, removed[0]);
+        }
+        return removed[0] != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        this.entries.clear();
+    }
+
+    /**
+     * Creates a new entry to hold a value in this cache.
+     *
+     * @param key
+     *            the key of the entry
+     * @param value
+     *            the value to hold
+     * @param now
+     *            the current time in milliseconds
+     * @return the new entry
+     */
+    protected CacheEntry<V> newEntry(final K key, final V value, final long now)
+    {
+        return new CacheEntry<>(value, now);
+    }
+
+    /**
+     * Handles a successful read of an entry after its access timestamp has been updated.
+     *
+     * @param entry
+     *            the entry that has been read
+     */
+    protected void afterRead(final CacheEntry<V> entry)
+    {
+        // NO-OP - access timestamp is sufficient for the default eviction
+    }
+
+    /**
+     * Handles a write of an entry after it has been put into the underlying map.
+     *
+     * @param key
+     *            the key of the entry
+     * @param newEntry
+     *            the entry that has been put
+     * @param oldEntry
+     *            the entry that has been replaced, or {@code null} if no entry existed
+     */
+    protected void afterWrite(final K key, final CacheEntry<V> newEntry, final CacheEntry<V> oldEntry)
+    {
+        if (oldEntry == null)
+        {
+            this.evictIfNecessary();
+        }
+    }
+
+    /**
+     * Handles the removal of an entry after it has been removed from the underlying map.
+     *
+     * @param key
+     *            the key of the entry
+     * @param oldEntry
+     *            the entry that has been removed
+     */
+    protected void afterRemoval(final K key, final CacheEntry<V> oldEntry)
+    {
+        // NO-OP
+    }
+
+    protected boolean isExpired(final CacheEntry<V> entry, final long now)
+    {
+        return (this.timeToLiveMillis > 0 && now - entry.created > this.timeToLiveMillis)
+                || (this.maxIdleMillis > 0 && now - entry.lastAccess > this.maxIdleMillis);
+    }
+
+    protected void evictIfNecessary()
+    {
+        if (this.maxItems > 0 && this.entries.size() > this.maxItems && this.evicting.compareAndSet(false, true))
+        {
+            try
+            {
+                // evict down to 95% in a single batch to reduce the frequency of evictions
+                final int targetSize = this.maxItems - Math.max(1, this.maxItems / 20);
+                LOGGER.debug("Evicting {} entries from cache {}", this.entries.size() - targetSize, this.cacheName);
+
+                final long now = System.currentTimeMillis();
+                // each entry can only be spared once per full sweep, so two sweeps are sufficient in the worst case
+                int remainingVisits = 2 * this.entries.size();
+                while (this.entries.size() > targetSize && remainingVisits-- > 0)
+                {
+                    if (this.evictionHand == null || !this.evictionHand.hasNext())
+                    {
+                        this.evictionHand = this.entries.entrySet().iterator();
+                        if (!this.evictionHand.hasNext())
+                        {
+                            break;
+                        }
+                    }
+
+                    final Map.Entry<K, CacheEntry<V>> candidate = this.evictionHand.next();
+                    final CacheEntry<V> entry = candidate.getValue();
+                    if (entry.referenced && !this.isExpired(entry, now))
+                    {
+                        entry.referenced = false;
+                    }
+                    // only evict if not replaced concurrently
+                    else if (this.entries.remove(candidate.getKey(), entry))
+                    {
+                        this.afterRemoval(candidate.getKey(), entry);
+                    }
+                }
+            }
+            finally
+            {
+                this.evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Instances of this class hold a single value in the cache together with its access timestamps.
+     *
+     * @author Axel Faust
+     */
+    protected static class CacheEntry<V>
+    {
+
+        protected final V value;
+
+        protected final long created;
+
+        protected volatile long lastAccess;
+
+        // set on access, cleared by the CLOCK sweep of an eviction
+        protected volatile boolean referenced;
+
+        protected CacheEntry(final V value, final long created)
+        {
+            this.value = value;
+            this.created = created;
+            this.lastAccess = created;
+        }
+    }
+}
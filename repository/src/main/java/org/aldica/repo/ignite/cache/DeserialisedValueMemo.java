@@ -0,0 +1,284 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.alfresco.util.ParameterCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class memorise the deserialised values of cache entries so that repeated reads of an unchanged entry can return the
+ * same value instance instead of deserialising the binary form of the entry again. Memorised values are associated with the version of the
+ * entry from which they have been deserialised, and are only returned for lookups specifying the exact same version, so that a value can
+ * never outlive an update of its entry. Values are only softly or weakly referenced to allow the garbage collector to reclaim them under
+ * memory pressure, and the number of memorised values is bounded by evicting a batch of random values when the limit is exceeded.
+ *
+ * Since the same value instance is handed to multiple callers, a memo should only be used for caches whose values are not modified by
+ * callers.
+ *
+ * @param <K>
+ *            the type of the keys of the cache
+ * @param <V>
+ *            the type of the values of the cache
+ *
+ * @author Axel Faust
+ */
+public class DeserialisedValueMemo<K, V>
+{
+
+    /**
+     * This enum provides the supported types of references with which deserialised values can be held.
+     *
+     * @author Axel Faust
+     */
+    public static enum ReferenceType
+    {
+        SOFT,
+        WEAK;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeserialisedValueMemo.class);
+
+    protected final String cacheName;
+
+    protected final int maxItems;
+
+    protected final ReferenceType referenceType;
+
+    protected final ConcurrentMap<K, MemoReference<K, V>> memo = new ConcurrentHashMap<>();
+
+    protected final ReferenceQueue<V> referenceQueue = new ReferenceQueue<>();
+
+    protected final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param cacheName
+     *            the name of the cache for which to memorise values
+     * @param maxItems
+     *            the maximum number of values to memorise
+     * @param referenceType
+     *            the type of reference with which to hold the memorised values
+     */
+    public DeserialisedValueMemo(final String cacheName, final int maxItems, final ReferenceType referenceType)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("referenceType", referenceType);
+        if (maxItems <= 0)
+        {
+            throw new IllegalArgumentException("maxItems must be a positive integer");
+        }
+
+        this.cacheName = cacheName;
+        this.maxItems = maxItems;
+        this.referenceType = referenceType;
+    }
+
+    /**
+     * Retrieves the memorised value for a specific version of an entry.
+     *
+     * @param key
+     *            the key of the entry
+     * @param version
+     *            the version of the entry
+     * @return the memorised value, or {@code null} if no value has been memorised for the specific version of the entry or the value has
+     *         been reclaimed by the garbage collector
+     */
+    public V get(final K key, final Object version)
+    {
+        V value = null;
+        if (version != null)
+        {
+            final MemoReference<K, V> reference = this.memo.get(key);
+            if (reference != null && Objects.equals(version, reference.getVersion()))
+            {
+                value = reference.get();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Memorises the value of a specific version of an entry, replacing any value memorised for a different version.
+     *
+     * @param key
+     *            the key of the entry
+     * @param version
+     *            the version of the entry
+     * @param value
+     *            the deserialised value of the entry
+     */
+    public void put(final K key, final Object version, final V value)
+    {
+        if (version != null && value != null)
+        {
+            this.purgeReclaimed();
+
+            final MemoReference<K, V> reference = this.referenceType == ReferenceType.SOFT
+                    ? new SoftMemoReference<>(key, version, value, this.referenceQueue)
+                    : new WeakMemoReference<>(key, version, value, this.referenceQueue);
+            if (this.memo.put(key, reference) == null)
+            {
+                this.evictIfNecessary();
+            }
+        }
+    }
+
+    /**
+     * Removes any memorised value of an entry.
+     *
+     * @param key
+     *            the key of the entry
+     */
+    public void remove(final K key)
+    {
+        this.memo.remove(key);
+    }
+
+    /**
+     * Removes all memorised values.
+     */
+    public void clear()
+    {
+        this.memo.clear();
+    }
+
+    protected void purgeReclaimed()
+    {
+        Reference<? extends V> reference;
+        while ((reference = this.referenceQueue.poll()) != null)
+        {
+            @SuppressWarnings("unchecked")
+            final MemoReference<K, V> memoReference = (MemoReference<K, V>) reference;
+            // only remove if not replaced in the meantime
+            this.memo.remove(memoReference.getKey(), memoReference);
+        }
+    }
+
+    protected void evictIfNecessary()
+    {
+        if (this.memo.size() > this.maxItems && this.evicting.compareAndSet(false, true))
+        {
+            try
+            {
+                // evict down to 95% in a single batch - map iteration order is effectively random
+                final int evictionCount = this.memo.size() - (this.maxItems - Math.max(1, this.maxItems / 20));
+                LOGGER.debug("Evicting {} memorised values of cache {}", evictionCount, this.cacheName);
+
+                final Iterator<K> keys = this.memo.keySet().iterator();
+                for (int idx = 0; idx < evictionCount && keys.hasNext(); idx++)
+                {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+            finally
+            {
+                this.evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Instances of this interface reference a memorised value together with the key and version of the entry it belongs to.
+     *
+     * @author Axel Faust
+     */
+    protected static interface MemoReference<K, V>
+    {
+
+        K getKey();
+
+        Object getVersion();
+
+        V get();
+    }
+
+    /**
+     * Instances of this class softly reference a memorised value.
+     *
+     * @author Axel Faust
+     */
+    protected static class SoftMemoReference<K, V> extends SoftReference<V> implements MemoReference<K, V>
+    {
+
+        protected final K key;
+
+        protected final Object version;
+
+        protected SoftMemoReference(final K key, final Object version, final V value, final ReferenceQueue<V> referenceQueue)
+        {
+            super(value, referenceQueue);
+            this.key = key;
+            this.version = version;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public K getKey()
+        {
+            return this.key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object getVersion()
+        {
+            return this.version;
+        }
+    }
+
+    /**
+     * Instances of this class weakly reference a memorised value.
+     *
+     * @author Axel Faust
+     */
+    protected static class WeakMemoReference<K, V> extends WeakReference<V> implements MemoReference<K, V>
+    {
+
+        protected final K key;
+
+        protected final Object version;
+
+        protected WeakMemoReference(final K key, final Object version, final V value, final ReferenceQueue<V> referenceQueue)
+        {
+            super(value, referenceQueue);
+            this.key = key;
+            this.version = version;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public K getKey()
+        {
+            return this.key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object getVersion()
+        {
+            return this.version;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Objects;
+
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.EventType;
+
+import org.apache.ignite.cache.CacheEntryEventSerializableFilter;
+
+/**
+ * Instances of this class filter the events of a continuous query on the server managing the affected entry, so that updates which put an
+ * entry without an effective change in value are not sent to the listening server. This filter is meant to be used on caches
+ * {@link org.apache.ignite.IgniteCache#withKeepBinary() kept in binary form}, so that values are compared in their binary form and never
+ * need to be deserialised.
+ *
+ * As the filter is executed on all servers in the data grid managing entries of a cache, and peer class loading is not enabled, the
+ * Repository companion app contains an identical copy of this class.
+ *
+ * @author Axel Faust
+ */
+public class EffectiveChangeEventFilter implements CacheEntryEventSerializableFilter<Object, Object>
+{
+
+    private static final long serialVersionUID = 6719394785143067216L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean evaluate(final CacheEntryEvent<? extends Object, ? extends Object> event)
+    {
+        return event.getEventType() != EventType.UPDATED || !Objects.equals(event.getOldValue(), event.getValue());
+    }
+}
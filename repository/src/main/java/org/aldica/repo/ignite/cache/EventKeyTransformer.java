@@ -0,0 +1,32 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import javax.cache.event.CacheEntryEvent;
+
+import org.apache.ignite.lang.IgniteClosure;
+
+/**
+ * Instances of this class reduce the events of a continuous query to the keys of the affected entries on the server managing the entry, so
+ * that neither old nor new values are transferred to the listening server.
+ *
+ * As the transformer is executed on all servers in the data grid managing entries of a cache, and peer class loading is not enabled, the
+ * Repository companion app contains an identical copy of this class.
+ *
+ * @author Axel Faust
+ */
+public class EventKeyTransformer implements IgniteClosure<CacheEntryEvent<? extends Object, ? extends Object>, Object>
+{
+
+    private static final long serialVersionUID = -1906240787330262459L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object apply(final CacheEntryEvent<? extends Object, ? extends Object> event)
+    {
+        return event.getKey();
+    }
+}
@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instances of this class provide a hybrid logical clock, generating monotonic timestamps that combine the physical wall-clock time in
+ * milliseconds with a logical counter, and which can be advanced by timestamps received from other servers in order to preserve causal
+ * ordering between them. The upper 48 bits of a timestamp hold the physical time, while the lower 16 bits hold the logical counter.
+ *
+ * @author Axel Faust
+ */
+public class HybridLogicalClock
+{
+
+    private static final int LOGICAL_BITS = 16;
+
+    private static final HybridLogicalClock DEFAULT_INSTANCE = new HybridLogicalClock();
+
+    protected final AtomicLong lastTimestamp = new AtomicLong(0);
+
+    /**
+     * Retrieves the default clock instance of this JVM.
+     *
+     * @return the default clock
+     */
+    public static HybridLogicalClock getDefaultInstance()
+    {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Converts a duration in milliseconds into the equivalent difference in timestamps of this clock.
+     *
+     * @param millis
+     *            the duration in milliseconds
+     * @return the timestamp difference
+     */
+    public static long fromMillis(final long millis)
+    {
+        return millis << LOGICAL_BITS;
+    }
+
+    /**
+     * Generates a new timestamp for a local event.
+     *
+     * @return the new timestamp which is guaranteed to be greater than any timestamp previously generated or received by this clock
+     */
+    public long tick()
+    {
+        long last;
+        long next;
+        do
+        {
+            last = this.lastTimestamp.get();
+            next = Math.max(this.physicalTimestamp(), last + 1);
+        }
+        while (!this.lastTimestamp.compareAndSet(last, next));
+        return next;
+    }
+
+    /**
+     * Advances this clock based on a timestamp received from another server.
+     *
+     * @param remoteTimestamp
+     *            the timestamp received
+     * @return the new timestamp which is guaranteed to be greater than both the received timestamp and any timestamp previously generated
+     *         or received by this clock
+     */
+    public long update(final long remoteTimestamp)
+    {
+        long last;
+        long next;
+        do
+        {
+            last = this.lastTimestamp.get();
+            next = Math.max(Math.max(this.physicalTimestamp(), last + 1), remoteTimestamp + 1);
+        }
+        while (!this.lastTimestamp.compareAndSet(last, next));
+        return next;
+    }
+
+    protected long physicalTimestamp()
+    {
+        return System.currentTimeMillis() << LOGICAL_BITS;
+    }
+}
@@ -15,10 +15,18 @@ public class IgniteBackedCacheMetrics implements CacheMetrics
 
     protected final org.apache.ignite.cache.CacheMetrics metrics;
 
+    protected final CacheLatencies latencies;
+
     public IgniteBackedCacheMetrics(final IgniteCache<?, ?> backingCache)
+    {
+        this(backingCache, new CacheLatencies());
+    }
+
+    public IgniteBackedCacheMetrics(final IgniteCache<?, ?> backingCache, final CacheLatencies latencies)
     {
         this.backingCache = backingCache;
         this.metrics = this.backingCache.localMetrics();
+        this.latencies = latencies;
     }
 
     /**
@@ -97,4 +105,40 @@ public class IgniteBackedCacheMetrics implements CacheMetrics
         return cacheEvictions;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheGetLatencies()
+    {
+        return this.latencies.getGetLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCachePutLatencies()
+    {
+        return this.latencies.getPutLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheRemoveLatencies()
+    {
+        return this.latencies.getRemoveLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheInvalidationLatencies()
+    {
+        return this.latencies.getInvalidationLatencies();
+    }
+
 }
@@ -4,22 +4,38 @@
 package org.aldica.repo.ignite.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
+import org.alfresco.repo.domain.node.Node;
 import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.ParameterCheck;
 import org.apache.ignite.Ignite;
-import org.apache.ignite.cluster.ClusterGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Instances of this class wrap a local cache and send invalidation messages to other servers in the same data grid whenever the local
+ * cache is modified.
+ *
+ * If versioned invalidation is enabled, every entry in the local cache holding a {@link Node} is tagged with the version of that entity,
+ * and invalidation messages carry the version of the entry which supersedes older entries. Servers receiving such a message only drop
+ * their local entry if it is older, avoiding redundant reloads when multiple servers put the same state into their local caches. Other
+ * values carry no version that all servers agree on - as physical clocks may drift apart, timestamps could cause a server to keep a stale
+ * entry - so their invalidations as well as any removals always supersede local entries.
+ *
  * @author Axel Faust
  */
-public class InvalidatingCacheFacade<K extends Serializable, V> implements SimpleCache<K, V>, CacheWithMetrics
+public class InvalidatingCacheFacade<K extends Serializable, V>
+        implements SimpleCache<K, V>, CacheWithMetrics, CacheWithBulkOperations<K, V>
 {
 
     // value copied from EntityLookupCache (not accessible there)
@@ -32,6 +48,10 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
 
     protected final SimpleCache<K, V> backingCache;
 
+    protected final SimpleCache<K, Object> rawBackingCache;
+
+    protected final ConcurrentLocalCache<K, Object> concurrentBackingCache;
+
     protected final String cacheName;
 
     protected final Ignite grid;
@@ -44,8 +64,22 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
 
     protected final String bulkInvalidationTopic;
 
+    protected final String clearTopic;
+
     protected final SimpleCacheMetrics localMetrics;
 
+    protected final CacheLatencies latencies = new CacheLatencies();
+
+    protected final TransactionalInvalidationCollector<Serializable> invalidationCollector;
+
+    protected final InvalidationMessageDispatcher invalidationDispatcher;
+
+    protected final InvalidationSender invalidationSender;
+
+    protected final boolean versionedInvalidation;
+
+    protected volatile NegativeLookupStore<K> negativeLookupStore;
+
     /**
      *
      * Creates a facade for a local cache that uses Ignite-backed data grid for communication with other grid nodes concerning invalidation
@@ -66,6 +100,41 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
      */
     public InvalidatingCacheFacade(final String cacheName, final SimpleCache<K, V> backingCache, final Ignite grid,
             final boolean alwaysInvalidateOnPut, final boolean allowSentinelsInBackingCache)
+    {
+        this(cacheName, backingCache, grid, alwaysInvalidateOnPut, allowSentinelsInBackingCache, null, false, false);
+    }
+
+    /**
+     *
+     * Creates a facade for a local cache that uses Ignite-backed data grid for communication with other grid nodes concerning invalidation
+     * of cache entries.
+     *
+     * @param cacheName
+     *            the name of the backing cache
+     * @param backingCache
+     *            the low-level local cache instance
+     * @param grid
+     *            the Ignite grid instance to use for communication
+     * @param alwaysInvalidateOnPut
+     *            {@code true} if this facade should always send invalidation messages to other nodes on the same data grid when values are
+     *            put into the backing cache, {@code false} otherwise
+     * @param allowSentinelsInBackingCache
+     *            {@code true} if sentinels for dummy values (defined by {@link EntityLookupCache}) are allowed to be stored in the cache
+     * @param invalidationDispatcher
+     *            the dispatcher to use for asynchronously sending invalidation messages - if {@code null}, messages will be sent
+     *            synchronously
+     * @param versionedInvalidation
+     *            {@code true} if entries in the backing cache holding {@link Node nodes} should be versioned so that other nodes on the
+     *            same data grid only drop entries which are older than the entry that caused an invalidation, {@code false} otherwise
+     * @param orderedInvalidation
+     *            {@code true} if invalidation messages should be sent as an {@link OrderedInvalidationStream ordered stream} which allows
+     *            other grid nodes to detect lost messages, {@code false} otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public InvalidatingCacheFacade(final String cacheName, final SimpleCache<K, V> backingCache, final Ignite grid,
+            final boolean alwaysInvalidateOnPut, final boolean allowSentinelsInBackingCache,
+            final InvalidationMessageDispatcher invalidationDispatcher, final boolean versionedInvalidation,
+            final boolean orderedInvalidation)
     {
         ParameterCheck.mandatoryString("cacheName", cacheName);
         ParameterCheck.mandatory("backingCache", backingCache);
@@ -73,19 +142,28 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
 
         this.cacheName = cacheName;
         this.backingCache = backingCache;
+        // backing cache is private to this instance so we may store wrapped values
+        this.rawBackingCache = (SimpleCache<K, Object>) backingCache;
+        // allows atomic updates with a single operation instead of separate get / put
+        this.concurrentBackingCache = backingCache instanceof ConcurrentLocalCache<?, ?>
+                ? (ConcurrentLocalCache<K, Object>) backingCache
+                : null;
         this.grid = grid;
         this.alwaysInvalidateOnPut = alwaysInvalidateOnPut;
         this.allowSentinelsInBackingCache = allowSentinelsInBackingCache;
         this.invalidationTopic = this.cacheName + "-invalidate";
         this.bulkInvalidationTopic = this.cacheName + "-bulkInvalidate";
+        this.clearTopic = this.cacheName + "-clear";
+        this.invalidationDispatcher = invalidationDispatcher;
+        this.versionedInvalidation = versionedInvalidation;
 
         this.instanceLogger = LoggerFactory.getLogger(this.getClass().getName() + "." + this.cacheName);
 
+        this.invalidationCollector = new TransactionalInvalidationCollector<>(this.cacheName, this::invalidateAll);
+
         grid.message().localListen(this.invalidationTopic, (uuid, key) -> {
             this.instanceLogger.debug("Received invalidation message for {}", key);
-            @SuppressWarnings("unchecked")
-            final K typedKey = (K) key;
-            this.backingCache.remove(typedKey);
+            this.handleRemoteInvalidation(key);
 
             // keep listening
             return true;
@@ -95,19 +173,33 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
             this.instanceLogger.debug("Received bulk invalidation message for {}", col);
             if (col instanceof Collection<?>)
             {
-                @SuppressWarnings("unchecked")
-                final Collection<K> keyCollection = (Collection<K>) col;
-                keyCollection.forEach(key -> {
-                    this.backingCache.remove(key);
-                });
+                ((Collection<?>) col).forEach(this::handleRemoteInvalidation);
             }
             // keep listening
             return true;
         });
 
+        grid.message().localListen(this.clearTopic, (uuid, flag) -> {
+            this.instanceLogger.debug("Received message to clear cache");
+            this.handleRemoteClear();
+
+            // keep listening
+            return true;
+        });
+
+        if (orderedInvalidation)
+        {
+            this.invalidationSender = new OrderedInvalidationStream(grid, this.cacheName, this::handleRemoteInvalidation,
+                    this::handleRemoteClear);
+        }
+        else
+        {
+            this.invalidationSender = new TopicInvalidationSender(grid, this.cacheName);
+        }
+
         if (!(backingCache instanceof CacheWithMetrics))
         {
-            this.localMetrics = new SimpleCacheMetrics();
+            this.localMetrics = new SimpleCacheMetrics(this.latencies);
         }
         else
         {
@@ -123,7 +215,8 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
     {
         this.instanceLogger.debug("Checking for containment of {}", key);
 
-        final boolean containsKey = this.backingCache.contains(key);
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final boolean containsKey = this.backingCache.contains(key) || (negativeLookupStore != null && negativeLookupStore.contains(key));
 
         this.instanceLogger.debug("Cache contains key {}: {}", key, containsKey);
 
@@ -138,7 +231,18 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
     {
         this.instanceLogger.debug("Retrieving all (local) keys");
 
-        final Collection<K> keys = this.backingCache.getKeys();
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final Collection<K> keys;
+        if (negativeLookupStore != null)
+        {
+            // servers need to receive invalidations for keys with negative lookups just like for keys with values
+            keys = new LinkedHashSet<>(this.backingCache.getKeys());
+            keys.addAll(negativeLookupStore.getKeys());
+        }
+        else
+        {
+            keys = this.backingCache.getKeys();
+        }
 
         if (this.instanceLogger.isTraceEnabled())
         {
@@ -158,24 +262,16 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
     @Override
     public V get(final K key)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Getting value for key {}", key);
 
-        final V value = this.backingCache.get(key);
-        if (this.localMetrics != null)
-        {
-            if (value != null)
-            {
-                this.instanceLogger.trace("Cache hit for key {} yields {}", key, value);
-                this.localMetrics.recordHit();
-            }
-            else
-            {
-                this.instanceLogger.trace("Cache miss for key {}", key);
-                this.localMetrics.recordMiss();
-            }
-        }
+        // most puts occur during post-commit handling of TransactionalCache, so we need to bind early
+        this.invalidationCollector.bindToTransaction();
+
+        final V value = this.getImpl(key);
 
         this.instanceLogger.debug("Retrieved value {} for key {}", value, key);
+        this.latencies.recordGet(startNanos);
 
         return value;
     }
@@ -187,48 +283,16 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
     @Override
     public void put(final K key, final V value)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Putting value {} into cache with key {}", value, key);
 
-        // TODO Suppress logging in SimpleIgniteBackedCache for this call or move switch to trace with added marker
-        // debug log currently lists 2 get + 1 put during post-commit transfer from TransactionalCache
-        final V oldValue = this.backingCache.get(key);
-
-        // TransactionalCache always wraps values in holder
-        // need effective value for sentinel check
-        Object effectiveValue = value;
-        if (effectiveValue instanceof ValueHolder)
+        final Serializable invalidation = this.putImpl(key, value);
+        if (invalidation != null)
         {
-            effectiveValue = ((ValueHolder<?>) effectiveValue).getValue();
+            this.invalidate(invalidation);
         }
 
-        boolean invalidate = this.alwaysInvalidateOnPut;
-
-        if (value == null)
-        {
-            this.instanceLogger.debug("Call to put with null-value for key {} instead of proper remove", key);
-
-            this.backingCache.remove(key);
-            invalidate = invalidate || oldValue != null;
-        }
-        else if (!this.allowSentinelsInBackingCache && (VALUE_NOT_FOUND.equals(effectiveValue) || VALUE_NULL.equals(effectiveValue)))
-        {
-            this.instanceLogger.debug(
-                    "Call to put with sentinel-value for key {} will be treated as a remove as sentinel values are not allowed in backing cache",
-                    key);
-
-            this.backingCache.remove(key);
-            invalidate = invalidate || oldValue != null;
-        }
-        else
-        {
-            this.backingCache.put(key, value);
-            invalidate = invalidate || (oldValue != null && !EqualsHelper.nullSafeEquals(oldValue, value));
-        }
-
-        if (invalidate)
-        {
-            this.sendInvalidationMessage(this.invalidationTopic, key);
-        }
+        this.latencies.recordPut(startNanos);
     }
 
     /**
@@ -238,11 +302,15 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
     @Override
     public void remove(final K key)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Removing value for key {}", key);
 
         this.backingCache.remove(key);
+        this.forgetNegativeLookup(key);
+
+        this.invalidate(key);
 
-        this.sendInvalidationMessage(this.invalidationTopic, key);
+        this.latencies.recordRemove(startNanos);
     }
 
     /**
@@ -257,11 +325,104 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
         final Collection<K> keys = this.getKeys();
 
         this.backingCache.clear();
+        this.forgetAllNegativeLookups();
 
         if (!keys.isEmpty())
         {
-            this.sendInvalidationMessage(this.bulkInvalidationTopic, keys);
+            this.invalidateAll(keys);
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Getting values for {} keys", keys.size());
+
+        // most puts occur during post-commit handling of TransactionalCache, so we need to bind early
+        this.invalidationCollector.bindToTransaction();
+
+        // backing cache is local, so there is nothing to be gained from a bulk retrieval
+        final Map<K, V> values = new HashMap<>();
+        keys.forEach(key -> {
+            final V value = this.getImpl(key);
+            if (value != null)
+            {
+                values.put(key, value);
+            }
+        });
+
+        this.instanceLogger.debug("Retrieved {} values for {} keys", values.size(), keys.size());
+        this.latencies.recordGet(startNanos);
+
+        return values;
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Putting {} entries into cache", entries.size());
+
+        final Collection<Serializable> invalidations = new ArrayList<>();
+        entries.forEach((key, value) -> {
+            final Serializable invalidation = this.putImpl(key, value);
+            if (invalidation != null)
+            {
+                invalidations.add(invalidation);
+            }
+        });
+
+        if (!invalidations.isEmpty())
+        {
+            this.invalidateBulk(invalidations);
+        }
+
+        this.latencies.recordPut(startNanos);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(final Collection<? extends K> keys)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Removing values for {} keys", keys.size());
+
+        final Collection<Serializable> invalidations = new ArrayList<>();
+        keys.forEach(key -> {
+            this.backingCache.remove(key);
+            this.forgetNegativeLookup(key);
+            // explicit removals always need to be propagated, irrespective of local state
+            invalidations.add(key);
+        });
+
+        if (!invalidations.isEmpty())
+        {
+            this.invalidateBulk(invalidations);
         }
+
+        this.latencies.recordRemove(startNanos);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetch(final Collection<? extends K> keys)
+    {
+        // NO-OP - backing cache only holds local data
     }
 
     /**
@@ -303,21 +464,334 @@ public class InvalidatingCacheFacade<K extends Serializable, V> implements Simpl
         return this.localMetrics == null ? ((CacheWithMetrics) this.backingCache).localSize() : this.backingCache.getKeys().size();
     }
 
-    protected void sendInvalidationMessage(final String topic, final Object msg)
+    /**
+     * Sets the tracker of key presence filters to use for only sending invalidations to servers that may hold an affected key.
+     *
+     * @param keyPresenceFilterTracker
+     *            the tracker to use, or {@code null} to send all invalidations to all servers
+     */
+    public void setKeyPresenceFilterTracker(final KeyPresenceFilterTracker keyPresenceFilterTracker)
+    {
+        this.invalidationSender.setKeyPresenceFilterTracker(keyPresenceFilterTracker);
+    }
+
+    /**
+     * Sets the store of negative lookups to use for recording {@link EntityLookupCache} sentinel values separately from the backing cache.
+     * A store must only be set if this facade {@link #alwaysInvalidateOnPut always invalidates on put}, as other servers would otherwise
+     * not be notified of values put for keys they hold a negative lookup for.
+     *
+     * @param negativeLookupStore
+     *            the store to use, or {@code null} to handle sentinel values like any other value
+     */
+    public void setNegativeLookupStore(final NegativeLookupStore<K> negativeLookupStore)
     {
-        final Object msgLogLabel = this.instanceLogger.isDebugEnabled()
-                ? (msg instanceof Collection<?> ? (((Collection<?>) msg).size() + " keys") : msg)
-                : null;
+        if (negativeLookupStore != null && !this.alwaysInvalidateOnPut)
+        {
+            throw new IllegalStateException("Negative lookups can only be stored if invalidations are sent on every put");
+        }
+        this.negativeLookupStore = negativeLookupStore;
+    }
 
-        final ClusterGroup remotes = this.grid.cluster().forServers().forRemotes();
-        if (!remotes.nodes().isEmpty())
+    /**
+     * Performs the actual retrieval of a single value from the backing cache.
+     *
+     * @param key
+     *            the key to use in the lookup
+     * @return the resolved value
+     */
+    @SuppressWarnings("unchecked")
+    protected V getImpl(final K key)
+    {
+        V value = this.unwrap(this.rawBackingCache.get(key));
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        if (value == null && negativeLookupStore != null)
+        {
+            value = (V) negativeLookupStore.get(key);
+        }
+        if (this.localMetrics != null)
+        {
+            if (value != null)
+            {
+                this.instanceLogger.trace("Cache hit for key {} yields {}", key, value);
+                this.localMetrics.recordHit();
+            }
+            else
+            {
+                this.instanceLogger.trace("Cache miss for key {}", key);
+                this.localMetrics.recordMiss();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Performs the actual update of a single entry in the backing cache.
+     *
+     * @param key
+     *            the key to use in the update
+     * @param value
+     *            the new value to store for the key
+     * @return the invalidation to send to other servers, or {@code null} if no invalidation is required
+     */
+    protected Serializable putImpl(final K key, final V value)
+    {
+        // TransactionalCache always wraps values in holder
+        // need effective value for sentinel check
+        Object effectiveValue = value;
+        if (effectiveValue instanceof ValueHolder)
+        {
+            effectiveValue = ((ValueHolder<?>) effectiveValue).getValue();
+        }
+
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final boolean sentinel = VALUE_NOT_FOUND.equals(effectiveValue) || VALUE_NULL.equals(effectiveValue);
+
+        boolean invalidate = this.alwaysInvalidateOnPut;
+        Serializable invalidation = key;
+
+        if (negativeLookupStore != null)
+        {
+            if (value != null && sentinel)
+            {
+                negativeLookupStore.put(key, value);
+            }
+            else
+            {
+                negativeLookupStore.remove(key);
+            }
+        }
+
+        if (value == null)
+        {
+            this.instanceLogger.debug("Call to put with null-value for key {} instead of proper remove", key);
+
+            final V oldValue = this.getAndRemoveImpl(key);
+            invalidate = invalidate || oldValue != null;
+        }
+        else if (sentinel && negativeLookupStore != null)
+        {
+            this.instanceLogger.debug("Call to put with sentinel-value for key {} will be recorded as a negative lookup", key);
+
+            final V oldValue = this.getAndRemoveImpl(key);
+            invalidate = invalidate || oldValue != null;
+        }
+        else if (!this.allowSentinelsInBackingCache && sentinel)
+        {
+            this.instanceLogger.debug(
+                    "Call to put with sentinel-value for key {} will be treated as a remove as sentinel values are not allowed in backing cache",
+                    key);
+
+            final V oldValue = this.getAndRemoveImpl(key);
+            invalidate = invalidate || oldValue != null;
+        }
+        else if (this.versionedInvalidation && effectiveValue instanceof Node && ((Node) effectiveValue).getVersion() != null)
+        {
+            // node entity version is incremented on every change, so servers loading the same node state agree on its version
+            final long version = ((Node) effectiveValue).getVersion().longValue();
+            final V oldValue = this.getAndPutImpl(key, new VersionedCacheValue<>(value, version));
+            invalidate = invalidate || (oldValue != null && !EqualsHelper.nullSafeEquals(oldValue, value));
+            invalidation = new VersionedInvalidation(key, version);
+        }
+        else
+        {
+            final V oldValue = this.getAndPutImpl(key, value);
+            invalidate = invalidate || (oldValue != null && !EqualsHelper.nullSafeEquals(oldValue, value));
+        }
+
+        return invalidate ? invalidation : null;
+    }
+
+    /**
+     * Puts a value into the backing cache, retrieving the value it replaced in an atomic operation if supported by the backing cache.
+     *
+     * @param key
+     *            the key to use in the update
+     * @param value
+     *            the new value - potentially {@link VersionedCacheValue versioned} - to store for the key
+     * @return the unwrapped previous value, may be {@code null} if no entry existed
+     */
+    protected V getAndPutImpl(final K key, final Object value)
+    {
+        final V oldValue;
+        if (this.concurrentBackingCache != null)
+        {
+            oldValue = this.unwrap(this.concurrentBackingCache.getAndPut(key, value));
+        }
+        else
+        {
+            oldValue = this.unwrap(this.rawBackingCache.get(key));
+            this.rawBackingCache.put(key, value);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Removes an entry from the backing cache, retrieving its value in an atomic operation if supported by the backing cache.
+     *
+     * @param key
+     *            the key of the entry to remove
+     * @return the unwrapped removed value, may be {@code null} if no entry existed
+     */
+    protected V getAndRemoveImpl(final K key)
+    {
+        final V oldValue;
+        if (this.concurrentBackingCache != null)
+        {
+            oldValue = this.unwrap(this.concurrentBackingCache.getAndRemove(key));
+        }
+        else
+        {
+            oldValue = this.unwrap(this.rawBackingCache.get(key));
+            this.rawBackingCache.remove(key);
+        }
+        return oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected V unwrap(final Object value)
+    {
+        return value instanceof VersionedCacheValue<?> ? ((VersionedCacheValue<V>) value).getValue() : (V) value;
+    }
+
+    /**
+     * Handles a single invalidation received from another grid node.
+     *
+     * @param invalidation
+     *            the plain key or {@link VersionedInvalidation versioned invalidation} received
+     */
+    @SuppressWarnings("unchecked")
+    protected void handleRemoteInvalidation(final Object invalidation)
+    {
+        if (invalidation instanceof VersionedInvalidation)
+        {
+            final VersionedInvalidation versionedInvalidation = (VersionedInvalidation) invalidation;
+            final K key = (K) versionedInvalidation.getKey();
+            // negative lookups carry no version, so any invalidation supersedes them
+            this.forgetNegativeLookup(key);
+
+            final Predicate<Object> superseded = currentValue -> !(currentValue instanceof VersionedCacheValue<?>)
+                    || ((VersionedCacheValue<?>) currentValue).isSupersededBy(versionedInvalidation);
+            if (this.concurrentBackingCache != null)
+            {
+                // check and removal need to be atomic so a newer entry put concurrently is not dropped
+                if (!this.concurrentBackingCache.removeIf(key, superseded))
+                {
+                    this.instanceLogger.trace("Ignoring invalidation {} as there is no older local entry", invalidation);
+                }
+            }
+            else
+            {
+                final Object currentValue = this.rawBackingCache.get(key);
+                if (currentValue != null && !superseded.test(currentValue))
+                {
+                    this.instanceLogger.trace("Ignoring stale or duplicate invalidation {} as local entry has version {}", invalidation,
+                            ((VersionedCacheValue<?>) currentValue).getVersion());
+                }
+                else
+                {
+                    this.backingCache.remove(key);
+                }
+            }
+        }
+        else
+        {
+            this.backingCache.remove((K) invalidation);
+            this.forgetNegativeLookup((K) invalidation);
+        }
+    }
+
+    /**
+     * Handles a request to clear the cache received from another grid node.
+     */
+    protected void handleRemoteClear()
+    {
+        this.backingCache.clear();
+        this.forgetAllNegativeLookups();
+    }
+
+    /**
+     * Removes the negative lookup recorded for an entry, if a {@link #setNegativeLookupStore(NegativeLookupStore) store} is used.
+     *
+     * @param key
+     *            the key of the entry
+     */
+    protected void forgetNegativeLookup(final K key)
+    {
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        if (negativeLookupStore != null)
+        {
+            negativeLookupStore.remove(key);
+        }
+    }
+
+    /**
+     * Removes all recorded negative lookups, if a {@link #setNegativeLookupStore(NegativeLookupStore) store} is used.
+     */
+    protected void forgetAllNegativeLookups()
+    {
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        if (negativeLookupStore != null)
+        {
+            negativeLookupStore.clear();
+        }
+    }
+
+    /**
+     * Invalidates a single key on other grid nodes, either immediately or - if called within an active transaction - in bulk together with
+     * all other keys invalidated in the same transaction upon its completion.
+     *
+     * @param key
+     *            the key to invalidate, or the {@link VersionedInvalidation versioned invalidation} of a key
+     */
+    protected void invalidate(final Serializable key)
+    {
+        if (!this.invalidationCollector.collect(key))
+        {
+            final long startNanos = System.nanoTime();
+            if (this.invalidationDispatcher != null)
+            {
+                this.invalidationDispatcher.enqueue(this.invalidationSender, Collections.singleton(key));
+            }
+            else
+            {
+                this.invalidationSender.send(key);
+            }
+            this.latencies.recordInvalidation(startNanos);
+        }
+    }
+
+    /**
+     * Invalidates a collection of keys on other grid nodes, either immediately or - if called within an active transaction - in bulk
+     * together with all other keys invalidated in the same transaction upon its completion.
+     *
+     * @param keys
+     *            the keys to invalidate, which may contain {@link VersionedInvalidation versioned invalidations}
+     */
+    protected void invalidateBulk(final Collection<? extends Serializable> keys)
+    {
+        if (!this.invalidationCollector.collectAll(keys))
+        {
+            this.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Invalidates a collection of keys on other grid nodes.
+     *
+     * @param keys
+     *            the keys to invalidate, which may contain {@link VersionedInvalidation versioned invalidations}
+     */
+    protected void invalidateAll(final Collection<? extends Serializable> keys)
+    {
+        final long startNanos = System.nanoTime();
+        if (this.invalidationDispatcher != null)
         {
-            this.instanceLogger.debug("Sending remote message on topic {} for {}", topic, msgLogLabel);
-            this.grid.message(remotes).send(topic, msg);
+            this.invalidationDispatcher.enqueue(this.invalidationSender, keys);
         }
         else
         {
-            this.instanceLogger.debug("Not sending remote message on topic {} for {} as there are no remote nodes", topic, msgLogLabel);
+            this.invalidationSender.sendAll(keys);
         }
+        this.latencies.recordInvalidation(startNanos);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.Ignite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class asynchronously dispatch invalidation messages of caches to other servers in the same data grid. Invalidated keys
+ * are buffered per cache for a short, configurable delay, during which repeated invalidations of the same key are coalesced, and are then
+ * sent as a single bulk invalidation message from a background thread. {@link VersionedInvalidation Versioned invalidations} of the same
+ * key are coalesced into the invalidation with the highest version. Request threads thus do not have to wait for network operations
+ * when they modify a cache.
+ *
+ * The number of keys that may be buffered for a single cache is limited. If that limit is exceeded, all buffered keys of the cache are
+ * discarded, and a message to clear the cache is sent instead.
+ *
+ * @author Axel Faust
+ */
+public class InvalidationMessageDispatcher
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationMessageDispatcher.class);
+
+    protected final Ignite grid;
+
+    protected final long dispatchDelay;
+
+    protected final int maxPendingKeys;
+
+    protected final Map<InvalidationSender, PendingInvalidations> pendingInvalidationsBySender = new ConcurrentHashMap<>();
+
+    protected final ScheduledExecutorService executor;
+
+    /**
+     * Creates a new instance of this class for a specific grid
+     *
+     * @param grid
+     *            the grid for which to dispatch invalidation messages
+     * @param dispatchDelay
+     *            the delay in milliseconds for which invalidations are buffered before being sent
+     * @param maxPendingKeys
+     *            the maximum number of buffered keys per cache before the dispatcher falls back to sending a message to clear the cache
+     */
+    public InvalidationMessageDispatcher(final Ignite grid, final long dispatchDelay, final int maxPendingKeys)
+    {
+        ParameterCheck.mandatory("grid", grid);
+        if (dispatchDelay < 0)
+        {
+            throw new IllegalArgumentException("dispatchDelay must not be negative");
+        }
+        if (maxPendingKeys <= 0)
+        {
+            throw new IllegalArgumentException("maxPendingKeys must be a positive integer");
+        }
+
+        this.grid = grid;
+        this.dispatchDelay = dispatchDelay;
+        this.maxPendingKeys = maxPendingKeys;
+
+        final String threadName = "aldica-invalidation-dispatcher-" + grid.name();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shuts down this instance, sending any invalidations still buffered.
+     */
+    public void shutdown()
+    {
+        LOGGER.debug("Shutting down invalidation dispatcher for grid {}", this.grid.name());
+
+        this.executor.shutdown();
+        this.pendingInvalidationsBySender.values().forEach(this::dispatch);
+    }
+
+    /**
+     * Enqueues the invalidation of keys of a specific cache to be sent to other servers in the data grid.
+     *
+     * @param sender
+     *            the sender of invalidations for the cache
+     * @param keys
+     *            the keys to invalidate - may contain {@link VersionedInvalidation versioned invalidations} instead of plain keys
+     */
+    public void enqueue(final InvalidationSender sender, final Collection<? extends Serializable> keys)
+    {
+        ParameterCheck.mandatory("sender", sender);
+        ParameterCheck.mandatory("keys", keys);
+
+        final PendingInvalidations pendingInvalidations = this.pendingInvalidationsBySender.computeIfAbsent(sender,
+                s -> new PendingInvalidations(sender));
+
+        final boolean scheduleDispatch;
+        synchronized (pendingInvalidations)
+        {
+            if (!pendingInvalidations.clear)
+            {
+                for (final Serializable key : keys)
+                {
+                    pendingInvalidations.keys.merge(VersionedInvalidation.keyOf(key), key, VersionedInvalidation::coalesce);
+                }
+                if (pendingInvalidations.keys.size() > this.maxPendingKeys)
+                {
+                    LOGGER.info(
+                            "Number of pending invalidations for {} exceeded limit of {} - falling back to clearing the cache on other servers",
+                            sender.getCacheName(), this.maxPendingKeys);
+                    pendingInvalidations.keys.clear();
+                    pendingInvalidations.clear = true;
+                }
+            }
+
+            scheduleDispatch = !pendingInvalidations.scheduled;
+            pendingInvalidations.scheduled = true;
+        }
+
+        if (scheduleDispatch)
+        {
+            try
+            {
+                this.executor.schedule(() -> this.dispatch(pendingInvalidations), this.dispatchDelay, TimeUnit.MILLISECONDS);
+            }
+            catch (final RejectedExecutionException reEx)
+            {
+                LOGGER.debug("Dispatcher has already been shut down - dispatching invalidations for {} synchronously",
+                        sender.getCacheName());
+                this.dispatch(pendingInvalidations);
+            }
+        }
+    }
+
+    protected void dispatch(final PendingInvalidations pendingInvalidations)
+    {
+        final Map<Serializable, Serializable> keys;
+        final boolean clear;
+        synchronized (pendingInvalidations)
+        {
+            keys = pendingInvalidations.keys;
+            clear = pendingInvalidations.clear;
+
+            pendingInvalidations.keys = new LinkedHashMap<>();
+            pendingInvalidations.clear = false;
+            pendingInvalidations.scheduled = false;
+        }
+
+        try
+        {
+            if (clear)
+            {
+                pendingInvalidations.sender.sendClear();
+            }
+            else if (!keys.isEmpty())
+            {
+                pendingInvalidations.sender.sendAll(new ArrayList<>(keys.values()));
+            }
+        }
+        catch (final RuntimeException rex)
+        {
+            LOGGER.warn("Failed to dispatch invalidations for {}", pendingInvalidations.sender.getCacheName(), rex);
+        }
+    }
+
+    /**
+     * Instances of this class hold the state of invalidations of a single cache which are yet to be dispatched. All access to the mutable
+     * state needs to be synchronised on the instance.
+     *
+     * @author Axel Faust
+     */
+    protected static class PendingInvalidations
+    {
+
+        protected final InvalidationSender sender;
+
+        protected Map<Serializable, Serializable> keys = new LinkedHashMap<>();
+
+        protected boolean clear;
+
+        protected boolean scheduled;
+
+        protected PendingInvalidations(final InvalidationSender sender)
+        {
+            this.sender = sender;
+        }
+    }
+}
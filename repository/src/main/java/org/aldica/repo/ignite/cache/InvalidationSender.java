@@ -0,0 +1,63 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Instances of this interface send invalidation messages for a specific cache to other servers in the same data grid.
+ *
+ * @author Axel Faust
+ */
+public interface InvalidationSender
+{
+
+    /**
+     * Retrieves the name of the cache for which this instance sends invalidations.
+     *
+     * @return the name of the cache
+     */
+    String getCacheName();
+
+    /**
+     * Sends the invalidation of a single key.
+     *
+     * @param key
+     *            the key to invalidate, or the {@link VersionedInvalidation versioned invalidation} of a key
+     */
+    void send(Serializable key);
+
+    /**
+     * Sends the invalidation of multiple keys in bulk.
+     *
+     * @param keys
+     *            the keys to invalidate, which may contain {@link VersionedInvalidation versioned invalidations}
+     */
+    void sendAll(Collection<? extends Serializable> keys);
+
+    /**
+     * Sends the invalidation of multiple keys in bulk to a specific server.
+     *
+     * @param nodeId
+     *            the ID of the server to which to send the invalidations
+     * @param keys
+     *            the keys to invalidate, which may contain {@link VersionedInvalidation versioned invalidations}
+     */
+    void sendTo(UUID nodeId, Collection<? extends Serializable> keys);
+
+    /**
+     * Sends a request to clear the cache.
+     */
+    void sendClear();
+
+    /**
+     * Sets the tracker of key presence filters to use for only sending invalidations to servers that may hold an affected key.
+     *
+     * @param keyPresenceFilterTracker
+     *            the tracker to use, or {@code null} to send all invalidations to all servers
+     */
+    void setKeyPresenceFilterTracker(KeyPresenceFilterTracker keyPresenceFilterTracker);
+}
@@ -0,0 +1,109 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+
+/**
+ * Instances of this class provide a simple Bloom filter over the hashes of keys held in a local cache at a specific point in time. A filter
+ * never yields false negatives, i.e. if a key was held in the cache when the filter was built, {@link #mightContain(int) mightContain} is
+ * guaranteed to return {@code true} for its hash.
+ *
+ * Since the filter is built on one server and checked on others, key hashes must be stable across JVMs, e.g. the hash of the serialised
+ * form of the key.
+ *
+ * @author Axel Faust
+ */
+public class KeyPresenceFilter implements Serializable
+{
+
+    private static final long serialVersionUID = -4502164707342853417L;
+
+    // ~1% false positive probability
+    private static final int BITS_PER_KEY = 10;
+
+    private static final int HASH_FUNCTIONS = 7;
+
+    private static final int MIN_BITS = 64;
+
+    protected final long[] bits;
+
+    protected final int bitCount;
+
+    protected final long timestamp;
+
+    /**
+     * Creates a new, empty instance of this class sized for an expected number of keys.
+     *
+     * @param expectedKeys
+     *            the expected number of keys
+     * @param timestamp
+     *            the {@link HybridLogicalClock} timestamp at which the set of keys for this filter was determined
+     */
+    public KeyPresenceFilter(final int expectedKeys, final long timestamp)
+    {
+        final long requiredBits = Math.max(MIN_BITS, (long) expectedKeys * BITS_PER_KEY);
+        final int words = (int) Math.min(Integer.MAX_VALUE / 64, (requiredBits + 63) / 64);
+        this.bits = new long[words];
+        this.bitCount = words * 64;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Adds the hash of a key to this filter.
+     *
+     * @param keyHash
+     *            the stable hash of the key
+     */
+    public void add(final int keyHash)
+    {
+        final int hash1 = mix(keyHash);
+        final int hash2 = mix(hash1 ^ 0x5bd1e995);
+        for (int i = 0; i < HASH_FUNCTIONS; i++)
+        {
+            final int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % this.bitCount;
+            this.bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Checks whether a key might have been added to this filter.
+     *
+     * @param keyHash
+     *            the stable hash of the key
+     * @return {@code true} if the key might have been added, {@code false} if it definitely has not been added
+     */
+    public boolean mightContain(final int keyHash)
+    {
+        final int hash1 = mix(keyHash);
+        final int hash2 = mix(hash1 ^ 0x5bd1e995);
+        boolean mightContain = true;
+        for (int i = 0; i < HASH_FUNCTIONS && mightContain; i++)
+        {
+            final int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % this.bitCount;
+            mightContain = (this.bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+        return mightContain;
+    }
+
+    /**
+     * @return the timestamp
+     */
+    public long getTimestamp()
+    {
+        return this.timestamp;
+    }
+
+    // finalisation step of MurmurHash3 to spread bits of weak hash codes
+    private static int mix(final int hash)
+    {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
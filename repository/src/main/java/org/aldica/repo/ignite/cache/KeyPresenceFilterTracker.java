@@ -0,0 +1,324 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.cluster.ClusterGroup;
+import org.apache.ignite.cluster.ClusterNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class track which keys of a specific cache may be held by other servers in the same data grid, based on
+ * {@link KeyPresenceFilter key presence filters} which each server periodically builds from its local cache and publishes to all other
+ * servers. Senders of invalidations use this information to only send invalidations to servers that may hold an affected key.
+ *
+ * As a filter only reflects the keys held at the time it was built, a server may have added a key to its cache since its last
+ * publication. Any invalidation skipped for a server is thus recorded and the key treated as possibly present on that server until a filter
+ * has been received which was clearly built after the invalidation was skipped. As soon as any filter published by that server may contain
+ * the key, the invalidation is sent retroactively, limiting the window in which a server may hold a stale entry to the time until it
+ * publishes its next filter. Servers for which no current filter is available are always sent all invalidations.
+ *
+ * @author Axel Faust
+ */
+public class KeyPresenceFilterTracker
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyPresenceFilterTracker.class);
+
+    // filters are only considered to have been built after a skipped invalidation if they clearly are - only relevant for dropping
+    // skipped invalidations, as any filter that may contain a skipped key triggers a retroactive send regardless of its timestamp
+    private static final long CLOCK_SKEW_TOLERANCE = HybridLogicalClock.fromMillis(5000);
+
+    // number of publish intervals after which a filter is considered outdated
+    private static final int MAX_FILTER_AGE_INTERVALS = 3;
+
+    private static final int MAX_SKIPPED_INVALIDATIONS_PER_NODE = 10000;
+
+    protected final Ignite grid;
+
+    protected final String cacheName;
+
+    protected final String topic;
+
+    protected final Supplier<? extends Collection<?>> localKeysSupplier;
+
+    protected final long publishInterval;
+
+    protected final HybridLogicalClock clock = HybridLogicalClock.getDefaultInstance();
+
+    protected final Map<UUID, RemoteFilterState> remoteFilterStates = new ConcurrentHashMap<>();
+
+    protected volatile BiConsumer<UUID, Collection<Serializable>> resendHandler;
+
+    /**
+     * Creates a new instance of this class for a specific cache.
+     *
+     * @param grid
+     *            the grid via which to publish and receive key presence filters
+     * @param cacheName
+     *            the name of the cache
+     * @param localKeysSupplier
+     *            the supplier of the keys currently held in the local cache
+     * @param executor
+     *            the executor to use for periodically publishing the key presence filter of the local cache
+     * @param publishInterval
+     *            the interval in milliseconds at which to publish the key presence filter of the local cache
+     */
+    public KeyPresenceFilterTracker(final Ignite grid, final String cacheName, final Supplier<? extends Collection<?>> localKeysSupplier,
+            final ScheduledExecutorService executor, final long publishInterval)
+    {
+        ParameterCheck.mandatory("grid", grid);
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("localKeysSupplier", localKeysSupplier);
+        ParameterCheck.mandatory("executor", executor);
+        if (publishInterval <= 0)
+        {
+            throw new IllegalArgumentException("publishInterval must be a positive integer");
+        }
+
+        this.grid = grid;
+        this.cacheName = cacheName;
+        this.topic = cacheName + "-keyFilter";
+        this.localKeysSupplier = localKeysSupplier;
+        this.publishInterval = publishInterval;
+
+        grid.message().localListen(this.topic, (uuid, filter) -> {
+            if (filter instanceof KeyPresenceFilter)
+            {
+                this.onFilterReceived(uuid, (KeyPresenceFilter) filter);
+            }
+
+            // keep listening
+            return true;
+        });
+
+        executor.scheduleWithFixedDelay(this::publish, 0, publishInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the handler for retroactively sending invalidations previously skipped for a specific server.
+     *
+     * @param resendHandler
+     *            the handler to set
+     */
+    public void setResendHandler(final BiConsumer<UUID, Collection<Serializable>> resendHandler)
+    {
+        this.resendHandler = resendHandler;
+    }
+
+    /**
+     * Distributes invalidations among a set of servers based on the key presence filters published by these servers. Any invalidation
+     * skipped for a server is recorded for retroactive sending if a later filter indicates the server may hold the key after all.
+     *
+     * @param nodes
+     *            the servers to which invalidations may need to be sent
+     * @param invalidations
+     *            the invalidations, which may be either plain keys or {@link VersionedInvalidation versioned invalidations}
+     * @return the invalidations to send per server, not containing any servers for which no invalidations need to be sent
+     */
+    public Map<ClusterNode, List<Serializable>> distribute(final Collection<ClusterNode> nodes,
+            final Collection<? extends Serializable> invalidations)
+    {
+        final long timestamp = this.clock.tick();
+        final long now = System.currentTimeMillis();
+
+        final int[] keyHashes = new int[invalidations.size()];
+        int idx = 0;
+        for (final Serializable invalidation : invalidations)
+        {
+            keyHashes[idx++] = this.hashKey(VersionedInvalidation.keyOf(invalidation));
+        }
+
+        final Map<ClusterNode, List<Serializable>> invalidationsByNode = new LinkedHashMap<>();
+        for (final ClusterNode node : nodes)
+        {
+            final RemoteFilterState state = this.remoteFilterStates.get(node.id());
+            final List<Serializable> nodeInvalidations;
+            if (state == null)
+            {
+                nodeInvalidations = new ArrayList<>(invalidations);
+            }
+            else
+            {
+                nodeInvalidations = new ArrayList<>();
+                synchronized (state)
+                {
+                    final boolean usable = state.filter != null && !state.overflowed
+                            && now - state.receivedAt <= MAX_FILTER_AGE_INTERVALS * this.publishInterval;
+                    idx = 0;
+                    for (final Serializable invalidation : invalidations)
+                    {
+                        final int keyHash = keyHashes[idx++];
+                        if (!usable || state.filter.mightContain(keyHash))
+                        {
+                            nodeInvalidations.add(invalidation);
+                        }
+                        else
+                        {
+                            state.skippedInvalidations.add(new SkippedInvalidation(invalidation, keyHash, timestamp));
+                            if (state.skippedInvalidations.size() >= MAX_SKIPPED_INVALIDATIONS_PER_NODE)
+                            {
+                                LOGGER.debug("Too many skipped invalidations for cache {} on {} - no longer skipping until next filter",
+                                        this.cacheName, node.id());
+                                state.overflowed = true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (!nodeInvalidations.isEmpty())
+            {
+                invalidationsByNode.put(node, nodeInvalidations);
+            }
+        }
+
+        return invalidationsByNode;
+    }
+
+    protected void publish()
+    {
+        try
+        {
+            // timestamp must precede determination of keys
+            final long timestamp = this.clock.tick();
+            final Collection<?> keys = this.localKeysSupplier.get();
+
+            final KeyPresenceFilter filter = new KeyPresenceFilter(keys.size(), timestamp);
+            keys.forEach(key -> filter.add(this.hashKey(key)));
+
+            final ClusterGroup remotes = this.grid.cluster().forServers().forRemotes();
+            if (!remotes.nodes().isEmpty())
+            {
+                LOGGER.debug("Publishing key presence filter for {} keys of cache {}", keys.size(), this.cacheName);
+                this.grid.message(remotes).send(this.topic, filter);
+            }
+
+            // drop state of servers that have left the grid
+            this.remoteFilterStates.keySet().removeIf(nodeId -> this.grid.cluster().node(nodeId) == null);
+        }
+        catch (final RuntimeException rex)
+        {
+            LOGGER.warn("Failed to publish key presence filter for cache {}", this.cacheName, rex);
+        }
+    }
+
+    protected void onFilterReceived(final UUID nodeId, final KeyPresenceFilter filter)
+    {
+        LOGGER.debug("Received key presence filter for cache {} from {}", this.cacheName, nodeId);
+
+        this.clock.update(filter.getTimestamp());
+
+        final RemoteFilterState state = this.remoteFilterStates.computeIfAbsent(nodeId, id -> new RemoteFilterState());
+        final List<Serializable> resendInvalidations = new ArrayList<>();
+        synchronized (state)
+        {
+            if (state.filter == null || state.filter.getTimestamp() < filter.getTimestamp())
+            {
+                state.filter = filter;
+                state.receivedAt = System.currentTimeMillis();
+
+                // any skipped key the filter may contain may have been loaded since the invalidation was skipped, whereas skipped keys
+                // not contained can only be dropped once the filter was clearly built after the invalidation was skipped
+                final Iterator<SkippedInvalidation> skippedIterator = state.skippedInvalidations.iterator();
+                while (skippedIterator.hasNext())
+                {
+                    final SkippedInvalidation skipped = skippedIterator.next();
+                    if (filter.mightContain(skipped.keyHash))
+                    {
+                        resendInvalidations.add(skipped.invalidation);
+                        skippedIterator.remove();
+                    }
+                    else if (skipped.timestamp + CLOCK_SKEW_TOLERANCE < filter.getTimestamp())
+                    {
+                        skippedIterator.remove();
+                    }
+                }
+
+                if (state.skippedInvalidations.isEmpty())
+                {
+                    state.overflowed = false;
+                }
+            }
+        }
+
+        final BiConsumer<UUID, Collection<Serializable>> resendHandler = this.resendHandler;
+        if (!resendInvalidations.isEmpty() && resendHandler != null)
+        {
+            LOGGER.debug("Retroactively sending {} skipped invalidations for cache {} to {}", resendInvalidations.size(), this.cacheName,
+                    nodeId);
+            resendHandler.accept(nodeId, resendInvalidations);
+        }
+    }
+
+    protected int hashKey(final Object key)
+    {
+        // hash codes of many key types are specific to a JVM, e.g. of enum constants, even if nested in composite keys like the
+        // collections used by the permission caches - the canonical binary form of a key is hashed instead, which (apart from primitive
+        // values and strings with value-based hashes) either has a hash code computed over its serialised bytes or is a collection / array
+        // of such values
+        final Object binaryKey = key != null ? this.grid.binary().toBinary(key) : null;
+        return binaryKey instanceof Object[] ? Arrays.deepHashCode((Object[]) binaryKey) : Objects.hashCode(binaryKey);
+    }
+
+    /**
+     * Instances of this class hold the state of the key presence filter of a single remote server. All access to the mutable state needs
+     * to be synchronised on the instance.
+     *
+     * @author Axel Faust
+     */
+    protected static class RemoteFilterState
+    {
+
+        protected KeyPresenceFilter filter;
+
+        protected long receivedAt;
+
+        protected boolean overflowed;
+
+        protected final Deque<SkippedInvalidation> skippedInvalidations = new ArrayDeque<>();
+    }
+
+    /**
+     * Instances of this class represent a single invalidation that has been skipped for a remote server.
+     *
+     * @author Axel Faust
+     */
+    protected static class SkippedInvalidation
+    {
+
+        protected final Serializable invalidation;
+
+        protected final int keyHash;
+
+        protected final long timestamp;
+
+        protected SkippedInvalidation(final Serializable invalidation, final int keyHash, final long timestamp)
+        {
+            this.invalidation = invalidation;
+            this.keyHash = keyHash;
+            this.timestamp = timestamp;
+        }
+    }
+}
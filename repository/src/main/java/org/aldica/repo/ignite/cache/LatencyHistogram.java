@@ -0,0 +1,380 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instances of this class record the distribution of latencies in a log-linear histogram, similar to an HDR histogram with a single
+ * significant (binary) digit of precision. Each power of two is split into {@link #SUB_BUCKETS} equally sized buckets, so that the value of
+ * any percentile is determined with a relative error of at most 12.5%. Recording a latency is lock-free and uses striped counters, which
+ * are only allocated for buckets that are actually used, so that concurrent recordings do not contend even on hosts with many cores.
+ *
+ * In addition to the cumulative distribution of all latencies recorded since creation or the last reset, each histogram provides a
+ * {@link #getWindowSnapshot() snapshot} of the latencies recorded in the last completed window of time, so that changes in the latency
+ * profile of a long-running server are not hidden by the bulk of previously recorded latencies. Windows are rotated by the first recording
+ * or retrieval of the window snapshot after the window duration has elapsed, by taking the difference between cumulative snapshots, so
+ * that recording remains free of any additional synchronisation. If no latency is recorded and the window snapshot is not retrieved for
+ * longer than the window duration, the next completed window covers the entire time since the previous rotation.
+ *
+ * @author Axel Faust
+ */
+public class LatencyHistogram
+{
+
+    /**
+     * The default duration of a window of latencies in nanoseconds
+     */
+    public static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // latencies of 2^40 ns (~18 minutes) and longer are recorded in the highest bucket
+    private static final int MAX_MAGNITUDE = 40;
+
+    private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(new long[BUCKET_COUNT], 0, 0, 0);
+
+    protected final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+    protected final LongAdder count = new LongAdder();
+
+    protected final LongAdder totalNanos = new LongAdder();
+
+    protected final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    protected final long windowNanos;
+
+    protected final AtomicBoolean rotating = new AtomicBoolean(false);
+
+    protected volatile long windowStartNanos = System.nanoTime();
+
+    // cumulative state at the start of the current window
+    protected volatile Snapshot windowStart = EMPTY_SNAPSHOT;
+
+    protected volatile Snapshot lastWindow = EMPTY_SNAPSHOT;
+
+    /**
+     * Creates a new instance of this class using the {@link #DEFAULT_WINDOW_NANOS default window duration}.
+     */
+    public LatencyHistogram()
+    {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param windowNanos
+     *            the duration of a window of latencies in nanoseconds
+     */
+    public LatencyHistogram(final long windowNanos)
+    {
+        if (windowNanos <= 0)
+        {
+            throw new IllegalArgumentException("windowNanos must be a positive integer");
+        }
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    public void record(final long nanos)
+    {
+        this.record(nanos, System.nanoTime());
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos
+     *            the latency in nanoseconds
+     * @param nowNanos
+     *            the current value of {@link System#nanoTime()}
+     */
+    public void record(final long nanos, final long nowNanos)
+    {
+        final long effectiveNanos = Math.max(0, nanos);
+        final int bucket = bucketIndex(effectiveNanos);
+
+        LongAdder counter = this.buckets.get(bucket);
+        if (counter == null)
+        {
+            this.buckets.compareAndSet(bucket, null, new LongAdder());
+            counter = this.buckets.get(bucket);
+        }
+        counter.increment();
+
+        this.count.increment();
+        this.totalNanos.add(effectiveNanos);
+        this.maxNanos.accumulate(effectiveNanos);
+
+        this.rotateIfDue(nowNanos);
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    /**
+     * @return the mean of all recorded latencies in nanoseconds, or {@code 0} if no latency has been recorded
+     */
+    public double getMeanNanos()
+    {
+        final long count = this.count.sum();
+        return count > 0 ? this.totalNanos.sum() / (double) count : 0;
+    }
+
+    /**
+     * @return the highest recorded latency in nanoseconds
+     */
+    public long getMaxNanos()
+    {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * Determines the latency below or at which a specific percentage of all recorded latencies lie. As latencies may be recorded
+     * concurrently, the result is only an approximation based on a non-atomic snapshot of the histogram.
+     *
+     * @param percentile
+     *            the percentile (from {@code 0} to {@code 100}) to determine
+     * @return the highest latency in nanoseconds that falls into the same bucket as the latency at the percentile, or {@code 0} if no
+     *         latency has been recorded
+     */
+    public long getValueAtPercentile(final double percentile)
+    {
+        return this.snapshot().getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Creates a snapshot of all latencies recorded since creation or the last reset of this histogram. As latencies may be recorded
+     * concurrently, the snapshot is not atomic.
+     *
+     * @return the snapshot of all recorded latencies
+     */
+    public Snapshot snapshot()
+    {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            final LongAdder counter = this.buckets.get(bucket);
+            counts[bucket] = counter != null ? counter.sum() : 0;
+            total += counts[bucket];
+        }
+        return new Snapshot(counts, total, this.totalNanos.sum(), this.getMaxNanos());
+    }
+
+    /**
+     * Retrieves the snapshot of the latencies recorded in the last completed window.
+     *
+     * @return the snapshot of the last completed window
+     */
+    public Snapshot getWindowSnapshot()
+    {
+        this.rotateIfDue(System.nanoTime());
+        return this.lastWindow;
+    }
+
+    /**
+     * Resets this histogram, discarding all recorded latencies.
+     */
+    public void reset()
+    {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            this.buckets.set(bucket, null);
+        }
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.reset();
+
+        this.windowStart = EMPTY_SNAPSHOT;
+        this.lastWindow = EMPTY_SNAPSHOT;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    protected void rotateIfDue(final long nowNanos)
+    {
+        if (nowNanos - this.windowStartNanos >= this.windowNanos && this.rotating.compareAndSet(false, true))
+        {
+            try
+            {
+                // re-check as another thread may have just completed a rotation
+                if (nowNanos - this.windowStartNanos >= this.windowNanos)
+                {
+                    final Snapshot current = this.snapshot();
+                    this.lastWindow = current.since(this.windowStart);
+                    this.windowStart = current;
+                    this.windowStartNanos = nowNanos;
+                }
+            }
+            finally
+            {
+                this.rotating.set(false);
+            }
+        }
+    }
+
+    protected static int bucketIndex(final long nanos)
+    {
+        final int index;
+        if (nanos < SUB_BUCKETS)
+        {
+            index = (int) nanos;
+        }
+        else
+        {
+            final int magnitude = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_MAGNITUDE);
+            final int subBucket = magnitude == MAX_MAGNITUDE && nanos >= (1L << (MAX_MAGNITUDE + 1)) ? SUB_BUCKETS - 1
+                    : (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            index = (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+        return index;
+    }
+
+    protected static long bucketUpperBound(final int index)
+    {
+        final long upperBound;
+        if (index < SUB_BUCKETS)
+        {
+            upperBound = index;
+        }
+        else
+        {
+            final int shift = index / SUB_BUCKETS - 1;
+            final long subBucket = index % SUB_BUCKETS;
+            upperBound = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        }
+        return upperBound;
+    }
+
+    /**
+     * Instances of this class hold an immutable snapshot of the distribution of latencies recorded by a histogram.
+     *
+     * @author Axel Faust
+     */
+    public static class Snapshot
+    {
+
+        protected final long[] counts;
+
+        protected final long count;
+
+        protected final long totalNanos;
+
+        protected final long maxNanos;
+
+        protected Snapshot(final long[] counts, final long count, final long totalNanos, final long maxNanos)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return the number of latencies in this snapshot
+         */
+        public long getCount()
+        {
+            return this.count;
+        }
+
+        /**
+         * @return the mean of the latencies in this snapshot in nanoseconds, or {@code 0} if the snapshot holds no latencies
+         */
+        public double getMeanNanos()
+        {
+            return this.count > 0 ? this.totalNanos / (double) this.count : 0;
+        }
+
+        /**
+         * @return the highest latency in this snapshot in nanoseconds
+         */
+        public long getMaxNanos()
+        {
+            return this.maxNanos;
+        }
+
+        /**
+         * Determines the latency below or at which a specific percentage of the latencies in this snapshot lie.
+         *
+         * @param percentile
+         *            the percentile (from {@code 0} to {@code 100}) to determine
+         * @return the highest latency in nanoseconds that falls into the same bucket as the latency at the percentile, or {@code 0} if
+         *         the snapshot holds no latencies
+         */
+        public long getValueAtPercentile(final double percentile)
+        {
+            if (percentile < 0 || percentile > 100)
+            {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+
+            long value = 0;
+            if (this.count > 0)
+            {
+                final long threshold = Math.max(1, (long) Math.ceil(this.count * percentile / 100));
+                long cumulative = 0;
+                for (int bucket = 0; bucket < this.counts.length; bucket++)
+                {
+                    cumulative += this.counts[bucket];
+                    if (cumulative >= threshold)
+                    {
+                        // upper bound of bucket may exceed any actually recorded latency
+                        value = Math.min(bucketUpperBound(bucket), this.maxNanos);
+                        break;
+                    }
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Determines the difference between this and an earlier snapshot of the same histogram.
+         *
+         * @param earlier
+         *            the earlier snapshot
+         * @return the snapshot of the latencies recorded between the two snapshots
+         */
+        protected Snapshot since(final Snapshot earlier)
+        {
+            final long[] counts = new long[this.counts.length];
+            long count = 0;
+            int highestBucket = -1;
+            for (int bucket = 0; bucket < counts.length; bucket++)
+            {
+                // snapshots are not atomic, so a concurrent recording may be reflected in the total but not yet in the bucket
+                counts[bucket] = Math.max(0, this.counts[bucket] - earlier.counts[bucket]);
+                count += counts[bucket];
+                if (counts[bucket] > 0)
+                {
+                    highestBucket = bucket;
+                }
+            }
+
+            // maximum of window can only be approximated from the highest used bucket
+            final long maxNanos = highestBucket >= 0 ? Math.min(bucketUpperBound(highestBucket), this.maxNanos) : 0;
+            final long totalNanos = Math.max(0, this.totalNanos - earlier.totalNanos);
+            return new Snapshot(counts, count, totalNanos, maxNanos);
+        }
+    }
+}
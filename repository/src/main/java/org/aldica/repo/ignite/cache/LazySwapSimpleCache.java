@@ -0,0 +1,397 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.aldica.common.ignite.lifecycle.IgniteInstanceLifecycleAware;
+import org.aldica.common.ignite.lifecycle.SpringIgniteLifecycleBean;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.EqualsHelper;
+import org.alfresco.util.ParameterCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class provide a cache which delegates all operations to a temporary cache until the Ignite instance it requires has
+ * been started, at which point the temporary cache is swapped with the real cache instance. Entries of the temporary cache are transferred
+ * to the real cache in bulk. Until the swap has been completed, writes are guarded by a lock so that no write can be lost or overwritten by
+ * the transfer of outdated values.
+ *
+ * This is required to handle grid starts after initial cache(s) have been created since the {@link SpringIgniteLifecycleBean grid
+ * startup}, specifically discovery may rely on Alfresco services which in turn require caches. This would cause a circular dependency graph
+ * without the ability to lazily swap temporary caches with the eventual final instances.
+ *
+ * Once swapped, each operation only incurs the cost of one or two volatile reads in addition to the operation of the real cache.
+ *
+ * @author Axel Faust
+ */
+public class LazySwapSimpleCache<K extends Serializable, V>
+        implements SimpleCache<K, V>, IgniteInstanceLifecycleAware, CacheWithMetrics, CacheWithBulkOperations<K, V>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazySwapSimpleCache.class);
+
+    protected final String instanceName;
+
+    protected final String cacheName;
+
+    protected final Supplier<SimpleCache<K, V>> realCacheSupplier;
+
+    protected volatile SimpleCache<K, V> delegate;
+
+    protected volatile boolean swapped;
+
+    protected final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param instanceName
+     *            the name of the Ignite instance on the startup of which the temporary cache should be swapped
+     * @param cacheName
+     *            the name of the cache
+     * @param temporaryCache
+     *            the cache to use until the Ignite instance has been started
+     * @param realCacheSupplier
+     *            the supplier of the real cache instance, to be invoked when the Ignite instance has been started
+     */
+    public LazySwapSimpleCache(final String instanceName, final String cacheName, final SimpleCache<K, V> temporaryCache,
+            final Supplier<SimpleCache<K, V>> realCacheSupplier)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("temporaryCache", temporaryCache);
+        ParameterCheck.mandatory("realCacheSupplier", realCacheSupplier);
+
+        this.instanceName = instanceName;
+        this.cacheName = cacheName;
+        this.delegate = temporaryCache;
+        this.realCacheSupplier = realCacheSupplier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeInstanceStartup(final String instanceName)
+    {
+        // NO-OP
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterInstanceStartup(final String instanceName)
+    {
+        if (EqualsHelper.nullSafeEquals(this.instanceName, instanceName))
+        {
+            this.swap();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeInstanceShutdown(final String instanceName)
+    {
+        // NO-OP
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterInstanceShutdown(final String instanceName)
+    {
+        // NO-OP
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final K key)
+    {
+        return this.delegate.contains(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<K> getKeys()
+    {
+        return this.delegate.getKeys();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(final K key)
+    {
+        return this.delegate.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final K key, final V value)
+    {
+        final Lock lock = this.lockForWriteUntilSwapped();
+        try
+        {
+            this.delegate.put(key, value);
+        }
+        finally
+        {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final K key)
+    {
+        final Lock lock = this.lockForWriteUntilSwapped();
+        try
+        {
+            this.delegate.remove(key);
+        }
+        finally
+        {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        final Lock lock = this.lockForWriteUntilSwapped();
+        try
+        {
+            this.delegate.clear();
+        }
+        finally
+        {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys)
+    {
+        final SimpleCache<K, V> delegate = this.delegate;
+        final Map<K, V> values;
+        if (delegate instanceof CacheWithBulkOperations<?, ?>)
+        {
+            values = asBulkCache(delegate).getAll(keys);
+        }
+        else
+        {
+            values = new HashMap<>();
+            keys.forEach(key -> {
+                final V value = delegate.get(key);
+                if (value != null)
+                {
+                    values.put(key, value);
+                }
+            });
+        }
+        return values;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries)
+    {
+        final Lock lock = this.lockForWriteUntilSwapped();
+        try
+        {
+            final SimpleCache<K, V> delegate = this.delegate;
+            if (delegate instanceof CacheWithBulkOperations<?, ?>)
+            {
+                asBulkCache(delegate).putAll(entries);
+            }
+            else
+            {
+                entries.forEach(delegate::put);
+            }
+        }
+        finally
+        {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(final Collection<? extends K> keys)
+    {
+        final Lock lock = this.lockForWriteUntilSwapped();
+        try
+        {
+            final SimpleCache<K, V> delegate = this.delegate;
+            if (delegate instanceof CacheWithBulkOperations<?, ?>)
+            {
+                asBulkCache(delegate).removeAll(keys);
+            }
+            else
+            {
+                keys.forEach(delegate::remove);
+            }
+        }
+        finally
+        {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetch(final Collection<? extends K> keys)
+    {
+        final SimpleCache<K, V> delegate = this.delegate;
+        if (delegate instanceof CacheWithBulkOperations<?, ?>)
+        {
+            asBulkCache(delegate).prefetch(keys);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheMetrics getMetrics()
+    {
+        final SimpleCache<K, V> delegate = this.delegate;
+        if (!(delegate instanceof CacheWithMetrics))
+        {
+            throw new UnsupportedOperationException(delegate.getClass() + " cannot provide detailed cache metrics");
+        }
+        return ((CacheWithMetrics) delegate).getMetrics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        final SimpleCache<K, V> delegate = this.delegate;
+        return delegate instanceof CacheWithMetrics ? ((CacheWithMetrics) delegate).size() : delegate.getKeys().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int localSize()
+    {
+        final SimpleCache<K, V> delegate = this.delegate;
+        return delegate instanceof CacheWithMetrics ? ((CacheWithMetrics) delegate).localSize() : delegate.getKeys().size();
+    }
+
+    /**
+     * Swaps the temporary cache with the real cache instance, unless this has already been done.
+     */
+    protected void swap()
+    {
+        // exclusive lock blocks writes to the temporary cache while its entries are transferred
+        this.swapLock.writeLock().lock();
+        try
+        {
+            if (!this.swapped)
+            {
+                final SimpleCache<K, V> temporaryCache = this.delegate;
+                final SimpleCache<K, V> realCache = this.realCacheSupplier.get();
+
+                final Map<K, V> entries = new HashMap<>();
+                temporaryCache.getKeys().forEach(key -> {
+                    final V value = temporaryCache.get(key);
+                    if (value != null)
+                    {
+                        entries.put(key, value);
+                    }
+                });
+
+                if (!entries.isEmpty())
+                {
+                    if (realCache instanceof CacheWithBulkOperations<?, ?>)
+                    {
+                        asBulkCache(realCache).putAll(entries);
+                    }
+                    else
+                    {
+                        entries.forEach(realCache::put);
+                    }
+                }
+
+                this.delegate = realCache;
+                this.swapped = true;
+
+                LOGGER.debug("Lazily swapped temporary cache {} with real instance, transferring {} entries", this.cacheName,
+                        entries.size());
+            }
+        }
+        finally
+        {
+            this.swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Acquires a shared lock for a write operation if the temporary cache has not yet been swapped.
+     *
+     * @return the acquired lock, or {@code null} if no lock is required as the cache has already been swapped
+     */
+    protected Lock lockForWriteUntilSwapped()
+    {
+        Lock lock = null;
+        if (!this.swapped)
+        {
+            lock = this.swapLock.readLock();
+            lock.lock();
+        }
+        return lock;
+    }
+
+    protected static void unlock(final Lock lock)
+    {
+        if (lock != null)
+        {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <K extends Serializable, V> CacheWithBulkOperations<K, V> asBulkCache(final SimpleCache<K, V> cache)
+    {
+        return (CacheWithBulkOperations<K, V>) cache;
+    }
+}
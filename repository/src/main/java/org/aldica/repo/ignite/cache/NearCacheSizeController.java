@@ -0,0 +1,271 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.cache.eviction.AbstractEvictionPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class periodically redistribute a shared budget of on-heap entries between the near caches of partitioned caches on the
+ * local server. For each near cache, the number of misses of the near cache (as counted by the cache using it, since Ignite metrics do not
+ * distinguish these from misses of the backing cache) and the utilisation of its eviction policy are sampled, and the expected gain in hits
+ * from an additional entry is estimated as the number of misses per entry of the current capacity, as long as the near cache is actually
+ * filled to its capacity. In each adjustment, a share of the capacity of the near cache with the lowest expected gain is shifted to the
+ * near cache with the highest expected gain, within the bounds configured for each near cache. The sum of capacities of all near caches
+ * registered with a controller remains constant, and any memory limit of a near cache is scaled proportionally to its capacity.
+ *
+ * Only near caches with a limit on the number of entries can be tuned by this controller.
+ *
+ * @author Axel Faust
+ */
+public class NearCacheSizeController
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NearCacheSizeController.class);
+
+    // eviction policies are created by Ignite from (de)serialised factories without access to any controller
+    private static final Map<String, AbstractEvictionPolicy<?, ?>> EVICTION_POLICIES = new ConcurrentHashMap<>();
+
+    // fraction of the capacity of the donating near cache to shift in a single adjustment
+    private static final double STEP_FRACTION = 0.1d;
+
+    // minimum ratio between expected gains of recipient and donor to avoid oscillation between caches with similar gains
+    private static final double MIN_GAIN_RATIO = 1.25d;
+
+    // utilisation of a near cache's capacity above which it is considered to be filled
+    private static final double FILLED_UTILISATION = 0.9d;
+
+    protected final Ignite grid;
+
+    protected final Map<String, TunedNearCache> tunedNearCaches = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param grid
+     *            the grid of the near caches to tune
+     * @param executor
+     *            the executor with which to schedule the periodic adjustments
+     * @param adjustmentInterval
+     *            the interval in milliseconds between adjustments
+     */
+    public NearCacheSizeController(final Ignite grid, final ScheduledExecutorService executor, final long adjustmentInterval)
+    {
+        ParameterCheck.mandatory("grid", grid);
+        ParameterCheck.mandatory("executor", executor);
+        if (adjustmentInterval <= 0)
+        {
+            throw new IllegalArgumentException("adjustmentInterval must be a positive integer");
+        }
+
+        this.grid = grid;
+        executor.scheduleWithFixedDelay(this::adjustSafely, adjustmentInterval, adjustmentInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the eviction policy of a near cache on the local server, so that it can be found by a controller.
+     *
+     * @param instanceName
+     *            the name of the grid of the near cache
+     * @param cacheName
+     *            the name of the cache
+     * @param policy
+     *            the eviction policy of the near cache
+     */
+    public static void registerEvictionPolicy(final String instanceName, final String cacheName, final AbstractEvictionPolicy<?, ?> policy)
+    {
+        EVICTION_POLICIES.put(instanceName + "/" + cacheName, policy);
+    }
+
+    /**
+     * Unregisters all eviction policies of near caches of a specific grid.
+     *
+     * @param instanceName
+     *            the name of the grid
+     */
+    public static void unregisterEvictionPolicies(final String instanceName)
+    {
+        EVICTION_POLICIES.keySet().removeIf(key -> key.startsWith(instanceName + "/"));
+    }
+
+    /**
+     * Registers a near cache for tuning by this controller.
+     *
+     * @param cacheName
+     *            the name of the cache with an enabled near cache
+     * @param nearCacheMisses
+     *            the source of the cumulative number of lookups that could not be served by the near cache
+     * @param minItems
+     *            the minimum capacity of the near cache, or {@code 0} to use a quarter of the initial capacity
+     * @param maxItems
+     *            the maximum capacity of the near cache, or {@code 0} to use four times the initial capacity
+     */
+    public void register(final String cacheName, final LongSupplier nearCacheMisses, final int minItems, final int maxItems)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("nearCacheMisses", nearCacheMisses);
+
+        LOGGER.debug("Registering near cache of {} for self-tuning", cacheName);
+        this.tunedNearCaches.put(cacheName, new TunedNearCache(cacheName, nearCacheMisses, minItems, maxItems));
+    }
+
+    protected void adjustSafely()
+    {
+        try
+        {
+            this.adjust();
+        }
+        catch (final IgniteException | IllegalStateException ex)
+        {
+            LOGGER.warn("Failed to adjust near cache sizes", ex);
+        }
+    }
+
+    protected void adjust()
+    {
+        final String policyKeyPrefix = this.grid.name() + "/";
+        final List<TunedNearCache> candidates = new ArrayList<>();
+        for (final TunedNearCache tunedNearCache : this.tunedNearCaches.values())
+        {
+            final AbstractEvictionPolicy<?, ?> policy = EVICTION_POLICIES.get(policyKeyPrefix + tunedNearCache.cacheName);
+            if (policy != null && policy.getMaxSize() > 0 && tunedNearCache.sample(policy))
+            {
+                candidates.add(tunedNearCache);
+            }
+        }
+
+        TunedNearCache recipient = null;
+        for (final TunedNearCache candidate : candidates)
+        {
+            if (candidate.canGrow() && (recipient == null || candidate.gain > recipient.gain))
+            {
+                recipient = candidate;
+            }
+        }
+
+        TunedNearCache donor = null;
+        for (final TunedNearCache candidate : candidates)
+        {
+            if (candidate != recipient && candidate.canShrink() && (donor == null || candidate.gain < donor.gain))
+            {
+                donor = candidate;
+            }
+        }
+
+        if (recipient != null && donor != null && recipient.gain > 0 && recipient.gain > donor.gain * MIN_GAIN_RATIO)
+        {
+            final int donorSize = donor.policy.getMaxSize();
+            final int recipientSize = recipient.policy.getMaxSize();
+            final int step = Math.min(Math.max(1, (int) (donorSize * STEP_FRACTION)),
+                    Math.min(donorSize - donor.minItems, recipient.maxItems - recipientSize));
+
+            LOGGER.debug("Shifting capacity of {} entries from near cache of {} (expected gain {}) to near cache of {} (expected gain {})",
+                    step, donor.cacheName, donor.gain, recipient.cacheName, recipient.gain);
+
+            donor.resize(donorSize - step);
+            recipient.resize(recipientSize + step);
+        }
+    }
+
+    /**
+     * Instances of this class hold the tuning state of a single near cache.
+     *
+     * @author Axel Faust
+     */
+    protected static class TunedNearCache
+    {
+
+        protected final String cacheName;
+
+        protected final LongSupplier nearCacheMisses;
+
+        protected int minItems;
+
+        protected int maxItems;
+
+        protected AbstractEvictionPolicy<?, ?> policy;
+
+        protected long lastMisses = -1;
+
+        protected double gain;
+
+        protected TunedNearCache(final String cacheName, final LongSupplier nearCacheMisses, final int minItems, final int maxItems)
+        {
+            this.cacheName = cacheName;
+            this.nearCacheMisses = nearCacheMisses;
+            this.minItems = minItems;
+            this.maxItems = maxItems;
+        }
+
+        /**
+         * Samples the metrics of the near cache and estimates the expected gain in hits from increasing its capacity.
+         *
+         * @param policy
+         *            the current eviction policy of the near cache
+         * @return {@code true} if the near cache has been sampled before and can be tuned based on the estimated gain, {@code false}
+         *         otherwise
+         */
+        protected boolean sample(final AbstractEvictionPolicy<?, ?> policy)
+        {
+            if (this.policy != policy)
+            {
+                // (re-)initialise bounds based on initial capacity
+                final int initialSize = policy.getMaxSize();
+                this.minItems = this.minItems > 0 ? Math.min(this.minItems, initialSize) : Math.max(1, initialSize / 4);
+                this.maxItems = this.maxItems > 0 ? Math.max(this.maxItems, initialSize) : initialSize * 4;
+                this.policy = policy;
+                this.lastMisses = -1;
+            }
+
+            final long misses = this.nearCacheMisses.getAsLong();
+            final boolean sampled = this.lastMisses >= 0 && misses >= this.lastMisses;
+            if (sampled)
+            {
+                final int maxSize = policy.getMaxSize();
+                final double utilisation = policy.getCurrentSize() / (double) maxSize;
+                // misses can only be turned into hits by additional capacity if the existing capacity is actually used
+                this.gain = utilisation >= FILLED_UTILISATION ? (misses - this.lastMisses) / (double) maxSize : 0;
+
+                LOGGER.trace("Near cache of {} uses {} of {} entries ({} bytes on-heap) with expected gain of {}", this.cacheName,
+                        policy.getCurrentSize(), maxSize, policy.getCurrentMemorySize(), this.gain);
+            }
+            this.lastMisses = misses;
+
+            return sampled;
+        }
+
+        protected boolean canGrow()
+        {
+            return this.policy.getMaxSize() < this.maxItems;
+        }
+
+        protected boolean canShrink()
+        {
+            return this.policy.getMaxSize() > this.minItems;
+        }
+
+        protected void resize(final int newSize)
+        {
+            final int oldSize = this.policy.getMaxSize();
+            final long maxMemorySize = this.policy.getMaxMemorySize();
+            if (maxMemorySize > 0)
+            {
+                this.policy.setMaxMemorySize(Math.max(1, maxMemorySize * newSize / oldSize));
+            }
+            this.policy.setMaxSize(newSize);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.cache.configuration.FactoryBuilder;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.query.ContinuousQueryWithTransformer;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class provide a two-tier cache, holding a bounded set of deserialised values in an on-heap map in front of a
+ * partitioned Ignite cache. Hits on the on-heap tier neither require deserialisation of values nor network calls to other servers if the
+ * key is not stored in a partition managed by the local server.
+ *
+ * Coherence of the on-heap tier is maintained via a continuous query on the partitioned cache, which notifies this instance about any
+ * effective update, removal or expiration of an entry by any server in the data grid. Events are filtered and reduced to the key of the
+ * affected entry on the server managing that entry, so that no values are transferred for these notifications. As
+ * {@link IgniteCache#clear() clearing} a cache does not trigger such notifications, a message is sent to other servers to clear their
+ * on-heap tier. Metrics of instances of this class only reflect accesses to the partitioned cache, i.e. accesses that could not be served
+ * from the on-heap tier.
+ *
+ * @author Axel Faust
+ */
+public class NearLocalIgniteBackedCache<K extends Serializable, V> extends SimpleIgniteBackedCache<K, V>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NearLocalIgniteBackedCache.class);
+
+    private static final int INVALIDATION_STRIPES = 64;
+
+    protected final int maxLocalItems;
+
+    protected final ConcurrentMap<K, V> localEntries = new ConcurrentHashMap<>();
+
+    // guards against caching values loaded before a concurrent invalidation of the same key
+    protected final AtomicLongArray invalidationStamps = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    protected final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    protected final QueryCursor<?> invalidationQueryCursor;
+
+    /**
+     * Creates a two-tier cache backed by a partitioned Ignite cache.
+     *
+     * @param grid
+     *            the Ignite grid instance to use for communication
+     * @param backingCache
+     *            the low-level Ignite cache instance
+     * @param allowSentinelsInBackingCache
+     *            {@code true} if sentinels for dummy values (defined by
+     *            {@link org.alfresco.repo.cache.lookup.EntityLookupCache EntityLookupCache}) are allowed to be stored in the cache
+     * @param maxLocalItems
+     *            the maximum number of deserialised values to hold in the on-heap tier
+     */
+    public NearLocalIgniteBackedCache(final Ignite grid, final IgniteCache<K, V> backingCache, final boolean allowSentinelsInBackingCache,
+            final int maxLocalItems)
+    {
+        super(grid, Mode.PARTITIONED, backingCache, allowSentinelsInBackingCache);
+
+        if (maxLocalItems <= 0)
+        {
+            throw new IllegalArgumentException("maxLocalItems must be a positive integer");
+        }
+        this.maxLocalItems = maxLocalItems;
+
+        final ContinuousQueryWithTransformer<Object, Object, Object> query = new ContinuousQueryWithTransformer<>();
+        query.setIncludeExpired(true);
+        // filter / transformer are executed on the server managing an entry, so only keys of effective changes are transferred
+        // both classes are contained in the companion app as peer class loading is not enabled
+        query.setRemoteFilterFactory(FactoryBuilder.factoryOf(new EffectiveChangeEventFilter()));
+        query.setRemoteTransformerFactory(FactoryBuilder.factoryOf(new EventKeyTransformer()));
+        query.setLocalListener(keys -> {
+            final List<BinaryObject> binaryKeys = new ArrayList<>();
+            keys.forEach(key -> {
+                if (key instanceof BinaryObject)
+                {
+                    binaryKeys.add((BinaryObject) key);
+                }
+                else
+                {
+                    @SuppressWarnings("unchecked")
+                    final K typedKey = (K) key;
+                    this.invalidateLocal(typedKey);
+                }
+            });
+
+            if (!binaryKeys.isEmpty())
+            {
+                // deserialisation must not happen in Ignite threads as it may trigger cascading lookups
+                ForkJoinPool.commonPool().execute(() -> binaryKeys.forEach(binaryKey -> {
+                    final K typedKey = binaryKey.deserialize();
+                    this.invalidateLocal(typedKey);
+                }));
+            }
+        });
+        this.invalidationQueryCursor = this.backingCache.<Object, Object> withKeepBinary().query(query);
+
+        grid.message().localListen(this.clearTopic, (uuid, flag) -> {
+            LOGGER.debug("Received message to clear on-heap tier of cache {}", this.cacheName);
+            this.clearLocal();
+
+            // keep listening
+            return true;
+        });
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final K key, final V value)
+    {
+        super.put(key, value);
+        // value will be cached locally on next retrieval
+        this.invalidateLocal(key);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final K key)
+    {
+        super.remove(key);
+        this.invalidateLocal(key);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries)
+    {
+        super.putAll(entries);
+        // values will be cached locally on next retrieval
+        entries.keySet().forEach(this::invalidateLocal);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(final Collection<? extends K> keys)
+    {
+        super.removeAll(keys);
+        keys.forEach(this::invalidateLocal);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetch(final Collection<? extends K> keys)
+    {
+        final Set<K> missingKeys = new LinkedHashSet<>();
+        keys.forEach(key -> {
+            if (!this.localEntries.containsKey(key))
+            {
+                missingKeys.add(key);
+            }
+        });
+
+        if (!missingKeys.isEmpty())
+        {
+            LOGGER.debug("Prefetching values for {} keys into on-heap tier of cache {}", missingKeys.size(), this.cacheName);
+
+            final long[] stamps = this.snapshotInvalidationStamps();
+            this.backingCache.<Object, Object> withKeepBinary().getAllAsync(missingKeys).listenAsync(future -> {
+                try
+                {
+                    final Map<K, V> values = this.deserialiseAll(future.get());
+                    this.cacheLocally(values, stamps);
+                }
+                catch (final IgniteException ex)
+                {
+                    LOGGER.debug("Failed to prefetch values for cache {}", this.cacheName, ex);
+                }
+                // deserialisation must not happen in Ignite threads as it may trigger cascading lookups
+            }, ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        super.clear();
+        this.clearLocal();
+        this.invalidationSender.sendClear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected V getImpl(final K key)
+    {
+        V value = this.localEntries.get(key);
+        if (value == null)
+        {
+            final int stripe = this.stripe(key);
+            final long stamp = this.invalidationStamps.get(stripe);
+
+            value = super.getImpl(key);
+
+            if (value != null && this.cacheLocally(key, value, stripe, stamp))
+            {
+                this.evictIfNecessary();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<K, V> getAllImpl(final Set<K> keys)
+    {
+        final Map<K, V> values = new HashMap<>();
+        final Set<K> missingKeys = new LinkedHashSet<>();
+        keys.forEach(key -> {
+            final V value = this.localEntries.get(key);
+            if (value != null)
+            {
+                values.put(key, value);
+            }
+            else
+            {
+                missingKeys.add(key);
+            }
+        });
+
+        if (!missingKeys.isEmpty())
+        {
+            final long[] stamps = this.snapshotInvalidationStamps();
+            final Map<K, V> loadedValues = super.getAllImpl(missingKeys);
+            this.cacheLocally(loadedValues, stamps);
+            values.putAll(loadedValues);
+        }
+        return values;
+    }
+
+    protected long[] snapshotInvalidationStamps()
+    {
+        final long[] stamps = new long[INVALIDATION_STRIPES];
+        for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++)
+        {
+            stamps[stripe] = this.invalidationStamps.get(stripe);
+        }
+        return stamps;
+    }
+
+    protected void cacheLocally(final Map<K, V> values, final long[] stamps)
+    {
+        values.forEach((key, value) -> {
+            if (value != null)
+            {
+                final int stripe = this.stripe(key);
+                this.cacheLocally(key, value, stripe, stamps[stripe]);
+            }
+        });
+        this.evictIfNecessary();
+    }
+
+    /**
+     * Caches a single value in the on-heap tier unless the key has been invalidated since the value was loaded. The check of the
+     * invalidation stamp is performed atomically with the update of the on-heap tier so that a concurrent invalidation either is observed
+     * by the check or removes the entry after it has been cached.
+     *
+     * @param key
+     *            the key of the value
+     * @param value
+     *            the value to cache
+     * @param stripe
+     *            the invalidation stripe of the key
+     * @param stamp
+     *            the invalidation stamp of the stripe at the time the value was loaded
+     * @return {@code true} if the value has been cached, {@code false} otherwise
+     */
+    protected boolean cacheLocally(final K key, final V value, final int stripe, final long stamp)
+    {
+        final V cachedValue = this.localEntries.compute(key,
+                (k, existingValue) -> this.invalidationStamps.get(stripe) == stamp ? value : existingValue);
+        return cachedValue == value;
+    }
+
+    protected void invalidateLocal(final K key)
+    {
+        this.invalidationStamps.incrementAndGet(this.stripe(key));
+        this.localEntries.remove(key);
+    }
+
+    protected void clearLocal()
+    {
+        for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++)
+        {
+            this.invalidationStamps.incrementAndGet(stripe);
+        }
+        this.localEntries.clear();
+    }
+
+    protected int stripe(final K key)
+    {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+    }
+
+    protected void evictIfNecessary()
+    {
+        if (this.localEntries.size() > this.maxLocalItems && this.evicting.compareAndSet(false, true))
+        {
+            try
+            {
+                // evict down to 90% in a single batch - iteration order of hash map effectively results in random eviction
+                final int targetSize = this.maxLocalItems - Math.max(1, this.maxLocalItems / 10);
+                LOGGER.debug("Evicting entries from on-heap tier of cache {} down to {} entries", this.cacheName, targetSize);
+
+                final Iterator<K> keyIterator = this.localEntries.keySet().iterator();
+                while (this.localEntries.size() > targetSize && keyIterator.hasNext())
+                {
+                    keyIterator.next();
+                    keyIterator.remove();
+                }
+            }
+            finally
+            {
+                this.evicting.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.repo.cache.lookup.EntityLookupCache;
+import org.alfresco.util.ParameterCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class hold the results of negative lookups, i.e. the sentinel values which {@link EntityLookupCache entity lookup
+ * caches} put into a cache to record that no entity exists for a key, locally on each server instead of in the backing cache of a cache.
+ * This keeps sentinel values out of the (potentially off-heap and distributed) backing cache, so that negative lookups neither use storage
+ * in the data grid nor cause network traffic when they are recorded, while still sparing repeated database lookups of non-existing
+ * entities.
+ *
+ * A negative lookup only ever applies if the backing cache holds no value for the same key. Since negative lookups are not shared between
+ * servers, they are only dropped by a server if it handles the put / remove of a value itself, or is notified of it via an invalidation.
+ * Stores of negative lookups can therefore only be used with caches that are local to a server and invalidated on every put / remove by
+ * other servers. Negative lookups are bounded in number, evicting a batch of random entries when the limit is exceeded, and may be limited
+ * in their time-to-live.
+ *
+ * @param <K>
+ *            the type of the keys of the cache
+ *
+ * @author Axel Faust
+ */
+public class NegativeLookupStore<K>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeLookupStore.class);
+
+    protected final String cacheName;
+
+    protected final int maxItems;
+
+    protected final long timeToLiveMillis;
+
+    protected final ConcurrentMap<K, NegativeLookup> negativeLookups = new ConcurrentHashMap<>();
+
+    protected final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param cacheName
+     *            the name of the cache for which to hold negative lookups
+     * @param maxItems
+     *            the maximum number of negative lookups to hold
+     * @param timeToLiveSeconds
+     *            the time-to-live of negative lookups in seconds, or {@code 0} if negative lookups should not expire
+     */
+    public NegativeLookupStore(final String cacheName, final int maxItems, final int timeToLiveSeconds)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        if (maxItems <= 0)
+        {
+            throw new IllegalArgumentException("maxItems must be a positive integer");
+        }
+        if (timeToLiveSeconds < 0)
+        {
+            throw new IllegalArgumentException("timeToLiveSeconds must not be negative");
+        }
+
+        this.cacheName = cacheName;
+        this.maxItems = maxItems;
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+    }
+
+    /**
+     * Retrieves the negative lookup recorded for a key.
+     *
+     * @param key
+     *            the key
+     * @return the exact sentinel value with which the negative lookup was recorded, or {@code null} if no negative lookup has been
+     *         recorded or it has expired
+     */
+    public Object get(final K key)
+    {
+        Object value = null;
+        final NegativeLookup negativeLookup = this.negativeLookups.get(key);
+        if (negativeLookup != null)
+        {
+            if (negativeLookup.expiry > System.currentTimeMillis())
+            {
+                value = negativeLookup.value;
+            }
+            else
+            {
+                this.negativeLookups.remove(key, negativeLookup);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether an unexpired negative lookup is recorded for a key.
+     *
+     * @param key
+     *            the key
+     * @return {@code true} if a negative lookup is recorded, {@code false} otherwise
+     */
+    public boolean contains(final K key)
+    {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Records a negative lookup for a key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the sentinel value - as provided by the client of the cache, potentially wrapped in a transactional cache
+     *            {@link ValueHolder value holder} - to return for lookups of the key
+     */
+    public void put(final K key, final Object value)
+    {
+        ParameterCheck.mandatory("value", value);
+
+        final long expiry = this.timeToLiveMillis > 0 ? System.currentTimeMillis() + this.timeToLiveMillis : Long.MAX_VALUE;
+        if (this.negativeLookups.put(key, new NegativeLookup(value, expiry)) == null)
+        {
+            this.evictIfNecessary();
+        }
+    }
+
+    /**
+     * Removes any negative lookup recorded for a key.
+     *
+     * @param key
+     *            the key
+     */
+    public void remove(final K key)
+    {
+        this.negativeLookups.remove(key);
+    }
+
+    /**
+     * Removes all recorded negative lookups.
+     */
+    public void clear()
+    {
+        this.negativeLookups.clear();
+    }
+
+    /**
+     * @return a snapshot of the keys with recorded negative lookups, including any which have expired but not yet been removed
+     */
+    public Set<K> getKeys()
+    {
+        return new HashSet<>(this.negativeLookups.keySet());
+    }
+
+    /**
+     * @return the number of recorded negative lookups, including any which have expired but not yet been removed
+     */
+    public int size()
+    {
+        return this.negativeLookups.size();
+    }
+
+    protected void evictIfNecessary()
+    {
+        if (this.negativeLookups.size() > this.maxItems && this.evicting.compareAndSet(false, true))
+        {
+            try
+            {
+                final long now = System.currentTimeMillis();
+                // evict down to 95% in a single batch, preferring expired entries - map iteration order is effectively random
+                final int evictionCount = this.negativeLookups.size() - (this.maxItems - Math.max(1, this.maxItems / 20));
+                LOGGER.debug("Evicting {} negative lookups of cache {}", evictionCount, this.cacheName);
+
+                int evicted = 0;
+                final Iterator<NegativeLookup> negativeLookups = this.negativeLookups.values().iterator();
+                while (negativeLookups.hasNext())
+                {
+                    if (negativeLookups.next().expiry <= now)
+                    {
+                        negativeLookups.remove();
+                        evicted++;
+                    }
+                }
+
+                final Iterator<K> keys = this.negativeLookups.keySet().iterator();
+                for (; evicted < evictionCount && keys.hasNext(); evicted++)
+                {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+            finally
+            {
+                this.evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Instances of this class hold a single recorded negative lookup.
+     *
+     * @author Axel Faust
+     */
+    protected static class NegativeLookup
+    {
+
+        protected final Object value;
+
+        protected final long expiry;
+
+        protected NegativeLookup(final Object value, final long expiry)
+        {
+            this.value = value;
+            this.expiry = expiry;
+        }
+    }
+}
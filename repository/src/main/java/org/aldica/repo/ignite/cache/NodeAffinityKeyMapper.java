@@ -0,0 +1,138 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.lang.reflect.Field;
+
+import org.alfresco.repo.cache.TransactionalCache;
+import org.alfresco.repo.cache.lookup.CacheRegionKey;
+import org.alfresco.repo.domain.node.NodeVersionKey;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.affinity.AffinityKeyMapper;
+
+/**
+ * Instances of this class map the keys of node-centric caches to the ID of the node they relate to, so that entries of different caches
+ * for the same node are colocated on the same server in the data grid, provided the caches use the same affinity function. Keys which do
+ * not relate to a node are mapped to themselves, just as with the default mapping of Ignite.
+ *
+ * Keys are typically provided in their binary form, in which {@link NodeVersionKey node version keys} as well as
+ * {@link TransactionalCache.CacheRegionKey transactional cache region keys} and {@link CacheRegionKey entity lookup cache region keys}
+ * wrapping them expose the node ID as a top-level field, irrespective of the use of the raw serial form. The node ID is only retrieved via
+ * that field without deserialising or unwrapping the key, so that the mapping is identical to that of the companion app. Only keys provided
+ * in their deserialised form, e.g. via the affinity API, are unwrapped to determine the node ID.
+ *
+ * @author Axel Faust
+ */
+public class NodeAffinityKeyMapper implements AffinityKeyMapper
+{
+
+    private static final long serialVersionUID = 3954281853622367307L;
+
+    /**
+     * The name of the top-level field holding the ID of the node a key relates to in its binary form.
+     */
+    public static final String NODE_ID = "nodeId";
+
+    private static final String CACHE_KEY = "cacheKey";
+
+    // guard against pathological nesting of region keys
+    private static final int MAX_UNWRAP_DEPTH = 4;
+
+    private static final Field TXN_CACHE_KEY_FIELD;
+
+    private static final Field CACHE_KEY_FIELD;
+
+    static
+    {
+        try
+        {
+            TXN_CACHE_KEY_FIELD = TransactionalCache.CacheRegionKey.class.getDeclaredField(CACHE_KEY);
+            CACHE_KEY_FIELD = CacheRegionKey.class.getDeclaredField(CACHE_KEY);
+
+            TXN_CACHE_KEY_FIELD.setAccessible(true);
+            CACHE_KEY_FIELD.setAccessible(true);
+        }
+        catch (final NoSuchFieldException nsfe)
+        {
+            throw new RuntimeException("Failed to initialise reflective field accessors", nsfe);
+        }
+    }
+
+    /**
+     * Resolves the ID of the node a key in its deserialised form relates to by unwrapping any region keys.
+     *
+     * @param key
+     *            the key to resolve
+     * @return the ID of the node the key relates to, or {@code null} if the key does not relate to a node
+     */
+    public static Long resolveNodeId(final Object key)
+    {
+        Long nodeId = null;
+        Object currentKey = key;
+        for (int depth = 0; currentKey != null && nodeId == null && depth < MAX_UNWRAP_DEPTH; depth++)
+        {
+            if (currentKey instanceof NodeVersionKey)
+            {
+                nodeId = ((NodeVersionKey) currentKey).getNodeId();
+            }
+            else if (currentKey instanceof TransactionalCache.CacheRegionKey)
+            {
+                currentKey = readField(TXN_CACHE_KEY_FIELD, currentKey);
+            }
+            else if (currentKey instanceof CacheRegionKey)
+            {
+                currentKey = readField(CACHE_KEY_FIELD, currentKey);
+            }
+            else
+            {
+                currentKey = null;
+            }
+        }
+        return nodeId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object affinityKey(final Object key)
+    {
+        Object affinityKey = key;
+        if (key instanceof BinaryObject)
+        {
+            final BinaryObject binaryKey = (BinaryObject) key;
+            if (binaryKey.hasField(NODE_ID))
+            {
+                affinityKey = binaryKey.field(NODE_ID);
+            }
+        }
+        else
+        {
+            final Long nodeId = resolveNodeId(key);
+            affinityKey = nodeId != null ? nodeId : key;
+        }
+        return affinityKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        // NO-OP - stateless
+    }
+
+    protected static Object readField(final Field field, final Object key)
+    {
+        try
+        {
+            return field.get(key);
+        }
+        catch (final IllegalAccessException iae)
+        {
+            throw new IllegalStateException("Failed to retrieve cache key from region key", iae);
+        }
+    }
+}
@@ -3,8 +3,16 @@
  * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
 package org.aldica.repo.ignite.cache;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.alfresco.service.namespace.QName;
 import org.apache.ignite.marshaller.Marshaller;
@@ -13,6 +21,10 @@ import org.apache.ignite.marshaller.Marshaller;
  * Instances of this class are simply used to differentiate a node aspects set inside a cache from any regular set for the purpose of
  * {@link Marshaller marshalling}, and allows us to apply special serialisation handling based on this type.
  *
+ * Instances may be backed by a compact, immutable array of aspects instead of the regular entries of the set, avoiding the memory overhead
+ * of hash table entries for the - usually never modified - aspects of cached nodes. The aspects are transferred into the regular set on
+ * the first operation that mutates the set.
+ *
  * @author Axel Faust
  *
  */
@@ -21,6 +33,8 @@ public class NodeAspectsCacheSet extends HashSet<QName>
 
     private static final long serialVersionUID = -5207020576251149198L;
 
+    protected transient volatile QName[] compactAspects;
+
     /**
      * Creates a new empty instance.
      *
@@ -41,4 +55,316 @@ public class NodeAspectsCacheSet extends HashSet<QName>
         super(s);
     }
 
+    /**
+     * Creates a new instance backed by a compact array of aspects.
+     *
+     * @param compactAspects
+     *            the aspects - must not contain duplicates or {@code null} elements
+     * @return the new instance
+     */
+    public static NodeAspectsCacheSet compact(final QName[] compactAspects)
+    {
+        final NodeAspectsCacheSet set = new NodeAspectsCacheSet();
+        set.setCompactAspects(compactAspects);
+        return set;
+    }
+
+    /**
+     * Sets the compact array of aspects backing this instance. This operation is only intended to be used during construction or
+     * deserialisation of an instance.
+     *
+     * @param compactAspects
+     *            the aspects - must not contain duplicates or {@code null} elements
+     */
+    public void setCompactAspects(final QName[] compactAspects)
+    {
+        synchronized (this)
+        {
+            super.clear();
+            this.compactAspects = compactAspects;
+        }
+    }
+
+    /**
+     * Checks whether this instance is still backed by a compact array of aspects.
+     *
+     * @return {@code true} if this instance is backed by a compact array, {@code false} otherwise
+     */
+    public boolean isCompact()
+    {
+        return this.compactAspects != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        final QName[] compactAspects = this.compactAspects;
+        return compactAspects != null ? compactAspects.length : super.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final Object o)
+    {
+        final QName[] compactAspects = this.compactAspects;
+        boolean contains;
+        if (compactAspects != null)
+        {
+            contains = false;
+            for (int idx = 0; idx < compactAspects.length && !contains; idx++)
+            {
+                contains = compactAspects[idx].equals(o);
+            }
+        }
+        else
+        {
+            contains = super.contains(o);
+        }
+        return contains;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<QName> iterator()
+    {
+        final QName[] compactAspects = this.compactAspects;
+        return compactAspects != null ? new CompactIterator(compactAspects) : super.iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Spliterator<QName> spliterator()
+    {
+        final QName[] compactAspects = this.compactAspects;
+        return compactAspects != null ? Spliterators.spliterator(compactAspects, Spliterator.DISTINCT | Spliterator.NONNULL)
+                : super.spliterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEach(final Consumer<? super QName> action)
+    {
+        final QName[] compactAspects = this.compactAspects;
+        if (compactAspects != null)
+        {
+            for (final QName aspect : compactAspects)
+            {
+                action.accept(aspect);
+            }
+        }
+        else
+        {
+            super.forEach(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] toArray()
+    {
+        final QName[] compactAspects = this.compactAspects;
+        return compactAspects != null ? Arrays.copyOf(compactAspects, compactAspects.length, Object[].class) : super.toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T[] toArray(final T[] a)
+    {
+        final QName[] compactAspects = this.compactAspects;
+        return compactAspects != null ? Arrays.asList(compactAspects).toArray(a) : super.toArray(a);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final QName e)
+    {
+        this.materialise();
+        return super.add(e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(final Collection<? extends QName> c)
+    {
+        this.materialise();
+        return super.addAll(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object o)
+    {
+        this.materialise();
+        return super.remove(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c)
+    {
+        this.materialise();
+        return super.removeAll(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(final Collection<?> c)
+    {
+        this.materialise();
+        return super.retainAll(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super QName> filter)
+    {
+        this.materialise();
+        return super.removeIf(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        synchronized (this)
+        {
+            this.compactAspects = null;
+        }
+        super.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object clone()
+    {
+        this.materialise();
+        return super.clone();
+    }
+
+    /**
+     * Transfers the compact array of aspects into the regular set.
+     */
+    protected void materialise()
+    {
+        if (this.compactAspects != null)
+        {
+            synchronized (this)
+            {
+                final QName[] compactAspects = this.compactAspects;
+                if (compactAspects != null)
+                {
+                    for (final QName aspect : compactAspects)
+                    {
+                        super.add(aspect);
+                    }
+                    this.compactAspects = null;
+                }
+            }
+        }
+    }
+
+    private Object writeReplace()
+    {
+        // default serialisation of HashSet accesses internal state directly
+        this.materialise();
+        return this;
+    }
+
+    /**
+     * Instances of this class iterate over a compact array of aspects, transferring the aspects into the regular set if an element is
+     * removed via the iterator.
+     *
+     * @author Axel Faust
+     */
+    protected class CompactIterator implements Iterator<QName>
+    {
+
+        protected final QName[] aspects;
+
+        protected int nextIdx = 0;
+
+        protected boolean removable = false;
+
+        protected CompactIterator(final QName[] aspects)
+        {
+            this.aspects = aspects;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            return this.nextIdx < this.aspects.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public QName next()
+        {
+            if (this.nextIdx >= this.aspects.length)
+            {
+                throw new NoSuchElementException();
+            }
+            this.removable = true;
+            return this.aspects[this.nextIdx++];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove()
+        {
+            if (!this.removable)
+            {
+                throw new IllegalStateException();
+            }
+            this.removable = false;
+            NodeAspectsCacheSet.this.remove(this.aspects[this.nextIdx - 1]);
+        }
+    }
 }
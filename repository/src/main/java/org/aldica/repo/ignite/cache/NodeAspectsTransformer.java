@@ -42,7 +42,8 @@ public class NodeAspectsTransformer implements CacheValueTransformer<Serializabl
         {
             @SuppressWarnings("unchecked")
             final Set<QName> externalSet = (Set<QName>) cacheValue;
-            cacheValue = new NodeAspectsCacheSet(externalSet);
+            // cached aspects are practically never modified - use compact form for any (on-heap) copies of the cache value
+            cacheValue = NodeAspectsCacheSet.compact(externalSet.toArray(new QName[0]));
         }
         return cacheValue;
     }
@@ -4,8 +4,13 @@
 package org.aldica.repo.ignite.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.alfresco.service.namespace.QName;
 import org.apache.ignite.marshaller.Marshaller;
@@ -14,14 +19,60 @@ import org.apache.ignite.marshaller.Marshaller;
  * Instances of this class are simply used to differentiate a node properties map inside a cache from any regular map for the purpose of
  * {@link Marshaller marshalling}, and allows us to apply special serialisation handling based on this type.
  *
+ * When deserialised, instances may be backed by {@link LazyEntries lazily decoded entries} in addition to the regular entries of the map,
+ * so that lookups of individual properties only need to decode and resolve the values actually accessed. All lazy entries are decoded and
+ * transferred into the regular map on the first operation that iterates over or mutates the map.
+ *
  * @author Axel Faust
  *
  */
 public class NodePropertiesCacheMap extends HashMap<QName, Serializable>
 {
 
+    /**
+     * Instances of this interface provide access to entries of a node properties map which are only decoded when accessed.
+     *
+     * @author Axel Faust
+     */
+    public static interface LazyEntries
+    {
+
+        /**
+         * @return the number of lazy entries
+         */
+        int size();
+
+        /**
+         * Checks whether a lazy entry exists for a specific key.
+         *
+         * @param key
+         *            the key to check
+         * @return {@code true} if a lazy entry exists for the key, {@code false} otherwise
+         */
+        boolean containsKey(Object key);
+
+        /**
+         * Retrieves the (decoded) value of a lazy entry.
+         *
+         * @param key
+         *            the key of the entry to retrieve
+         * @return the value of the entry, or {@code null} if no lazy entry exists for the key
+         */
+        Serializable get(Object key);
+
+        /**
+         * Decodes all lazy entries.
+         *
+         * @param consumer
+         *            the consumer of the decoded entries
+         */
+        void materialise(BiConsumer<QName, Serializable> consumer);
+    }
+
     private static final long serialVersionUID = -5207020576251149198L;
 
+    protected transient volatile LazyEntries lazyEntries;
+
     /**
      * Creates a new empty instance.
      *
@@ -42,4 +93,325 @@ public class NodePropertiesCacheMap extends HashMap<QName, Serializable>
         super(m);
     }
 
+    /**
+     * Sets the lazily decoded entries of this instance. This operation is only intended to be used during deserialisation of an instance.
+     *
+     * @param lazyEntries
+     *            the lazy entries to set - keys of these entries must not overlap with the regular entries of this instance
+     */
+    public void setLazyEntries(final LazyEntries lazyEntries)
+    {
+        synchronized (this)
+        {
+            this.materialise();
+            this.lazyEntries = lazyEntries != null && lazyEntries.size() > 0 ? lazyEntries : null;
+        }
+    }
+
+    /**
+     * Checks whether this instance is still (partially) backed by lazily decoded entries.
+     *
+     * @return {@code true} if this instance contains entries which have not been decoded yet, {@code false} otherwise
+     */
+    public boolean isLazy()
+    {
+        return this.lazyEntries != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        if (this.lazyEntries != null)
+        {
+            synchronized (this)
+            {
+                if (this.lazyEntries != null)
+                {
+                    return super.size() + this.lazyEntries.size();
+                }
+            }
+        }
+        return super.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable get(final Object key)
+    {
+        if (this.lazyEntries != null)
+        {
+            synchronized (this)
+            {
+                if (this.lazyEntries != null)
+                {
+                    return super.containsKey(key) ? super.get(key) : this.lazyEntries.get(key);
+                }
+            }
+        }
+        return super.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable getOrDefault(final Object key, final Serializable defaultValue)
+    {
+        return this.containsKey(key) ? this.get(key) : defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        if (this.lazyEntries != null)
+        {
+            synchronized (this)
+            {
+                if (this.lazyEntries != null)
+                {
+                    return super.containsKey(key) || this.lazyEntries.containsKey(key);
+                }
+            }
+        }
+        return super.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(final Object value)
+    {
+        this.materialise();
+        return super.containsValue(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable put(final QName key, final Serializable value)
+    {
+        this.materialise();
+        return super.put(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends QName, ? extends Serializable> m)
+    {
+        this.materialise();
+        super.putAll(m);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable putIfAbsent(final QName key, final Serializable value)
+    {
+        this.materialise();
+        return super.putIfAbsent(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable remove(final Object key)
+    {
+        this.materialise();
+        return super.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object key, final Object value)
+    {
+        this.materialise();
+        return super.remove(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean replace(final QName key, final Serializable oldValue, final Serializable newValue)
+    {
+        this.materialise();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable replace(final QName key, final Serializable value)
+    {
+        this.materialise();
+        return super.replace(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replaceAll(final BiFunction<? super QName, ? super Serializable, ? extends Serializable> function)
+    {
+        this.materialise();
+        super.replaceAll(function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable computeIfAbsent(final QName key, final Function<? super QName, ? extends Serializable> mappingFunction)
+    {
+        this.materialise();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable computeIfPresent(final QName key,
+            final BiFunction<? super QName, ? super Serializable, ? extends Serializable> remappingFunction)
+    {
+        this.materialise();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable compute(final QName key,
+            final BiFunction<? super QName, ? super Serializable, ? extends Serializable> remappingFunction)
+    {
+        this.materialise();
+        return super.compute(key, remappingFunction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable merge(final QName key, final Serializable value,
+            final BiFunction<? super Serializable, ? super Serializable, ? extends Serializable> remappingFunction)
+    {
+        this.materialise();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        synchronized (this)
+        {
+            this.lazyEntries = null;
+        }
+        super.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<QName> keySet()
+    {
+        this.materialise();
+        return super.keySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Serializable> values()
+    {
+        this.materialise();
+        return super.values();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Entry<QName, Serializable>> entrySet()
+    {
+        this.materialise();
+        return super.entrySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEach(final BiConsumer<? super QName, ? super Serializable> action)
+    {
+        this.materialise();
+        super.forEach(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object clone()
+    {
+        this.materialise();
+        return super.clone();
+    }
+
+    /**
+     * Decodes all lazily decoded entries and transfers them into the regular map.
+     */
+    protected void materialise()
+    {
+        if (this.lazyEntries != null)
+        {
+            synchronized (this)
+            {
+                final LazyEntries lazyEntries = this.lazyEntries;
+                if (lazyEntries != null)
+                {
+                    lazyEntries.materialise((key, value) -> super.put(key, value));
+                    this.lazyEntries = null;
+                }
+            }
+        }
+    }
+
+    private Object writeReplace()
+    {
+        // default serialisation of HashMap accesses internal state directly
+        this.materialise();
+        return this;
+    }
 }
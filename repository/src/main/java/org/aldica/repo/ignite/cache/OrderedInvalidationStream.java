@@ -0,0 +1,403 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.cluster.ClusterNode;
+import org.apache.ignite.events.DiscoveryEvent;
+import org.apache.ignite.events.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class send and receive invalidation messages for a specific cache as an ordered stream per pair of sending and
+ * receiving server. Every message is tagged with a sequence number, which is incremented for each message sent by the server to a specific
+ * receiving server. Receiving servers track the last sequence number received from each sending server, and treat any gap in the sequence
+ * as a loss of invalidations, which is resolved by clearing the local cache. The first message received from a sending server establishes
+ * the baseline for its sequence. Since sequences are maintained per receiving server, invalidations may be
+ * {@link KeyPresenceFilterTracker targeted} at only those servers that may hold an affected key without being mistaken for a loss.
+ * Sequence numbers are assigned under a lock, while messages are queued and sent outside of that lock by whichever thread currently drains
+ * the queue, retaining the order of sequence numbers without blocking other senders on network operations. Sequence state for servers
+ * leaving the grid is dropped upon the corresponding discovery events.
+ *
+ * @author Axel Faust
+ */
+public class OrderedInvalidationStream implements InvalidationSender
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedInvalidationStream.class);
+
+    protected final Ignite grid;
+
+    protected final String cacheName;
+
+    protected final String topic;
+
+    protected final Consumer<Object> invalidationHandler;
+
+    protected final Runnable clearHandler;
+
+    protected final Object sendLock = new Object();
+
+    protected final Map<UUID, Long> outboundSequences = new HashMap<>();
+
+    protected final Map<UUID, Long> inboundSequences = new HashMap<>();
+
+    protected final Queue<PendingMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+
+    protected final AtomicBoolean draining = new AtomicBoolean(false);
+
+    protected volatile KeyPresenceFilterTracker keyPresenceFilterTracker;
+
+    /**
+     * Creates a new instance of this class for a specific cache.
+     *
+     * @param grid
+     *            the grid via which to send and receive invalidation messages
+     * @param cacheName
+     *            the name of the cache
+     * @param invalidationHandler
+     *            the handler for single key invalidations received from other servers, which may be either plain keys or
+     *            {@link VersionedInvalidation versioned invalidations}
+     * @param clearHandler
+     *            the handler for requests to clear the cache, either received from other servers or resulting from a detected loss of
+     *            invalidations
+     */
+    public OrderedInvalidationStream(final Ignite grid, final String cacheName, final Consumer<Object> invalidationHandler,
+            final Runnable clearHandler)
+    {
+        ParameterCheck.mandatory("grid", grid);
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("invalidationHandler", invalidationHandler);
+        ParameterCheck.mandatory("clearHandler", clearHandler);
+
+        this.grid = grid;
+        this.cacheName = cacheName;
+        this.topic = cacheName + "-orderedInvalidate";
+        this.invalidationHandler = invalidationHandler;
+        this.clearHandler = clearHandler;
+
+        grid.message().localListen(this.topic, (uuid, msg) -> {
+            if (msg instanceof SequencedInvalidationMessage)
+            {
+                this.onMessage(uuid, (SequencedInvalidationMessage) msg);
+            }
+
+            // keep listening
+            return true;
+        });
+
+        grid.events().localListen((final DiscoveryEvent e) -> {
+            this.onNodeLeft(e.eventNode().id());
+
+            // keep listening
+            return true;
+        }, EventType.EVT_NODE_LEFT, EventType.EVT_NODE_FAILED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(final Serializable key)
+    {
+        this.sendTargeted(Collections.singletonList(key), false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendAll(final Collection<? extends Serializable> keys)
+    {
+        this.sendTargeted(keys, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendTo(final UUID nodeId, final Collection<? extends Serializable> keys)
+    {
+        final ClusterNode node = this.grid.cluster().node(nodeId);
+        if (node != null)
+        {
+            this.sendSequenced(Collections.singletonMap(node, new ArrayList<>(keys)), false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendClear()
+    {
+        final Map<ClusterNode, Serializable> payloadByNode = new LinkedHashMap<>();
+        this.grid.cluster().forServers().forRemotes().nodes().forEach(node -> payloadByNode.put(node, null));
+        this.sendSequenced(payloadByNode, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setKeyPresenceFilterTracker(final KeyPresenceFilterTracker keyPresenceFilterTracker)
+    {
+        this.keyPresenceFilterTracker = keyPresenceFilterTracker;
+        if (keyPresenceFilterTracker != null)
+        {
+            keyPresenceFilterTracker.setResendHandler(this::sendTo);
+        }
+    }
+
+    protected void sendTargeted(final Collection<? extends Serializable> keys, final boolean bulk)
+    {
+        final Collection<ClusterNode> remotes = this.grid.cluster().forServers().forRemotes().nodes();
+        final KeyPresenceFilterTracker keyPresenceFilterTracker = this.keyPresenceFilterTracker;
+
+        final Map<ClusterNode, Serializable> payloadByNode = new LinkedHashMap<>();
+        if (keyPresenceFilterTracker != null)
+        {
+            final Map<ClusterNode, List<Serializable>> invalidationsByNode = keyPresenceFilterTracker.distribute(remotes, keys);
+            invalidationsByNode.forEach((node, nodeKeys) -> payloadByNode.put(node,
+                    bulk ? new ArrayList<>(nodeKeys) : nodeKeys.get(0)));
+        }
+        else
+        {
+            final Serializable payload = bulk ? new ArrayList<>(keys) : keys.iterator().next();
+            remotes.forEach(node -> payloadByNode.put(node, payload));
+        }
+
+        this.sendSequenced(payloadByNode, false);
+    }
+
+    protected void sendSequenced(final Map<ClusterNode, ? extends Serializable> payloadByNode, final boolean clear)
+    {
+        if (payloadByNode.isEmpty())
+        {
+            LOGGER.debug("Not sending ordered invalidation message for cache {} as there are no (relevant) remote nodes", this.cacheName);
+        }
+        else
+        {
+            // sequence numbers must be queued in the order they are assigned
+            synchronized (this.sendLock)
+            {
+                payloadByNode.forEach((node, payload) -> {
+                    final long sequence = this.outboundSequences.merge(node.id(), Long.valueOf(1), Long::sum).longValue();
+                    this.pendingMessages.add(new PendingMessage(node, new SequencedInvalidationMessage(sequence, payload, clear)));
+                });
+            }
+
+            this.drainPendingMessages();
+        }
+    }
+
+    protected void drainPendingMessages()
+    {
+        // only one thread sends at a time to retain the order of sequence numbers - messages queued by other threads while a thread is
+        // sending are picked up by that thread, and re-checking the queue after releasing the flag ensures no message is left behind
+        while (!this.pendingMessages.isEmpty() && this.draining.compareAndSet(false, true))
+        {
+            try
+            {
+                PendingMessage pendingMessage;
+                while ((pendingMessage = this.pendingMessages.poll()) != null)
+                {
+                    final ClusterNode node = pendingMessage.getNode();
+                    final SequencedInvalidationMessage msg = pendingMessage.getMessage();
+                    LOGGER.debug("Sending ordered invalidation message {} for cache {} to {}", msg.getSequence(), this.cacheName,
+                            node.id());
+                    try
+                    {
+                        this.grid.message(this.grid.cluster().forNode(node)).sendOrdered(this.topic, msg, 0);
+                    }
+                    catch (final IgniteException ex)
+                    {
+                        // most likely the server has left the grid in the meantime
+                        LOGGER.debug("Failed to send ordered invalidation message {} for cache {} to {}", msg.getSequence(), this.cacheName,
+                                node.id(), ex);
+                    }
+                }
+            }
+            finally
+            {
+                this.draining.set(false);
+            }
+        }
+    }
+
+    protected void onNodeLeft(final UUID nodeId)
+    {
+        LOGGER.debug("Dropping ordered invalidation sequences of cache {} for {} which left the grid", this.cacheName, nodeId);
+        synchronized (this.sendLock)
+        {
+            this.outboundSequences.remove(nodeId);
+        }
+        synchronized (this.inboundSequences)
+        {
+            this.inboundSequences.remove(nodeId);
+        }
+    }
+
+    protected void onMessage(final UUID senderId, final SequencedInvalidationMessage msg)
+    {
+        final long sequence = msg.getSequence();
+        final Long previousSequence;
+        synchronized (this.inboundSequences)
+        {
+            previousSequence = this.inboundSequences.get(senderId);
+            if (previousSequence == null || previousSequence.longValue() < sequence)
+            {
+                this.inboundSequences.put(senderId, Long.valueOf(sequence));
+            }
+        }
+
+        if (previousSequence == null)
+        {
+            LOGGER.debug("Received first ordered invalidation message {} for cache {} from {}", sequence, this.cacheName, senderId);
+        }
+        else if (sequence > previousSequence.longValue() + 1)
+        {
+            LOGGER.info("Detected gap of {} invalidation messages for cache {} from {} - clearing local cache to resync",
+                    sequence - previousSequence.longValue() - 1, this.cacheName, senderId);
+            this.clearHandler.run();
+        }
+        else if (sequence <= previousSequence.longValue())
+        {
+            LOGGER.debug("Received out-of-order invalidation message {} for cache {} from {} after {}", sequence, this.cacheName, senderId,
+                    previousSequence);
+        }
+
+        if (msg.isClear())
+        {
+            this.clearHandler.run();
+        }
+        else if (msg.getPayload() instanceof Collection<?>)
+        {
+            ((Collection<?>) msg.getPayload()).forEach(this.invalidationHandler);
+        }
+        else if (msg.getPayload() != null)
+        {
+            this.invalidationHandler.accept(msg.getPayload());
+        }
+    }
+
+    /**
+     * Instances of this class represent a message which has been assigned a sequence number but not yet been sent to its recipient.
+     *
+     * @author Axel Faust
+     */
+    protected static class PendingMessage
+    {
+
+        protected final ClusterNode node;
+
+        protected final SequencedInvalidationMessage message;
+
+        protected PendingMessage(final ClusterNode node, final SequencedInvalidationMessage message)
+        {
+            this.node = node;
+            this.message = message;
+        }
+
+        /**
+         * @return the node
+         */
+        public ClusterNode getNode()
+        {
+            return this.node;
+        }
+
+        /**
+         * @return the message
+         */
+        public SequencedInvalidationMessage getMessage()
+        {
+            return this.message;
+        }
+    }
+
+    /**
+     * Instances of this class represent a single message in an ordered invalidation stream.
+     *
+     * @author Axel Faust
+     */
+    public static class SequencedInvalidationMessage implements Serializable
+    {
+
+        private static final long serialVersionUID = 2890157463016212474L;
+
+        protected final long sequence;
+
+        protected final Serializable payload;
+
+        protected final boolean clear;
+
+        /**
+         * Creates a new instance of this class.
+         *
+         * @param sequence
+         *            the sequence number of the message
+         * @param payload
+         *            the key or collection of keys to invalidate
+         * @param clear
+         *            {@code true} if the message requests the cache to be cleared
+         */
+        public SequencedInvalidationMessage(final long sequence, final Serializable payload, final boolean clear)
+        {
+            this.sequence = sequence;
+            this.payload = payload;
+            this.clear = clear;
+        }
+
+        /**
+         * @return the sequence
+         */
+        public long getSequence()
+        {
+            return this.sequence;
+        }
+
+        /**
+         * @return the payload
+         */
+        public Serializable getPayload()
+        {
+            return this.payload;
+        }
+
+        /**
+         * @return the clear
+         */
+        public boolean isClear()
+        {
+            return this.clear;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.cache.Cache;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.lang.IgniteClosure;
+
+/**
+ * Instances of this class provide a read-only view on the keys of a distributed cache. Keys are streamed from the servers in the data grid
+ * using paged {@link ScanQuery scan queries} whenever the view is iterated, so that neither the keys of the whole cache need to be held in
+ * memory at any one time, nor any values need to be transferred. Keys are only deserialised when they are consumed via an iterator.
+ *
+ * Iteration is weakly consistent, i.e. it reflects the state of the cache at some point at or since the creation of the iterator, and
+ * concurrent modifications do not cause any exceptions. Iterators should be fully consumed in order to release the resources associated
+ * with the underlying query as early as possible.
+ *
+ * @author Axel Faust
+ */
+public class ScanQueryKeyCollection<K> extends AbstractCollection<K>
+{
+
+    protected final IgniteCache<Object, Object> cache;
+
+    protected final int pageSize;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param cache
+     *            the cache for which to provide a view on its keys
+     * @param pageSize
+     *            the number of keys to transfer per page of the scan queries
+     */
+    public ScanQueryKeyCollection(final IgniteCache<?, ?> cache, final int pageSize)
+    {
+        ParameterCheck.mandatory("cache", cache);
+        if (pageSize <= 0)
+        {
+            throw new IllegalArgumentException("pageSize must be a positive integer");
+        }
+
+        this.cache = cache.<Object, Object> withKeepBinary();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<K> iterator()
+    {
+        final ScanQuery<Object, Object> query = new ScanQuery<>();
+        query.setPageSize(this.pageSize);
+
+        final QueryCursor<Object> cursor = this.cache.query(query, new KeyTransformer());
+        return new KeyIterator<>(cursor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return this.cache.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return this.cache.size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final Object o)
+    {
+        return o != null && this.cache.containsKey(o);
+    }
+
+    /**
+     * Instances of this class lazily deserialise the keys retrieved by a scan query, closing the query once all keys have been consumed.
+     *
+     * @author Axel Faust
+     */
+    protected static class KeyIterator<K> implements Iterator<K>
+    {
+
+        protected final QueryCursor<Object> cursor;
+
+        protected final Iterator<Object> cursorIterator;
+
+        protected boolean closed;
+
+        protected KeyIterator(final QueryCursor<Object> cursor)
+        {
+            this.cursor = cursor;
+            this.cursorIterator = cursor.iterator();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            final boolean hasNext = !this.closed && this.cursorIterator.hasNext();
+            if (!hasNext && !this.closed)
+            {
+                this.cursor.close();
+                this.closed = true;
+            }
+            return hasNext;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next()
+        {
+            if (!this.hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            final Object key = this.cursorIterator.next();
+            return key instanceof BinaryObject ? ((BinaryObject) key).deserialize() : (K) key;
+        }
+    }
+
+    /**
+     * Instances of this class reduce the entries of a scan query to their keys on the server executing the query, so that values are not
+     * transferred.
+     *
+     * @author Axel Faust
+     */
+    public static class KeyTransformer implements IgniteClosure<Cache.Entry<Object, Object>, Object>
+    {
+
+        private static final long serialVersionUID = -3052817104472935016L;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object apply(final Cache.Entry<Object, Object> entry)
+        {
+            return entry.getKey();
+        }
+    }
+}
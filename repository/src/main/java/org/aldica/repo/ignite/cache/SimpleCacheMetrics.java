@@ -3,21 +3,48 @@
  * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
 package org.aldica.repo.ignite.cache;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.alfresco.util.ParameterCheck;
 
 /**
+ * Instances of this class collect metrics for caches which do not provide any metrics of their own. All counters are striped to avoid
+ * contention between concurrent accesses.
+ *
  * @author Axel Faust
  */
 public class SimpleCacheMetrics implements CacheMetrics
 {
 
-    protected final AtomicLong cacheGets = new AtomicLong(0);
+    protected final LongAdder cacheGets = new LongAdder();
+
+    protected final LongAdder cacheHits = new LongAdder();
+
+    protected final LongAdder cacheMisses = new LongAdder();
 
-    protected final AtomicLong cacheHits = new AtomicLong(0);
+    protected final LongAdder cacheEvictions = new LongAdder();
 
-    protected final AtomicLong cacheMisses = new AtomicLong(0);
+    protected final CacheLatencies latencies;
+
+    /**
+     * Creates a new instance of this class with its own latency histograms.
+     */
+    public SimpleCacheMetrics()
+    {
+        this(new CacheLatencies());
+    }
 
-    protected final AtomicLong cacheEvictions = new AtomicLong(0);
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param latencies
+     *            the latency histograms of the cache
+     */
+    public SimpleCacheMetrics(final CacheLatencies latencies)
+    {
+        ParameterCheck.mandatory("latencies", latencies);
+        this.latencies = latencies;
+    }
 
     /**
      * {@inheritDoc}
@@ -25,7 +52,7 @@ public class SimpleCacheMetrics implements CacheMetrics
     @Override
     public long getCacheGets()
     {
-        return this.cacheGets.get();
+        return this.cacheGets.sum();
     }
 
     /**
@@ -34,7 +61,7 @@ public class SimpleCacheMetrics implements CacheMetrics
     @Override
     public long getCacheHits()
     {
-        return this.cacheHits.get();
+        return this.cacheHits.sum();
     }
 
     /**
@@ -55,7 +82,7 @@ public class SimpleCacheMetrics implements CacheMetrics
     @Override
     public long getCacheMisses()
     {
-        return this.cacheMisses.get();
+        return this.cacheMisses.sum();
     }
 
     /**
@@ -76,23 +103,59 @@ public class SimpleCacheMetrics implements CacheMetrics
     @Override
     public long getCacheEvictions()
     {
-        return this.cacheEvictions.get();
+        return this.cacheEvictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheGetLatencies()
+    {
+        return this.latencies.getGetLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCachePutLatencies()
+    {
+        return this.latencies.getPutLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheRemoveLatencies()
+    {
+        return this.latencies.getRemoveLatencies();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getCacheInvalidationLatencies()
+    {
+        return this.latencies.getInvalidationLatencies();
     }
 
     protected void recordHit()
     {
-        this.cacheGets.incrementAndGet();
-        this.cacheHits.incrementAndGet();
+        this.cacheGets.increment();
+        this.cacheHits.increment();
     }
 
     protected void recordMiss()
     {
-        this.cacheGets.incrementAndGet();
-        this.cacheMisses.incrementAndGet();
+        this.cacheGets.increment();
+        this.cacheMisses.increment();
     }
 
     protected void recordEviction()
     {
-        this.cacheEvictions.incrementAndGet();
+        this.cacheEvictions.increment();
     }
 }
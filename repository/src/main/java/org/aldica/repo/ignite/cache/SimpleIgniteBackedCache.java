@@ -4,20 +4,34 @@
 package org.aldica.repo.ignite.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
 
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
-import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.ParameterCheck;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
-import org.apache.ignite.Ignition;
+import org.apache.ignite.IgniteException;
 import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.CacheEntry;
+import org.apache.ignite.cache.CacheEntryProcessor;
 import org.apache.ignite.cache.CachePeekMode;
-import org.apache.ignite.cluster.ClusterGroup;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.configuration.CacheConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,7 +41,8 @@ import org.slf4j.LoggerFactory;
  *
  * @author Axel Faust
  */
-public class SimpleIgniteBackedCache<K extends Serializable, V> implements SimpleCache<K, V>, CacheWithMetrics
+public class SimpleIgniteBackedCache<K extends Serializable, V>
+        implements SimpleCache<K, V>, CacheWithMetrics, CacheWithBulkOperations<K, V>
 {
 
     /**
@@ -125,6 +140,29 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
 
     protected final String bulkInvalidationTopic;
 
+    protected final String clearTopic;
+
+    protected final TransactionalInvalidationCollector<K> invalidationCollector;
+
+    protected final InvalidationMessageDispatcher invalidationDispatcher;
+
+    protected final InvalidationSender invalidationSender;
+
+    protected final boolean nearCacheEnabled;
+
+    // Ignite metrics do not distinguish between hits / misses of the near cache and of the backing cache
+    protected final LongAdder nearCacheHits = new LongAdder();
+
+    protected final LongAdder nearCacheMisses = new LongAdder();
+
+    protected volatile int keyScanPageSize = ScanQuery.DFLT_PAGE_SIZE;
+
+    protected volatile DeserialisedValueMemo<K, V> valueMemo;
+
+    protected volatile NegativeLookupStore<K> negativeLookupStore;
+
+    protected final CacheLatencies latencies = new CacheLatencies();
+
     /**
      * Creates a simple Ignite-backed cache that is capable of communicating with other grid nodes that also host an instance of the same
      * underlying cache.
@@ -140,6 +178,32 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
      */
     public SimpleIgniteBackedCache(final Ignite grid, final Mode cacheMode, final IgniteCache<K, V> backingCache,
             final boolean allowSentinelsInBackingCache)
+    {
+        this(grid, cacheMode, backingCache, allowSentinelsInBackingCache, null, false);
+    }
+
+    /**
+     * Creates a simple Ignite-backed cache that is capable of communicating with other grid nodes that also host an instance of the same
+     * underlying cache.
+     *
+     * @param grid
+     *            the Ignite grid instance to use for communication
+     * @param cacheMode
+     *            the mode of operation for this cache instance
+     * @param backingCache
+     *            the low-level Ignite cache instance
+     * @param allowSentinelsInBackingCache
+     *            {@code true} if sentinels for dummy values (defined by {@link EntityLookupCache}) are allowed to be stored in the cache
+     * @param invalidationDispatcher
+     *            the dispatcher to use for asynchronously sending invalidation messages - if {@code null}, messages will be sent
+     *            synchronously
+     * @param orderedInvalidation
+     *            {@code true} if invalidation messages should be sent as an {@link OrderedInvalidationStream ordered stream} which allows
+     *            other grid nodes to detect lost messages, {@code false} otherwise
+     */
+    public SimpleIgniteBackedCache(final Ignite grid, final Mode cacheMode, final IgniteCache<K, V> backingCache,
+            final boolean allowSentinelsInBackingCache, final InvalidationMessageDispatcher invalidationDispatcher,
+            final boolean orderedInvalidation)
     {
         ParameterCheck.mandatory("grid", grid);
         ParameterCheck.mandatory("cacheMode", cacheMode);
@@ -152,16 +216,22 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
         this.allowSentinelsInBackingCache = allowSentinelsInBackingCache;
         this.invalidationTopic = this.cacheName + "-invalidate";
         this.bulkInvalidationTopic = this.cacheName + "-bulkInvalidate";
+        this.clearTopic = this.cacheName + "-clear";
+        this.invalidationDispatcher = invalidationDispatcher;
+        @SuppressWarnings("unchecked")
+        final CacheConfiguration<K, V> cacheConfig = backingCache.getConfiguration(CacheConfiguration.class);
+        this.nearCacheEnabled = cacheConfig.getNearConfiguration() != null;
 
         this.instanceLogger = LoggerFactory.getLogger(this.getClass().getName() + "." + this.cacheName);
+        CacheLatencies.register(grid.name(), this.cacheName, this.latencies);
 
         if (cacheMode.isHandleInvalidations())
         {
+            this.invalidationCollector = new TransactionalInvalidationCollector<>(this.cacheName, this::invalidateAll);
+
             grid.message().localListen(this.invalidationTopic, (uuid, key) -> {
                 this.instanceLogger.debug("Received invalidation message for {}", key);
-                @SuppressWarnings("unchecked")
-                final K typedKey = (K) key;
-                this.backingCache.remove(typedKey);
+                this.handleRemoteInvalidation(key);
 
                 // keep listening
                 return true;
@@ -171,15 +241,33 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
                 this.instanceLogger.debug("Received bulk invalidation message for {}", col);
                 if (col instanceof Collection<?>)
                 {
-                    @SuppressWarnings("unchecked")
-                    final Collection<K> keyCollection = (Collection<K>) col;
-                    keyCollection.forEach(key -> {
-                        this.backingCache.remove(key);
-                    });
+                    ((Collection<?>) col).forEach(this::handleRemoteInvalidation);
                 }
                 // keep listening
                 return true;
             });
+
+            grid.message().localListen(this.clearTopic, (uuid, flag) -> {
+                this.instanceLogger.debug("Received message to clear cache");
+                this.handleRemoteClear();
+
+                // keep listening
+                return true;
+            });
+        }
+        else
+        {
+            this.invalidationCollector = null;
+        }
+
+        if (cacheMode.isHandleInvalidations() && orderedInvalidation)
+        {
+            this.invalidationSender = new OrderedInvalidationStream(grid, this.cacheName, this::handleRemoteInvalidation,
+                    this::handleRemoteClear);
+        }
+        else
+        {
+            this.invalidationSender = new TopicInvalidationSender(grid, this.cacheName);
         }
     }
 
@@ -192,7 +280,9 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     {
         this.instanceLogger.debug("Checking for containment of {}", key);
 
-        final boolean containsKey = this.backingCache.containsKey(key);
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final boolean containsKey = this.backingCache.containsKey(key)
+                || (negativeLookupStore != null && negativeLookupStore.contains(key));
 
         this.instanceLogger.debug("Cache contains key {}: {}", key, containsKey);
 
@@ -206,11 +296,12 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     @Override
     public Collection<K> getKeys()
     {
-        this.instanceLogger.debug("Retrieving all (local) keys");
-
-        final Collection<K> keys = new LinkedHashSet<>();
+        final Collection<K> keys;
         if (this.cacheMode.isConsideredFullCache())
         {
+            this.instanceLogger.debug("Retrieving all (local) keys");
+
+            keys = new LinkedHashSet<>();
             // local lookup is sufficient for local / replicated cache
             // use withKeepBinary to avoid unnecessary deseralisation of values
             final IgniteCache<K, ?> cache = this.backingCache.withKeepBinary();
@@ -222,37 +313,28 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
                 }
                 keys.add(key);
             });
-        }
-        else
-        {
-            // partitioned cache collects all keys from all instances
-            final ClusterGroup cacheNodes = this.grid.cluster().forCacheNodes(this.cacheName);
-
-            final Collection<Collection<K>> allCacheKeys = this.grid.compute(cacheNodes).broadcast(() -> {
-                final Collection<K> localKeys = new LinkedHashSet<>();
-                // use withKeepBinary to avoid unnecessary deseralisation of values
-                final IgniteCache<K, V> cache = Ignition.localIgnite().<K, V> getOrCreateCache(this.cacheName).withKeepBinary();
-                cache.localEntries(CachePeekMode.ALL).forEach(entry -> {
-                    K key = entry.getKey();
-                    if (key instanceof BinaryObject)
-                    {
-                        key = ((BinaryObject) key).deserialize();
-                    }
-                    localKeys.add(key);
-                });
-                return localKeys;
-            });
 
-            allCacheKeys.forEach(singleCacheKeys -> keys.addAll(singleCacheKeys));
-        }
+            final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+            if (negativeLookupStore != null)
+            {
+                keys.addAll(negativeLookupStore.getKeys());
+            }
 
-        if (this.instanceLogger.isTraceEnabled())
-        {
-            this.instanceLogger.trace("Retrieved (local) keys {}", keys);
+            if (this.instanceLogger.isTraceEnabled())
+            {
+                this.instanceLogger.trace("Retrieved (local) keys {}", keys);
+            }
+            else
+            {
+                this.instanceLogger.debug("Retrieved {} (local) keys", keys.size());
+            }
         }
         else
         {
-            this.instanceLogger.debug("Retrieved {} (local) keys", keys.size());
+            this.instanceLogger.debug("Providing streaming view on all keys");
+
+            // partitioned cache may hold too many keys to collect them all in memory
+            keys = new ScanQueryKeyCollection<>(this.backingCache, this.keyScanPageSize);
         }
 
         return keys;
@@ -265,11 +347,23 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     @Override
     public V get(final K key)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Getting value for key {}", key);
 
-        final V value = this.getImpl(key);
+        if (this.invalidationCollector != null)
+        {
+            // most puts occur during post-commit handling of TransactionalCache, so we need to bind early
+            this.invalidationCollector.bindToTransaction();
+        }
+
+        V value = this.getImpl(key);
+        if (value == null)
+        {
+            value = this.getNegativeLookup(key);
+        }
 
         this.instanceLogger.debug("Retrieved value {} for key {}", value, key);
+        this.latencies.recordGet(startNanos);
 
         return value;
     }
@@ -281,6 +375,7 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     @Override
     public void put(final K key, final V value)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Putting value {} into cache with key {}", value, key);
 
         if (!this.informedUnserializableValueType && value != null && !(value instanceof Serializable))
@@ -297,6 +392,9 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
             effectiveValue = ((ValueHolder<?>) effectiveValue).getValue();
         }
 
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final boolean sentinel = VALUE_NOT_FOUND.equals(effectiveValue) || VALUE_NULL.equals(effectiveValue);
+
         boolean invalidate = this.cacheMode.isAlwaysInvalidateOnPut();
         if (value == null)
         {
@@ -304,7 +402,13 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
 
             invalidate = this.backingCache.remove(key) || invalidate;
         }
-        else if (!this.allowSentinelsInBackingCache && (VALUE_NOT_FOUND.equals(effectiveValue) || VALUE_NULL.equals(effectiveValue)))
+        else if (sentinel && negativeLookupStore != null)
+        {
+            this.instanceLogger.debug("Call to put with sentinel-value for key {} will be recorded as a local negative lookup", key);
+
+            invalidate = this.backingCache.remove(key) || invalidate;
+        }
+        else if (!this.allowSentinelsInBackingCache && sentinel)
         {
             this.instanceLogger.debug(
                     "Call to put with sentinel-value for key {} will be treated as a remove as sentinel values are not allowed in backing cache",
@@ -312,17 +416,35 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
 
             invalidate = this.backingCache.remove(key) || invalidate;
         }
+        else if (this.cacheMode.isHandleInvalidations() && !invalidate)
+        {
+            invalidate = this.putIfChangedImpl(key, value);
+        }
         else
         {
-            final V oldValue = this.getAndPutImpl(key, value);
-            invalidate = invalidate
-                    || (this.cacheMode.isHandleInvalidations() && oldValue != null && !EqualsHelper.nullSafeEquals(oldValue, value));
+            // no need to determine any change
+            this.backingCache.put(key, value);
+        }
+
+        this.forgetDeserialisedValue(key);
+        if (negativeLookupStore != null)
+        {
+            if (sentinel)
+            {
+                negativeLookupStore.put(key, value);
+            }
+            else
+            {
+                negativeLookupStore.remove(key);
+            }
         }
 
         if (this.cacheMode.isHandleInvalidations() && invalidate)
         {
-            this.sendInvalidationMessage(this.invalidationTopic, key);
+            this.invalidate(key);
         }
+
+        this.latencies.recordPut(startNanos);
     }
 
     /**
@@ -332,9 +454,20 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     @Override
     public void remove(final K key)
     {
+        final long startNanos = System.nanoTime();
         this.instanceLogger.debug("Removing value for key {}", key);
 
         this.backingCache.remove(key);
+        this.forgetDeserialisedValue(key);
+        this.forgetNegativeLookup(key);
+
+        // explicit removals always need to be propagated, irrespective of local state
+        if (this.cacheMode.isHandleInvalidations())
+        {
+            this.invalidate(key);
+        }
+
+        this.latencies.recordRemove(startNanos);
     }
 
     /**
@@ -347,6 +480,177 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
         this.instanceLogger.debug("Clearing all data");
 
         this.backingCache.clear();
+        this.forgetAllDeserialisedValues();
+        this.forgetAllNegativeLookups();
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Getting values for {} keys", keys.size());
+
+        if (this.invalidationCollector != null)
+        {
+            // most puts occur during post-commit handling of TransactionalCache, so we need to bind early
+            this.invalidationCollector.bindToTransaction();
+        }
+
+        final Map<K, V> values = keys.isEmpty() ? new HashMap<>() : this.getAllImpl(new LinkedHashSet<>(keys));
+        if (this.negativeLookupStore != null && values.size() < keys.size())
+        {
+            keys.forEach(key -> {
+                if (!values.containsKey(key))
+                {
+                    final V negativeLookup = this.getNegativeLookup(key);
+                    if (negativeLookup != null)
+                    {
+                        values.put(key, negativeLookup);
+                    }
+                }
+            });
+        }
+
+        this.instanceLogger.debug("Retrieved {} values for {} keys", values.size(), keys.size());
+        this.latencies.recordGet(startNanos);
+
+        return values;
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Putting {} entries into cache", entries.size());
+
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        final Map<K, V> putEntries = new LinkedHashMap<>();
+        final Set<K> removeKeys = new LinkedHashSet<>();
+        final Map<K, V> negativeLookups = new LinkedHashMap<>();
+        entries.forEach((key, value) -> {
+            // TransactionalCache always wraps values in holder
+            // need effective value for sentinel check
+            final Object effectiveValue = value instanceof ValueHolder ? ((ValueHolder<?>) value).getValue() : value;
+            final boolean sentinel = VALUE_NOT_FOUND.equals(effectiveValue) || VALUE_NULL.equals(effectiveValue);
+            if (value != null && sentinel && negativeLookupStore != null)
+            {
+                removeKeys.add(key);
+                negativeLookups.put(key, value);
+            }
+            else if (value == null || (!this.allowSentinelsInBackingCache && sentinel))
+            {
+                removeKeys.add(key);
+            }
+            else
+            {
+                if (!this.informedUnserializableValueType && !(value instanceof Serializable))
+                {
+                    this.instanceLogger.info("Value type {} is not implementing serializable", value.getClass(), new Exception());
+                    this.informedUnserializableValueType = true;
+                }
+                putEntries.put(key, value);
+            }
+        });
+
+        final Collection<K> invalidatedKeys = new ArrayList<>();
+        if (!removeKeys.isEmpty())
+        {
+            this.instanceLogger.debug("Call to putAll with null- or sentinel-values for keys {} will be treated as a removal", removeKeys);
+
+            this.backingCache.removeAll(removeKeys);
+            // no bulk variant to determine which keys were actually removed, so always invalidate
+            invalidatedKeys.addAll(removeKeys);
+        }
+
+        if (!putEntries.isEmpty())
+        {
+            if (this.cacheMode.isHandleInvalidations() && !this.cacheMode.isAlwaysInvalidateOnPut())
+            {
+                invalidatedKeys.addAll(this.putAllIfChangedImpl(putEntries));
+            }
+            else
+            {
+                this.backingCache.putAll(putEntries);
+                invalidatedKeys.addAll(putEntries.keySet());
+            }
+        }
+
+        removeKeys.forEach(this::forgetDeserialisedValue);
+        putEntries.keySet().forEach(this::forgetDeserialisedValue);
+        if (negativeLookupStore != null)
+        {
+            removeKeys.forEach(negativeLookupStore::remove);
+            putEntries.keySet().forEach(negativeLookupStore::remove);
+            negativeLookups.forEach(negativeLookupStore::put);
+        }
+
+        if (this.cacheMode.isHandleInvalidations() && !invalidatedKeys.isEmpty())
+        {
+            this.invalidateBulk(invalidatedKeys);
+        }
+
+        this.latencies.recordPut(startNanos);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(final Collection<? extends K> keys)
+    {
+        final long startNanos = System.nanoTime();
+        this.instanceLogger.debug("Removing values for {} keys", keys.size());
+
+        if (!keys.isEmpty())
+        {
+            final Set<K> keySet = new LinkedHashSet<>(keys);
+            this.backingCache.removeAll(keySet);
+            keySet.forEach(this::forgetDeserialisedValue);
+            keySet.forEach(this::forgetNegativeLookup);
+
+            // explicit removals always need to be propagated, irrespective of local state
+            if (this.cacheMode.isHandleInvalidations())
+            {
+                this.invalidateBulk(keySet);
+            }
+        }
+
+        this.latencies.recordRemove(startNanos);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetch(final Collection<? extends K> keys)
+    {
+        // only a near cache constitutes a local tier to prefetch into - other modes hold all data locally or none at all
+        if (this.nearCacheEnabled && !keys.isEmpty())
+        {
+            this.instanceLogger.debug("Prefetching values for {} keys", keys.size());
+
+            // using withKeepBinary avoids any deserialisation, which is not needed to populate the near cache
+            this.backingCache.withKeepBinary().getAllAsync(new LinkedHashSet<>(keys)).listen(future -> {
+                try
+                {
+                    future.get();
+                }
+                catch (final IgniteException ex)
+                {
+                    this.instanceLogger.debug("Failed to prefetch values", ex);
+                }
+            });
+        }
     }
 
     /**
@@ -355,7 +659,7 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
     @Override
     public CacheMetrics getMetrics()
     {
-        final IgniteBackedCacheMetrics metrics = new IgniteBackedCacheMetrics(this.backingCache);
+        final IgniteBackedCacheMetrics metrics = new IgniteBackedCacheMetrics(this.backingCache, this.latencies);
         return metrics;
     }
 
@@ -377,6 +681,96 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
         return this.backingCache.localSize();
     }
 
+    /**
+     * Retrieves the number of lookups of single or multiple keys in this cache that could be served by the near cache of this server.
+     *
+     * @return the number of near cache hits, or {@code 0} if no near cache is enabled
+     */
+    public long getNearCacheHits()
+    {
+        return this.nearCacheHits.sum();
+    }
+
+    /**
+     * Retrieves the number of lookups of single or multiple keys in this cache that could neither be served by the near cache of this
+     * server, nor by entries held by this server as a primary or backup.
+     *
+     * @return the number of near cache misses, or {@code 0} if no near cache is enabled
+     */
+    public long getNearCacheMisses()
+    {
+        return this.nearCacheMisses.sum();
+    }
+
+    /**
+     * Sets the number of keys to transfer per page when {@link #getKeys() iterating} over the keys of a partitioned cache.
+     *
+     * @param keyScanPageSize
+     *            the page size to set
+     */
+    public void setKeyScanPageSize(final int keyScanPageSize)
+    {
+        if (keyScanPageSize <= 0)
+        {
+            throw new IllegalArgumentException("keyScanPageSize must be a positive integer");
+        }
+        this.keyScanPageSize = keyScanPageSize;
+    }
+
+    /**
+     * Sets the memo of deserialised values to use for avoiding repeated deserialisation of unchanged entries. A memo should only be set if
+     * values of this cache are not modified by callers, as the same value instance may be returned for multiple reads.
+     *
+     * @param valueMemo
+     *            the memo to use, or {@code null} to deserialise values on every read
+     */
+    public void setValueMemo(final DeserialisedValueMemo<K, V> valueMemo)
+    {
+        this.valueMemo = valueMemo;
+    }
+
+    /**
+     * Sets the store of negative lookups to use for recording {@link EntityLookupCache} sentinel values locally instead of in the backing
+     * cache. A store can only be set in the {@link Mode#LOCAL} and {@link Mode#LOCAL_INVALIDATING} modes, in which the backing cache is
+     * local to the server and values put / removed on other servers are either not shared at all or always result in an invalidation. In
+     * all other modes, a negative lookup recorded by one server would not be dropped when the entity is subsequently created via another
+     * server, and would resurface as soon as the value is evicted from or expires in the shared backing cache.
+     *
+     * @param negativeLookupStore
+     *            the store to use, or {@code null} to handle sentinel values like any other value
+     */
+    public void setNegativeLookupStore(final NegativeLookupStore<K> negativeLookupStore)
+    {
+        if (negativeLookupStore != null && !isNegativeLookupStoreSupported(this.cacheMode))
+        {
+            throw new IllegalStateException("Negative lookups cannot be stored locally in mode " + this.cacheMode);
+        }
+        this.negativeLookupStore = negativeLookupStore;
+    }
+
+    /**
+     * Checks whether a {@link #setNegativeLookupStore(NegativeLookupStore) store of negative lookups} can be used in a specific mode.
+     *
+     * @param cacheMode
+     *            the mode to check
+     * @return {@code true} if a store of negative lookups can be used, {@code false} otherwise
+     */
+    public static boolean isNegativeLookupStoreSupported(final Mode cacheMode)
+    {
+        return cacheMode == Mode.LOCAL || cacheMode == Mode.LOCAL_INVALIDATING;
+    }
+
+    /**
+     * Sets the tracker of key presence filters to use for only sending invalidations to servers that may hold an affected key.
+     *
+     * @param keyPresenceFilterTracker
+     *            the tracker to use, or {@code null} to send all invalidations to all servers
+     */
+    public void setKeyPresenceFilterTracker(final KeyPresenceFilterTracker keyPresenceFilterTracker)
+    {
+        this.invalidationSender.setKeyPresenceFilterTracker(keyPresenceFilterTracker);
+    }
+
     /**
      * Performs the actual retrieval of a single value from the backing cache.
      *
@@ -390,64 +784,383 @@ public class SimpleIgniteBackedCache<K extends Serializable, V> implements Simpl
         // using withKeepBinary avoids and deserialisation happening in Ignite async threads, which might potentially block them with
         // cascading lookups due to serialisation optimisations
         final IgniteCache<K, Object> cache = this.backingCache.withKeepBinary();
-        final Object cacheValue = cache.get(key);
+        final DeserialisedValueMemo<K, V> valueMemo = this.valueMemo;
+
+        if (this.nearCacheEnabled)
+        {
+            this.recordNearCacheAccess(cache, key);
+        }
 
         final V value;
+        if (valueMemo != null)
+        {
+            // need entry version to check validity of memorised value
+            final CacheEntry<K, Object> cacheEntry = cache.getEntry(key);
+            value = cacheEntry != null ? this.deserialiseMemoised(valueMemo, key, cacheEntry) : null;
+        }
+        else
+        {
+            final Object cacheValue = cache.get(key);
+            if (cacheValue instanceof BinaryObject)
+            {
+                value = ((BinaryObject) cacheValue).deserialize();
+            }
+            else
+            {
+                value = (V) cacheValue;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Performs the actual retrieval of multiple values from the backing cache.
+     *
+     * @param keys
+     *            the keys to use in the lookup
+     * @return the resolved values, not containing any entries for keys without a value
+     */
+    protected Map<K, V> getAllImpl(final Set<K> keys)
+    {
+        // using withKeepBinary avoids and deserialisation happening in Ignite async threads, which might potentially block them with
+        // cascading lookups due to serialisation optimisations
+        final IgniteCache<Object, Object> cache = this.backingCache.<Object, Object> withKeepBinary();
+        final DeserialisedValueMemo<K, V> valueMemo = this.valueMemo;
+
+        if (this.nearCacheEnabled)
+        {
+            keys.forEach(key -> this.recordNearCacheAccess(cache, key));
+        }
+
+        final Map<K, V> values;
+        if (valueMemo != null)
+        {
+            // need entry versions to check validity of memorised values
+            final Collection<CacheEntry<Object, Object>> cacheEntries = cache.getEntries(Collections.<Object> unmodifiableSet(keys));
+            values = new HashMap<>(Math.max(16, cacheEntries.size() * 4 / 3 + 1));
+            cacheEntries.forEach(cacheEntry -> {
+                final Object cacheKey = cacheEntry.getKey();
+                @SuppressWarnings("unchecked")
+                final K key = cacheKey instanceof BinaryObject ? ((BinaryObject) cacheKey).deserialize() : (K) cacheKey;
+                values.put(key, this.deserialiseMemoised(valueMemo, key, cacheEntry));
+            });
+        }
+        else
+        {
+            final Map<Object, Object> cacheValues = cache.getAll(Collections.<Object> unmodifiableSet(keys));
+            values = this.deserialiseAll(cacheValues);
+        }
+        return values;
+    }
+
+    /**
+     * Records whether a lookup of a key can be served by the near cache of this server. Lookups of keys held by this server as a primary or
+     * backup are not recorded.
+     *
+     * @param cache
+     *            the backing cache in the binary view
+     * @param key
+     *            the key being looked up
+     */
+    protected <CK> void recordNearCacheAccess(final IgniteCache<CK, Object> cache, final CK key)
+    {
+        // peeking into the on-heap near cache is cheap compared to the remote call resulting from a miss
+        if (cache.localPeek(key, CachePeekMode.NEAR) != null)
+        {
+            this.nearCacheHits.increment();
+        }
+        // entries held by this server as primary / backup are never stored in the near cache, so no additional capacity could help
+        else if (cache.localPeek(key, CachePeekMode.PRIMARY, CachePeekMode.BACKUP) == null)
+        {
+            this.nearCacheMisses.increment();
+        }
+    }
+
+    /**
+     * Deserialises the value of an entry retrieved from the backing cache in its binary form, reusing the value memorised for the same
+     * version of the entry if available.
+     *
+     * @param valueMemo
+     *            the memo of deserialised values
+     * @param key
+     *            the key of the entry
+     * @param cacheEntry
+     *            the entry retrieved from the backing cache
+     * @return the deserialised value
+     */
+    @SuppressWarnings("unchecked")
+    protected V deserialiseMemoised(final DeserialisedValueMemo<K, V> valueMemo, final K key, final CacheEntry<?, Object> cacheEntry)
+    {
+        final Object cacheValue = cacheEntry.getValue();
+
+        V value;
         if (cacheValue instanceof BinaryObject)
         {
-            value = ((BinaryObject) cacheValue).deserialize();
+            final Object version = cacheEntry.version();
+            value = valueMemo.get(key, version);
+            if (value == null)
+            {
+                value = ((BinaryObject) cacheValue).deserialize();
+                valueMemo.put(key, version, value);
+            }
         }
         else
         {
+            // not worth memorising as no deserialisation is involved
             value = (V) cacheValue;
         }
         return value;
     }
 
     /**
-     * Performs the actual retrieval and update of a single entry in the backing cache.
+     * Removes the memorised deserialised value of an entry, if a {@link #setValueMemo(DeserialisedValueMemo) memo} is used.
+     *
+     * @param key
+     *            the key of the entry
+     */
+    protected void forgetDeserialisedValue(final K key)
+    {
+        final DeserialisedValueMemo<K, V> valueMemo = this.valueMemo;
+        if (valueMemo != null)
+        {
+            valueMemo.remove(key);
+        }
+    }
+
+    /**
+     * Removes all memorised deserialised values, if a {@link #setValueMemo(DeserialisedValueMemo) memo} is used.
+     */
+    protected void forgetAllDeserialisedValues()
+    {
+        final DeserialisedValueMemo<K, V> valueMemo = this.valueMemo;
+        if (valueMemo != null)
+        {
+            valueMemo.clear();
+        }
+    }
+
+    /**
+     * Retrieves the negative lookup recorded for an entry, if a {@link #setNegativeLookupStore(NegativeLookupStore) store} is used.
+     *
+     * @param key
+     *            the key of the entry
+     * @return the sentinel value recorded for the entry, or {@code null} if no negative lookup has been recorded
+     */
+    @SuppressWarnings("unchecked")
+    protected V getNegativeLookup(final K key)
+    {
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        return negativeLookupStore != null ? (V) negativeLookupStore.get(key) : null;
+    }
+
+    /**
+     * Removes the negative lookup recorded for an entry, if a {@link #setNegativeLookupStore(NegativeLookupStore) store} is used.
+     *
+     * @param key
+     *            the key of the entry
+     */
+    protected void forgetNegativeLookup(final K key)
+    {
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        if (negativeLookupStore != null)
+        {
+            negativeLookupStore.remove(key);
+        }
+    }
+
+    /**
+     * Removes all recorded negative lookups, if a {@link #setNegativeLookupStore(NegativeLookupStore) store} is used.
+     */
+    protected void forgetAllNegativeLookups()
+    {
+        final NegativeLookupStore<K> negativeLookupStore = this.negativeLookupStore;
+        if (negativeLookupStore != null)
+        {
+            negativeLookupStore.clear();
+        }
+    }
+
+    /**
+     * Deserialises the keys and values of entries retrieved from the backing cache in their binary form.
+     *
+     * @param cacheValues
+     *            the entries retrieved from the backing cache
+     * @return the deserialised entries
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<K, V> deserialiseAll(final Map<Object, Object> cacheValues)
+    {
+        final Map<K, V> values = new HashMap<>(Math.max(16, cacheValues.size() * 4 / 3 + 1));
+        cacheValues.forEach((cacheKey, cacheValue) -> {
+            final K key = cacheKey instanceof BinaryObject ? ((BinaryObject) cacheKey).deserialize() : (K) cacheKey;
+            final V value = cacheValue instanceof BinaryObject ? ((BinaryObject) cacheValue).deserialize() : (V) cacheValue;
+            values.put(key, value);
+        });
+        return values;
+    }
+
+    /**
+     * Performs the actual update of a single entry in the backing cache, determining whether the update constitutes an effective change of
+     * an existing entry. The comparison is performed on the server holding the entry using the serialised form of the values, so neither
+     * the previous value needs to be transferred nor deserialised.
      *
      * @param key
      *            the key to use in the update
      * @param newValue
      *            the new value to store for the key
-     * @return the resolved previous value, may be {@code null} if no entry existed
+     * @return {@code true} if an entry existed for the key and its value has been changed, {@code false} otherwise
      */
-    @SuppressWarnings("unchecked")
-    protected V getAndPutImpl(final K key, final V newValue)
+    protected boolean putIfChangedImpl(final K key, final V newValue)
     {
-        // using withKeepBinary avoids and deserialisation happening in Ignite async threads, which might potentially block them with
-        // cascading lookups due to serialisation optimisations
         final IgniteCache<K, Object> cache = this.backingCache.withKeepBinary();
-        final Object cacheValue = cache.getAndPut(key, newValue);
+        final Boolean changed = cache.invoke(key, new PutIfChangedProcessor<>(this.grid.binary().toBinary(newValue)));
+        return Boolean.TRUE.equals(changed);
+    }
 
-        final V oldValue;
-        if (cacheValue instanceof BinaryObject)
+    /**
+     * Performs the actual update of multiple entries in the backing cache, determining which of the updates constitute an effective change
+     * of an existing entry.
+     *
+     * @param entries
+     *            the entries to store
+     * @return the keys of the entries which existed and have been changed
+     * @see #putIfChangedImpl(Serializable, Object)
+     */
+    protected Collection<K> putAllIfChangedImpl(final Map<K, V> entries)
+    {
+        final Map<K, PutIfChangedProcessor<K>> processors = new LinkedHashMap<>();
+        entries.forEach((key, value) -> processors.put(key, new PutIfChangedProcessor<>(this.grid.binary().toBinary(value))));
+
+        final IgniteCache<K, Object> cache = this.backingCache.withKeepBinary();
+        final Map<K, EntryProcessorResult<Boolean>> results = cache.invokeAll(processors);
+
+        final Collection<K> changedKeys = new ArrayList<>();
+        results.forEach((key, result) -> {
+            if (Boolean.TRUE.equals(result.get()))
+            {
+                changedKeys.add(key);
+            }
+        });
+        return changedKeys;
+    }
+
+    /**
+     * Handles a single invalidation received from another grid node.
+     *
+     * @param key
+     *            the key received
+     */
+    @SuppressWarnings("unchecked")
+    protected void handleRemoteInvalidation(final Object key)
+    {
+        this.backingCache.remove((K) key);
+        this.forgetDeserialisedValue((K) key);
+        this.forgetNegativeLookup((K) key);
+    }
+
+    /**
+     * Handles a request to clear the cache received from another grid node.
+     */
+    protected void handleRemoteClear()
+    {
+        this.backingCache.clear();
+        this.forgetAllDeserialisedValues();
+        this.forgetAllNegativeLookups();
+    }
+
+    /**
+     * Invalidates a single key on other grid nodes, either immediately or - if called within an active transaction - in bulk together with
+     * all other keys invalidated in the same transaction upon its completion.
+     *
+     * @param key
+     *            the key to invalidate
+     */
+    protected void invalidate(final K key)
+    {
+        if (!this.invalidationCollector.collect(key))
+        {
+            final long startNanos = System.nanoTime();
+            if (this.invalidationDispatcher != null)
+            {
+                this.invalidationDispatcher.enqueue(this.invalidationSender, Collections.singleton(key));
+            }
+            else
+            {
+                this.invalidationSender.send(key);
+            }
+            this.latencies.recordInvalidation(startNanos);
+        }
+    }
+
+    /**
+     * Invalidates a collection of keys on other grid nodes, either immediately or - if called within an active transaction - in bulk
+     * together with all other keys invalidated in the same transaction upon its completion.
+     *
+     * @param keys
+     *            the keys to invalidate
+     */
+    protected void invalidateBulk(final Collection<K> keys)
+    {
+        if (!this.invalidationCollector.collectAll(keys))
+        {
+            this.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Invalidates a collection of keys on other grid nodes.
+     *
+     * @param keys
+     *            the keys to invalidate
+     */
+    protected void invalidateAll(final Collection<K> keys)
+    {
+        final long startNanos = System.nanoTime();
+        if (this.invalidationDispatcher != null)
         {
-            oldValue = ((BinaryObject) cacheValue).deserialize();
+            this.invalidationDispatcher.enqueue(this.invalidationSender, keys);
         }
         else
         {
-            oldValue = (V) cacheValue;
+            this.invalidationSender.sendAll(keys);
         }
-        return oldValue;
+        this.latencies.recordInvalidation(startNanos);
     }
 
-    protected void sendInvalidationMessage(final String topic, final Object msg)
+    /**
+     * Instances of this processor put a new value into an entry and report whether this constitutes an effective change of an existing
+     * value. Values are compared in their serialised form, erring on the side of reporting a change if equal values could have different
+     * serialised forms.
+     *
+     * @author Axel Faust
+     */
+    public static class PutIfChangedProcessor<K> implements CacheEntryProcessor<K, Object, Boolean>
     {
-        final Object msgLogLabel = this.instanceLogger.isDebugEnabled()
-                ? (msg instanceof Collection<?> ? (((Collection<?>) msg).size() + " keys") : msg)
-                : null;
 
-        final ClusterGroup remotes = this.grid.cluster().forServers().forRemotes();
-        if (!remotes.nodes().isEmpty())
+        private static final long serialVersionUID = 6040211366052470781L;
+
+        protected final Object newValue;
+
+        /**
+         * Creates a new instance of this class.
+         *
+         * @param newValue
+         *            the new value - preferably in its binary form - to put into the entry
+         */
+        public PutIfChangedProcessor(final Object newValue)
         {
-            this.instanceLogger.debug("Sending remote message on topic {} for {}", topic, msgLogLabel);
-            this.grid.message(remotes).send(topic, msg);
+            this.newValue = newValue;
         }
-        else
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Boolean process(final MutableEntry<K, Object> entry, final Object... arguments) throws EntryProcessorException
         {
-            this.instanceLogger.debug("Not sending remote message on topic {} for {} as there are no remote nodes", topic, msgLogLabel);
+            final Object oldValue = entry.exists() ? entry.getValue() : null;
+            entry.setValue(this.newValue);
+            return Boolean.valueOf(oldValue != null && !Objects.deepEquals(oldValue, this.newValue));
         }
     }
 }
@@ -0,0 +1,803 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class provide a local, on-heap cache using the W-TinyLFU policy to decide which entries to retain when the limit on the
+ * number of entries is exceeded. New entries are first held in a small admission window managed in least recently used order. When they
+ * drop out of the window, they are only admitted into the main space of the cache if they have been accessed more frequently than the
+ * entry that would have to be evicted to make room for them, as estimated by a compact, periodically aged frequency sketch. The main space
+ * is segmented into a probation and a protected section, so that entries need to be accessed repeatedly to be protected from eviction.
+ *
+ * Reads never block or contend on a lock: accesses are recorded in striped, lossy buffers and only applied to the eviction policy in
+ * batches by whichever thread manages to acquire the maintenance lock, together with any buffered writes. Entries with a time-to-live or
+ * maximum idle time are tracked in a timer wheel so that they are removed proactively once expired instead of only when being accessed.
+ *
+ * @author Axel Faust
+ */
+public class TinyLfuLocalCache<K extends Serializable, V> extends ConcurrentLocalCache<K, V>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TinyLfuLocalCache.class);
+
+    protected static final int QUEUE_NONE = 0;
+
+    protected static final int QUEUE_WINDOW = 1;
+
+    protected static final int QUEUE_PROBATION = 2;
+
+    protected static final int QUEUE_PROTECTED = 3;
+
+    protected static final int READ_BUFFER_SIZE = 16;
+
+    protected static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    protected static final int MAX_READ_BUFFERS = 64;
+
+    protected static final int WRITE_BUFFER_THRESHOLD = 128;
+
+    protected static final int WHEEL_BUCKETS = 512;
+
+    protected static final long WHEEL_TICK_MILLIS = 1000;
+
+    protected final boolean bounded;
+
+    protected final boolean policyRequired;
+
+    protected final int windowMaxSize;
+
+    protected final int mainMaxSize;
+
+    protected final int protectedMaxSize;
+
+    protected final FrequencySketch sketch;
+
+    protected final ReadBuffer<Node<K, V>>[] readBuffers;
+
+    protected final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    protected final AtomicInteger pendingWrites = new AtomicInteger(0);
+
+    protected final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    // policy state is only accessed while holding the maintenance lock
+    protected final Node<K, V> windowHead = Node.newSentinel();
+
+    protected final Node<K, V> probationHead = Node.newSentinel();
+
+    protected final Node<K, V> protectedHead = Node.newSentinel();
+
+    protected final TimerWheel<K, V> timerWheel;
+
+    protected int windowSize;
+
+    protected int probationSize;
+
+    protected int protectedSize;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param cacheName
+     *            the name of the cache
+     * @param maxItems
+     *            the maximum number of entries to hold, or {@code 0} for an unbounded cache
+     * @param timeToLiveSeconds
+     *            the time in seconds after which an entry expires after it has been put, or {@code 0} if entries should not expire
+     * @param maxIdleSeconds
+     *            the time in seconds after which an entry expires after it has last been accessed, or {@code 0} if entries should not
+     *            expire
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLfuLocalCache(final String cacheName, final int maxItems, final int timeToLiveSeconds, final int maxIdleSeconds)
+    {
+        super(cacheName, maxItems, timeToLiveSeconds, maxIdleSeconds);
+
+        this.bounded = maxItems > 0;
+        this.windowMaxSize = Math.max(1, maxItems / 100);
+        this.mainMaxSize = Math.max(0, maxItems - this.windowMaxSize);
+        this.protectedMaxSize = this.mainMaxSize * 4 / 5;
+        this.sketch = this.bounded ? new FrequencySketch(maxItems) : null;
+        this.timerWheel = this.timeToLiveMillis > 0 || this.maxIdleMillis > 0 ? new TimerWheel<>() : null;
+        this.policyRequired = this.bounded || this.timerWheel != null;
+
+        final int bufferCount = this.policyRequired
+                ? Math.min(MAX_READ_BUFFERS, ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors()))
+                : 0;
+        this.readBuffers = new ReadBuffer[bufferCount];
+        for (int idx = 0; idx < bufferCount; idx++)
+        {
+            this.readBuffers[idx] = new ReadBuffer<>();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        if (!this.policyRequired)
+        {
+            super.clear();
+        }
+        else
+        {
+            this.maintenanceLock.lock();
+            try
+            {
+                this.performMaintenance();
+
+                // remove entries individually so that concurrently put entries are handled consistently by the policy
+                for (final Map.Entry<K, CacheEntry<V>> entry : this.entries.entrySet())
+                {
+                    if (this.entries.remove(entry.getKey(), entry.getValue()))
+                    {
+                        asNode(entry.getValue()).retired = true;
+                    }
+                }
+
+                this.windowSize = resetQueue(this.windowHead);
+                this.probationSize = resetQueue(this.probationHead);
+                this.protectedSize = resetQueue(this.protectedHead);
+                if (this.timerWheel != null)
+                {
+                    this.timerWheel.reset();
+                }
+            }
+            finally
+            {
+                this.maintenanceLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CacheEntry<V> newEntry(final K key, final V value, final long now)
+    {
+        return new Node<>(key, value, now);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void afterRead(final CacheEntry<V> entry)
+    {
+        if (this.policyRequired)
+        {
+            final int stripe = (int) mix(Thread.currentThread().getId()) & (this.readBuffers.length - 1);
+            if (!this.readBuffers[stripe].offer(asNode(entry)) || this.pendingWrites.get() > 0)
+            {
+                this.tryMaintenance();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void afterWrite(final K key, final CacheEntry<V> newEntry, final CacheEntry<V> oldEntry)
+    {
+        if (this.policyRequired)
+        {
+            final Node<K, V> newNode = asNode(newEntry);
+            final Node<K, V> oldNode = oldEntry != null ? asNode(oldEntry) : null;
+            if (oldNode != null)
+            {
+                oldNode.retired = true;
+            }
+
+            this.scheduleWrite(() -> {
+                if (oldNode != null)
+                {
+                    this.onRemove(oldNode);
+                }
+                this.onAdd(newNode);
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void afterRemoval(final K key, final CacheEntry<V> oldEntry)
+    {
+        if (this.policyRequired)
+        {
+            final Node<K, V> oldNode = asNode(oldEntry);
+            oldNode.retired = true;
+            this.scheduleWrite(() -> this.onRemove(oldNode));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void evictIfNecessary()
+    {
+        // NO-OP - eviction is handled by the policy as part of the maintenance
+    }
+
+    protected void scheduleWrite(final Runnable task)
+    {
+        this.writeBuffer.add(task);
+        if (this.pendingWrites.incrementAndGet() > WRITE_BUFFER_THRESHOLD)
+        {
+            // apply back-pressure so that writes cannot outpace the eviction
+            this.maintenanceLock.lock();
+            try
+            {
+                this.performMaintenance();
+            }
+            finally
+            {
+                this.maintenanceLock.unlock();
+            }
+        }
+        else
+        {
+            this.tryMaintenance();
+        }
+    }
+
+    protected void tryMaintenance()
+    {
+        if (this.maintenanceLock.tryLock())
+        {
+            try
+            {
+                this.performMaintenance();
+            }
+            finally
+            {
+                this.maintenanceLock.unlock();
+            }
+        }
+    }
+
+    protected void performMaintenance()
+    {
+        for (final ReadBuffer<Node<K, V>> readBuffer : this.readBuffers)
+        {
+            readBuffer.drainTo(this::onAccess);
+        }
+
+        Runnable task;
+        while ((task = this.writeBuffer.poll()) != null)
+        {
+            this.pendingWrites.decrementAndGet();
+            task.run();
+        }
+
+        if (this.timerWheel != null)
+        {
+            final long now = System.currentTimeMillis();
+            this.timerWheel.advance(now, node -> this.onTimerExpiry(node, now));
+        }
+    }
+
+    protected void onAdd(final Node<K, V> node)
+    {
+        // node may have been replaced / removed before its addition could be processed
+        if (!node.retired)
+        {
+            if (this.bounded)
+            {
+                this.sketch.increment(node.key.hashCode());
+
+                node.queue = QUEUE_WINDOW;
+                linkLast(this.windowHead, node);
+                this.windowSize++;
+
+                this.evictEntries();
+            }
+
+            // node may already have been rejected by the admission policy
+            if (!this.bounded || node.queue != QUEUE_NONE)
+            {
+                this.scheduleExpiry(node);
+            }
+        }
+    }
+
+    protected void onAccess(final Node<K, V> node)
+    {
+        if (this.bounded)
+        {
+            this.sketch.increment(node.key.hashCode());
+
+            switch (node.queue)
+            {
+                case QUEUE_WINDOW:
+                    unlink(node);
+                    linkLast(this.windowHead, node);
+                    break;
+                case QUEUE_PROBATION:
+                    unlink(node);
+                    this.probationSize--;
+                    node.queue = QUEUE_PROTECTED;
+                    linkLast(this.protectedHead, node);
+                    this.protectedSize++;
+                    this.demoteFromProtected();
+                    break;
+                case QUEUE_PROTECTED:
+                    unlink(node);
+                    linkLast(this.protectedHead, node);
+                    break;
+                default:
+                    // NO-OP - not (yet / anymore) managed by the policy
+            }
+        }
+    }
+
+    protected void onRemove(final Node<K, V> node)
+    {
+        this.unlinkFromPolicy(node);
+    }
+
+    protected void onTimerExpiry(final Node<K, V> node, final long now)
+    {
+        if (this.isExpired(node, now))
+        {
+            this.evict(node);
+        }
+        else
+        {
+            // idle time was extended by accesses since the entry has been scheduled
+            this.scheduleExpiry(node);
+        }
+    }
+
+    protected void scheduleExpiry(final Node<K, V> node)
+    {
+        if (this.timerWheel != null)
+        {
+            long expiry = Long.MAX_VALUE;
+            if (this.timeToLiveMillis > 0)
+            {
+                expiry = node.created + this.timeToLiveMillis;
+            }
+            if (this.maxIdleMillis > 0)
+            {
+                expiry = Math.min(expiry, node.lastAccess + this.maxIdleMillis);
+            }
+            this.timerWheel.schedule(node, expiry);
+        }
+    }
+
+    protected void evictEntries()
+    {
+        while (this.windowSize > this.windowMaxSize)
+        {
+            final Node<K, V> candidate = this.windowHead.next;
+            unlink(candidate);
+            this.windowSize--;
+
+            boolean admit = true;
+            if (this.probationSize + this.protectedSize >= this.mainMaxSize)
+            {
+                final Node<K, V> victim = this.probationSize > 0 ? this.probationHead.next
+                        : (this.protectedSize > 0 ? this.protectedHead.next : null);
+                admit = victim != null && this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode());
+                if (admit)
+                {
+                    this.evict(victim);
+                }
+            }
+
+            if (admit)
+            {
+                candidate.queue = QUEUE_PROBATION;
+                linkLast(this.probationHead, candidate);
+                this.probationSize++;
+            }
+            else
+            {
+                candidate.queue = QUEUE_NONE;
+                this.evict(candidate);
+            }
+        }
+    }
+
+    protected void demoteFromProtected()
+    {
+        while (this.protectedSize > this.protectedMaxSize)
+        {
+            final Node<K, V> node = this.protectedHead.next;
+            unlink(node);
+            this.protectedSize--;
+            node.queue = QUEUE_PROBATION;
+            linkLast(this.probationHead, node);
+            this.probationSize++;
+        }
+    }
+
+    protected void evict(final Node<K, V> node)
+    {
+        LOGGER.trace("Evicting entry for key {} from cache {}", node.key, this.cacheName);
+
+        this.unlinkFromPolicy(node);
+        // entry may already have been replaced / removed concurrently
+        if (this.entries.remove(node.key, node))
+        {
+            node.retired = true;
+        }
+    }
+
+    protected void unlinkFromPolicy(final Node<K, V> node)
+    {
+        switch (node.queue)
+        {
+            case QUEUE_WINDOW:
+                this.windowSize--;
+                break;
+            case QUEUE_PROBATION:
+                this.probationSize--;
+                break;
+            case QUEUE_PROTECTED:
+                this.protectedSize--;
+                break;
+            default:
+                // NO-OP
+        }
+
+        if (node.queue != QUEUE_NONE)
+        {
+            unlink(node);
+            node.queue = QUEUE_NONE;
+        }
+
+        if (this.timerWheel != null)
+        {
+            this.timerWheel.deschedule(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <K, V> Node<K, V> asNode(final CacheEntry<V> entry)
+    {
+        return (Node<K, V>) entry;
+    }
+
+    protected static <K, V> void linkLast(final Node<K, V> head, final Node<K, V> node)
+    {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    protected static <K, V> void unlink(final Node<K, V> node)
+    {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    protected static <K, V> int resetQueue(final Node<K, V> head)
+    {
+        Node<K, V> node = head.next;
+        while (node != head)
+        {
+            final Node<K, V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            node.queue = QUEUE_NONE;
+            node = next;
+        }
+        head.prev = head;
+        head.next = head;
+        return 0;
+    }
+
+    protected static long mix(final long value)
+    {
+        long x = value * 0x9E3779B97F4A7C15L;
+        x ^= x >>> 32;
+        return x ^ (x >>> 16);
+    }
+
+    protected static int ceilingPowerOfTwo(final int value)
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Instances of this class hold a single value in the cache together with the state required to manage it in the eviction policy.
+     *
+     * @author Axel Faust
+     */
+    protected static class Node<K, V> extends CacheEntry<V>
+    {
+
+        protected final K key;
+
+        protected volatile boolean retired;
+
+        // policy state is only accessed while holding the maintenance lock
+        protected int queue = QUEUE_NONE;
+
+        protected Node<K, V> prev;
+
+        protected Node<K, V> next;
+
+        protected long expiry;
+
+        protected Node<K, V> wheelPrev;
+
+        protected Node<K, V> wheelNext;
+
+        protected Node(final K key, final V value, final long created)
+        {
+            super(value, created);
+            this.key = key;
+        }
+
+        protected static <K, V> Node<K, V> newSentinel()
+        {
+            final Node<K, V> sentinel = new Node<>(null, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            sentinel.wheelPrev = sentinel;
+            sentinel.wheelNext = sentinel;
+            return sentinel;
+        }
+    }
+
+    /**
+     * Instances of this class estimate the access frequency of keys using a count-min sketch of 4-bit counters. All counters are halved
+     * periodically so that the estimates reflect recent usage and formerly popular keys can eventually be evicted.
+     *
+     * @author Axel Faust
+     */
+    protected static class FrequencySketch
+    {
+
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        protected final long[] table;
+
+        protected final int tableMask;
+
+        protected final int sampleSize;
+
+        protected int size;
+
+        protected FrequencySketch(final int maxItems)
+        {
+            // each slot of the table holds sixteen counters
+            this.table = new long[ceilingPowerOfTwo(Math.max(16, maxItems))];
+            this.tableMask = this.table.length - 1;
+            this.sampleSize = (int) Math.min(10L * maxItems, Integer.MAX_VALUE);
+        }
+
+        protected int frequency(final int hashCode)
+        {
+            final int item = spread(hashCode);
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++)
+            {
+                final int counter = (int) ((this.table[this.indexOf(item, i)] >>> offsetOf(item, i)) & 0xFL);
+                frequency = Math.min(frequency, counter);
+            }
+            return frequency;
+        }
+
+        protected void increment(final int hashCode)
+        {
+            final int item = spread(hashCode);
+            boolean incremented = false;
+            for (int i = 0; i < SEEDS.length; i++)
+            {
+                final int index = this.indexOf(item, i);
+                final int offset = offsetOf(item, i);
+                final long mask = 0xFL << offset;
+                if ((this.table[index] & mask) != mask)
+                {
+                    this.table[index] += 1L << offset;
+                    incremented = true;
+                }
+            }
+
+            if (incremented && ++this.size >= this.sampleSize)
+            {
+                this.reset();
+            }
+        }
+
+        protected void reset()
+        {
+            for (int idx = 0; idx < this.table.length; idx++)
+            {
+                this.table[idx] = (this.table[idx] >>> 1) & RESET_MASK;
+            }
+            this.size = this.size >>> 1;
+        }
+
+        protected int indexOf(final int item, final int i)
+        {
+            long hash = (item + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return ((int) hash) & this.tableMask;
+        }
+
+        protected static int offsetOf(final int item, final int i)
+        {
+            return ((item >>> (i << 3)) & 0xF) << 2;
+        }
+
+        protected static int spread(final int hashCode)
+        {
+            int x = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    /**
+     * Instances of this class buffer accesses recorded by concurrent readers without locking. Accesses are dropped when the buffer is full
+     * or contended, as the eviction policy does not require every single access to be recorded.
+     *
+     * @author Axel Faust
+     */
+    protected static class ReadBuffer<E>
+    {
+
+        protected final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+        protected final AtomicLong writeCounter = new AtomicLong(0);
+
+        // only modified by the thread holding the maintenance lock
+        protected volatile long readCounter;
+
+        /**
+         * Records an element in this buffer.
+         *
+         * @param element
+         *            the element to record
+         * @return {@code false} if the buffer is full and should be drained, {@code true} otherwise
+         */
+        protected boolean offer(final E element)
+        {
+            final long head = this.readCounter;
+            final long tail = this.writeCounter.get();
+            boolean offered = tail - head < READ_BUFFER_SIZE;
+            if (offered && this.writeCounter.compareAndSet(tail, tail + 1))
+            {
+                this.buffer.lazySet((int) (tail & READ_BUFFER_MASK), element);
+            }
+            return offered;
+        }
+
+        protected void drainTo(final Consumer<E> consumer)
+        {
+            long head = this.readCounter;
+            final long tail = this.writeCounter.get();
+            while (head < tail)
+            {
+                final int index = (int) (head & READ_BUFFER_MASK);
+                final E element = this.buffer.get(index);
+                if (element == null)
+                {
+                    // slot claimed but not yet published - continue with next drain
+                    break;
+                }
+                this.buffer.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            this.readCounter = head;
+        }
+    }
+
+    /**
+     * Instances of this class track the expiry of entries in a hashed wheel of buckets, each covering a fixed span of time. Entries
+     * scheduled for a time more than one revolution of the wheel in the future remain in their bucket until a later revolution.
+     *
+     * @author Axel Faust
+     */
+    protected static class TimerWheel<K, V>
+    {
+
+        @SuppressWarnings("unchecked")
+        protected final Node<K, V>[] buckets = new Node[WHEEL_BUCKETS];
+
+        protected long currentTick = System.currentTimeMillis() / WHEEL_TICK_MILLIS;
+
+        protected TimerWheel()
+        {
+            for (int idx = 0; idx < WHEEL_BUCKETS; idx++)
+            {
+                this.buckets[idx] = Node.newSentinel();
+            }
+        }
+
+        protected void schedule(final Node<K, V> node, final long expiry)
+        {
+            this.deschedule(node);
+
+            node.expiry = expiry;
+            final Node<K, V> bucket = this.buckets[(int) ((expiry / WHEEL_TICK_MILLIS) & (WHEEL_BUCKETS - 1))];
+            node.wheelPrev = bucket.wheelPrev;
+            node.wheelNext = bucket;
+            bucket.wheelPrev.wheelNext = node;
+            bucket.wheelPrev = node;
+        }
+
+        protected void deschedule(final Node<K, V> node)
+        {
+            if (node.wheelNext != null)
+            {
+                node.wheelPrev.wheelNext = node.wheelNext;
+                node.wheelNext.wheelPrev = node.wheelPrev;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+            }
+        }
+
+        protected void advance(final long now, final Consumer<Node<K, V>> expiryHandler)
+        {
+            final long targetTick = now / WHEEL_TICK_MILLIS;
+            // bucket of the current tick is processed again as it may contain entries due later in that tick
+            final long ticks = Math.min(targetTick - this.currentTick + 1, WHEEL_BUCKETS);
+            for (long tick = targetTick - ticks + 1; tick <= targetTick; tick++)
+            {
+                final Node<K, V> bucket = this.buckets[(int) (tick & (WHEEL_BUCKETS - 1))];
+                Node<K, V> node = bucket.wheelNext;
+                while (node != bucket)
+                {
+                    final Node<K, V> next = node.wheelNext;
+                    // strict comparison as entries are not considered expired at their exact expiry time
+                    if (node.expiry < now)
+                    {
+                        this.deschedule(node);
+                        expiryHandler.accept(node);
+                    }
+                    node = next;
+                }
+            }
+            this.currentTick = Math.max(this.currentTick, targetTick);
+        }
+
+        protected void reset()
+        {
+            for (final Node<K, V> bucket : this.buckets)
+            {
+                Node<K, V> node = bucket.wheelNext;
+                while (node != bucket)
+                {
+                    final Node<K, V> next = node.wheelNext;
+                    node.wheelPrev = null;
+                    node.wheelNext = null;
+                    node = next;
+                }
+                bucket.wheelPrev = bucket;
+                bucket.wheelNext = bucket;
+            }
+        }
+    }
+}
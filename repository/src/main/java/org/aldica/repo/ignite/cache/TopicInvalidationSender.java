@@ -0,0 +1,169 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.cluster.ClusterGroup;
+import org.apache.ignite.cluster.ClusterNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instances of this class send invalidation messages for a specific cache as unordered messages on separate topics for single key, bulk
+ * and clear invalidations. If a {@link KeyPresenceFilterTracker key presence filter tracker} has been set, invalidations are only sent to
+ * servers that may hold an affected key.
+ *
+ * @author Axel Faust
+ */
+public class TopicInvalidationSender implements InvalidationSender
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicInvalidationSender.class);
+
+    protected final Ignite grid;
+
+    protected final String cacheName;
+
+    protected final String invalidationTopic;
+
+    protected final String bulkInvalidationTopic;
+
+    protected final String clearTopic;
+
+    protected volatile KeyPresenceFilterTracker keyPresenceFilterTracker;
+
+    /**
+     * Creates a new instance of this class for a specific cache.
+     *
+     * @param grid
+     *            the grid via which to send invalidation messages
+     * @param cacheName
+     *            the name of the cache
+     */
+    public TopicInvalidationSender(final Ignite grid, final String cacheName)
+    {
+        ParameterCheck.mandatory("grid", grid);
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+
+        this.grid = grid;
+        this.cacheName = cacheName;
+        this.invalidationTopic = cacheName + "-invalidate";
+        this.bulkInvalidationTopic = cacheName + "-bulkInvalidate";
+        this.clearTopic = cacheName + "-clear";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(final Serializable key)
+    {
+        final KeyPresenceFilterTracker keyPresenceFilterTracker = this.keyPresenceFilterTracker;
+        if (keyPresenceFilterTracker != null)
+        {
+            final ClusterGroup remotes = this.grid.cluster().forServers().forRemotes();
+            final Map<ClusterNode, List<Serializable>> invalidationsByNode = keyPresenceFilterTracker.distribute(remotes.nodes(),
+                    Collections.singleton(key));
+            this.send(this.grid.cluster().forNodes(invalidationsByNode.keySet()), this.invalidationTopic, key);
+        }
+        else
+        {
+            this.send(this.invalidationTopic, key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendAll(final Collection<? extends Serializable> keys)
+    {
+        final KeyPresenceFilterTracker keyPresenceFilterTracker = this.keyPresenceFilterTracker;
+        if (keyPresenceFilterTracker != null)
+        {
+            final ClusterGroup remotes = this.grid.cluster().forServers().forRemotes();
+            final Map<ClusterNode, List<Serializable>> invalidationsByNode = keyPresenceFilterTracker.distribute(remotes.nodes(), keys);
+            invalidationsByNode.forEach((node, nodeKeys) -> this.send(this.grid.cluster().forNode(node), this.bulkInvalidationTopic,
+                    new ArrayList<>(nodeKeys)));
+        }
+        else
+        {
+            this.send(this.bulkInvalidationTopic, new ArrayList<>(keys));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendTo(final UUID nodeId, final Collection<? extends Serializable> keys)
+    {
+        final ClusterNode node = this.grid.cluster().node(nodeId);
+        if (node != null)
+        {
+            this.send(this.grid.cluster().forNode(node), this.bulkInvalidationTopic, new ArrayList<>(keys));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendClear()
+    {
+        this.send(this.clearTopic, Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setKeyPresenceFilterTracker(final KeyPresenceFilterTracker keyPresenceFilterTracker)
+    {
+        this.keyPresenceFilterTracker = keyPresenceFilterTracker;
+        if (keyPresenceFilterTracker != null)
+        {
+            keyPresenceFilterTracker.setResendHandler(this::sendTo);
+        }
+    }
+
+    protected void send(final String topic, final Object msg)
+    {
+        this.send(this.grid.cluster().forServers().forRemotes(), topic, msg);
+    }
+
+    protected void send(final ClusterGroup remotes, final String topic, final Object msg)
+    {
+        final Object msgLogLabel = LOGGER.isDebugEnabled() ? (msg instanceof Collection<?> ? (((Collection<?>) msg).size() + " keys") : msg)
+                : null;
+
+        if (!remotes.nodes().isEmpty())
+        {
+            LOGGER.debug("Sending remote message on topic {} for {}", topic, msgLogLabel);
+            this.grid.message(remotes).send(topic, msg);
+        }
+        else
+        {
+            LOGGER.debug("Not sending remote message on topic {} for {} as there are no remote nodes", topic, msgLogLabel);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.alfresco.repo.cache.TransactionalCache;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.util.ParameterCheck;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+import org.alfresco.util.transaction.TransactionSupportUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Instances of this class collect the keys of cache entries invalidated within the scope of a transaction, and hand them off as a single
+ * bulk invalidation once that transaction has completed instead of sending individual messages for every single key. Multiple
+ * {@link VersionedInvalidation versioned invalidations} of the same key are coalesced into the invalidation with the highest version.
+ *
+ * Most updates to shared caches are performed by {@link TransactionalCache} instances in their post-commit handling, at which point no new
+ * transaction listener can be bound anymore. Instances of this class thus need to {@link #bindToTransaction() bind} themselves to a
+ * transaction as early as possible, i.e. on the first read access of a cache within the transaction. Any invalidation that occurs in a
+ * transaction to which this collector has not been bound in time is not collected and must be sent immediately by the caller.
+ *
+ * @param <K>
+ *            the type of the invalidations to collect, i.e. either the type of the keys of the cache or {@link VersionedInvalidation}
+ *
+ * @author Axel Faust
+ */
+public class TransactionalInvalidationCollector<K extends Serializable> extends TransactionListenerAdapter
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalInvalidationCollector.class);
+
+    // copied from org.alfresco.repo.transaction.TransactionSupportUtil (not accessible) and incremented
+    // we need to run after all TransactionalCache instances have transferred their changes to shared caches
+    private static final int COMMIT_ORDER_AFTER_CACHE = 5;
+
+    protected final String cacheName;
+
+    protected final Consumer<Collection<K>> bulkInvalidationHandler;
+
+    protected final String txnKeyBound;
+
+    protected final String txnKeyInvalidatedKeys;
+
+    /**
+     * Creates a new instance of this class for a specific cache.
+     *
+     * @param cacheName
+     *            the name of the cache for which to collect invalidations
+     * @param bulkInvalidationHandler
+     *            the handler to process the collected invalidations at the end of a transaction
+     */
+    public TransactionalInvalidationCollector(final String cacheName, final Consumer<Collection<K>> bulkInvalidationHandler)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("bulkInvalidationHandler", bulkInvalidationHandler);
+
+        this.cacheName = cacheName;
+        this.bulkInvalidationHandler = bulkInvalidationHandler;
+
+        // identity of this instance is relevant in case a cache is re-created while transactions are still active
+        this.txnKeyBound = this.toString() + "-bound";
+        this.txnKeyInvalidatedKeys = this.toString() + "-invalidatedKeys";
+    }
+
+    /**
+     * Binds this instance to the currently active transaction, if any, unless that has already been done. This operation must be called
+     * before the transaction starts its completion phase for any invalidations to be collected.
+     */
+    public void bindToTransaction()
+    {
+        // synchronization is deactivated once the transaction enters completion phase
+        if (TransactionSynchronizationManager.isSynchronizationActive() && TransactionSupportUtil.getResource(this.txnKeyBound) == null)
+        {
+            LOGGER.trace("Binding invalidation collector for cache {} to transaction", this.cacheName);
+
+            TransactionSupportUtil.bindListener(this, COMMIT_ORDER_AFTER_CACHE);
+            TransactionSupportUtil.bindResource(this.txnKeyBound, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Collects an invalidation of a single cache key for deferred processing when the currently active transaction has completed.
+     *
+     * @param key
+     *            the key that has been invalidated, or the {@link VersionedInvalidation versioned invalidation} of a key
+     * @return {@code true} if the invalidation has been collected, {@code false} if no transaction is active or this instance could not be
+     *         bound to it in time, and the caller is responsible for processing the invalidation itself
+     */
+    public boolean collect(final K key)
+    {
+        boolean collected = false;
+        if (TransactionSupportUtil.isActualTransactionActive())
+        {
+            this.bindToTransaction();
+
+            if (Boolean.TRUE.equals(TransactionSupportUtil.getResource(this.txnKeyBound)))
+            {
+                LOGGER.trace("Collecting invalidation of key {} in cache {}", key, this.cacheName);
+
+                final Map<Serializable, K> invalidatedKeys = TransactionalResourceHelper.getMap(this.txnKeyInvalidatedKeys);
+                invalidatedKeys.merge(VersionedInvalidation.keyOf(key), key, this::coalesce);
+                collected = true;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Collects invalidations of multiple cache keys for deferred processing when the currently active transaction has completed.
+     *
+     * @param keys
+     *            the keys that have been invalidated, which may contain {@link VersionedInvalidation versioned invalidations}
+     * @return {@code true} if the invalidations have been collected, {@code false} if no transaction is active or this instance could not
+     *         be bound to it in time, and the caller is responsible for processing the invalidations itself
+     */
+    public boolean collectAll(final Collection<? extends K> keys)
+    {
+        boolean collected = false;
+        if (TransactionSupportUtil.isActualTransactionActive())
+        {
+            this.bindToTransaction();
+
+            if (Boolean.TRUE.equals(TransactionSupportUtil.getResource(this.txnKeyBound)))
+            {
+                LOGGER.trace("Collecting invalidation of keys {} in cache {}", keys, this.cacheName);
+
+                final Map<Serializable, K> invalidatedKeys = TransactionalResourceHelper.getMap(this.txnKeyInvalidatedKeys);
+                keys.forEach(key -> invalidatedKeys.merge(VersionedInvalidation.keyOf(key), key, this::coalesce));
+                collected = true;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCommit()
+    {
+        this.processCollectedInvalidations();
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterRollback()
+    {
+        // changes to shared caches may already have been made (e.g. in read-only transactions or by non-transactional caches)
+        this.processCollectedInvalidations();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected K coalesce(final K invalidationA, final K invalidationB)
+    {
+        // coalesce yields either of the two invalidations or the plain key, which must be of the same type
+        return (K) VersionedInvalidation.coalesce(invalidationA, invalidationB);
+    }
+
+    protected void processCollectedInvalidations()
+    {
+        final Map<Serializable, K> invalidatedKeys = TransactionalResourceHelper.getMap(this.txnKeyInvalidatedKeys);
+        if (!invalidatedKeys.isEmpty())
+        {
+            LOGGER.debug("Processing {} collected invalidations for cache {}", invalidatedKeys.size(), this.cacheName);
+
+            // copy to decouple from transactional resource
+            final Collection<K> keys = new ArrayList<>(invalidatedKeys.values());
+            invalidatedKeys.clear();
+            this.bulkInvalidationHandler.accept(keys);
+        }
+        else
+        {
+            LOGGER.trace("No invalidations were collected for cache {}", this.cacheName);
+        }
+    }
+}
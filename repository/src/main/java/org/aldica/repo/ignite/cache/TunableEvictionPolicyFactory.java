@@ -0,0 +1,72 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.alfresco.util.ParameterCheck;
+import org.apache.ignite.cache.eviction.AbstractEvictionPolicy;
+import org.apache.ignite.cache.eviction.AbstractEvictionPolicyFactory;
+import org.apache.ignite.cache.eviction.EvictionPolicy;
+
+/**
+ * Instances of this class wrap an eviction policy factory and register any eviction policy created by it, so that its limits can be
+ * adjusted at runtime by a {@link NearCacheSizeController} of the specified Ignite instance.
+ *
+ * @param <K>
+ *            the type of the keys of the cache
+ * @param <V>
+ *            the type of the values of the cache
+ *
+ * @author Axel Faust
+ */
+public class TunableEvictionPolicyFactory<K, V> extends AbstractEvictionPolicyFactory<EvictionPolicy<K, V>>
+{
+
+    private static final long serialVersionUID = -1457298237465813425L;
+
+    protected final String instanceName;
+
+    protected final String cacheName;
+
+    protected final AbstractEvictionPolicyFactory<? extends EvictionPolicy<K, V>> delegate;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param instanceName
+     *            the name of the Ignite instance for which to register created eviction policies
+     * @param cacheName
+     *            the name of the cache
+     * @param delegate
+     *            the factory to create the actual eviction policies
+     */
+    public TunableEvictionPolicyFactory(final String instanceName, final String cacheName,
+            final AbstractEvictionPolicyFactory<? extends EvictionPolicy<K, V>> delegate)
+    {
+        ParameterCheck.mandatoryString("cacheName", cacheName);
+        ParameterCheck.mandatory("delegate", delegate);
+
+        this.instanceName = instanceName;
+        this.cacheName = cacheName;
+        this.delegate = delegate;
+
+        // mirror initial limits for consistent reporting of configuration
+        this.setMaxSize(delegate.getMaxSize());
+        this.setMaxMemorySize(delegate.getMaxMemorySize());
+        this.setBatchSize(delegate.getBatchSize());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EvictionPolicy<K, V> create()
+    {
+        final EvictionPolicy<K, V> policy = this.delegate.create();
+        if (policy instanceof AbstractEvictionPolicy<?, ?>)
+        {
+            NearCacheSizeController.registerEvictionPolicy(this.instanceName, this.cacheName, (AbstractEvictionPolicy<?, ?>) policy);
+        }
+        return policy;
+    }
+}
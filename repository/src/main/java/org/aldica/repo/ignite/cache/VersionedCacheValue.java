@@ -0,0 +1,67 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+
+/**
+ * Instances of this class wrap values stored in a local cache with the version of the cached entity, so that remote invalidations can be
+ * checked for whether they actually supersede the entry.
+ *
+ * @param <V>
+ *            the type of the wrapped value
+ *
+ * @author Axel Faust
+ */
+public class VersionedCacheValue<V> implements Serializable
+{
+
+    private static final long serialVersionUID = -3153925622861425740L;
+
+    protected final V value;
+
+    protected final long version;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param value
+     *            the value to wrap
+     * @param version
+     *            the version of the cached entity
+     */
+    public VersionedCacheValue(final V value, final long version)
+    {
+        this.value = value;
+        this.version = version;
+    }
+
+    /**
+     * Determines whether this entry is superseded by a remote invalidation.
+     *
+     * @param invalidation
+     *            the invalidation to check
+     * @return {@code true} if this entry is superseded and needs to be dropped, {@code false} if the invalidation is stale or a duplicate
+     */
+    public boolean isSupersededBy(final VersionedInvalidation invalidation)
+    {
+        return this.version < invalidation.getVersion();
+    }
+
+    /**
+     * @return the value
+     */
+    public V getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * @return the version
+     */
+    public long getVersion()
+    {
+        return this.version;
+    }
+}
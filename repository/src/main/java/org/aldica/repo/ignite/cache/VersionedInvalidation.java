@@ -0,0 +1,133 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.alfresco.util.ParameterCheck;
+
+/**
+ * Instances of this class represent the invalidation of a single cache key, carrying the version of the cached entity which supersedes any
+ * older entries for the same key. Receivers of such an invalidation only need to drop entries that are older than that version.
+ *
+ * Invalidations which are not versioned are represented by the plain key, which always supersedes any entry.
+ *
+ * @author Axel Faust
+ */
+public class VersionedInvalidation implements Serializable
+{
+
+    private static final long serialVersionUID = 6094813328539361337L;
+
+    protected final Serializable key;
+
+    protected final long version;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param key
+     *            the key being invalidated
+     * @param version
+     *            the version of the cached entity superseding older entries
+     */
+    public VersionedInvalidation(final Serializable key, final long version)
+    {
+        ParameterCheck.mandatory("key", key);
+        this.key = key;
+        this.version = version;
+    }
+
+    /**
+     * Determines the key of an invalidation which may either be versioned or a plain key.
+     *
+     * @param invalidation
+     *            the invalidation
+     * @return the key being invalidated
+     */
+    public static Serializable keyOf(final Serializable invalidation)
+    {
+        return invalidation instanceof VersionedInvalidation ? ((VersionedInvalidation) invalidation).getKey() : invalidation;
+    }
+
+    /**
+     * Coalesces two invalidations of the same key into a single invalidation that supersedes at least all entries superseded by either of
+     * them.
+     *
+     * @param invalidationA
+     *            the first invalidation
+     * @param invalidationB
+     *            the second invalidation
+     * @return the coalesced invalidation
+     */
+    public static Serializable coalesce(final Serializable invalidationA, final Serializable invalidationB)
+    {
+        final Serializable result;
+        if (invalidationA instanceof VersionedInvalidation && invalidationB instanceof VersionedInvalidation)
+        {
+            result = ((VersionedInvalidation) invalidationA).getVersion() >= ((VersionedInvalidation) invalidationB).getVersion()
+                    ? invalidationA
+                    : invalidationB;
+        }
+        else
+        {
+            // unversioned invalidation supersedes any version - fall back to unconditional invalidation
+            result = keyOf(invalidationA);
+        }
+        return result;
+    }
+
+    /**
+     * @return the key
+     */
+    public Serializable getKey()
+    {
+        return this.key;
+    }
+
+    /**
+     * @return the version
+     */
+    public long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(this.key, this.version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof VersionedInvalidation))
+        {
+            return false;
+        }
+        final VersionedInvalidation other = (VersionedInvalidation) obj;
+        return this.version == other.version && Objects.equals(this.key, other.key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "VersionedInvalidation [key=" + this.key + ", version=" + this.version + "]";
+    }
+}
@@ -46,13 +46,16 @@
                         -->
                         <th title="${msg("ignite.caches.attr.cacheGets.title")?xml}">${msg("ignite.caches.attr.cacheGets.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.averageGetTime.title")?xml}">${msg("ignite.caches.attr.averageGetTime.label")?html}</th>
+                        <th title="${msg("ignite.caches.attr.p99GetTime.title")?xml}">${msg("ignite.caches.attr.p99GetTime.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.cacheHits.title")?xml}">${msg("ignite.caches.attr.cacheHits.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.cacheHitPercentage.title")?xml}">${msg("ignite.caches.attr.cacheHitPercentage.label")?html}</th>
 
                         <th title="${msg("ignite.caches.attr.cachePuts.title")?xml}">${msg("ignite.caches.attr.cachePuts.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.averagePutTime.title")?xml}">${msg("ignite.caches.attr.averagePutTime.label")?html}</th>
+                        <th title="${msg("ignite.caches.attr.p99PutTime.title")?xml}">${msg("ignite.caches.attr.p99PutTime.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.cacheRemovals.title")?xml}">${msg("ignite.caches.attr.cacheRemovals.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.averageRemoveTime.title")?xml}">${msg("ignite.caches.attr.averageRemoveTime.label")?html}</th>
+                        <th title="${msg("ignite.caches.attr.p99RemoveTime.title")?xml}">${msg("ignite.caches.attr.p99RemoveTime.label")?html}</th>
                         <th title="${msg("ignite.caches.attr.cacheEvictions.title")?xml}">${msg("ignite.caches.attr.cacheEvictions.label")?html}</th>
                     </tr>
                 </thead>
@@ -97,6 +100,9 @@
                             <td class="numericalCellValue">
                                 <#if cacheInfo.metrics.cacheGets != 0>${cacheInfo.metrics.averageGetTime?string["0"]}</#if>
                             </td>
+                            <td class="numericalCellValue">
+                                <#if cacheInfo.getLatencies?? && cacheInfo.getLatencies.count != 0>${(cacheInfo.getLatencies.getValueAtPercentile(99) / 1000)?string["0"]}</#if>
+                            </td>
                             <td class="numericalCellValue">
                                 <#if cacheInfo.metrics.cacheGets != 0>${cacheInfo.metrics.cacheHits?c}</#if>
                             </td>
@@ -110,12 +116,18 @@
                             <td class="numericalCellValue">
                                 <#if cacheInfo.metrics.cachePuts != 0>${cacheInfo.metrics.averagePutTime?string["0"]}</#if>
                             </td>
+                            <td class="numericalCellValue">
+                                <#if cacheInfo.putLatencies?? && cacheInfo.putLatencies.count != 0>${(cacheInfo.putLatencies.getValueAtPercentile(99) / 1000)?string["0"]}</#if>
+                            </td>
                             <td class="numericalCellValue">
                                 ${cacheInfo.metrics.cacheRemovals?c}
                             </td>
                             <td class="numericalCellValue">
                                 <#if cacheInfo.metrics.cacheRemovals != 0>${cacheInfo.metrics.averageRemoveTime?string["0"]}</#if>
                             </td>
+                            <td class="numericalCellValue">
+                                <#if cacheInfo.removeLatencies?? && cacheInfo.removeLatencies.count != 0>${(cacheInfo.removeLatencies.getValueAtPercentile(99) / 1000)?string["0"]}</#if>
+                            </td>
                             <#--  this value doesn't seem to make sense (often) -->
                             <td class="numericalCellValue">
                                 ${cacheInfo.metrics.cacheEvictions?c}
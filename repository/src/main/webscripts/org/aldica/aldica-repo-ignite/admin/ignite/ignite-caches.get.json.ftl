@@ -23,14 +23,22 @@
             -->
             "gets" : ${cacheInfo.metrics.cacheGets?c},
             "avgGetMircos" : ${cacheInfo.metrics.averageGetTime?string["0.#"]},
+            <#if cacheInfo.getLatencies??>"p50GetMicros" : ${(cacheInfo.getLatencies.getValueAtPercentile(50) / 1000)?string["0.#"]},
+            "p99GetMicros" : ${(cacheInfo.getLatencies.getValueAtPercentile(99) / 1000)?string["0.#"]},</#if>
             "hits" : ${cacheInfo.metrics.cacheHits?c},
             "hitPercentage" : <#if cacheInfo.metrics.cacheGets != 0>${cacheInfo.metrics.cacheHitPercentage?string["0.#"]}<#else>100</#if>,
             "misses" : ${cacheInfo.metrics.cacheMisses?c},
             "missPercentage" : <#if cacheInfo.metrics.cacheGets != 0>${cacheInfo.metrics.cacheMissPercentage?string["0.#"]}<#else>0</#if>,
             "puts" : ${cacheInfo.metrics.cachePuts?c},
             "avgPutMicros" : ${cacheInfo.metrics.averagePutTime?string["0.#"]},
+            <#if cacheInfo.putLatencies??>"p50PutMicros" : ${(cacheInfo.putLatencies.getValueAtPercentile(50) / 1000)?string["0.#"]},
+            "p99PutMicros" : ${(cacheInfo.putLatencies.getValueAtPercentile(99) / 1000)?string["0.#"]},</#if>
             "removals" : ${cacheInfo.metrics.cacheRemovals?c},
             "avgRemoveMicros" : ${cacheInfo.metrics.averageRemoveTime?string["0.#"]},
+            <#if cacheInfo.removeLatencies??>"p50RemoveMicros" : ${(cacheInfo.removeLatencies.getValueAtPercentile(50) / 1000)?string["0.#"]},
+            "p99RemoveMicros" : ${(cacheInfo.removeLatencies.getValueAtPercentile(99) / 1000)?string["0.#"]},</#if>
+            <#if cacheInfo.invalidationLatencies??>"p50InvalidationMicros" : ${(cacheInfo.invalidationLatencies.getValueAtPercentile(50) / 1000)?string["0.#"]},
+            "p99InvalidationMicros" : ${(cacheInfo.invalidationLatencies.getValueAtPercentile(99) / 1000)?string["0.#"]},</#if>
             "evictions" : ${cacheInfo.metrics.cacheEvictions?c}
         }<#if cacheInfo_has_next>,</#if>
         </#list>
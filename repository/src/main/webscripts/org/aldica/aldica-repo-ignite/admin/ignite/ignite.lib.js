@@ -40,13 +40,15 @@ function buildInstanceInfo(instance)
 
 function buildCacheInfo(instanceName, cache, propertyGetter)
 {
-    var CacheConfiguration, cacheConfig, localMetrics, evictionManager, evictionPolicy, configuredType, cacheInfo;
+    var CacheConfiguration, cacheConfig, localMetrics, evictionManager, evictionPolicy, latencies, configuredType, cacheInfo;
 
     CacheConfiguration = Packages.org.apache.ignite.configuration.CacheConfiguration;
     cacheConfig = cache.getConfiguration(CacheConfiguration);
     localMetrics = cache.localMetrics();
     evictionManager = cache.context().evicts();
     evictionPolicy = evictionManager !== null ? evictionManager.evictionPolicy : null;
+    // latencies are only tracked for caches created by aldica on this server
+    latencies = Packages.org.aldica.repo.ignite.cache.CacheLatencies.getRegistered(instanceName, cache.name);
 
     configuredType = '<not set>';
     configuredType = propertyGetter('cache.' + cache.name + '.' + 'cluster.type') || configuredType;
@@ -58,7 +60,11 @@ function buildCacheInfo(instanceName, cache, propertyGetter)
         definedType : configuredType,
         type : String(cacheConfig.cacheMode).toLowerCase(),
         metrics : localMetrics,
-        evictionPolicy : evictionPolicy
+        evictionPolicy : evictionPolicy,
+        getLatencies : latencies !== null ? latencies.getLatencies.windowSnapshot : null,
+        putLatencies : latencies !== null ? latencies.putLatencies.windowSnapshot : null,
+        removeLatencies : latencies !== null ? latencies.removeLatencies.windowSnapshot : null,
+        invalidationLatencies : latencies !== null ? latencies.invalidationLatencies.windowSnapshot : null
     };
 
     return cacheInfo;
@@ -13,8 +13,10 @@ import org.aldica.common.ignite.GridTestsBase;
 import org.alfresco.repo.cache.lookup.CacheRegionKey;
 import org.apache.ignite.DataRegionMetrics;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.binary.BinaryTypeConfiguration;
 import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.configuration.BinaryConfiguration;
@@ -109,6 +111,76 @@ public class CacheRegionKeyBinarySerializerTests extends GridTestsBase
         }
     }
 
+    @Test
+    public void cacheRegionLiteralByOrdinal()
+    {
+        for (final CacheRegion literal : CacheRegion.values())
+        {
+            Assert.assertSame(literal, CacheRegion.getLiteral(literal.ordinal()));
+        }
+
+        for (final int invalidOrdinal : new int[] { -1, CacheRegion.values().length })
+        {
+            try
+            {
+                CacheRegion.getLiteral(invalidOrdinal);
+                Assert.fail("Invalid ordinal should not be resolved to a literal");
+            }
+            catch (final IllegalArgumentException expected)
+            {
+                // NO-OP
+            }
+        }
+    }
+
+    @Test
+    public void cacheRegionLiteralByOrdinalDoesNotAllocate()
+    {
+        final int iterations = 100000;
+        final int literals = CacheRegion.values().length;
+        int hits = 0;
+        // warm up to exclude allocations from class loading / compilation
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += CacheRegion.getLiteral(iteration % literals) != null ? 1 : 0;
+        }
+
+        final long allocatedBefore = RawByteInputTests.getAllocatedBytes();
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += CacheRegion.getLiteral(iteration % literals) != null ? 1 : 0;
+        }
+        final long allocated = RawByteInputTests.getAllocatedBytes() - allocatedBefore;
+
+        Assert.assertEquals(2 * iterations, hits);
+        // allow for minimal noise caused by the measurement itself
+        Assert.assertTrue("Repeated lookups allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void rawSerialFormAllRegions()
+    {
+        final IgniteConfiguration conf = createConfiguration(true);
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final IgniteBinary binary = grid.binary();
+            for (final CacheRegion region : CacheRegion.values())
+            {
+                final String regionName = region != CacheRegion.CUSTOM ? region.getCacheRegionName() : UUID.randomUUID().toString();
+                final CacheRegionKey controlValue = new CacheRegionKey(regionName, "value-" + region);
+
+                final BinaryObject binaryValue = binary.toBinary(controlValue);
+                final CacheRegionKey value = binaryValue.deserialize();
+
+                Assert.assertEquals(controlValue, value);
+                // check deep serialisation was actually involved
+                Assert.assertFalse(controlValue == value);
+                // hash code is memoised in a final field and must be reconstructed on read
+                Assert.assertEquals(controlValue.hashCode(), value.hashCode());
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormCorrectness()
     {
@@ -13,8 +13,10 @@ import org.aldica.common.ignite.GridTestsBase;
 import org.alfresco.repo.cache.lookup.CacheRegionValueKey;
 import org.apache.ignite.DataRegionMetrics;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.binary.BinaryTypeConfiguration;
 import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.configuration.BinaryConfiguration;
@@ -109,6 +111,30 @@ public class CacheRegionValueKeyBinarySerializerTests extends GridTestsBase
         }
     }
 
+    @Test
+    public void rawSerialFormAllRegions()
+    {
+        final IgniteConfiguration conf = createConfiguration(true);
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final IgniteBinary binary = grid.binary();
+            for (final CacheRegion region : CacheRegion.values())
+            {
+                final String regionName = region != CacheRegion.CUSTOM ? region.getCacheRegionName() : UUID.randomUUID().toString();
+                final CacheRegionValueKey controlValue = new CacheRegionValueKey(regionName, "value-" + region);
+
+                final BinaryObject binaryValue = binary.toBinary(controlValue);
+                final CacheRegionValueKey value = binaryValue.deserialize();
+
+                Assert.assertEquals(controlValue, value);
+                // check deep serialisation was actually involved
+                Assert.assertFalse(controlValue == value);
+                // hash code is memoised in a final field and must be reconstructed on read
+                Assert.assertEquals(controlValue.hashCode(), value.hashCode());
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormCorrectness()
     {
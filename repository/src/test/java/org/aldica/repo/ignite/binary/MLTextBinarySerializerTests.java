@@ -195,6 +195,50 @@ public class MLTextBinarySerializerTests extends GridTestsBase
         }
     }
 
+    @Test
+    public void rawSerialFormCompressionCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true);
+            final MLTextBinarySerializer serializer = (MLTextBinarySerializer) conf.getBinaryConfiguration().getTypeConfigurations()
+                    .iterator().next().getSerializer();
+            serializer.setUseCompression(true);
+            serializer.setCompressionThreshold(256);
+            this.correctnessImpl(conf);
+
+            try (Ignite grid = Ignition.start(conf))
+            {
+                final CacheConfiguration<Long, MLText> cacheConfig = new CacheConfiguration<>();
+                cacheConfig.setName("mlText");
+                cacheConfig.setCacheMode(CacheMode.LOCAL);
+                final IgniteCache<Long, MLText> cache = grid.getOrCreateCache(cacheConfig);
+
+                final MLText controlValue = new MLText();
+                for (final Locale locale : LOCALES)
+                {
+                    final StringBuilder textBuilder = new StringBuilder();
+                    for (int idx = 0; idx < 20; idx++)
+                    {
+                        textBuilder.append("Paragraph ").append(idx).append(" of a long description in ").append(locale).append(". ");
+                    }
+                    controlValue.addValue(locale, textBuilder.toString());
+                }
+                // not substituted with ID and not expressible as language, country and variant
+                controlValue.addValue(Locale.forLanguageTag("sr-Latn-RS"), "Serbian text");
+
+                final long compressedBlocks = serializer.getCompressionStatistics().getCompressedBlocks();
+                cache.put(1l, controlValue);
+                Assert.assertEquals(compressedBlocks + 1, serializer.getCompressionStatistics().getCompressedBlocks());
+                Assert.assertTrue(serializer.getCompressionStatistics().getCompressionRatio() > 1);
+
+                final MLText cacheValue = cache.get(1l);
+                Assert.assertEquals(controlValue, cacheValue);
+                Assert.assertFalse(controlValue == cacheValue);
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormEfficiency()
     {
@@ -0,0 +1,245 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.aldica.repo.ignite.cache.NodeAspectsCacheSet;
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.repo.domain.qname.ibatis.QNameDAOImpl;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryTypeConfiguration;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.configuration.BinaryConfiguration;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * @author Axel Faust
+ */
+public class NodeAspectsBinarySerializerTests extends GridTestsBase
+{
+
+    private static final QName[] ASPECT_QNAMES = { ContentModel.ASPECT_AUDITABLE, ContentModel.ASPECT_REFERENCEABLE,
+            ContentModel.ASPECT_LOCALIZED, ContentModel.ASPECT_TITLED, ContentModel.ASPECT_AUTHOR, ContentModel.ASPECT_VERSIONABLE,
+            ContentModel.ASPECT_TAGGABLE, ContentModel.ASPECT_WORKING_COPY };
+
+    private static final String COMMON_ASPECTS = ContentModel.ASPECT_AUDITABLE + ", " + ContentModel.ASPECT_REFERENCEABLE + ","
+            + ContentModel.ASPECT_LOCALIZED + "," + ContentModel.ASPECT_TITLED;
+
+    protected static GenericApplicationContext createApplicationContext()
+    {
+        final GenericApplicationContext appContext = new GenericApplicationContext();
+
+        final QNameDAO qnameDAO = EasyMock.partialMockBuilder(QNameDAOImpl.class).addMockedMethod("getQName", Long.class)
+                .addMockedMethod("getQName", QName.class).createMock();
+        appContext.getBeanFactory().registerSingleton("qnameDAO", qnameDAO);
+        appContext.refresh();
+
+        for (int idx = 0; idx < ASPECT_QNAMES.length; idx++)
+        {
+            EasyMock.expect(qnameDAO.getQName(Long.valueOf(idx))).andStubReturn(new Pair<>(Long.valueOf(idx), ASPECT_QNAMES[idx]));
+            EasyMock.expect(qnameDAO.getQName(ASPECT_QNAMES[idx])).andStubReturn(new Pair<>(Long.valueOf(idx), ASPECT_QNAMES[idx]));
+        }
+        EasyMock.expect(qnameDAO.getQName(EasyMock.anyObject(QName.class))).andStubReturn(null);
+
+        EasyMock.replay(qnameDAO);
+
+        return appContext;
+    }
+
+    protected static IgniteConfiguration createConfiguration(final ApplicationContext applicationContext, final boolean idsWhenReasonable,
+            final boolean serialForm, final String commonAspects)
+    {
+        final IgniteConfiguration conf = createConfiguration(1, false, null);
+
+        final BinaryConfiguration binaryConfiguration = new BinaryConfiguration();
+
+        final NodeAspectsBinarySerializer serializer = new NodeAspectsBinarySerializer();
+        serializer.setApplicationContext(applicationContext);
+        serializer.setUseIdsWhenReasonable(idsWhenReasonable);
+        serializer.setUseRawSerialForm(serialForm);
+        serializer.setUseCommonAspectsBitmap(commonAspects != null);
+        serializer.setCommonAspects(commonAspects);
+
+        final BinaryTypeConfiguration binaryTypeConfigurationForNodeAspectsCacheSet = new BinaryTypeConfiguration();
+        binaryTypeConfigurationForNodeAspectsCacheSet.setTypeName(NodeAspectsCacheSet.class.getName());
+        binaryTypeConfigurationForNodeAspectsCacheSet.setSerializer(serializer);
+
+        binaryConfiguration.setTypeConfigurations(Arrays.asList(binaryTypeConfigurationForNodeAspectsCacheSet));
+        conf.setBinaryConfiguration(binaryConfiguration);
+
+        return conf;
+    }
+
+    @Test
+    public void defaultFormCorrectness()
+    {
+        final IgniteConfiguration conf = createConfiguration(null, false, false, null);
+        this.correctnessImpl(conf);
+    }
+
+    @Test
+    public void defaultFormIdSubstitutionCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, false, null);
+            this.correctnessImpl(conf);
+        }
+    }
+
+    @Test
+    public void rawSerialFormCorrectness()
+    {
+        final IgniteConfiguration conf = createConfiguration(null, false, true, null);
+        this.correctnessImpl(conf);
+    }
+
+    @Test
+    public void rawSerialFormIdSubstitutionCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, null);
+            this.correctnessImpl(conf);
+        }
+    }
+
+    @Test
+    public void rawSerialFormCommonAspectsBitmapCorrectness()
+    {
+        final IgniteConfiguration conf = createConfiguration(null, false, true, COMMON_ASPECTS);
+        this.correctnessImpl(conf);
+    }
+
+    @Test
+    public void rawSerialFormIdSubstitutionCommonAspectsBitmapCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, COMMON_ASPECTS);
+            this.correctnessImpl(conf);
+        }
+    }
+
+    @Test
+    public void rawSerialFormIdSubstitutionCommonAspectsBitmapLayout()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, COMMON_ASPECTS);
+            try (Ignite grid = Ignition.start(conf))
+            {
+                final IgniteBinary binary = grid.binary();
+
+                final NodeAspectsCacheSet controlValue = new NodeAspectsCacheSet(
+                        new HashSet<>(Arrays.asList(ContentModel.ASPECT_WORKING_COPY, ContentModel.ASPECT_TITLED,
+                                ContentModel.ASPECT_AUTHOR, ContentModel.ASPECT_AUDITABLE, ContentModel.ASPECT_VERSIONABLE)));
+                final BinaryObject binaryValue = binary.toBinary(controlValue);
+                final NodeAspectsCacheSet value = binaryValue.deserialize();
+
+                Assert.assertEquals(controlValue, value);
+                Assert.assertTrue(value.isCompact());
+                // common aspects lead in order of the bitmap, followed by the remaining aspects in order of their IDs
+                Assert.assertArrayEquals(new Object[] { ContentModel.ASPECT_AUDITABLE, ContentModel.ASPECT_TITLED,
+                        ContentModel.ASPECT_AUTHOR, ContentModel.ASPECT_VERSIONABLE, ContentModel.ASPECT_WORKING_COPY }, value.toArray());
+            }
+        }
+    }
+
+    @Test
+    public void rawSerialFormUndefinedCommonAspect()
+    {
+        final IgniteConfiguration conf = createConfiguration(null, false, true, COMMON_ASPECTS);
+        final NodeAspectsBinarySerializer serializer = (NodeAspectsBinarySerializer) conf.getBinaryConfiguration().getTypeConfigurations()
+                .iterator().next().getSerializer();
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final IgniteBinary binary = grid.binary();
+
+            final NodeAspectsCacheSet controlValue = new NodeAspectsCacheSet(
+                    new HashSet<>(Arrays.asList(ContentModel.ASPECT_AUDITABLE, ContentModel.ASPECT_TITLED)));
+            final BinaryObject binaryValue = binary.toBinary(controlValue);
+
+            // bit of titled aspect is no longer defined
+            serializer.setCommonAspects(ContentModel.ASPECT_AUDITABLE + "," + ContentModel.ASPECT_REFERENCEABLE);
+            try
+            {
+                binaryValue.deserialize();
+                Assert.fail("Bitmap referencing an undefined common aspect should not be deserialised");
+            }
+            catch (final BinaryObjectException expected)
+            {
+                // NO-OP
+            }
+        }
+    }
+
+    protected void correctnessImpl(final IgniteConfiguration conf)
+    {
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final CacheConfiguration<Long, NodeAspectsCacheSet> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nodeAspects");
+            cacheConfig.setCacheMode(CacheMode.LOCAL);
+            final IgniteCache<Long, NodeAspectsCacheSet> cache = grid.getOrCreateCache(cacheConfig);
+
+            NodeAspectsCacheSet controlValue;
+            NodeAspectsCacheSet cacheValue;
+
+            // only common aspects
+            controlValue = new NodeAspectsCacheSet(new HashSet<>(Arrays.asList(ContentModel.ASPECT_AUDITABLE,
+                    ContentModel.ASPECT_REFERENCEABLE, ContentModel.ASPECT_LOCALIZED, ContentModel.ASPECT_TITLED)));
+            cache.put(1l, controlValue);
+            cacheValue = cache.get(1l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            // check deep serialisation was actually involved (different value instances)
+            Assert.assertFalse(controlValue == cacheValue);
+            Assert.assertTrue(cacheValue.isCompact());
+
+            // mix of common and other aspects
+            controlValue = new NodeAspectsCacheSet(new HashSet<>(Arrays.asList(ContentModel.ASPECT_AUDITABLE,
+                    ContentModel.ASPECT_REFERENCEABLE, ContentModel.ASPECT_AUTHOR, ContentModel.ASPECT_VERSIONABLE,
+                    ContentModel.ASPECT_WORKING_COPY)));
+            cache.put(2l, controlValue);
+            cacheValue = cache.get(2l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            Assert.assertFalse(controlValue == cacheValue);
+
+            // compact instance as created via transformer
+            controlValue = NodeAspectsCacheSet.compact(new QName[] { ContentModel.ASPECT_TAGGABLE, ContentModel.ASPECT_TITLED });
+            cache.put(3l, controlValue);
+            cacheValue = cache.get(3l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            Assert.assertFalse(controlValue == cacheValue);
+
+            // no aspects
+            controlValue = new NodeAspectsCacheSet();
+            cache.put(4l, controlValue);
+            cacheValue = cache.get(4l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            Assert.assertTrue(cacheValue.isEmpty());
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.alfresco.repo.domain.node.ContentDataWithId;
 import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.repo.domain.qname.ibatis.QNameDAOImpl;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.MLText;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
@@ -115,6 +116,13 @@ public class NodePropertiesBinarySerializerTests extends GridTestsBase
 
     protected static IgniteConfiguration createConfiguration(final ApplicationContext applicationContext, final boolean idsWhenReasonable,
             final boolean idsWhenPossible, final boolean serialForm, final String... regionNames)
+    {
+        return createConfiguration(applicationContext, idsWhenReasonable, idsWhenPossible, serialForm, null, regionNames);
+    }
+
+    protected static IgniteConfiguration createConfiguration(final ApplicationContext applicationContext, final boolean idsWhenReasonable,
+            final boolean idsWhenPossible, final boolean serialForm, final PropertyValueDictionary valueDictionary,
+            final String... regionNames)
     {
         final IgniteConfiguration conf = createConfiguration(1, false, null);
 
@@ -125,6 +133,8 @@ public class NodePropertiesBinarySerializerTests extends GridTestsBase
         serializer.setUseIdsWhenReasonable(idsWhenReasonable);
         serializer.setUseIdsWhenPossible(idsWhenPossible);
         serializer.setUseRawSerialForm(serialForm);
+        serializer.setUseValueDictionary(valueDictionary != null);
+        serializer.setValueDictionary(valueDictionary);
 
         final BinaryTypeConfiguration binaryTypeConfigurationForNodePropertiesCacheMap = new BinaryTypeConfiguration();
         binaryTypeConfigurationForNodePropertiesCacheMap.setTypeName(NodePropertiesCacheMap.class.getName());
@@ -318,6 +328,158 @@ public class NodePropertiesBinarySerializerTests extends GridTestsBase
         }
     }
 
+    @Test
+    public void rawSerialFormValueDictionaryCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final PropertyValueDictionary valueDictionary = new PropertyValueDictionary();
+            valueDictionary.setApplicationContext(appContext);
+            valueDictionary.setEnabled(true);
+            valueDictionary.setSeedFromConstraints(false);
+
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, true, valueDictionary);
+            valueDictionary.setInstanceName(conf.getIgniteInstanceName());
+            valueDictionary.afterPropertiesSet();
+
+            final ContentDataDAO contentDataDAO = appContext.getBean("contentDataDAO", ContentDataDAO.class);
+            try (Ignite grid = Ignition.start(conf))
+            {
+                valueDictionary.afterInstanceStartup(conf.getIgniteInstanceName());
+                try
+                {
+                    Assert.assertEquals(2, valueDictionary.promoteValues(Arrays.asList("admin", "editor")));
+                    final int code = valueDictionary.getCode("admin");
+                    Assert.assertTrue(code >= 0);
+                    Assert.assertEquals(-1, valueDictionary.getCode("unknown"));
+
+                    final CacheConfiguration<Long, NodePropertiesCacheMap> cacheConfig = new CacheConfiguration<>();
+                    cacheConfig.setName("contentData");
+                    cacheConfig.setCacheMode(CacheMode.LOCAL);
+                    final IgniteCache<Long, NodePropertiesCacheMap> cache = grid.getOrCreateCache(cacheConfig);
+
+                    final NodePropertiesCacheMap controlValue = new NodePropertiesCacheMap(Collections.emptyMap());
+                    controlValue.put(ContentModel.PROP_CREATOR, new String("admin"));
+                    controlValue.put(ContentModel.PROP_MODIFIER, "unknown");
+                    controlValue.put(ContentModel.PROP_NAME, new ArrayList<>(Arrays.asList("editor", "admin", "other")));
+                    controlValue.put(ContentModel.PROP_CONTENT, contentDataDAO.getContentData(1l));
+
+                    cache.put(1l, controlValue);
+                    final NodePropertiesCacheMap cacheValue = cache.get(1l);
+
+                    Assert.assertEquals(controlValue, cacheValue);
+                    Assert.assertFalse(controlValue == cacheValue);
+                    // dictionary values are deserialised as canonical instances
+                    Assert.assertSame(valueDictionary.getValue(code), cacheValue.get(ContentModel.PROP_CREATOR));
+                }
+                finally
+                {
+                    valueDictionary.beforeInstanceShutdown(conf.getIgniteInstanceName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rawSerialFormLazyDecodingCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, true);
+            final NodePropertiesBinarySerializer serializer = (NodePropertiesBinarySerializer) conf.getBinaryConfiguration()
+                    .getTypeConfigurations().iterator().next().getSerializer();
+            serializer.setUseLazyDecoding(true);
+
+            final ContentDataDAO contentDataDAO = appContext.getBean("contentDataDAO", ContentDataDAO.class);
+            this.correctnessImpl(conf, contentDataDAO);
+
+            try (Ignite grid = Ignition.start(conf))
+            {
+                final CacheConfiguration<Long, NodePropertiesCacheMap> cacheConfig = new CacheConfiguration<>();
+                cacheConfig.setName("contentData");
+                cacheConfig.setCacheMode(CacheMode.LOCAL);
+                final IgniteCache<Long, NodePropertiesCacheMap> cache = grid.getOrCreateCache(cacheConfig);
+
+                final NodePropertiesCacheMap controlValue = new NodePropertiesCacheMap(Collections.emptyMap());
+                controlValue.put(ContentModel.PROP_CREATOR, "admin");
+                controlValue.put(ContentModel.PROP_MODIFIED,
+                        Date.from(LocalDateTime.of(2020, Month.JULY, 1, 23, 12, 45).toInstant(ZoneOffset.UTC)));
+                controlValue.put(ContentModel.PROP_MODIFIER, null);
+                controlValue.put(ContentModel.PROP_NAME, Locale.GERMANY);
+                controlValue.put(ContentModel.PROP_CONTENT, contentDataDAO.getContentData(1l));
+                controlValue.put(ContentModel.PROP_CATEGORIES,
+                        new ArrayList<>(Arrays.asList(new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, UUID.randomUUID().toString()),
+                                Long.valueOf(-42), Double.valueOf(1.5), Boolean.TRUE, Integer.valueOf(7), Float.valueOf(2.5f))));
+                // unsupported in lazy serial form - written eagerly
+                controlValue.put(ContentModel.PROP_CREATED, new MLText(Locale.ENGLISH, "unsupported"));
+
+                cache.put(1l, controlValue);
+
+                NodePropertiesCacheMap cacheValue = cache.get(1l);
+                Assert.assertTrue(cacheValue.isLazy());
+                Assert.assertEquals(controlValue.size(), cacheValue.size());
+                Assert.assertTrue(cacheValue.containsKey(ContentModel.PROP_MODIFIER));
+                Assert.assertFalse(cacheValue.containsKey(ContentModel.PROP_TITLE));
+                Assert.assertEquals("admin", cacheValue.get(ContentModel.PROP_CREATOR));
+                Assert.assertEquals(controlValue.get(ContentModel.PROP_CONTENT), cacheValue.get(ContentModel.PROP_CONTENT));
+                Assert.assertEquals(controlValue.get(ContentModel.PROP_CREATED), cacheValue.get(ContentModel.PROP_CREATED));
+                Assert.assertTrue("Single property lookups should not decode all values", cacheValue.isLazy());
+
+                Assert.assertEquals(controlValue, cacheValue);
+                Assert.assertFalse(cacheValue.isLazy());
+
+                cacheValue = cache.get(1l);
+                cacheValue.remove(ContentModel.PROP_CREATOR);
+                Assert.assertFalse(cacheValue.isLazy());
+                Assert.assertEquals(controlValue.size() - 1, cacheValue.size());
+            }
+        }
+    }
+
+    @Test
+    public void rawSerialFormCompressionCorrectness()
+    {
+        try (final GenericApplicationContext appContext = createApplicationContext())
+        {
+            final IgniteConfiguration conf = createConfiguration(appContext, true, true, true);
+            final NodePropertiesBinarySerializer serializer = (NodePropertiesBinarySerializer) conf.getBinaryConfiguration()
+                    .getTypeConfigurations().iterator().next().getSerializer();
+            serializer.setUseCompression(true);
+            serializer.setCompressionThreshold(256);
+
+            final ContentDataDAO contentDataDAO = appContext.getBean("contentDataDAO", ContentDataDAO.class);
+            this.correctnessImpl(conf, contentDataDAO);
+
+            try (Ignite grid = Ignition.start(conf))
+            {
+                final CacheConfiguration<Long, NodePropertiesCacheMap> cacheConfig = new CacheConfiguration<>();
+                cacheConfig.setName("contentData");
+                cacheConfig.setCacheMode(CacheMode.LOCAL);
+                final IgniteCache<Long, NodePropertiesCacheMap> cache = grid.getOrCreateCache(cacheConfig);
+
+                final StringBuilder descriptionBuilder = new StringBuilder();
+                for (int idx = 0; idx < 100; idx++)
+                {
+                    descriptionBuilder.append("This is line ").append(idx).append(" of a rather repetitive description.\n");
+                }
+
+                final NodePropertiesCacheMap controlValue = new NodePropertiesCacheMap(Collections.emptyMap());
+                controlValue.put(ContentModel.PROP_CREATOR, "admin");
+                controlValue.put(ContentModel.PROP_DESCRIPTION, descriptionBuilder.toString());
+                controlValue.put(ContentModel.PROP_CONTENT, contentDataDAO.getContentData(1l));
+
+                final long compressedBlocks = serializer.getCompressionStatistics().getCompressedBlocks();
+                cache.put(1l, controlValue);
+                Assert.assertEquals(compressedBlocks + 1, serializer.getCompressionStatistics().getCompressedBlocks());
+                Assert.assertTrue(serializer.getCompressionStatistics().getCompressionRatio() > 1);
+
+                final NodePropertiesCacheMap cacheValue = cache.get(1l);
+                Assert.assertFalse("Compression without lazy decoding should decode all values", cacheValue.isLazy());
+                Assert.assertEquals(controlValue, cacheValue);
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormEfficiency()
     {
@@ -7,6 +7,7 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 import org.aldica.common.ignite.GridTestsBase;
@@ -250,6 +251,28 @@ public class NodeRefBinarySerializerTests extends GridTestsBase
             Assert.assertFalse(controlValue.getStoreRef().getIdentifier() == cacheValue.getStoreRef().getIdentifier());
             // well known protocol should use same value
             Assert.assertTrue(controlValue.getStoreRef().getProtocol() == cacheValue.getStoreRef().getProtocol());
+
+            // canonical UUID as node ID
+            controlValue = new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, UUID.randomUUID().toString());
+            cache.put(4l, controlValue);
+
+            cacheValue = cache.get(4l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            // check deep serialisation was actually involved
+            Assert.assertFalse(controlValue == cacheValue);
+            Assert.assertFalse(controlValue.getId() == cacheValue.getId());
+
+            // non-canonical UUID as node ID
+            controlValue = new NodeRef(new StoreRef("my", "store"), UUID.randomUUID().toString().toUpperCase(Locale.ENGLISH));
+            cache.put(5l, controlValue);
+
+            cacheValue = cache.get(5l);
+
+            Assert.assertEquals(controlValue, cacheValue);
+            // check deep serialisation was actually involved
+            Assert.assertFalse(controlValue == cacheValue);
+            Assert.assertFalse(controlValue.getId() == cacheValue.getId());
         }
     }
 
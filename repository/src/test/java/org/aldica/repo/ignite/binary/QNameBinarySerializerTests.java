@@ -16,8 +16,10 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.service.namespace.QName;
 import org.apache.ignite.DataRegionMetrics;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.binary.BinaryTypeConfiguration;
 import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.configuration.BinaryConfiguration;
@@ -136,6 +138,75 @@ public class QNameBinarySerializerTests extends GridTestsBase
         }
     }
 
+    @Test
+    public void namespaceLiteralByOrdinal()
+    {
+        for (final Namespace literal : Namespace.values())
+        {
+            Assert.assertSame(literal, Namespace.getLiteral(literal.ordinal()));
+        }
+
+        for (final int invalidOrdinal : new int[] { -1, Namespace.values().length })
+        {
+            try
+            {
+                Namespace.getLiteral(invalidOrdinal);
+                Assert.fail("Invalid ordinal should not be resolved to a literal");
+            }
+            catch (final IllegalArgumentException expected)
+            {
+                // NO-OP
+            }
+        }
+    }
+
+    @Test
+    public void namespaceLiteralByOrdinalDoesNotAllocate()
+    {
+        final int iterations = 100000;
+        final int literals = Namespace.values().length;
+        int hits = 0;
+        // warm up to exclude allocations from class loading / compilation
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += Namespace.getLiteral(iteration % literals) != null ? 1 : 0;
+        }
+
+        final long allocatedBefore = RawByteInputTests.getAllocatedBytes();
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += Namespace.getLiteral(iteration % literals) != null ? 1 : 0;
+        }
+        final long allocated = RawByteInputTests.getAllocatedBytes() - allocatedBefore;
+
+        Assert.assertEquals(2 * iterations, hits);
+        // allow for minimal noise caused by the measurement itself
+        Assert.assertTrue("Repeated lookups allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void rawSerialFormAllNamespaces()
+    {
+        final IgniteConfiguration conf = createConfiguration(true);
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final IgniteBinary binary = grid.binary();
+            for (final Namespace namespace : Namespace.values())
+            {
+                final String namespaceUri = namespace != Namespace.CUSTOM ? namespace.getUri()
+                        : "http://www.example.com/model/custom/1.0";
+                final QName controlValue = QName.createQName(namespaceUri, "name");
+
+                final BinaryObject binaryValue = binary.toBinary(controlValue);
+                final QName value = binaryValue.deserialize();
+
+                Assert.assertEquals(controlValue, value);
+                // check deep serialisation was actually involved
+                Assert.assertFalse(controlValue == value);
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormCorrectness()
     {
@@ -0,0 +1,101 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class RawByteInputTests
+{
+
+    protected static long getAllocatedBytes()
+    {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled());
+        return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void repositionedReads()
+    {
+        final RawByteOutput output = new RawByteOutput();
+        output.writeUnsignedLong(300);
+        final int secondPosition = output.position();
+        output.writeSignedLong(-42);
+        output.writeLong(Long.MIN_VALUE);
+
+        final byte[] bytes = output.toByteArray();
+        final RawByteInput input = new RawByteInput(bytes, 0);
+
+        input.position(secondPosition);
+        Assert.assertEquals(-42, input.readSignedLong());
+        Assert.assertEquals(Long.MIN_VALUE, input.readLong());
+        Assert.assertEquals(bytes.length, input.position());
+
+        input.position(0);
+        Assert.assertEquals(300, input.readUnsignedLong());
+        Assert.assertEquals(secondPosition, input.position());
+
+        input.position(secondPosition);
+        Assert.assertEquals(-42, input.readSignedLong());
+
+        for (final int invalidPosition : new int[] { -1, bytes.length + 1 })
+        {
+            try
+            {
+                input.position(invalidPosition);
+                Assert.fail("Position outside of bytes should not be accepted");
+            }
+            catch (final BinaryObjectException expected)
+            {
+                // NO-OP
+            }
+        }
+    }
+
+    @Test
+    public void repositionedReadsDoNotAllocate()
+    {
+        final RawByteOutput output = new RawByteOutput();
+        for (int idx = 0; idx < 16; idx++)
+        {
+            output.writeUnsignedLong(idx * 1000L);
+        }
+        final byte[] bytes = output.toByteArray();
+        final RawByteInput input = new RawByteInput(bytes, 0);
+
+        final int iterations = 100000;
+        long sum = 0;
+        // warm up to exclude allocations from class loading / compilation
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            input.position(0);
+            sum += input.readUnsignedLong();
+        }
+
+        final long allocatedBefore = getAllocatedBytes();
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            input.position(0);
+            while (input.position() < bytes.length)
+            {
+                sum += input.readUnsignedLong();
+            }
+        }
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+
+        Assert.assertTrue(sum > 0);
+        // allow for minimal noise caused by the measurement itself
+        Assert.assertTrue("Repeated reads allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
@@ -0,0 +1,172 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class RawNodePropertiesTests
+{
+
+    protected static NodePropertiesBinarySerializer createSerializer()
+    {
+        final NodePropertiesBinarySerializer serializer = new NodePropertiesBinarySerializer();
+        serializer.setUseRawSerialForm(true);
+        serializer.setUseLazyDecoding(true);
+        return serializer;
+    }
+
+    protected static Map<QName, Serializable> createProperties()
+    {
+        final Map<QName, Serializable> properties = new LinkedHashMap<>();
+        properties.put(ContentModel.PROP_NAME, "document.pdf");
+        properties.put(ContentModel.PROP_CREATOR, "admin");
+        properties.put(ContentModel.PROP_MODIFIER, null);
+        properties.put(ContentModel.PROP_MODIFIED, Date.from(LocalDateTime.of(2020, Month.JULY, 1, 23, 12, 45).toInstant(ZoneOffset.UTC)));
+        properties.put(ContentModel.PROP_LOCALE, Locale.GERMANY);
+        properties.put(ContentModel.PROP_CATEGORIES,
+                new ArrayList<>(Arrays.asList(new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, UUID.randomUUID().toString()),
+                        Long.valueOf(-42), Double.valueOf(1.5), Boolean.TRUE, Integer.valueOf(7), Float.valueOf(2.5f))));
+        properties.put(ContentModel.PROP_NODE_DBID, Long.valueOf(Long.MAX_VALUE));
+        return properties;
+    }
+
+    protected static RawNodeProperties createRawNodeProperties(final NodePropertiesBinarySerializer serializer,
+            final Map<QName, Serializable> properties)
+    {
+        final RawByteOutput output = new RawByteOutput();
+        for (final Entry<QName, Serializable> entry : properties.entrySet())
+        {
+            serializer.writeKeyLazySerialForm(entry.getKey(), output);
+            Assert.assertTrue("Value should be supported in lazy serial form",
+                    serializer.writeValueLazySerialForm(entry.getValue(), output));
+        }
+        return new RawNodeProperties(serializer, output.toByteArray(), properties.size());
+    }
+
+    @Test
+    public void repositionedValueDecoding()
+    {
+        final Map<QName, Serializable> controlValues = createProperties();
+        final RawNodeProperties rawProperties = createRawNodeProperties(createSerializer(), controlValues);
+
+        Assert.assertEquals(controlValues.size(), rawProperties.size());
+        Assert.assertFalse(rawProperties.containsKey(ContentModel.PROP_TITLE));
+        Assert.assertNull(rawProperties.get(ContentModel.PROP_TITLE));
+        Assert.assertNull(rawProperties.get(ContentModel.PROP_NAME.toString()));
+
+        // decode in reverse order so that each value is read from a position before the one previously read
+        final List<QName> keys = new ArrayList<>(controlValues.keySet());
+        Collections.reverse(keys);
+        final Map<QName, Serializable> decodedValues = new HashMap<>();
+        for (final QName key : keys)
+        {
+            Assert.assertTrue(rawProperties.containsKey(key));
+            final Serializable value = rawProperties.get(key);
+            Assert.assertEquals(controlValues.get(key), value);
+            decodedValues.put(key, value);
+        }
+
+        for (final QName key : controlValues.keySet())
+        {
+            Assert.assertSame("Value should only be decoded once", decodedValues.get(key), rawProperties.get(key));
+        }
+
+        final Map<QName, Serializable> materialisedValues = new HashMap<>();
+        rawProperties.materialise(materialisedValues::put);
+        Assert.assertEquals(controlValues, materialisedValues);
+    }
+
+    @Test
+    public void decodedValueAccessDoesNotAllocate()
+    {
+        final Map<QName, Serializable> controlValues = createProperties();
+        final RawNodeProperties rawProperties = createRawNodeProperties(createSerializer(), controlValues);
+        final QName[] keys = controlValues.keySet().toArray(new QName[0]);
+
+        final int iterations = 100000;
+        int hits = 0;
+        // warm up to decode all values and exclude allocations from class loading / compilation
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += rawProperties.get(keys[iteration % keys.length]) != null ? 1 : 0;
+        }
+
+        final long allocatedBefore = RawByteInputTests.getAllocatedBytes();
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            hits += rawProperties.get(keys[iteration % keys.length]) != null ? 1 : 0;
+        }
+        final long allocated = RawByteInputTests.getAllocatedBytes() - allocatedBefore;
+
+        Assert.assertTrue(hits > 0);
+        // allow for minimal noise caused by the measurement itself
+        Assert.assertTrue("Repeated lookups allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void cachedValueDecodingDoesNotAllocate()
+    {
+        final NodePropertiesBinarySerializer serializer = createSerializer();
+
+        // values which are decoded into cached instances, so that any allocation would be a transient one by the read path itself
+        final Serializable[] values = { null, Boolean.TRUE, Boolean.FALSE, Integer.valueOf(7), Long.valueOf(-42) };
+        final RawByteOutput output = new RawByteOutput();
+        for (final Serializable value : values)
+        {
+            Assert.assertTrue(serializer.writeValueLazySerialForm(value, output));
+        }
+        final RawByteInput input = new RawByteInput(output.toByteArray(), 0);
+
+        final int iterations = 100000;
+        int matches = 0;
+        // warm up to exclude allocations from class loading / compilation
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            input.position(0);
+            for (final Serializable value : values)
+            {
+                matches += serializer.readValueLazySerialForm(input) == value ? 1 : 0;
+            }
+        }
+
+        final long allocatedBefore = RawByteInputTests.getAllocatedBytes();
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            input.position(0);
+            for (final Serializable value : values)
+            {
+                matches += serializer.readValueLazySerialForm(input) == value ? 1 : 0;
+            }
+        }
+        final long allocated = RawByteInputTests.getAllocatedBytes() - allocatedBefore;
+
+        Assert.assertEquals(2 * iterations * values.length, matches);
+        // allow for minimal noise caused by the measurement itself
+        Assert.assertTrue("Repeated decoding allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
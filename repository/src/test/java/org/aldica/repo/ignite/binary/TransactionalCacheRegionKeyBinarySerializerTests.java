@@ -13,8 +13,10 @@ import org.alfresco.repo.cache.TransactionalCache.CacheRegionKey;
 import org.alfresco.repo.tenant.TenantService;
 import org.apache.ignite.DataRegionMetrics;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteBinary;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.binary.BinaryTypeConfiguration;
 import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.configuration.BinaryConfiguration;
@@ -109,6 +111,29 @@ public class TransactionalCacheRegionKeyBinarySerializerTests extends GridTestsB
         }
     }
 
+    @Test
+    public void rawSerialFormHashCode()
+    {
+        final IgniteConfiguration conf = createConfiguration(true);
+        try (Ignite grid = Ignition.start(conf))
+        {
+            final IgniteBinary binary = grid.binary();
+            for (final String tenantDomain : new String[] { TenantService.DEFAULT_DOMAIN, UUID.randomUUID().toString() })
+            {
+                final CacheRegionKey controlValue = new CacheRegionKey(tenantDomain, "value-" + tenantDomain);
+
+                final BinaryObject binaryValue = binary.toBinary(controlValue);
+                final CacheRegionKey value = binaryValue.deserialize();
+
+                Assert.assertEquals(controlValue, value);
+                // check deep serialisation was actually involved
+                Assert.assertFalse(controlValue == value);
+                // hash code is memoised in a final field and must be reconstructed on read
+                Assert.assertEquals(controlValue.hashCode(), value.hashCode());
+            }
+        }
+    }
+
     @Test
     public void rawSerialFormCorrectness()
     {
@@ -0,0 +1,134 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryRawReader;
+import org.apache.ignite.binary.BinaryRawWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class VarIntCodecTests
+{
+
+    protected static BinaryRawWriter createWriter(final ByteArrayOutputStream bytes)
+    {
+        return (BinaryRawWriter) Proxy.newProxyInstance(VarIntCodecTests.class.getClassLoader(), new Class<?>[] { BinaryRawWriter.class },
+                (proxy, method, args) -> {
+                    if (!"writeByte".equals(method.getName()))
+                    {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    bytes.write((Byte) args[0]);
+                    return null;
+                });
+    }
+
+    protected static BinaryRawReader createReader(final byte[] bytes)
+    {
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        return (BinaryRawReader) Proxy.newProxyInstance(VarIntCodecTests.class.getClassLoader(), new Class<?>[] { BinaryRawReader.class },
+                (proxy, method, args) -> {
+                    if (!"readByte".equals(method.getName()))
+                    {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    final int b = in.read();
+                    if (b == -1)
+                    {
+                        throw new BinaryObjectException("End of stream");
+                    }
+                    return Byte.valueOf((byte) b);
+                });
+    }
+
+    @Test
+    public void unsignedRoundTrip()
+    {
+        final long[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BinaryRawWriter writer = createWriter(bytes);
+        for (final long value : values)
+        {
+            VarIntCodec.writeUnsignedLong(writer, value);
+        }
+
+        final BinaryRawReader reader = createReader(bytes.toByteArray());
+        for (final long value : values)
+        {
+            Assert.assertEquals(value, VarIntCodec.readUnsignedLong(reader));
+        }
+    }
+
+    @Test
+    public void encodedLength()
+    {
+        final long[] values = { 0, 127, 128, 16383, 16384, -1 };
+        final int[] lengths = { 1, 1, 2, 2, 3, 10 };
+        for (int idx = 0; idx < values.length; idx++)
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            VarIntCodec.writeUnsignedLong(createWriter(bytes), values[idx]);
+            Assert.assertEquals("Unexpected encoded length of " + values[idx], lengths[idx], bytes.size());
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarIntCodec.writeSignedLong(createWriter(bytes), -64);
+        Assert.assertEquals("Small negative values should be short in zigzag encoding", 1, bytes.size());
+    }
+
+    @Test
+    public void signedRoundTrip()
+    {
+        final long[] values = { 0, 1, -1, 63, -64, 64, -65, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BinaryRawWriter writer = createWriter(bytes);
+        for (final long value : values)
+        {
+            VarIntCodec.writeSignedLong(writer, value);
+        }
+
+        final BinaryRawReader reader = createReader(bytes.toByteArray());
+        for (final long value : values)
+        {
+            Assert.assertEquals(value, VarIntCodec.readSignedLong(reader));
+        }
+    }
+
+    @Test
+    public void sortedRoundTrip()
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarIntCodec.writeSortedLongs(createWriter(bytes), new long[] { 1042, 17, 1040, 3, 250000 });
+        // count + 4 one / two byte differences + 3 byte difference
+        Assert.assertTrue(bytes.size() <= 10);
+
+        final long[] values = VarIntCodec.readSortedLongs(createReader(bytes.toByteArray()));
+        Assert.assertArrayEquals(new long[] { 3, 17, 1040, 1042, 250000 }, values);
+    }
+
+    @Test(expected = BinaryObjectException.class)
+    public void malformedValue()
+    {
+        final byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+        VarIntCodec.readUnsignedLong(createReader(bytes));
+    }
+
+    @Test(expected = BinaryObjectException.class)
+    public void sizeOutOfRange()
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarIntCodec.writeUnsignedLong(createWriter(bytes), Integer.MAX_VALUE + 1l);
+        VarIntCodec.readUnsignedInt(createReader(bytes.toByteArray()));
+    }
+}
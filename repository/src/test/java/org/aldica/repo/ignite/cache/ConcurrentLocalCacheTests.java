@@ -0,0 +1,128 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class ConcurrentLocalCacheTests
+{
+
+    @Test
+    public void atomicOperations()
+    {
+        final ConcurrentLocalCache<String, String> cache = new ConcurrentLocalCache<>("testCache", 0, 0, 0);
+
+        Assert.assertNull(cache.getAndPut("key1", "value1"));
+        Assert.assertEquals("value1", cache.getAndPut("key1", "value2"));
+        Assert.assertEquals("value2", cache.get("key1"));
+
+        Assert.assertFalse(cache.removeIf("key1", "value1"::equals));
+        Assert.assertTrue(cache.contains("key1"));
+        Assert.assertTrue(cache.removeIf("key1", "value2"::equals));
+        Assert.assertFalse(cache.contains("key1"));
+
+        cache.put("key2", "value2");
+        Assert.assertEquals("value2", cache.getAndRemove("key2"));
+        Assert.assertNull(cache.getAndRemove("key2"));
+    }
+
+    @Test
+    public void eviction() throws Exception
+    {
+        final ConcurrentLocalCache<String, String> cache = new ConcurrentLocalCache<>("testCache", 100, 0, 0);
+
+        for (int i = 0; i < 100; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+
+        Thread.sleep(10);
+        // mark as recently accessed
+        cache.get("key0");
+        Thread.sleep(10);
+
+        for (int i = 100; i < 150; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+
+        Assert.assertTrue("Cache should have been bounded", cache.getKeys().size() <= 100);
+        Assert.assertTrue("Recently accessed entry should not have been evicted", cache.contains("key0"));
+    }
+
+    @Test
+    public void evictionSparesHotEntries()
+    {
+        final ConcurrentLocalCache<String, String> cache = new ConcurrentLocalCache<>("testCache", 1000, 0, 0);
+
+        for (int i = 0; i < 10000; i++)
+        {
+            cache.put("key" + i, "value" + i);
+            for (int hot = 0; hot < 10; hot++)
+            {
+                cache.get("hotKey" + hot);
+            }
+            if (i == 0)
+            {
+                for (int hot = 0; hot < 10; hot++)
+                {
+                    cache.put("hotKey" + hot, "hotValue" + hot);
+                }
+            }
+        }
+
+        Assert.assertTrue("Cache should have been bounded", cache.getKeys().size() <= 1000);
+        for (int hot = 0; hot < 10; hot++)
+        {
+            Assert.assertTrue("Frequently accessed entry should not have been evicted", cache.contains("hotKey" + hot));
+        }
+    }
+
+    @Test
+    public void concurrentEviction() throws Exception
+    {
+        final ConcurrentLocalCache<String, String> cache = new ConcurrentLocalCache<>("testCache", 1000, 0, 0);
+
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            final int threadNo = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++)
+                {
+                    cache.put("key" + threadNo + "-" + i, "value" + i);
+                    cache.get("key" + threadNo + "-" + (i / 2));
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        // concurrent puts may exceed the limit while a single thread is evicting, but not beyond the next eviction
+        cache.put("finalKey", "finalValue");
+        Assert.assertTrue("Cache should have been bounded", cache.getKeys().size() <= 1000);
+        Assert.assertFalse("No eviction should still be marked as in progress", cache.evicting.get());
+    }
+
+    @Test
+    public void expiry() throws Exception
+    {
+        final ConcurrentLocalCache<String, String> cache = new ConcurrentLocalCache<>("testCache", 0, 1, 0);
+
+        cache.put("key1", "value1");
+        Assert.assertEquals("value1", cache.get("key1"));
+
+        Thread.sleep(1100);
+
+        Assert.assertNull("Entry should have expired", cache.get("key1"));
+        Assert.assertNull("Expired entry should not be reported as previous value", cache.getAndPut("key1", "value2"));
+    }
+}
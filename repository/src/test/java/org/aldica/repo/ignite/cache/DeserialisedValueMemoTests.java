@@ -0,0 +1,52 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class DeserialisedValueMemoTests
+{
+
+    @Test
+    public void versionedLookup()
+    {
+        final DeserialisedValueMemo<String, String> memo = new DeserialisedValueMemo<>("testCache", 100,
+                DeserialisedValueMemo.ReferenceType.SOFT);
+
+        final String value = new String("value1");
+        memo.put("key1", Long.valueOf(1), value);
+
+        Assert.assertSame(value, memo.get("key1", Long.valueOf(1)));
+        Assert.assertNull("Value must not be returned for different entry version", memo.get("key1", Long.valueOf(2)));
+        Assert.assertNull("Value must not be returned without entry version", memo.get("key1", null));
+
+        memo.put("key1", Long.valueOf(2), "value2");
+        Assert.assertNull("Value of outdated entry version must have been replaced", memo.get("key1", Long.valueOf(1)));
+        Assert.assertEquals("value2", memo.get("key1", Long.valueOf(2)));
+
+        memo.remove("key1");
+        Assert.assertNull(memo.get("key1", Long.valueOf(2)));
+    }
+
+    @Test
+    public void bounded()
+    {
+        final DeserialisedValueMemo<String, String> memo = new DeserialisedValueMemo<>("testCache", 100,
+                DeserialisedValueMemo.ReferenceType.WEAK);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            memo.put("key" + i, Long.valueOf(i), "value" + i);
+        }
+
+        Assert.assertTrue("Memo should have been bounded", memo.memo.size() <= 100);
+
+        memo.clear();
+        Assert.assertTrue(memo.memo.isEmpty());
+    }
+}
@@ -0,0 +1,167 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.domain.node.NodeEntity;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class InvalidatingCacheFacadeTests extends GridTestsBase
+{
+
+    @Test
+    public void versionedInvalidation() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final InvalidatingCacheFacade<Long, Serializable> cache1 = new InvalidatingCacheFacade<>("cache.nodesSharedCache",
+                    new DefaultSimpleCache<>(100, "cache.nodesSharedCache"), grid1, true, true, null, true, false);
+            final InvalidatingCacheFacade<Long, Serializable> cache2 = new InvalidatingCacheFacade<>("cache.nodesSharedCache",
+                    new DefaultSimpleCache<>(100, "cache.nodesSharedCache"), grid2, true, true, null, true, false);
+
+            final NodeEntity nodeV1 = new NodeEntity();
+            nodeV1.setId(Long.valueOf(1));
+            nodeV1.setVersion(Long.valueOf(1));
+
+            cache1.put(Long.valueOf(1), nodeV1);
+            // simulate load of same state on other server
+            cache2.put(Long.valueOf(1), nodeV1);
+
+            Thread.sleep(250);
+
+            Assert.assertNotNull("Invalidation for entry of same version should have been ignored", cache1.get(Long.valueOf(1)));
+            Assert.assertNotNull(cache2.get(Long.valueOf(1)));
+
+            final NodeEntity nodeV2 = new NodeEntity();
+            nodeV2.setId(Long.valueOf(1));
+            nodeV2.setVersion(Long.valueOf(2));
+
+            cache1.put(Long.valueOf(1), nodeV2);
+
+            Thread.sleep(250);
+
+            Assert.assertEquals(nodeV2, cache1.get(Long.valueOf(1)));
+            Assert.assertNull("Invalidation for entry of newer version should have dropped the older entry", cache2.get(Long.valueOf(1)));
+
+            cache2.put(Long.valueOf(1), nodeV2);
+            cache2.remove(Long.valueOf(1));
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Removal should always have been invalidated", cache1.get(Long.valueOf(1)));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void newerLocalEntrySurvivesOlderInvalidation() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            // always invalidating on put, i.e. the constellation prone to ping-pong reloads
+            final InvalidatingCacheFacade<Long, Serializable> cache1 = new InvalidatingCacheFacade<>("cache.nodesSharedCache",
+                    new ConcurrentLocalCache<>("cache.nodesSharedCache", 100, 0, 0), grid1, true, true, null, true, false);
+            final InvalidatingCacheFacade<Long, Serializable> cache2 = new InvalidatingCacheFacade<>("cache.nodesSharedCache",
+                    new ConcurrentLocalCache<>("cache.nodesSharedCache", 100, 0, 0), grid2, true, true, null, true, false);
+
+            final NodeEntity nodeV1 = new NodeEntity();
+            nodeV1.setId(Long.valueOf(1));
+            nodeV1.setVersion(Long.valueOf(1));
+
+            final NodeEntity nodeV2 = new NodeEntity();
+            nodeV2.setId(Long.valueOf(1));
+            nodeV2.setVersion(Long.valueOf(2));
+
+            cache2.put(Long.valueOf(1), nodeV2);
+
+            Thread.sleep(250);
+
+            // later put of an older state on another server, e.g. by a transaction that started before the change
+            cache1.put(Long.valueOf(1), nodeV1);
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("Newer local entry should have survived invalidation for older entry", nodeV2, cache2.get(Long.valueOf(1)));
+
+            // values without entity version are always invalidated, irrespective of timing
+            cache2.put(Long.valueOf(2), "value2");
+            cache1.put(Long.valueOf(2), "value2");
+
+            Thread.sleep(250);
+
+            Assert.assertNull(cache2.get(Long.valueOf(2)));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void negativeLookups() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final DefaultSimpleCache<Long, Serializable> backingCache1 = new DefaultSimpleCache<>(100, "cache.immutableEntitySharedCache");
+            final InvalidatingCacheFacade<Long, Serializable> cache1 = new InvalidatingCacheFacade<>("cache.immutableEntitySharedCache",
+                    backingCache1, grid1, true, false, null, false, false);
+            final InvalidatingCacheFacade<Long, Serializable> cache2 = new InvalidatingCacheFacade<>("cache.immutableEntitySharedCache",
+                    new DefaultSimpleCache<>(100, "cache.immutableEntitySharedCache"), grid2, true, false, null, false, false);
+            cache1.setNegativeLookupStore(new NegativeLookupStore<>("cache.immutableEntitySharedCache", 100, 0));
+            cache2.setNegativeLookupStore(new NegativeLookupStore<>("cache.immutableEntitySharedCache", 100, 0));
+
+            final String sentinel = new String("@@VALUE_NOT_FOUND@@");
+            cache1.put(Long.valueOf(1), sentinel);
+
+            Assert.assertSame("Sentinel should have been recorded as negative lookup", sentinel, cache1.get(Long.valueOf(1)));
+            Assert.assertTrue(cache1.contains(Long.valueOf(1)));
+            Assert.assertFalse("Sentinel must not be stored in backing cache", backingCache1.contains(Long.valueOf(1)));
+
+            cache2.put(Long.valueOf(1), "value1");
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Put of value on other server should have dropped negative lookup", cache1.get(Long.valueOf(1)));
+
+            cache1.put(Long.valueOf(2), sentinel);
+            cache1.put(Long.valueOf(2), "value2");
+            Assert.assertEquals("Put of value should have replaced negative lookup", "value2", cache1.get(Long.valueOf(2)));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
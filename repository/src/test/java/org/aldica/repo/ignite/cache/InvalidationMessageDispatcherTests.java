@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class InvalidationMessageDispatcherTests extends GridTestsBase
+{
+
+    private static final String BULK_TOPIC = "testCache-bulkInvalidate";
+
+    private static final String CLEAR_TOPIC = "testCache-clear";
+
+    @Test
+    public void coalescedBulkDispatch() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final List<Collection<?>> bulkMessages = Collections.synchronizedList(new ArrayList<>());
+            final AtomicInteger clearMessages = new AtomicInteger(0);
+            grid2.message().localListen(BULK_TOPIC, (uuid, keys) -> {
+                bulkMessages.add((Collection<?>) keys);
+                return true;
+            });
+            grid2.message().localListen(CLEAR_TOPIC, (uuid, flag) -> {
+                clearMessages.incrementAndGet();
+                return true;
+            });
+
+            final InvalidationMessageDispatcher dispatcher = new InvalidationMessageDispatcher(grid1, 100, 100);
+            final InvalidationSender sender = new TopicInvalidationSender(grid1, "testCache");
+
+            // hot key repeatedly invalidated
+            for (int i = 0; i < 20; i++)
+            {
+                dispatcher.enqueue(sender, Collections.singleton("hotKey"));
+            }
+            for (int i = 0; i < 10; i++)
+            {
+                dispatcher.enqueue(sender, Collections.singleton("key" + i));
+            }
+
+            Thread.sleep(500);
+
+            Assert.assertEquals("Invalidations within dispatch delay should have been sent as a single message", 1, bulkMessages.size());
+            Assert.assertEquals("Repeated invalidations of the same key should have been coalesced", 11, bulkMessages.get(0).size());
+            Assert.assertEquals(0, clearMessages.get());
+
+            bulkMessages.clear();
+
+            for (int i = 0; i < 150; i++)
+            {
+                dispatcher.enqueue(sender, Collections.singleton("key" + i));
+            }
+
+            Thread.sleep(500);
+
+            Assert.assertTrue("Overflowing invalidations should not have been sent individually", bulkMessages.isEmpty());
+            Assert.assertEquals("Overflowing invalidations should have triggered a clear", 1, clearMessages.get());
+
+            dispatcher.shutdown();
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class KeyPresenceFilterTests
+{
+
+    @Test
+    public void noFalseNegatives()
+    {
+        final KeyPresenceFilter filter = new KeyPresenceFilter(10000, 0);
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.add(("key" + i).hashCode());
+        }
+
+        for (int i = 0; i < 10000; i++)
+        {
+            Assert.assertTrue("Filter must contain added key " + i, filter.mightContain(("key" + i).hashCode()));
+        }
+    }
+
+    @Test
+    public void lowFalsePositiveRate()
+    {
+        final KeyPresenceFilter filter = new KeyPresenceFilter(10000, 0);
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.add(("key" + i).hashCode());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            if (filter.mightContain(("otherKey" + i).hashCode()))
+            {
+                falsePositives++;
+            }
+        }
+
+        // expected rate is ~1%, allow for some variance
+        Assert.assertTrue("False positive rate too high: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void emptyFilter()
+    {
+        final KeyPresenceFilter filter = new KeyPresenceFilter(0, 0);
+        Assert.assertFalse(filter.mightContain("key".hashCode()));
+    }
+}
@@ -0,0 +1,98 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cluster.ClusterNode;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class KeyPresenceFilterTrackerTests extends GridTestsBase
+{
+
+    @Test
+    public void skippedInvalidationResentOnNextFilterContainingKey() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            // long interval - filters of the remote server are simulated
+            final KeyPresenceFilterTracker tracker = new KeyPresenceFilterTracker(grid1, "testCache", Collections::emptyList, executor,
+                    3600000);
+            final List<Collection<Serializable>> resent = new ArrayList<>();
+            tracker.setResendHandler((nodeId, invalidations) -> resent.add(invalidations));
+
+            final KeyPresenceFilterTracker remoteTracker = new KeyPresenceFilterTracker(grid2, "testCache", Collections::emptyList,
+                    executor, 3600000);
+            // enum constants use identity hash codes which differ between JVMs - hash must be based on the canonical binary form
+            Assert.assertEquals(grid2.binary().buildEnum(Thread.State.class.getName(), Thread.State.NEW.name()).hashCode(),
+                    tracker.hashKey(Thread.State.NEW));
+            Assert.assertEquals("Composite keys containing enums should be hashed consistently",
+                    remoteTracker.hashKey(Arrays.asList("permissions", Thread.State.NEW, Long.valueOf(42))),
+                    tracker.hashKey(Arrays.asList("permissions", Thread.State.NEW, Long.valueOf(42))));
+
+            final ClusterNode node2 = grid1.cluster().node(grid2.cluster().localNode().id());
+            final HybridLogicalClock clock = HybridLogicalClock.getDefaultInstance();
+
+            final KeyPresenceFilter emptyFilter = new KeyPresenceFilter(0, clock.tick());
+            tracker.onFilterReceived(node2.id(), emptyFilter);
+
+            final Map<ClusterNode, List<Serializable>> distribution = tracker.distribute(Collections.singletonList(node2),
+                    Arrays.asList("key1", "key2"));
+            Assert.assertTrue("Invalidations for keys not in filter should have been skipped", distribution.isEmpty());
+
+            // remote server loaded key1 right after its previous filter - next filter is built within clock skew tolerance
+            final KeyPresenceFilter filter = new KeyPresenceFilter(1, clock.tick());
+            filter.add(tracker.hashKey("key1"));
+            tracker.onFilterReceived(node2.id(), filter);
+
+            Assert.assertEquals("Skipped invalidation should have been resent without waiting for clock skew tolerance",
+                    Collections.singletonList(Collections.singletonList("key1")), resent);
+
+            final KeyPresenceFilterTracker.RemoteFilterState state = tracker.remoteFilterStates.get(node2.id());
+            synchronized (state)
+            {
+                Assert.assertEquals("Skipped key not yet covered by a newer filter should still be tracked", 1,
+                        state.skippedInvalidations.size());
+            }
+
+            final KeyPresenceFilter laterFilter = new KeyPresenceFilter(1, clock.tick() + HybridLogicalClock.fromMillis(10000));
+            tracker.onFilterReceived(node2.id(), laterFilter);
+
+            Assert.assertEquals("Filter not containing skipped key should not trigger a resend", 1, resent.size());
+            synchronized (state)
+            {
+                Assert.assertTrue("Skipped key covered by a newer filter should no longer be tracked",
+                        state.skippedInvalidations.isEmpty());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            Ignition.stopAll(true);
+        }
+    }
+}
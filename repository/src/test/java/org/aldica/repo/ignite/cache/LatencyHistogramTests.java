@@ -0,0 +1,145 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class LatencyHistogramTests
+{
+
+    @Test
+    public void emptyHistogram()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(0, histogram.getMeanNanos(), 0);
+    }
+
+    @Test
+    public void bucketBounds()
+    {
+        for (long value = 0; value < 1_000_000; value++)
+        {
+            final long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            Assert.assertTrue("Bucket upper bound must not be lower than value " + value, upperBound >= value);
+            Assert.assertTrue("Bucket upper bound must not exceed value " + value + " by more than 12.5%", upperBound <= value * 1.125);
+        }
+
+        Assert.assertEquals("Very high latencies must be recorded in highest bucket", LatencyHistogram.bucketIndex(1L << 50),
+                LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++)
+        {
+            histogram.record(value * 1000);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMaxNanos());
+        Assert.assertEquals(500500, histogram.getMeanNanos(), 0.001);
+
+        this.assertWithinPrecision(500000, histogram.getValueAtPercentile(50));
+        this.assertWithinPrecision(990000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals("Value at 100th percentile must be the maximum", 1000000, histogram.getValueAtPercentile(100));
+        this.assertWithinPrecision(1000, histogram.getValueAtPercentile(0));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void windowSnapshots()
+    {
+        final long windowNanos = TimeUnit.SECONDS.toNanos(1);
+        final LatencyHistogram histogram = new LatencyHistogram(windowNanos);
+        final long start = System.nanoTime();
+
+        for (long value = 1; value <= 100; value++)
+        {
+            histogram.record(value * 1000, start);
+        }
+        Assert.assertEquals("No window should have been completed yet", 0, histogram.getWindowSnapshot().getCount());
+
+        // first recording after window duration completes the window
+        histogram.record(100000, start + windowNanos);
+        LatencyHistogram.Snapshot window = histogram.getWindowSnapshot();
+        Assert.assertEquals(101, window.getCount());
+        this.assertWithinPrecision(50000, window.getValueAtPercentile(50));
+        Assert.assertEquals(100000, window.getMaxNanos());
+
+        for (int i = 0; i < 200; i++)
+        {
+            histogram.record(10000000, start + windowNanos + windowNanos / 2);
+        }
+        Assert.assertSame("Window should not have been rotated before window duration", window, histogram.getWindowSnapshot());
+
+        histogram.record(10000000, start + 2 * windowNanos);
+        window = histogram.getWindowSnapshot();
+        Assert.assertEquals(201, window.getCount());
+        this.assertWithinPrecision(10000000, window.getValueAtPercentile(1));
+        this.assertWithinPrecision(10000000, window.getMaxNanos());
+        Assert.assertEquals(10000000, window.getMeanNanos(), 0.001);
+
+        Assert.assertEquals("Cumulative histogram should include all windows", 302, histogram.getCount());
+        this.assertWithinPrecision(31000, histogram.getValueAtPercentile(10));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getWindowSnapshot().getCount());
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++)
+            {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100000; i++)
+                    {
+                        histogram.record(i % 5000);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(800000, histogram.getCount());
+        Assert.assertEquals(4999, histogram.getMaxNanos());
+        this.assertWithinPrecision(2500, histogram.getValueAtPercentile(50));
+    }
+
+    protected void assertWithinPrecision(final long expected, final long actual)
+    {
+        Assert.assertTrue("Expected " + expected + " but got " + actual, actual >= expected * 0.875 && actual <= expected * 1.125);
+    }
+}
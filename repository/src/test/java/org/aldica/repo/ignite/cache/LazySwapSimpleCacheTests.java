@@ -0,0 +1,70 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class LazySwapSimpleCacheTests
+{
+
+    @Test
+    public void swapTransfersEntries()
+    {
+        final ConcurrentLocalCache<String, String> temporaryCache = new ConcurrentLocalCache<>("testCache", 0, 0, 0);
+        final ConcurrentLocalCache<String, String> realCache = new ConcurrentLocalCache<>("testCache", 0, 0, 0);
+        final LazySwapSimpleCache<String, String> cache = new LazySwapSimpleCache<>("testGrid", "testCache", temporaryCache,
+                () -> realCache);
+
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.remove("key2");
+        Assert.assertEquals("value1", temporaryCache.get("key1"));
+        Assert.assertFalse(realCache.contains("key1"));
+
+        // unrelated instance must not trigger swap
+        cache.afterInstanceStartup("otherGrid");
+        Assert.assertFalse(realCache.contains("key1"));
+
+        cache.afterInstanceStartup("testGrid");
+        Assert.assertEquals("value1", realCache.get("key1"));
+        Assert.assertFalse(realCache.contains("key2"));
+
+        cache.put("key3", "value3");
+        Assert.assertEquals("value3", realCache.get("key3"));
+        Assert.assertFalse(temporaryCache.contains("key3"));
+        Assert.assertEquals("value3", cache.get("key3"));
+
+        // repeated lifecycle calls must not swap again
+        cache.afterInstanceStartup("testGrid");
+        Assert.assertEquals("value3", cache.get("key3"));
+    }
+
+    @Test
+    public void emulatedBulkOperations()
+    {
+        final ConcurrentLocalCache<String, String> temporaryCache = new ConcurrentLocalCache<>("testCache", 0, 0, 0);
+        final LazySwapSimpleCache<String, String> cache = new LazySwapSimpleCache<>("testGrid", "testCache", temporaryCache,
+                () -> new ConcurrentLocalCache<>("testCache", 0, 0, 0));
+
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("key1", "value1");
+        entries.put("key2", "value2");
+        cache.putAll(entries);
+
+        final Map<String, String> values = cache.getAll(Arrays.asList("key1", "key2", "key3"));
+        Assert.assertEquals(entries, values);
+        Assert.assertEquals(2, cache.size());
+
+        cache.removeAll(Arrays.asList("key1", "key2"));
+        Assert.assertEquals(0, cache.localSize());
+    }
+}
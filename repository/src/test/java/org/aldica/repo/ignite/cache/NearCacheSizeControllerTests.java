@@ -0,0 +1,139 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.cache.eviction.lru.LruEvictionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class NearCacheSizeControllerTests
+{
+
+    @Test
+    public void capacityShiftsToCacheWithHighestGain()
+    {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final NearCacheSizeController controller = new NearCacheSizeController(mockGrid("testGrid"), executor, Long.MAX_VALUE);
+
+            final AtomicLong busyMisses = new AtomicLong();
+            final AtomicLong idleMisses = new AtomicLong();
+            final TestPolicy busyPolicy = new TestPolicy(1000, 1000);
+            final TestPolicy idlePolicy = new TestPolicy(1000, 200);
+            NearCacheSizeController.registerEvictionPolicy("testGrid", "busyCache", busyPolicy);
+            NearCacheSizeController.registerEvictionPolicy("testGrid", "idleCache", idlePolicy);
+            controller.register("busyCache", busyMisses::get, 0, 1500);
+            controller.register("idleCache", idleMisses::get, 0, 0);
+
+            // first adjustment only establishes baseline of metrics
+            controller.adjust();
+            Assert.assertEquals(1000, busyPolicy.getMaxSize());
+            Assert.assertEquals(1000, idlePolicy.getMaxSize());
+
+            busyMisses.addAndGet(500);
+            controller.adjust();
+            Assert.assertEquals(1100, busyPolicy.getMaxSize());
+            Assert.assertEquals(900, idlePolicy.getMaxSize());
+
+            // without new misses, there is no expected gain to justify a shift
+            controller.adjust();
+            Assert.assertEquals(1100, busyPolicy.getMaxSize());
+
+            for (int i = 0; i < 20; i++)
+            {
+                busyPolicy.currentSize = busyPolicy.getMaxSize();
+                busyMisses.addAndGet(500);
+                controller.adjust();
+            }
+
+            Assert.assertEquals("Configured upper bound must be respected", 1500, busyPolicy.getMaxSize());
+            Assert.assertEquals("Total capacity must be preserved", 2000, busyPolicy.getMaxSize() + idlePolicy.getMaxSize());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            NearCacheSizeController.unregisterEvictionPolicies("testGrid");
+        }
+    }
+
+    @Test
+    public void memoryLimitScaledWithCapacity()
+    {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final NearCacheSizeController controller = new NearCacheSizeController(mockGrid("testGrid"), executor, Long.MAX_VALUE);
+
+            final AtomicLong busyMisses = new AtomicLong();
+            final TestPolicy busyPolicy = new TestPolicy(1000, 1000);
+            final TestPolicy idlePolicy = new TestPolicy(1000, 0);
+            idlePolicy.setMaxMemorySize(100000);
+            NearCacheSizeController.registerEvictionPolicy("testGrid", "busyCache", busyPolicy);
+            NearCacheSizeController.registerEvictionPolicy("testGrid", "idleCache", idlePolicy);
+            controller.register("busyCache", busyMisses::get, 0, 0);
+            controller.register("idleCache", () -> 0, 0, 0);
+
+            controller.adjust();
+            busyMisses.addAndGet(100);
+            controller.adjust();
+
+            Assert.assertEquals(900, idlePolicy.getMaxSize());
+            Assert.assertEquals(90000, idlePolicy.getMaxMemorySize());
+            Assert.assertEquals("Unlimited memory must remain unlimited", 0, busyPolicy.getMaxMemorySize());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            NearCacheSizeController.unregisterEvictionPolicies("testGrid");
+        }
+    }
+
+    protected static Ignite mockGrid(final String name)
+    {
+        return (Ignite) Proxy.newProxyInstance(NearCacheSizeControllerTests.class.getClassLoader(), new Class<?>[] { Ignite.class },
+                (proxy, method, args) -> {
+                    if ("name".equals(method.getName()))
+                    {
+                        return name;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * @author Axel Faust
+     */
+    protected static class TestPolicy extends LruEvictionPolicy<Object, Object>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int currentSize;
+
+        protected TestPolicy(final int maxSize, final int currentSize)
+        {
+            super(maxSize);
+            this.currentSize = currentSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getCurrentSize()
+        {
+            return this.currentSize;
+        }
+    }
+}
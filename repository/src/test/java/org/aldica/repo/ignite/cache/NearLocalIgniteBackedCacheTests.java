@@ -0,0 +1,232 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.alfresco.util.Pair;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class NearLocalIgniteBackedCacheTests extends GridTestsBase
+{
+
+    @Test
+    public void onHeapTierCoherence() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nearLocalTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+            cacheConfig.setReadFromBackup(false);
+
+            final IgniteCache<String, String> igniteCache1 = grid1.getOrCreateCache(cacheConfig);
+            final IgniteCache<String, String> igniteCache2 = grid2.getOrCreateCache(cacheConfig);
+
+            final NearLocalIgniteBackedCache<String, String> cache1 = new NearLocalIgniteBackedCache<>(grid1, igniteCache1, true, 100);
+            final NearLocalIgniteBackedCache<String, String> cache2 = new NearLocalIgniteBackedCache<>(grid2, igniteCache2, true, 100);
+
+            cache1.put("key1", "value1");
+            Assert.assertEquals("value1", cache2.get("key1"));
+            Assert.assertTrue("Retrieved value should have been held in on-heap tier", cache2.localEntries.containsKey("key1"));
+
+            cache1.put("key1", "value2");
+            Thread.sleep(250);
+
+            Assert.assertFalse("Update should have invalidated on-heap tier", cache2.localEntries.containsKey("key1"));
+            Assert.assertEquals("value2", cache2.get("key1"));
+
+            cache1.put("key1", "value2");
+            Thread.sleep(250);
+
+            Assert.assertTrue("Put without effective change should not have invalidated on-heap tier",
+                    cache2.localEntries.containsKey("key1"));
+
+            cache1.remove("key1");
+            Thread.sleep(250);
+
+            Assert.assertNull("Removal should have invalidated on-heap tier", cache2.get("key1"));
+
+            for (int i = 0; i < 150; i++)
+            {
+                cache1.put("key" + i, "value" + i);
+                cache1.get("key" + i);
+            }
+            Assert.assertTrue("On-heap tier should have been bounded", cache1.localEntries.size() <= 100);
+
+            cache2.clear();
+            Thread.sleep(250);
+
+            Assert.assertTrue("Clear should have cleared on-heap tier on other servers", cache1.localEntries.isEmpty());
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void onHeapTierCoherenceBinaryKeys() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<Pair<String, String>, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nearLocalBinaryKeyTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+            cacheConfig.setReadFromBackup(false);
+
+            final IgniteCache<Pair<String, String>, String> igniteCache1 = grid1.getOrCreateCache(cacheConfig);
+            final IgniteCache<Pair<String, String>, String> igniteCache2 = grid2.getOrCreateCache(cacheConfig);
+
+            final NearLocalIgniteBackedCache<Pair<String, String>, String> cache1 = new NearLocalIgniteBackedCache<>(grid1, igniteCache1,
+                    true, 100);
+            final NearLocalIgniteBackedCache<Pair<String, String>, String> cache2 = new NearLocalIgniteBackedCache<>(grid2, igniteCache2,
+                    true, 100);
+
+            final Pair<String, String> key = new Pair<>("region", "key1");
+
+            cache1.put(key, "value1");
+            Assert.assertEquals("value1", cache2.get(key));
+            Assert.assertTrue("Retrieved value should have been held in on-heap tier", cache2.localEntries.containsKey(key));
+
+            // keys are transferred in binary form and only deserialised outside of Ignite threads
+            cache1.put(key, "value2");
+            Thread.sleep(250);
+
+            Assert.assertFalse("Update should have invalidated on-heap tier", cache2.localEntries.containsKey(key));
+            Assert.assertEquals("value2", cache2.get(key));
+
+            cache1.put(key, "value2");
+            Thread.sleep(250);
+
+            Assert.assertTrue("Put without effective change should not have invalidated on-heap tier",
+                    cache2.localEntries.containsKey(key));
+
+            cache1.remove(key);
+            Thread.sleep(250);
+
+            Assert.assertNull("Removal should have invalidated on-heap tier", cache2.get(key));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void bulkOperations() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nearLocalBulkTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+            cacheConfig.setReadFromBackup(false);
+
+            final IgniteCache<String, String> igniteCache1 = grid1.getOrCreateCache(cacheConfig);
+            final IgniteCache<String, String> igniteCache2 = grid2.getOrCreateCache(cacheConfig);
+
+            final NearLocalIgniteBackedCache<String, String> cache1 = new NearLocalIgniteBackedCache<>(grid1, igniteCache1, true, 100);
+            final NearLocalIgniteBackedCache<String, String> cache2 = new NearLocalIgniteBackedCache<>(grid2, igniteCache2, true, 100);
+
+            final Map<String, String> entries = new HashMap<>();
+            for (int i = 0; i < 20; i++)
+            {
+                entries.put("key" + i, "value" + i);
+            }
+            cache1.putAll(entries);
+
+            final Map<String, String> values = cache2.getAll(Arrays.asList("key1", "key2", "unknownKey"));
+            Assert.assertEquals(2, values.size());
+            Assert.assertEquals("value1", values.get("key1"));
+            Assert.assertEquals("value2", values.get("key2"));
+            Assert.assertTrue("Retrieved values should have been held in on-heap tier", cache2.localEntries.containsKey("key1"));
+
+            cache2.prefetch(Arrays.asList("key3", "key4"));
+            Thread.sleep(250);
+
+            Assert.assertTrue("Prefetched values should have been held in on-heap tier",
+                    cache2.localEntries.containsKey("key3") && cache2.localEntries.containsKey("key4"));
+
+            cache1.removeAll(Arrays.asList("key1", "key3"));
+            Thread.sleep(250);
+
+            Assert.assertFalse("Removal should have invalidated on-heap tier", cache2.localEntries.containsKey("key1"));
+            Assert.assertFalse("Removal should have invalidated on-heap tier", cache2.localEntries.containsKey("key3"));
+            Assert.assertEquals(new HashSet<>(Arrays.asList("key2", "key4")),
+                    cache2.getAll(Arrays.asList("key1", "key2", "key3", "key4")).keySet());
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void staleLoadNotCached() throws Exception
+    {
+        final IgniteConfiguration conf = createConfiguration(1, false);
+
+        try
+        {
+            final Ignite grid = Ignition.start(conf);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nearLocalTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+
+            final NearLocalIgniteBackedCache<String, String> cache = new NearLocalIgniteBackedCache<>(grid,
+                    grid.getOrCreateCache(cacheConfig), true, 100);
+
+            final int stripe = cache.stripe("key1");
+            final long stamp = cache.invalidationStamps.get(stripe);
+
+            // simulates an invalidation received while the value was being loaded
+            cache.invalidateLocal("key1");
+
+            Assert.assertFalse("Value loaded before invalidation should not have been cached",
+                    cache.cacheLocally("key1", "value1", stripe, stamp));
+            Assert.assertFalse(cache.localEntries.containsKey("key1"));
+
+            Assert.assertTrue(cache.cacheLocally("key1", "value2", stripe, cache.invalidationStamps.get(stripe)));
+            Assert.assertEquals("value2", cache.localEntries.get("key1"));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
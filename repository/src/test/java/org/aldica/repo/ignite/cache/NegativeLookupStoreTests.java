@@ -0,0 +1,66 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class NegativeLookupStoreTests
+{
+
+    private static final String VALUE_NOT_FOUND = "@@VALUE_NOT_FOUND@@";
+
+    @Test
+    public void lookup()
+    {
+        final NegativeLookupStore<String> store = new NegativeLookupStore<>("testCache", 100, 0);
+
+        final Object sentinel = new String(VALUE_NOT_FOUND);
+        store.put("key1", sentinel);
+
+        Assert.assertSame("Exact sentinel instance must be returned", sentinel, store.get("key1"));
+        Assert.assertTrue(store.contains("key1"));
+        Assert.assertNull(store.get("key2"));
+        Assert.assertTrue(store.getKeys().contains("key1"));
+
+        store.remove("key1");
+        Assert.assertFalse(store.contains("key1"));
+
+        store.put("key1", sentinel);
+        store.put("key2", sentinel);
+        store.clear();
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void expiry() throws Exception
+    {
+        final NegativeLookupStore<String> store = new NegativeLookupStore<>("testCache", 100, 1);
+
+        store.put("key1", VALUE_NOT_FOUND);
+        Assert.assertTrue(store.contains("key1"));
+
+        Thread.sleep(1100);
+
+        Assert.assertNull("Negative lookup should have expired", store.get("key1"));
+        Assert.assertEquals("Expired negative lookup should have been removed on access", 0, store.size());
+    }
+
+    @Test
+    public void bounded()
+    {
+        final NegativeLookupStore<String> store = new NegativeLookupStore<>("testCache", 100, 0);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            store.put("key" + i, VALUE_NOT_FOUND);
+        }
+
+        Assert.assertTrue("Store should have been bounded", store.size() <= 100);
+        Assert.assertTrue("Most recent negative lookup should have been retained", store.contains("key999"));
+    }
+}
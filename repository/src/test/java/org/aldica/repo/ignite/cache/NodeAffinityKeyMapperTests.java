@@ -0,0 +1,146 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.aldica.repo.ignite.binary.CacheRegionKeyBinarySerializer;
+import org.aldica.repo.ignite.binary.TransactionalCacheRegionKeyBinarySerializer;
+import org.alfresco.repo.cache.TransactionalCache;
+import org.alfresco.repo.cache.lookup.CacheRegionKey;
+import org.alfresco.repo.domain.node.NodeVersionKey;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.binary.BinaryTypeConfiguration;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.cache.affinity.rendezvous.RendezvousAffinityFunction;
+import org.apache.ignite.configuration.BinaryConfiguration;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class NodeAffinityKeyMapperTests extends GridTestsBase
+{
+
+    @Test
+    public void nodeEntriesColocated() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final IgniteCache<Serializable, Serializable> aspectsCache = grid1.getOrCreateCache(createCacheConfiguration("aspectsTest"));
+            final IgniteCache<Serializable, Serializable> propertiesCache = grid1
+                    .getOrCreateCache(createCacheConfiguration("propertiesTest"));
+
+            for (long nodeId = 1; nodeId <= 100; nodeId++)
+            {
+                final NodeVersionKey nodeVersionKey = new NodeVersionKey(Long.valueOf(nodeId), Long.valueOf(1));
+                final CacheRegionKey aspectsKey = new CacheRegionKey("CACHE_REGION_ASPECTS", nodeVersionKey);
+                final CacheRegionKey propertiesKey = new CacheRegionKey("CACHE_REGION_PROPERTIES", nodeVersionKey);
+
+                final int aspectsPartition = grid1.affinity(aspectsCache.getName()).partition(aspectsKey);
+                final int propertiesPartition = grid1.affinity(propertiesCache.getName()).partition(propertiesKey);
+                Assert.assertEquals("Entries of the same node should be colocated", aspectsPartition, propertiesPartition);
+
+                Assert.assertEquals("Binary and deserialised key should map to the same partition", aspectsPartition,
+                        grid2.affinity(aspectsCache.getName()).partition(grid2.binary().toBinary(aspectsKey)));
+            }
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void rawSerialFormColocated() throws Exception
+    {
+        final IgniteConfiguration conf1 = createRawSerialFormConfiguration(1, false);
+        final IgniteConfiguration conf2 = createRawSerialFormConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final IgniteCache<Serializable, Serializable> aspectsCache = grid1.getOrCreateCache(createCacheConfiguration("aspectsTest"));
+            final IgniteCache<Serializable, Serializable> propertiesCache = grid1
+                    .getOrCreateCache(createCacheConfiguration("propertiesTest"));
+
+            for (long nodeId = 1; nodeId <= 100; nodeId++)
+            {
+                final NodeVersionKey nodeVersionKey = new NodeVersionKey(Long.valueOf(nodeId), Long.valueOf(1));
+                final CacheRegionKey aspectsKey = new CacheRegionKey("CACHE_REGION_ASPECTS", nodeVersionKey);
+                final TransactionalCache.CacheRegionKey propertiesKey = new TransactionalCache.CacheRegionKey("CACHE_REGION_PROPERTIES",
+                        new CacheRegionKey("CACHE_REGION_PROPERTIES", nodeVersionKey));
+
+                final BinaryObject binaryAspectsKey = grid2.binary().toBinary(aspectsKey);
+                final BinaryObject binaryPropertiesKey = grid2.binary().toBinary(propertiesKey);
+                Assert.assertEquals("Node ID should be exposed as a top-level field in raw serial form", Long.valueOf(nodeId),
+                        binaryAspectsKey.field(NodeAffinityKeyMapper.NODE_ID));
+                Assert.assertEquals("Node ID should be exposed as a top-level field in raw serial form", Long.valueOf(nodeId),
+                        binaryPropertiesKey.field(NodeAffinityKeyMapper.NODE_ID));
+
+                final int aspectsPartition = grid1.affinity(aspectsCache.getName()).partition(aspectsKey);
+                Assert.assertEquals("Entries of the same node should be colocated", aspectsPartition,
+                        grid1.affinity(propertiesCache.getName()).partition(propertiesKey));
+                Assert.assertEquals("Binary and deserialised key should map to the same partition", aspectsPartition,
+                        grid2.affinity(aspectsCache.getName()).partition(binaryAspectsKey));
+                Assert.assertEquals("Binary and deserialised key should map to the same partition", aspectsPartition,
+                        grid2.affinity(propertiesCache.getName()).partition(binaryPropertiesKey));
+            }
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    protected static IgniteConfiguration createRawSerialFormConfiguration(final int no, final boolean assumeExisting)
+    {
+        final IgniteConfiguration conf = createConfiguration(no, assumeExisting);
+
+        final BinaryTypeConfiguration binaryTypeConfigurationForCacheRegionKey = new BinaryTypeConfiguration();
+        binaryTypeConfigurationForCacheRegionKey.setTypeName(CacheRegionKey.class.getName());
+        final CacheRegionKeyBinarySerializer serializer = new CacheRegionKeyBinarySerializer();
+        serializer.setUseRawSerialForm(true);
+        binaryTypeConfigurationForCacheRegionKey.setSerializer(serializer);
+
+        final BinaryTypeConfiguration binaryTypeConfigurationForTxnCacheRegionKey = new BinaryTypeConfiguration();
+        binaryTypeConfigurationForTxnCacheRegionKey.setTypeName(TransactionalCache.CacheRegionKey.class.getName());
+        final TransactionalCacheRegionKeyBinarySerializer txnSerializer = new TransactionalCacheRegionKeyBinarySerializer();
+        txnSerializer.setUseRawSerialForm(true);
+        binaryTypeConfigurationForTxnCacheRegionKey.setSerializer(txnSerializer);
+
+        final BinaryConfiguration binaryConfiguration = new BinaryConfiguration();
+        binaryConfiguration.setTypeConfigurations(
+                Arrays.asList(binaryTypeConfigurationForCacheRegionKey, binaryTypeConfigurationForTxnCacheRegionKey));
+        conf.setBinaryConfiguration(binaryConfiguration);
+
+        return conf;
+    }
+
+    protected static CacheConfiguration<Serializable, Serializable> createCacheConfiguration(final String cacheName)
+    {
+        final CacheConfiguration<Serializable, Serializable> cacheConfig = new CacheConfiguration<>();
+        cacheConfig.setName(cacheName);
+        cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+        cacheConfig.setAffinity(new RendezvousAffinityFunction(false, 32));
+        cacheConfig.setAffinityMapper(new NodeAffinityKeyMapper());
+        return cacheConfig;
+    }
+}
@@ -0,0 +1,91 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.alfresco.service.namespace.QName;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class NodeAspectsCacheSetTests
+{
+
+    private static final String NAMESPACE = "http://www.alfresco.org/model/content/1.0";
+
+    private static final QName[] ASPECTS = { QName.createQName(NAMESPACE, "auditable"), QName.createQName(NAMESPACE, "titled"),
+            QName.createQName(NAMESPACE, "author"), QName.createQName(NAMESPACE, "versionable") };
+
+    @Test
+    public void compactReadOperations()
+    {
+        final NodeAspectsCacheSet set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        final Set<QName> control = new HashSet<>(Arrays.asList(ASPECTS));
+
+        Assert.assertEquals(control.size(), set.size());
+        Assert.assertFalse(set.isEmpty());
+        Assert.assertTrue(set.contains(QName.createQName(NAMESPACE, "titled")));
+        Assert.assertFalse(set.contains(QName.createQName(NAMESPACE, "taggable")));
+        Assert.assertTrue(set.containsAll(control));
+        Assert.assertEquals(control, set);
+        Assert.assertEquals(set, control);
+        Assert.assertEquals(control.hashCode(), set.hashCode());
+        Assert.assertEquals(control, new HashSet<>(set));
+        Assert.assertEquals(control, set.stream().collect(Collectors.toSet()));
+        Assert.assertEquals(control, new HashSet<>(Arrays.asList(set.toArray(new QName[0]))));
+        Assert.assertEquals(control.size(), set.toArray().length);
+
+        final Set<QName> visited = new HashSet<>();
+        set.forEach(visited::add);
+        Assert.assertEquals(control, visited);
+
+        Assert.assertTrue("Read operations should not convert compact set", set.isCompact());
+    }
+
+    @Test
+    public void compactMutatingOperations()
+    {
+        final Set<QName> control = new HashSet<>(Arrays.asList(ASPECTS));
+
+        NodeAspectsCacheSet set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        Assert.assertTrue(set.add(QName.createQName(NAMESPACE, "taggable")));
+        Assert.assertFalse(set.isCompact());
+        control.add(QName.createQName(NAMESPACE, "taggable"));
+        Assert.assertEquals(control, set);
+
+        set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        Assert.assertTrue(set.remove(ASPECTS[0]));
+        Assert.assertFalse(set.contains(ASPECTS[0]));
+        Assert.assertEquals(ASPECTS.length - 1, set.size());
+
+        set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        final Iterator<QName> iterator = set.iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().equals(ASPECTS[1]))
+            {
+                iterator.remove();
+            }
+        }
+        Assert.assertFalse(set.contains(ASPECTS[1]));
+        Assert.assertEquals(ASPECTS.length - 1, set.size());
+
+        set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.contains(ASPECTS[0]));
+
+        set = NodeAspectsCacheSet.compact(ASPECTS.clone());
+        @SuppressWarnings("unchecked")
+        final Set<QName> clone = (Set<QName>) set.clone();
+        Assert.assertEquals(set, clone);
+    }
+}
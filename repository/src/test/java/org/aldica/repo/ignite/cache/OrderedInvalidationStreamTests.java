@@ -0,0 +1,125 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class OrderedInvalidationStreamTests extends GridTestsBase
+{
+
+    @Test
+    public void gapDetection() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final OrderedInvalidationStream stream1 = new OrderedInvalidationStream(grid1, "testCache", key -> {
+            }, () -> {
+            });
+
+            final List<Object> invalidations = Collections.synchronizedList(new ArrayList<>());
+            final AtomicInteger clears = new AtomicInteger(0);
+            new OrderedInvalidationStream(grid2, "testCache", invalidations::add, clears::incrementAndGet);
+
+            stream1.send("key1");
+            stream1.sendAll(Arrays.asList("key2", "key3"));
+
+            Thread.sleep(250);
+
+            Assert.assertEquals(Arrays.asList("key1", "key2", "key3"), invalidations);
+            Assert.assertEquals("Contiguous sequence should not have triggered a clear", 0, clears.get());
+
+            // simulate loss of a message
+            synchronized (stream1.sendLock)
+            {
+                stream1.outboundSequences.merge(grid2.cluster().localNode().id(), Long.valueOf(1), Long::sum);
+            }
+            stream1.send("key4");
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("key4", invalidations.get(invalidations.size() - 1));
+            Assert.assertEquals("Gap in sequence should have triggered a clear", 1, clears.get());
+
+            stream1.sendClear();
+
+            Thread.sleep(250);
+
+            Assert.assertEquals(2, clears.get());
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void sequencesDroppedOnNodeLeft() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final OrderedInvalidationStream stream1 = new OrderedInvalidationStream(grid1, "testCache", key -> {
+            }, () -> {
+            });
+            final OrderedInvalidationStream stream2 = new OrderedInvalidationStream(grid2, "testCache", key -> {
+            }, () -> {
+            });
+
+            stream1.send("key1");
+            stream2.send("key2");
+
+            Thread.sleep(250);
+
+            final UUID nodeId2 = grid2.cluster().localNode().id();
+            Assert.assertTrue(stream1.outboundSequences.containsKey(nodeId2));
+            Assert.assertTrue(stream1.inboundSequences.containsKey(nodeId2));
+            Assert.assertTrue("All queued messages should have been sent", stream1.pendingMessages.isEmpty());
+
+            grid2.close();
+
+            Thread.sleep(500);
+
+            synchronized (stream1.sendLock)
+            {
+                Assert.assertFalse("Outbound sequence of server that left should have been dropped",
+                        stream1.outboundSequences.containsKey(nodeId2));
+            }
+            synchronized (stream1.inboundSequences)
+            {
+                Assert.assertFalse("Inbound sequence of server that left should have been dropped",
+                        stream1.inboundSequences.containsKey(nodeId2));
+            }
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class ScanQueryKeyCollectionTests extends GridTestsBase
+{
+
+    @Test
+    public void streamedKeys() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("keyScanTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+
+            final IgniteCache<String, String> igniteCache1 = grid1.getOrCreateCache(cacheConfig);
+            grid2.getOrCreateCache(cacheConfig);
+
+            final SimpleIgniteBackedCache<String, String> cache = new SimpleIgniteBackedCache<>(grid1,
+                    SimpleIgniteBackedCache.Mode.PARTITIONED, igniteCache1, true);
+            cache.setKeyScanPageSize(100);
+
+            final Set<String> expectedKeys = new HashSet<>();
+            for (int i = 0; i < 2500; i++)
+            {
+                cache.put("key" + i, "value" + i);
+                expectedKeys.add("key" + i);
+            }
+
+            final Collection<String> keys = cache.getKeys();
+            Assert.assertEquals(2500, keys.size());
+            Assert.assertTrue(keys.contains("key42"));
+            Assert.assertFalse(keys.contains("unknownKey"));
+
+            final Set<String> streamedKeys = new HashSet<>();
+            keys.forEach(streamedKeys::add);
+            Assert.assertEquals(expectedKeys, streamedKeys);
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.configuration.NearCacheConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class SimpleIgniteBackedCacheTests extends GridTestsBase
+{
+
+    protected static SimpleIgniteBackedCache<String, String> createLocalInvalidatingOnChangeCache(final Ignite grid)
+    {
+        final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+        cacheConfig.setName("localInvalidatingTest");
+        cacheConfig.setCacheMode(CacheMode.LOCAL);
+
+        return new SimpleIgniteBackedCache<>(grid, SimpleIgniteBackedCache.Mode.LOCAL_INVALIDATING_ON_CHANGE,
+                grid.getOrCreateCache(cacheConfig), true);
+    }
+
+    @Test
+    public void invalidationOnChange() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final SimpleIgniteBackedCache<String, String> cache1 = createLocalInvalidatingOnChangeCache(grid1);
+            final SimpleIgniteBackedCache<String, String> cache2 = createLocalInvalidatingOnChangeCache(grid2);
+
+            cache1.put("key1", "value1");
+            cache2.put("key1", "value1");
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("Initial put should not have invalidated other server", "value1", cache2.get("key1"));
+            Assert.assertEquals("Initial put should not have invalidated other server", "value1", cache1.get("key1"));
+
+            cache1.put("key1", "value1");
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("Put without effective change should not have invalidated other server", "value1", cache2.get("key1"));
+
+            cache1.put("key1", "value2");
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Put with effective change should have invalidated other server", cache2.get("key1"));
+            Assert.assertEquals("value2", cache1.get("key1"));
+
+            final Map<String, String> entries = new HashMap<>();
+            entries.put("key2", "value2");
+            entries.put("key3", "value3");
+            cache1.putAll(entries);
+            cache2.putAll(entries);
+
+            Thread.sleep(250);
+
+            entries.put("key3", "value3b");
+            cache1.putAll(entries);
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("Bulk put without effective change should not have invalidated other server", "value2",
+                    cache2.get("key2"));
+            Assert.assertNull("Bulk put with effective change should have invalidated other server", cache2.get("key3"));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void invalidationOnRemove() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final SimpleIgniteBackedCache<String, String> cache1 = createLocalInvalidatingOnChangeCache(grid1);
+            final SimpleIgniteBackedCache<String, String> cache2 = createLocalInvalidatingOnChangeCache(grid2);
+
+            cache2.put("key1", "value1");
+            cache2.put("key2", "value2");
+            cache2.put("key3", "value3");
+            cache2.put("key4", "value4");
+
+            Thread.sleep(250);
+
+            // explicit removals must be propagated even if the removing server does not hold an entry
+            Assert.assertFalse(cache1.contains("key1"));
+            cache1.remove("key1");
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Remove should have invalidated other server", cache2.get("key1"));
+
+            cache1.removeAll(Arrays.asList("key2", "key3"));
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Bulk remove should have invalidated other server", cache2.get("key2"));
+            Assert.assertNull("Bulk remove should have invalidated other server", cache2.get("key3"));
+
+            cache1.put("key4", "value4");
+            cache1.put("key4", null);
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Put of null-value should have invalidated other server", cache2.get("key4"));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void nearCacheAccessCounting() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("nearCacheTest");
+            cacheConfig.setCacheMode(CacheMode.PARTITIONED);
+            cacheConfig.setNearConfiguration(new NearCacheConfiguration<>());
+
+            final SimpleIgniteBackedCache<String, String> cache1 = new SimpleIgniteBackedCache<>(grid1,
+                    SimpleIgniteBackedCache.Mode.PARTITIONED, grid1.getOrCreateCache(cacheConfig), true);
+            final SimpleIgniteBackedCache<String, String> cache2 = new SimpleIgniteBackedCache<>(grid2,
+                    SimpleIgniteBackedCache.Mode.PARTITIONED, grid2.getOrCreateCache(cacheConfig), true);
+
+            int remoteKeys = 0;
+            for (int i = 0; i < 100; i++)
+            {
+                cache2.put("key" + i, "value" + i);
+                if (!grid1.affinity("nearCacheTest").isPrimaryOrBackup(grid1.cluster().localNode(), "key" + i))
+                {
+                    remoteKeys++;
+                }
+            }
+            Assert.assertTrue("Test requires keys held by other server", remoteKeys > 0);
+
+            for (int i = 0; i < 100; i++)
+            {
+                Assert.assertEquals("value" + i, cache1.get("key" + i));
+            }
+
+            Assert.assertEquals("Lookups of keys held by other server should have missed near cache", remoteKeys,
+                    cache1.getNearCacheMisses());
+            Assert.assertEquals(0, cache1.getNearCacheHits());
+
+            for (int i = 0; i < 100; i++)
+            {
+                Assert.assertEquals("value" + i, cache1.get("key" + i));
+            }
+
+            Assert.assertEquals("Repeated lookups of keys held by other server should have hit near cache", remoteKeys,
+                    cache1.getNearCacheHits());
+            Assert.assertEquals(remoteKeys, cache1.getNearCacheMisses());
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+
+    @Test
+    public void negativeLookups() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final CacheConfiguration<String, String> cacheConfig = new CacheConfiguration<>();
+            cacheConfig.setName("localInvalidatingTest");
+            cacheConfig.setCacheMode(CacheMode.LOCAL);
+
+            final SimpleIgniteBackedCache<String, String> cache1 = new SimpleIgniteBackedCache<>(grid1,
+                    SimpleIgniteBackedCache.Mode.LOCAL_INVALIDATING, grid1.getOrCreateCache(cacheConfig), false);
+            final SimpleIgniteBackedCache<String, String> cache2 = new SimpleIgniteBackedCache<>(grid2,
+                    SimpleIgniteBackedCache.Mode.LOCAL_INVALIDATING, grid2.getOrCreateCache(cacheConfig), false);
+            cache1.setNegativeLookupStore(new NegativeLookupStore<>("localInvalidatingTest", 100, 0));
+            cache2.setNegativeLookupStore(new NegativeLookupStore<>("localInvalidatingTest", 100, 0));
+
+            final String sentinel = new String("@@VALUE_NOT_FOUND@@");
+            cache1.put("key1", sentinel);
+
+            Assert.assertSame("Sentinel should have been recorded as negative lookup", sentinel, cache1.get("key1"));
+            Assert.assertTrue("Negative lookup should be included in keys", cache1.getKeys().contains("key1"));
+
+            cache2.put("key1", "value1");
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Put of value on other server should have dropped negative lookup", cache1.get("key1"));
+
+            final SimpleIgniteBackedCache<String, String> partitionedCache = new SimpleIgniteBackedCache<>(grid1,
+                    SimpleIgniteBackedCache.Mode.PARTITIONED, grid1.getOrCreateCache("partitionedTest"), true);
+            try
+            {
+                partitionedCache.setNegativeLookupStore(new NegativeLookupStore<>("partitionedTest", 100, 0));
+                Assert.fail("Negative lookups should not be supported for shared caches");
+            }
+            catch (final IllegalStateException expected)
+            {
+                // NO-OP
+            }
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}
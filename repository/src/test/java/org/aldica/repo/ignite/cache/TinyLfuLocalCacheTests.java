@@ -0,0 +1,151 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Axel Faust
+ */
+public class TinyLfuLocalCacheTests
+{
+
+    @Test
+    public void atomicOperations()
+    {
+        final TinyLfuLocalCache<String, String> cache = new TinyLfuLocalCache<>("testCache", 100, 0, 0);
+
+        Assert.assertNull(cache.getAndPut("key1", "value1"));
+        Assert.assertEquals("value1", cache.getAndPut("key1", "value2"));
+        Assert.assertEquals("value2", cache.get("key1"));
+
+        Assert.assertFalse(cache.removeIf("key1", "value1"::equals));
+        Assert.assertTrue(cache.contains("key1"));
+        Assert.assertTrue(cache.removeIf("key1", "value2"::equals));
+        Assert.assertFalse(cache.contains("key1"));
+
+        cache.put("key2", "value2");
+        Assert.assertEquals("value2", cache.getAndRemove("key2"));
+        Assert.assertNull(cache.getAndRemove("key2"));
+    }
+
+    @Test
+    public void frequentlyAccessedEntriesSurviveScan()
+    {
+        final TinyLfuLocalCache<String, String> cache = new TinyLfuLocalCache<>("testCache", 100, 0, 0);
+
+        for (int i = 0; i < 10; i++)
+        {
+            cache.put("hotKey" + i, "value" + i);
+        }
+        for (int round = 0; round < 20; round++)
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                cache.get("hotKey" + i);
+            }
+        }
+
+        // one-off accesses, e.g. by a bulk job, which would flush a plain LRU cache
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put("scanKey" + i, "value" + i);
+        }
+
+        Assert.assertTrue("Cache should have been bounded", cache.getKeys().size() <= 100);
+        for (int i = 0; i < 10; i++)
+        {
+            Assert.assertTrue("Frequently accessed entry should not have been evicted: hotKey" + i, cache.contains("hotKey" + i));
+        }
+    }
+
+    @Test
+    public void expiryViaTimerWheel() throws Exception
+    {
+        final TinyLfuLocalCache<String, String> cache = new TinyLfuLocalCache<>("testCache", 0, 1, 0);
+
+        cache.put("key1", "value1");
+        Assert.assertEquals("value1", cache.get("key1"));
+
+        Thread.sleep(2100);
+
+        // any write triggers the maintenance which removes expired entries without them having to be accessed
+        cache.put("key2", "value2");
+        Assert.assertFalse("Expired entry should have been removed proactively", cache.entries.containsKey("key1"));
+        Assert.assertEquals("value2", cache.get("key2"));
+    }
+
+    @Test
+    public void clear()
+    {
+        final TinyLfuLocalCache<String, String> cache = new TinyLfuLocalCache<>("testCache", 100, 0, 0);
+
+        for (int i = 0; i < 50; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.clear();
+
+        Assert.assertTrue(cache.getKeys().isEmpty());
+        Assert.assertEquals(0, cache.windowSize + cache.probationSize + cache.protectedSize);
+
+        cache.put("key1", "value1");
+        Assert.assertEquals("value1", cache.get("key1"));
+    }
+
+    @Test
+    public void policyConsistentAfterConcurrentAccess() throws Exception
+    {
+        final TinyLfuLocalCache<Integer, Integer> cache = new TinyLfuLocalCache<>("testCache", 100, 0, 0);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            final Thread thread = new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++)
+                {
+                    final Integer key = Integer.valueOf(random.nextInt(500));
+                    final int op = random.nextInt(10);
+                    if (op < 6)
+                    {
+                        cache.get(key);
+                    }
+                    else if (op < 9)
+                    {
+                        cache.put(key, key);
+                    }
+                    else
+                    {
+                        cache.remove(key);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        cache.maintenanceLock.lock();
+        try
+        {
+            cache.performMaintenance();
+            Assert.assertTrue("Cache should have been bounded", cache.entries.size() <= 100);
+            Assert.assertEquals("Policy should track exactly the entries of the cache", cache.entries.size(),
+                    cache.windowSize + cache.probationSize + cache.protectedSize);
+        }
+        finally
+        {
+            cache.maintenanceLock.unlock();
+        }
+    }
+}
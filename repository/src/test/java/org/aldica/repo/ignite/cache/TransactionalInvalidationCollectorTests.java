@@ -0,0 +1,137 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package org.aldica.repo.ignite.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.aldica.common.ignite.GridTestsBase;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author Axel Faust
+ */
+public class TransactionalInvalidationCollectorTests extends GridTestsBase
+{
+
+    protected static void beginTransaction()
+    {
+        // sufficient for TransactionSupportUtil to bind listeners / resources - actual transaction manager not needed
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @After
+    public void endTransaction()
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.clear();
+        }
+        new ArrayList<>(TransactionSynchronizationManager.getResourceMap().keySet())
+                .forEach(TransactionSynchronizationManager::unbindResource);
+    }
+
+    @Test
+    public void noTransaction()
+    {
+        final List<Collection<Serializable>> handledInvalidations = new ArrayList<>();
+        final TransactionalInvalidationCollector<Serializable> collector = new TransactionalInvalidationCollector<>("testCache",
+                handledInvalidations::add);
+
+        Assert.assertFalse("Invalidation outside of transaction must not be collected", collector.collect("key1"));
+        Assert.assertFalse("Invalidations outside of transaction must not be collected",
+                collector.collectAll(Arrays.asList("key2", "key3")));
+        Assert.assertTrue(handledInvalidations.isEmpty());
+    }
+
+    @Test
+    public void collectAndCoalesce()
+    {
+        final List<Collection<Serializable>> handledInvalidations = new ArrayList<>();
+        final TransactionalInvalidationCollector<Serializable> collector = new TransactionalInvalidationCollector<>("testCache",
+                handledInvalidations::add);
+
+        beginTransaction();
+
+        Assert.assertTrue(collector.collect("key1"));
+        Assert.assertTrue(collector.collect(new VersionedInvalidation("key2", 3)));
+        Assert.assertTrue(collector.collect(new VersionedInvalidation("key2", 5)));
+        Assert.assertTrue(collector.collectAll(Arrays.asList(new VersionedInvalidation("key2", 4), "key3", "key1")));
+        // unversioned invalidation supersedes any version
+        Assert.assertTrue(collector.collect(new VersionedInvalidation("key3", 7)));
+
+        Assert.assertTrue("Invalidations must not be handled before transaction completes", handledInvalidations.isEmpty());
+
+        collector.afterCommit();
+
+        Assert.assertEquals("All invalidations should have been handled in bulk", 1, handledInvalidations.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("key1", new VersionedInvalidation("key2", 5), "key3")),
+                new HashSet<>(handledInvalidations.get(0)));
+
+        // collected invalidations must only be processed once
+        collector.afterRollback();
+        Assert.assertEquals(1, handledInvalidations.size());
+    }
+
+    @Test
+    public void bulkInvalidationOnCommit() throws Exception
+    {
+        final IgniteConfiguration conf1 = createConfiguration(1, false);
+        final IgniteConfiguration conf2 = createConfiguration(2, true);
+
+        try
+        {
+            final Ignite grid1 = Ignition.start(conf1);
+            final Ignite grid2 = Ignition.start(conf2);
+
+            final InvalidatingCacheFacade<Long, Serializable> cache1 = new InvalidatingCacheFacade<>("cache.testSharedCache",
+                    new DefaultSimpleCache<>(100, "cache.testSharedCache"), grid1, true, true);
+            final InvalidatingCacheFacade<Long, Serializable> cache2 = new InvalidatingCacheFacade<>("cache.testSharedCache",
+                    new DefaultSimpleCache<>(100, "cache.testSharedCache"), grid2, true, true);
+
+            cache2.put(Long.valueOf(1), "value1");
+            cache2.put(Long.valueOf(2), "value2");
+
+            Thread.sleep(250);
+
+            beginTransaction();
+
+            // first read binds collector to transaction
+            Assert.assertNull(cache1.get(Long.valueOf(1)));
+            cache1.put(Long.valueOf(1), "value1b");
+            cache1.remove(Long.valueOf(2));
+
+            Thread.sleep(250);
+
+            Assert.assertEquals("Invalidation should have been deferred until transaction completes", "value1",
+                    cache2.get(Long.valueOf(1)));
+            Assert.assertEquals("Invalidation should have been deferred until transaction completes", "value2",
+                    cache2.get(Long.valueOf(2)));
+
+            cache1.invalidationCollector.afterCommit();
+
+            Thread.sleep(250);
+
+            Assert.assertNull("Bulk invalidation should have dropped entry", cache2.get(Long.valueOf(1)));
+            Assert.assertNull("Bulk invalidation should have dropped entry", cache2.get(Long.valueOf(2)));
+            Assert.assertEquals("value1b", cache1.get(Long.valueOf(1)));
+        }
+        finally
+        {
+            Ignition.stopAll(true);
+        }
+    }
+}